@@ -0,0 +1,17 @@
+-- FoxBPM运行表索引，已有数据库升级时单独执行，新建数据库时mysql.sql中已包含
+CREATE INDEX `IDX_RUN_TASK_PI` ON `FOXBPM_RUN_TASK` (`PROCESSINSTANCE_ID`);
+CREATE INDEX `IDX_RUN_TASK_TOKEN` ON `FOXBPM_RUN_TASK` (`TOKEN_ID`);
+CREATE INDEX `IDX_RUN_TASK_ASSIGNEE` ON `FOXBPM_RUN_TASK` (`ASSIGNEE`, `END_TIME`);
+CREATE INDEX `IDX_RUN_TASK_PDKEY` ON `FOXBPM_RUN_TASK` (`PROCESSDEFINITION_KEY`(191));
+CREATE INDEX `IDX_RUN_TASK_CREATE` ON `FOXBPM_RUN_TASK` (`CREATE_TIME`, `ID`);
+CREATE INDEX `IDX_RUN_TIL_TASK` ON `FOXBPM_RUN_TASKIDENTITYLINK` (`TASK_ID`);
+CREATE INDEX `IDX_RUN_TIL_USER` ON `FOXBPM_RUN_TASKIDENTITYLINK` (`USER_ID`, `TASK_ID`);
+CREATE INDEX `IDX_RUN_TIL_GROUP` ON `FOXBPM_RUN_TASKIDENTITYLINK` (`GROUP_ID`, `GROUP_TYPE`, `TASK_ID`);
+CREATE INDEX `IDX_RUN_TOKEN_PI` ON `FOXBPM_RUN_TOKEN` (`PROCESSINSTANCE_ID`);
+CREATE INDEX `IDX_RUN_TOKEN_PARENT` ON `FOXBPM_RUN_TOKEN` (`PARENT_ID`);
+CREATE INDEX `IDX_RUN_TOKEN_START` ON `FOXBPM_RUN_TOKEN` (`START_TIME`, `ID`);
+CREATE INDEX `IDX_RUN_PI_START` ON `FOXBPM_RUN_PROCESSINSTANCE` (`START_TIME`, `ID`);
+CREATE INDEX `IDX_RUN_VAR_PI_KEY` ON `FOXBPM_RUN_VARIABLE` (`PROCESSINSTANCE_ID`, `VARIABLE_KEY`);
+CREATE INDEX `IDX_RUN_VAR_TASK` ON `FOXBPM_RUN_VARIABLE` (`TASK_ID`);
+CREATE INDEX `IDX_RUN_VAR_TOKEN` ON `FOXBPM_RUN_VARIABLE` (`TOKEN_ID`);
+CREATE INDEX `IDX_RUN_TRACK_PI` ON `FOXBPM_RUN_RUNNINGTRACK` (`PROCESSINSTANCE_ID`);
@@ -311,6 +311,24 @@ create table FOXBPM_RUN_VARIABLE
 alter table FOXBPM_RUN_VARIABLE
   add primary key (ID);
 
+-- 运行表索引，来源于mapper中的查询条件
+create index IDX_RUN_TASK_PI on FOXBPM_RUN_TASK (PROCESSINSTANCE_ID);
+create index IDX_RUN_TASK_TOKEN on FOXBPM_RUN_TASK (TOKEN_ID);
+create index IDX_RUN_TASK_ASSIGNEE on FOXBPM_RUN_TASK (ASSIGNEE, END_TIME);
+create index IDX_RUN_TASK_PDKEY on FOXBPM_RUN_TASK (PROCESSDEFINITION_KEY);
+create index IDX_RUN_TASK_CREATE on FOXBPM_RUN_TASK (CREATE_TIME, ID);
+create index IDX_RUN_TIL_TASK on FOXBPM_RUN_TASKIDENTITYLINK (TASK_ID);
+create index IDX_RUN_TIL_USER on FOXBPM_RUN_TASKIDENTITYLINK (USER_ID, TASK_ID);
+create index IDX_RUN_TIL_GROUP on FOXBPM_RUN_TASKIDENTITYLINK (GROUP_ID, GROUP_TYPE, TASK_ID);
+create index IDX_RUN_TOKEN_PI on FOXBPM_RUN_TOKEN (PROCESSINSTANCE_ID);
+create index IDX_RUN_TOKEN_PARENT on FOXBPM_RUN_TOKEN (PARENT_ID);
+create index IDX_RUN_TOKEN_START on FOXBPM_RUN_TOKEN (START_TIME, ID);
+create index IDX_RUN_PI_START on FOXBPM_RUN_PROCESSINSTANCE (START_TIME, ID);
+create index IDX_RUN_VAR_PI_KEY on FOXBPM_RUN_VARIABLE (PROCESSINSTANCE_ID, VARIABLE_KEY);
+create index IDX_RUN_VAR_TASK on FOXBPM_RUN_VARIABLE (TASK_ID);
+create index IDX_RUN_VAR_TOKEN on FOXBPM_RUN_VARIABLE (TOKEN_ID);
+create index IDX_RUN_TRACK_PI on FOXBPM_RUN_RUNNINGTRACK (PROCESSINSTANCE_ID);
+
 create table QRTZ_JOB_DETAILS
 (
   sched_name        VARCHAR2(120) not null,
@@ -146,6 +146,8 @@ public interface BpmnXMLConstants {
 	String ATTRIBUTE_FOXBPM_CLAIMTYPE = "claimType";
 	/** taskType */
 	String ATTRIBUTE_FOXBPM_TASKTYPE = "taskType";
+	/** async */
+	String ATTRIBUTE_FOXBPM_ASYNC = "async";
 	/** connrctorType */
 	String ATTRIBUTE_CONNRCTORTYPE = "connrctorType";
 	
@@ -45,6 +45,8 @@ public abstract class ActivityXMLConverter extends FlowNodeXMLConverter {
 	@SuppressWarnings("unchecked")
 	public void convertXMLToModel(Element element, BaseElement baseElement) {
 		Activity activity = (Activity) baseElement;
+		// 异步执行
+		activity.setAsync(Boolean.parseBoolean(element.attributeValue(BpmnXMLConstants.ATTRIBUTE_FOXBPM_ASYNC)));
 		Element childElem = null;
 		String nodeName = null;
 		// 处理跳过策略
@@ -74,6 +76,9 @@ public abstract class ActivityXMLConverter extends FlowNodeXMLConverter {
 	public void convertModelToXML(Element element, BaseElement baseElement) {
 		Activity activity = (Activity) baseElement;
 		SkipStrategy skipStrategy = activity.getSkipStrategy(); 
+		if (activity.isAsync()) {
+			element.addAttribute(BpmnXMLConstants.FOXBPM_PREFIX + ":" + BpmnXMLConstants.ATTRIBUTE_FOXBPM_ASYNC, "true");
+		}
 		
 		Element extensionElement = element.element(BpmnXMLConstants.ELEMENT_EXTENSION_ELEMENTS);
 		if(extensionElement == null){
@@ -52,6 +52,8 @@ public class ParallelGatewayXMLConverter extends GatewayXMLConverter {
 		if (null != gatewayDirection) {
 			parallelGateway.setGatewayDirection(gatewayDirection);
 		}
+		// 异步分支、汇聚
+		parallelGateway.setAsync(Boolean.parseBoolean(element.attributeValue(BpmnXMLConstants.ATTRIBUTE_FOXBPM_ASYNC)));
 		super.convertXMLToModel(element, baseElement);
 	}
 	
@@ -64,6 +66,9 @@ public class ParallelGatewayXMLConverter extends GatewayXMLConverter {
 		if (null != parallelGateway.getGatewayDirection()) {
 			element.addAttribute(BpmnXMLConstants.ATTRIBUTE_GATEWAYDIRECTION, parallelGateway.getGatewayDirection());
 		}
+		if (parallelGateway.isAsync()) {
+			element.addAttribute(BpmnXMLConstants.FOXBPM_PREFIX + ':' + BpmnXMLConstants.ATTRIBUTE_FOXBPM_ASYNC, "true");
+		}
 		super.convertModelToXML(element, baseElement);
 	}
 	
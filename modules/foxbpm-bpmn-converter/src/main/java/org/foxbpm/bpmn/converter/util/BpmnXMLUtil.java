@@ -244,6 +244,7 @@ public class BpmnXMLUtil {
 			connector.setErrorCode(element.attributeValue(BpmnXMLConstants.ATTRIBUTE_ERRORCODE));
 			connector.setErrorHandling(element.attributeValue(BpmnXMLConstants.ATTRIBUTE_ERRORHANDLING));
 			connector.setIsTimeExecute(element.attributeValue(BpmnXMLConstants.ATTRIBUTE_ISTIMEEXECUTE));
+			connector.setAsync(Boolean.parseBoolean(element.attributeValue(BpmnXMLConstants.ATTRIBUTE_FOXBPM_ASYNC)));
 			connector.setType(element.attributeValue(BpmnXMLConstants.ATTRIBUTE_TYPE));
 		}
 	}
@@ -325,6 +326,9 @@ public class BpmnXMLUtil {
 				        + BpmnXMLConstants.ELEMENT_CONNECTORINSTANCE);
 				connectorInstanceElem.addAttribute(BpmnXMLConstants.ATTRIBUTE_PACKAGENAME, connector.getPackageName());
 				connectorInstanceElem.addAttribute(BpmnXMLConstants.ATTRIBUTE_ISTIMEEXECUTE, connector.getIsTimeExecute());
+				if (connector.isAsync()) {
+					connectorInstanceElem.addAttribute(BpmnXMLConstants.ATTRIBUTE_FOXBPM_ASYNC, "true");
+				}
 				connectorInstanceElem.addAttribute(BpmnXMLConstants.ATTRIBUTE_CONNECTORID, connector.getId());
 				connectorInstanceElem.addAttribute(BpmnXMLConstants.ATTRIBUTE_CLASSNAME, connector.getClassName());
 				connectorInstanceElem.addAttribute(BpmnXMLConstants.ATTRIBUTE_CONNECTORINSTANCE_ID, connector.getConnectorInstanceId());
@@ -37,6 +37,11 @@ public abstract class Activity extends FlowNode {
 	 */
 	protected LoopCharacteristics loopCharacteristics;
 
+	/**
+	 * 是否异步执行，异步时令牌进入节点后先提交，由调度线程继续执行节点
+	 */
+	protected boolean async;
+
 	public SkipStrategy getSkipStrategy() {
 		return skipStrategy;
 	}
@@ -52,4 +57,12 @@ public abstract class Activity extends FlowNode {
 	public void setLoopCharacteristics(LoopCharacteristics loopCharacteristics) {
 		this.loopCharacteristics = loopCharacteristics;
 	}
+
+	public boolean isAsync() {
+		return async;
+	}
+
+	public void setAsync(boolean async) {
+		this.async = async;
+	}
 }
@@ -106,6 +106,10 @@ public class Connector extends BaseElement {
 	 * 时间执行
 	 */
 	protected String isTimeExecute;
+	/**
+	 * 是否异步执行，异步时由调度线程在新的事务中执行
+	 */
+	protected boolean async;
 	/**
 	 * 类型
 	 */
@@ -214,6 +218,14 @@ public class Connector extends BaseElement {
 		this.isTimeExecute = isTimeExecute;
 	}
 	
+	public boolean isAsync() {
+		return async;
+	}
+	
+	public void setAsync(boolean async) {
+		this.async = async;
+	}
+	
 	public String getTimerSkipExpression() {
 		return timerSkipExpression;
 	}
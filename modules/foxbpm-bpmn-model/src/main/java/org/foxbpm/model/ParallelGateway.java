@@ -29,6 +29,11 @@ public class ParallelGateway extends Gateway {
 	
 	protected String convergType;
 	
+	/**
+	 * 是否异步，分支时每个分支在单独的命令中并发执行，汇聚时每个到达的分支在单独的命令中合并
+	 */
+	protected boolean async;
+	
 	public void setConvergType(String convergType) {
 		this.convergType = convergType;
 	}
@@ -36,5 +41,13 @@ public class ParallelGateway extends Gateway {
 	public String getConvergType() {
 		return convergType;
 	}
+	
+	public boolean isAsync() {
+		return async;
+	}
+	
+	public void setAsync(boolean async) {
+		this.async = async;
+	}
 
 }
@@ -18,12 +18,15 @@
  */
 package org.foxbpm.engine;
 
+import java.util.List;
 import java.util.Map;
 
 import org.foxbpm.engine.datavariable.VariableQuery;
 import org.foxbpm.engine.runningtrack.RunningTrackQuery;
+import org.foxbpm.engine.runtime.BatchStartResult;
 import org.foxbpm.engine.runtime.ProcessInstance;
 import org.foxbpm.engine.runtime.ProcessInstanceQuery;
+import org.foxbpm.engine.runtime.ProcessInstanceStartItem;
 import org.foxbpm.engine.runtime.TokenQuery;
 
 public interface RuntimeService {
@@ -72,6 +75,29 @@ public interface RuntimeService {
 	 */
 	ProcessInstance startProcessInstanceByKey(String processDefinitionKey, String bizKey, Map<String, Object> transientVariables, Map<String, Object> persistenceVariables);
 
+	/**
+	 * 根据流程定义Key批量启动流程，所有实例使用同一个最新版本
+	 * <p>
+	 * 流程定义只查询一次，每processStartBatchSize个实例在一个命令和事务中启动并批量插入。某一批出错时整批回滚，
+	 * 再逐个实例单独启动，单个实例失败不影响其他实例。
+	 * 
+	 * @param processDefinitionKey
+	 * @param startItems
+	 *            每个实例的启动参数
+	 * @return 每个实例的启动结果和吞吐量统计
+	 */
+	BatchStartResult startProcessInstancesByKey(String processDefinitionKey, List<ProcessInstanceStartItem> startItems);
+
+	/**
+	 * 根据流程定义id(唯一编号)批量启动流程，处理方式同startProcessInstancesByKey
+	 * 
+	 * @param processDefinitionId
+	 * @param startItems
+	 *            每个实例的启动参数
+	 * @return 每个实例的启动结果和吞吐量统计
+	 */
+	BatchStartResult startProcessInstancesById(String processDefinitionId, List<ProcessInstanceStartItem> startItems);
+
 	/**
 	 * 根据流程定义id(唯一编号)启动流程
 	 * 
@@ -175,6 +201,17 @@ public interface RuntimeService {
 	 *            持久化变量
 	 */
 	void signal(String tokenId, Map<String, Object> transientVariables, Map<String, Object> persistenceVariables);
+	
+	/**
+	 * 批量设置流程实例的持久化变量，已存在的变量更新，不存在的插入，
+	 * 已有变量一次查询加载，所有变量在同一事务中写入
+	 * 
+	 * @param processInstanceId
+	 *            流程实例编号
+	 * @param variables
+	 *            持久化变量
+	 */
+	void setVariables(String processInstanceId, Map<String, Object> variables);
 
 	/**
 	 * 创建令牌查询对象
@@ -18,6 +18,7 @@
 package org.foxbpm.engine;
 
 import java.util.List;
+import java.util.Map;
 
 import org.foxbpm.engine.impl.schedule.FoxbpmScheduler;
 import org.quartz.Trigger;
@@ -60,4 +61,27 @@ public interface ScheduleService {
 	 * @param group
 	 */
 	public List<Trigger> getTriggerList(String jobName, String jobGroup);
+
+	/**
+	 * 获取重试次数用完仍然失败的异步任务
+	 * 
+	 * @return 每个任务的数据，包括jobName、processInstanceId、tokenId、nodeId、connectorId、retries、exceptionMessage、failedTime等
+	 */
+	public List<Map<String, Object>> getFailedAsyncJobs();
+
+	/**
+	 * 重新执行失败的异步任务，重试次数重新计算
+	 * 
+	 * @param jobName
+	 *            getFailedAsyncJobs()返回的jobName
+	 */
+	public void retryFailedAsyncJob(String jobName);
+
+	/**
+	 * 删除失败的异步任务，不再执行
+	 * 
+	 * @param jobName
+	 *            getFailedAsyncJobs()返回的jobName
+	 */
+	public void deleteFailedAsyncJob(String jobName);
 }
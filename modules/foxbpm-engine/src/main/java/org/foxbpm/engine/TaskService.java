@@ -29,6 +29,7 @@ import org.foxbpm.engine.impl.task.command.ExpandTaskCommand;
 import org.foxbpm.engine.query.NativeTaskQuery;
 import org.foxbpm.engine.task.Task;
 import org.foxbpm.engine.task.TaskCommand;
+import org.foxbpm.engine.task.TaskCompleteResult;
 import org.foxbpm.engine.task.TaskQuery;
 import org.foxbpm.kernel.process.KernelFlowNode;
 
@@ -140,6 +141,15 @@ public interface TaskService {
 	 */
 	<T> T expandTaskComplete(ExpandTaskCommand expandTaskCommand, T classReturn);
 	
+	/**
+	 * <p>批量完成任务</p>
+	 * <p>任务按流程实例分组后每taskCompleteBatchSize个在一个命令和事务中执行，同一流程实例的数据只加载一次。</p>
+	 * <p>某一批中有任务失败时整批回滚，再逐个任务单独执行，单个任务失败不影响其他任务。</p>
+	 * @param expandTaskCommands 任务命令，每个任务一个
+	 * @return 每个任务的处理结果，顺序与参数一致
+	 */
+	List<TaskCompleteResult> completeTasks(List<ExpandTaskCommand> expandTaskCommands);
+	
 	/**
 	 * 获取任务节点上的toolbar
 	 * @param taskId
@@ -0,0 +1,57 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author ych
+ */
+package org.foxbpm.engine.cache;
+
+/**
+ * 缓存命中统计信息
+ * 
+ * @author ych
+ */
+public interface CacheStatistics {
+
+	/**
+	 * 命中次数
+	 */
+	long getHitCount();
+
+	/**
+	 * 未命中次数(包括已过期的条目)
+	 */
+	long getMissCount();
+
+	/**
+	 * 因容量或权重超限被淘汰的条目数
+	 */
+	long getEvictionCount();
+
+	/**
+	 * 因超时失效被移除的条目数
+	 */
+	long getExpiredCount();
+
+	/**
+	 * 当前缓存条目数
+	 */
+	int size();
+
+	/**
+	 * 当前缓存总权重
+	 */
+	long getWeight();
+
+}
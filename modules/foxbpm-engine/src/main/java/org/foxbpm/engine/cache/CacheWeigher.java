@@ -0,0 +1,38 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author ych
+ */
+package org.foxbpm.engine.cache;
+
+/**
+ * 缓存条目权重计算器，用于按权重(而非条目数)限制缓存容量
+ * 
+ * @author ych
+ */
+public interface CacheWeigher<T> {
+
+	/**
+	 * 计算缓存条目的权重，返回值必须大于等于0
+	 * 
+	 * @param id
+	 *            缓存键
+	 * @param object
+	 *            缓存对象
+	 * @return 权重
+	 */
+	int weigh(String id, T object);
+
+}
@@ -19,6 +19,7 @@ package org.foxbpm.engine.config;
 
 import java.util.List;
 
+import org.foxbpm.engine.impl.cache.CacheDefinitionImpl;
 import org.foxbpm.engine.impl.datavariable.DataObjectDefinitionImpl;
 import org.foxbpm.engine.impl.event.EventListenerImpl;
 import org.foxbpm.engine.impl.task.TaskCommandDefinitionImpl;
@@ -35,6 +36,7 @@ public class FoxBPMConfig {
 	protected List<EventListenerImpl> eventListeners;
 	protected List<DataObjectDefinitionImpl> dataObjectDefinitions;
 	protected List<ProcessEngineConfigurator> configurators;
+	protected List<CacheDefinitionImpl> cacheDefinitions;
 	
 	public List<TaskCommandDefinitionImpl> getTaskCommandDefinitions() {
 		return taskCommandDefinitions;
@@ -68,6 +70,14 @@ public class FoxBPMConfig {
 		return configurators;
 	}
 	
+	public List<CacheDefinitionImpl> getCacheDefinitions() {
+		return cacheDefinitions;
+	}
+	
+	public void setCacheDefinitions(List<CacheDefinitionImpl> cacheDefinitions) {
+		this.cacheDefinitions = cacheDefinitions;
+	}
+	
 	public void addConfig(FoxBPMConfig other) {
 		if (other == null) {
 			return;
@@ -104,5 +114,13 @@ public class FoxBPMConfig {
 				configurators.addAll(other.getConfigurators());
 			}
 		}
+		
+		if (other.getCacheDefinitions() != null) {
+			if (cacheDefinitions == null) {
+				cacheDefinitions = other.getCacheDefinitions();
+			} else {
+				cacheDefinitions.addAll(other.getCacheDefinitions());
+			}
+		}
 	}
 }
@@ -0,0 +1,61 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author ych
+ */
+package org.foxbpm.engine.datavariable;
+
+/**
+ * 流程变量序列化扩展点
+ * <p>
+ * 变量值写入FOXBPM_RUN_VARIABLE.VARIABLE_VALUE时，按注册顺序选择第一个支持该值的序列化器，
+ * BLOB首字节写入{@link #getFormat()}，读取时根据首字节选择序列化器。
+ * 自定义序列化器可通过META-INF/services/org.foxbpm.engine.datavariable.VariableSerializer
+ * 或ProcessEngineConfigurationImpl.setCustomVariableSerializers注册，优先于内置序列化器。
+ * 
+ * @author ych
+ */
+public interface VariableSerializer {
+
+	/**
+	 * 格式标识，写在BLOB首字节。
+	 * 0xAC为java序列化流的首字节，已被内置java序列化器占用，自定义序列化器不能使用。
+	 */
+	byte getFormat();
+
+	/**
+	 * 是否支持序列化该变量值
+	 * 
+	 * @param value
+	 *            变量值，不为null
+	 */
+	boolean isSupport(Object value);
+
+	/**
+	 * 序列化变量值，返回结果不含格式标识字节
+	 */
+	byte[] serialize(Object value);
+
+	/**
+	 * 反序列化变量值
+	 * 
+	 * @param bytes
+	 *            BLOB内容
+	 * @param offset
+	 *            变量值起始位置(跳过格式标识字节)
+	 */
+	Object deserialize(byte[] bytes, int offset);
+
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.db;
+
+/**
+ * 支持修改标记的持久化对象，setter修改持久化字段时记录修改标记。
+ * <p>
+ * 开启配置dirtyTrackingEnabled后，从数据库加载的对象不再保存getPersistentState()快照，
+ * flush时只更新有修改标记的对象，并且只update修改过的列(StatementMap中的部分更新语句)。
+ *
+ * @author ych
+ */
+public interface DirtyTrackable {
+
+	/**
+	 * 开始记录修改，清空已有的修改标记，对象加载到缓存和update成功后调用
+	 */
+	void startDirtyTracking();
+
+	/**
+	 * 停止记录修改，flush时按快照比较并使用完整的update语句
+	 */
+	void stopDirtyTracking();
+
+	boolean isDirtyTracking();
+
+	/**
+	 * @return 开始记录后是否修改过持久化字段
+	 */
+	boolean isDirty();
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.exception;
+
+/**
+ * 乐观锁冲突，更新时版本号(REV_)已被其他事务修改。重新加载数据后可以再次执行。
+ *
+ * @author ych
+ */
+public class FoxBPMOptimisticLockingException extends FoxBPMException {
+
+	private static final long serialVersionUID = 1L;
+
+	public FoxBPMOptimisticLockingException(String exceptionCode) {
+		super(exceptionCode);
+	}
+
+	/**
+	 * 异常或其原因是否为乐观锁冲突
+	 *
+	 * @param throwable
+	 * @return
+	 */
+	public static boolean isCausedBy(Throwable throwable) {
+		Throwable cause = throwable;
+		while (cause != null) {
+			if (cause instanceof FoxBPMOptimisticLockingException) {
+				return true;
+			}
+			cause = cause.getCause() == cause ? null : cause.getCause();
+		}
+		return false;
+	}
+}
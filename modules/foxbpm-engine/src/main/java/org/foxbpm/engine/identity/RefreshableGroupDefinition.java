@@ -0,0 +1,45 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author ych
+ */
+package org.foxbpm.engine.identity;
+
+import java.util.List;
+
+import org.foxbpm.engine.impl.entity.GroupEntity;
+
+/**
+ * 缓存了组织结构快照的组定义，用户变化时由引擎通知刷新该用户的成员关系
+ * @author ych
+ *
+ */
+public interface RefreshableGroupDefinition extends GroupDefinition {
+
+	/**
+	 * 重新加载指定用户所在的组，只更新该用户的成员关系
+	 * <p>使用场景：新增、修改、删除用户后调用</p>
+	 * @param userId
+	 */
+	void refreshUser(String userId);
+
+	/**
+	 * 不经过快照，在当前事务中直接查询用户所在的组
+	 * <p>使用场景：用户修改后、事务提交前，确定需要清除哪些组的成员缓存</p>
+	 * @param userId
+	 * @return
+	 */
+	List<GroupEntity> selectCurrentGroupsByUserId(String userId);
+}
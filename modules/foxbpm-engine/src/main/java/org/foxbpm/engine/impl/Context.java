@@ -91,6 +91,19 @@ public class Context {
 		getStack(abstractScriptLanguageMgmtThreadLocal).push(abstractScriptLanguageMgmt);
 	}
 	
+	/**
+	 * 移除并关闭栈顶的脚本管理器，与setAbstractScriptLanguageMgmt成对使用
+	 */
+	public static void removeAbstractScriptLanguageMgmt() {
+		Stack<AbstractScriptLanguageMgmt> stack = getStack(abstractScriptLanguageMgmtThreadLocal);
+		if (!stack.isEmpty()) {
+			AbstractScriptLanguageMgmt scriptManagement = stack.pop();
+			if (scriptManagement != null) {
+				scriptManagement.close();
+			}
+		}
+	}
+	
 	protected static <T> Stack<T> getStack(ThreadLocal<Stack<T>> threadLocal) {
 		Stack<T> stack = threadLocal.get();
 		if (stack == null) {
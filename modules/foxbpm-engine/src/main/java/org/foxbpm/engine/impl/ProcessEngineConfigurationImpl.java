@@ -42,9 +42,11 @@ import org.foxbpm.engine.ProcessService;
 import org.foxbpm.engine.RuntimeService;
 import org.foxbpm.engine.TaskService;
 import org.foxbpm.engine.cache.Cache;
+import org.foxbpm.engine.cache.CacheWeigher;
 import org.foxbpm.engine.calendar.WorkCalendar;
 import org.foxbpm.engine.config.FoxBPMConfig;
 import org.foxbpm.engine.config.ProcessEngineConfigurator;
+import org.foxbpm.engine.datavariable.VariableSerializer;
 import org.foxbpm.engine.event.EventListener;
 import org.foxbpm.engine.exception.ExceptionI18NCore;
 import org.foxbpm.engine.exception.FoxBPMException;
@@ -52,7 +54,10 @@ import org.foxbpm.engine.identity.GroupDefinition;
 import org.foxbpm.engine.identity.UserDefinition;
 import org.foxbpm.engine.impl.bpmn.deployer.BpmnDeployer;
 import org.foxbpm.engine.impl.bpmn.deployer.PngDeployer;
+import org.foxbpm.engine.impl.cache.CacheDefinitionImpl;
+import org.foxbpm.engine.impl.cache.ConcurrentCache;
 import org.foxbpm.engine.impl.cache.DefaultCache;
+import org.foxbpm.engine.impl.datavariable.VariableSerializerFactory;
 import org.foxbpm.engine.impl.diagramview.svg.SVGTemplateContainer;
 import org.foxbpm.engine.impl.event.EventListenerImpl;
 import org.foxbpm.engine.impl.identity.GroupDeptImpl;
@@ -85,17 +90,22 @@ import org.foxbpm.engine.impl.persistence.VariableManager;
 import org.foxbpm.engine.impl.persistence.deploy.Deployer;
 import org.foxbpm.engine.impl.persistence.deploy.DeploymentManager;
 import org.foxbpm.engine.impl.schedule.FoxbpmScheduler;
+import org.foxbpm.engine.impl.scriptlanguage.GroovyScriptCache;
 import org.foxbpm.engine.impl.task.filter.AbstractCommandFilter;
+import org.foxbpm.engine.impl.transaction.StandaloneTransactionContextFactory;
+import org.foxbpm.engine.impl.util.DBIndexChecker;
 import org.foxbpm.engine.impl.util.ExceptionUtil;
 import org.foxbpm.engine.impl.util.FoxBPMCfgParseUtil;
 import org.foxbpm.engine.impl.util.ListenerComparator;
 import org.foxbpm.engine.impl.util.ReflectUtil;
 import org.foxbpm.engine.impl.util.ServiceLoader;
+import org.foxbpm.engine.impl.util.StringUtil;
 import org.foxbpm.engine.impl.workcalendar.DefaultWorkCalendar;
 import org.foxbpm.engine.modelparse.ProcessModelParseHandler;
 import org.foxbpm.engine.repository.ProcessDefinition;
 import org.foxbpm.engine.sqlsession.ISqlSessionFactory;
 import org.foxbpm.engine.task.TaskCommandDefinition;
+import org.foxbpm.engine.transaction.TransactionContextFactory;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
 import org.quartz.SchedulerFactory;
@@ -109,6 +119,7 @@ public class ProcessEngineConfigurationImpl extends ProcessEngineConfiguration {
 	protected List<ProcessEngineConfigurator> allConfigurators;
 	protected CommandExecutor commandExecutor;
 	protected CommandContextFactory commandContextFactory;
+	protected TransactionContextFactory transactionContextFactory;
 	protected List<CommandInterceptor> commandInterceptors;
 	protected FoxBPMConfig foxBpmConfig = new FoxBPMConfig();
 	// service
@@ -124,6 +135,8 @@ public class ProcessEngineConfigurationImpl extends ProcessEngineConfiguration {
 	protected Cache<Object> userProcessDefinitionCache;
 	protected int identityCacheLimit = -1;
 	protected Cache<Object> identityCache;
+	protected int scriptCacheLimit = GroovyScriptCache.DEFAULT_LIMIT;
+	protected GroovyScriptCache groovyScriptCache;
 	
 	// 定义发布器
 	protected List<Deployer> deployers;
@@ -178,6 +191,51 @@ public class ProcessEngineConfigurationImpl extends ProcessEngineConfiguration {
 	 */
 	protected int autoClaim = -1;
 	
+	/**
+	 * 自定义流程变量序列化器
+	 */
+	protected List<VariableSerializer> customVariableSerializers;
+	
+	/**
+	 * flush时是否按语句分组批量执行insert/update
+	 */
+	protected boolean batchFlushEnabled = false;
+	
+	/**
+	 * 是否开启修改标记，开启后加载的对象不保存快照，flush时只更新修改过的列
+	 */
+	protected boolean dirtyTrackingEnabled = false;
+	
+	/**
+	 * 异步任务失败后的重试次数，超过后转入失败组
+	 */
+	protected int asyncJobRetries = 3;
+	
+	/**
+	 * 异步任务第一次重试前的等待时间(毫秒)，之后每次翻倍
+	 */
+	protected long asyncJobRetryWaitTime = 10000;
+	
+	/**
+	 * 批量完成任务时每个事务完成的任务数
+	 */
+	protected int taskCompleteBatchSize = 100;
+	
+	/**
+	 * 批量启动流程实例时每个事务启动的实例数
+	 */
+	protected int processStartBatchSize = 100;
+	
+	/**
+	 * 启动时是否检查运行表索引，缺失时打印警告
+	 */
+	protected boolean checkIndexes = true;
+	
+	/**
+	 * 查询候选任务时是否使用EXISTS/UNION ALL优化查询，关闭后使用原DISTINCT + LEFT JOIN查询
+	 */
+	protected boolean optimizedTaskQuery = true;
+	
 	/**
 	 * 用户配置文件路径
 	 */
@@ -260,11 +318,14 @@ public class ProcessEngineConfigurationImpl extends ProcessEngineConfiguration {
 		initConfigurators();
 		configuratorsBeforeInit();
 		initCache();
+		initVariableSerializers();
 		// 加载sessionFactory
 		initSqlSessionFactory();
+		initIndexCheck();
 		initSessionFactories();
 		// 加载命令相关
 		initCommandContextFactory();
+		initTransactionContextFactory();
 		initCommandExecutors();
 		initTaskCommand();
 		initEventListeners();
@@ -480,27 +541,89 @@ public class ProcessEngineConfigurationImpl extends ProcessEngineConfiguration {
 	}
 	
 	protected void initCache() {
+		Map<String, CacheDefinitionImpl> cacheDefinitionMap = new HashMap<String, CacheDefinitionImpl>();
+		if (foxBpmConfig.getCacheDefinitions() != null) {
+			// 扩展配置文件先于foxbpm.cfg.xml加载，同名配置以扩展配置为准
+			for (CacheDefinitionImpl cacheDefinition : foxBpmConfig.getCacheDefinitions()) {
+				if (!cacheDefinitionMap.containsKey(cacheDefinition.getId())) {
+					cacheDefinitionMap.put(cacheDefinition.getId(), cacheDefinition);
+				}
+			}
+		}
 		// userCache
 		if (identityCache == null) {
-			if (identityCacheLimit <= 0) {
-				identityCache = new DefaultCache<Object>();
-			} else {
-				identityCache = new DefaultCache<Object>(identityCacheLimit);
-			}
+			identityCache = createCache(cacheDefinitionMap.get(CacheDefinitionImpl.IDENTITY_CACHE), identityCacheLimit);
 		}
 		// Process Definition cache
 		if (processDefinitionCache == null) {
-			if (processDefinitionCacheLimit <= 0) {
-				processDefinitionCache = new DefaultCache<ProcessDefinition>();
-			} else {
-				processDefinitionCache = new DefaultCache<ProcessDefinition>(processDefinitionCacheLimit);
-			}
+			processDefinitionCache = createCache(cacheDefinitionMap.get(CacheDefinitionImpl.PROCESS_DEFINITION_CACHE), processDefinitionCacheLimit);
 		}
 		if (userProcessDefinitionCache == null) {
-			if (userProcessDefinitionCacheLimit <= 0) {
-				userProcessDefinitionCache = new DefaultCache<Object>();
+			userProcessDefinitionCache = createCache(cacheDefinitionMap.get(CacheDefinitionImpl.USER_PROCESS_DEFINITION_CACHE), userProcessDefinitionCacheLimit);
+		}
+		// 已编译脚本缓存，多线程共享，未配置时也使用ConcurrentCache
+		if (groovyScriptCache == null) {
+			CacheDefinitionImpl scriptCacheDefinition = cacheDefinitionMap.get(CacheDefinitionImpl.SCRIPT_CACHE);
+			Cache<Class<?>> scriptClassCache = null;
+			if (scriptCacheDefinition == null) {
+				scriptClassCache = new ConcurrentCache<Class<?>>(scriptCacheLimit);
 			} else {
-				userProcessDefinitionCache = new DefaultCache<Object>(userProcessDefinitionCacheLimit);
+				scriptClassCache = createCache(scriptCacheDefinition, scriptCacheLimit);
+			}
+			groovyScriptCache = new GroovyScriptCache(scriptClassCache);
+		}
+	}
+	
+	/**
+	 * 根据cfg.xml中的缓存配置创建缓存，未配置时使用DefaultCache
+	 * 
+	 * @param cacheDefinition
+	 *            缓存配置
+	 * @param limit
+	 *            代码中设置的容量，cfg.xml中配置了limit时以配置为准
+	 * @return 缓存
+	 */
+	@SuppressWarnings("unchecked")
+	protected <T> Cache<T> createCache(CacheDefinitionImpl cacheDefinition, int limit) {
+		if (cacheDefinition == null) {
+			return limit <= 0 ? new DefaultCache<T>() : new DefaultCache<T>(limit);
+		}
+		if (cacheDefinition.getLimit() > 0) {
+			limit = cacheDefinition.getLimit();
+		}
+		String cacheClass = cacheDefinition.getCacheClass();
+		if (StringUtil.isEmpty(cacheClass) || ConcurrentCache.class.getName().equals(cacheClass)) {
+			CacheWeigher<T> weigher = null;
+			if (StringUtil.isNotEmpty(cacheDefinition.getWeigherClass())) {
+				try {
+					weigher = (CacheWeigher<T>) ReflectUtil.instantiate(cacheDefinition.getWeigherClass());
+				} catch (Exception ex) {
+					throw ExceptionUtil.getException("00011001", ex, cacheDefinition.getId(), cacheDefinition.getWeigherClass());
+				}
+			}
+			long expireTime = cacheDefinition.getExpireTime() > 0 ? cacheDefinition.getExpireTime() * 1000L : -1;
+			return new ConcurrentCache<T>(limit, cacheDefinition.getMaxWeight(), expireTime, cacheDefinition.getConcurrencyLevel(), weigher);
+		}
+		if (DefaultCache.class.getName().equals(cacheClass)) {
+			return limit <= 0 ? new DefaultCache<T>() : new DefaultCache<T>(limit);
+		}
+		try {
+			return (Cache<T>) ReflectUtil.instantiate(cacheClass);
+		} catch (Exception ex) {
+			throw ExceptionUtil.getException("00011001", ex, cacheDefinition.getId(), cacheClass);
+		}
+	}
+	
+	protected void initVariableSerializers() {
+		ServiceLoader<VariableSerializer> serializerLoader = ServiceLoader.load(VariableSerializer.class);
+		for (VariableSerializer serializer : serializerLoader) {
+			log.debug("发现注册变量序列化器：{},格式:{}", serializer.getClass(), serializer.getFormat());
+			VariableSerializerFactory.register(serializer);
+		}
+		// 外部注入的序列化器最后注册，优先级最高
+		if (customVariableSerializers != null) {
+			for (VariableSerializer serializer : customVariableSerializers) {
+				VariableSerializerFactory.register(serializer);
 			}
 		}
 	}
@@ -616,6 +739,12 @@ public class ProcessEngineConfigurationImpl extends ProcessEngineConfiguration {
 		}
 	}
 	
+	protected void initIndexCheck() {
+		if (checkIndexes) {
+			DBIndexChecker.check(dataSource, prefix);
+		}
+	}
+	
 	protected void initServices() {
 		
 		processServices.add(new ModelServiceImpl());
@@ -628,6 +757,9 @@ public class ProcessEngineConfigurationImpl extends ProcessEngineConfiguration {
 			ProcessService tmpService = iterator.next();
 			if (!serviceMap.containsKey(tmpService.getClass())) {
 				tmpService.setCommandExecutor(commandExecutor);
+				if (tmpService instanceof ServiceImpl) {
+					((ServiceImpl) tmpService).setProcessEngineConfiguration(this);
+				}
 				serviceMap.put(tmpService.getInterfaceClass(), tmpService);
 			}
 		}
@@ -646,6 +778,12 @@ public class ProcessEngineConfigurationImpl extends ProcessEngineConfiguration {
 		}
 	}
 	
+	protected void initTransactionContextFactory() {
+		if (transactionContextFactory == null) {
+			transactionContextFactory = new StandaloneTransactionContextFactory();
+		}
+	}
+	
 	public void initBaseCommandInterceptors() {
 		commandInterceptors = new ArrayList<CommandInterceptor>();
 		commandInterceptors.add(new LogInterceptor());
@@ -772,6 +910,30 @@ public class ProcessEngineConfigurationImpl extends ProcessEngineConfiguration {
 		return processDefinitionCache;
 	}
 	
+	public int getScriptCacheLimit() {
+		return scriptCacheLimit;
+	}
+	
+	public void setScriptCacheLimit(int scriptCacheLimit) {
+		this.scriptCacheLimit = scriptCacheLimit;
+	}
+	
+	public TransactionContextFactory getTransactionContextFactory() {
+		return transactionContextFactory;
+	}
+	
+	public void setTransactionContextFactory(TransactionContextFactory transactionContextFactory) {
+		this.transactionContextFactory = transactionContextFactory;
+	}
+	
+	public GroovyScriptCache getGroovyScriptCache() {
+		return groovyScriptCache;
+	}
+	
+	public void setGroovyScriptCache(GroovyScriptCache groovyScriptCache) {
+		this.groovyScriptCache = groovyScriptCache;
+	}
+	
 	public void setProcessDefinitionCache(Cache<ProcessDefinition> processDefinitionCache) {
 		this.processDefinitionCache = processDefinitionCache;
 	}
@@ -888,6 +1050,87 @@ public class ProcessEngineConfigurationImpl extends ProcessEngineConfiguration {
 		this.autoClaim = isAutoClaim;
 	}
 	
+	public List<VariableSerializer> getCustomVariableSerializers() {
+		return customVariableSerializers;
+	}
+	
+	public ProcessEngineConfiguration setCustomVariableSerializers(List<VariableSerializer> customVariableSerializers) {
+		this.customVariableSerializers = customVariableSerializers;
+		return this;
+	}
+	
+	public boolean isBatchFlushEnabled() {
+		return batchFlushEnabled;
+	}
+	
+	public ProcessEngineConfiguration setBatchFlushEnabled(boolean batchFlushEnabled) {
+		this.batchFlushEnabled = batchFlushEnabled;
+		return this;
+	}
+	
+	public boolean isDirtyTrackingEnabled() {
+		return dirtyTrackingEnabled;
+	}
+	
+	public ProcessEngineConfiguration setDirtyTrackingEnabled(boolean dirtyTrackingEnabled) {
+		this.dirtyTrackingEnabled = dirtyTrackingEnabled;
+		return this;
+	}
+	
+	public int getAsyncJobRetries() {
+		return asyncJobRetries;
+	}
+	
+	public ProcessEngineConfiguration setAsyncJobRetries(int asyncJobRetries) {
+		this.asyncJobRetries = asyncJobRetries;
+		return this;
+	}
+	
+	public long getAsyncJobRetryWaitTime() {
+		return asyncJobRetryWaitTime;
+	}
+	
+	public ProcessEngineConfiguration setAsyncJobRetryWaitTime(long asyncJobRetryWaitTime) {
+		this.asyncJobRetryWaitTime = asyncJobRetryWaitTime;
+		return this;
+	}
+	
+	public int getTaskCompleteBatchSize() {
+		return taskCompleteBatchSize;
+	}
+	
+	public ProcessEngineConfiguration setTaskCompleteBatchSize(int taskCompleteBatchSize) {
+		this.taskCompleteBatchSize = taskCompleteBatchSize;
+		return this;
+	}
+	
+	public int getProcessStartBatchSize() {
+		return processStartBatchSize;
+	}
+	
+	public ProcessEngineConfiguration setProcessStartBatchSize(int processStartBatchSize) {
+		this.processStartBatchSize = processStartBatchSize;
+		return this;
+	}
+	
+	public boolean isCheckIndexes() {
+		return checkIndexes;
+	}
+	
+	public ProcessEngineConfiguration setCheckIndexes(boolean checkIndexes) {
+		this.checkIndexes = checkIndexes;
+		return this;
+	}
+	
+	public boolean isOptimizedTaskQuery() {
+		return optimizedTaskQuery;
+	}
+	
+	public ProcessEngineConfiguration setOptimizedTaskQuery(boolean optimizedTaskQuery) {
+		this.optimizedTaskQuery = optimizedTaskQuery;
+		return this;
+	}
+	
 	public void setWorkCalendar(WorkCalendar workCalendar) {
 		this.workCalendar = workCalendar;
 	}
@@ -51,6 +51,9 @@ public class ProcessEngineImpl implements ProcessEngine {
 		this.runtimeService = processEngineConfiguration.getRuntimeService();
 		this.identityService = processEngineConfiguration.getIdentityService();
 		this.taskService = processEngineConfiguration.getTaskService();
+		ScheduleServiceImpl scheduleServiceImpl = new ScheduleServiceImpl();
+		scheduleServiceImpl.setFoxbpmScheduler(processEngineConfiguration.getFoxbpmScheduler());
+		this.scheduleService = scheduleServiceImpl;
 		ProcessEngineManagement.registerProcessEngine(this);
 	}
 
@@ -18,25 +18,38 @@
  */
 package org.foxbpm.engine.impl;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import org.foxbpm.engine.RuntimeService;
+import org.foxbpm.engine.config.TransactionPropagation;
 import org.foxbpm.engine.datavariable.VariableQuery;
 import org.foxbpm.engine.impl.cmd.AbortProcessInstanceByIdCmd;
+import org.foxbpm.engine.impl.cmd.AsyncContinuationCmd;
 import org.foxbpm.engine.impl.cmd.BoundaryTimeSignalCmd;
 import org.foxbpm.engine.impl.cmd.DeleteProcessInstanceByIdCmd;
+import org.foxbpm.engine.impl.cmd.GetLatestProcessDefinitionByKey;
+import org.foxbpm.engine.impl.cmd.SetProcessInstanceVariablesCmd;
 import org.foxbpm.engine.impl.cmd.SignalCmd;
 import org.foxbpm.engine.impl.cmd.StartProcessInstanceCmd;
+import org.foxbpm.engine.impl.cmd.StartProcessInstancesCmd;
 import org.foxbpm.engine.impl.cmd.TimeExecuteConnectorCmd;
 import org.foxbpm.engine.impl.datavariable.VariableQueryImpl;
+import org.foxbpm.engine.impl.interceptor.CommandConfig;
 import org.foxbpm.engine.impl.runningtrack.RunningTrackQueryImpl;
 import org.foxbpm.engine.impl.runtime.ProcessInstanceQueryImpl;
 import org.foxbpm.engine.impl.runtime.TokenQueryImpl;
 import org.foxbpm.engine.impl.util.ExceptionUtil;
 import org.foxbpm.engine.runningtrack.RunningTrackQuery;
+import org.foxbpm.engine.runtime.BatchStartResult;
 import org.foxbpm.engine.runtime.ProcessInstance;
 import org.foxbpm.engine.runtime.ProcessInstanceQuery;
+import org.foxbpm.engine.runtime.ProcessInstanceStartItem;
+import org.foxbpm.engine.runtime.ProcessInstanceStartResult;
 import org.foxbpm.engine.runtime.TokenQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * runTimeService的具体实现
@@ -46,6 +59,8 @@ import org.foxbpm.engine.runtime.TokenQuery;
  */
 public class RuntimeServiceImpl extends ServiceImpl implements RuntimeService {
 
+	private static Logger LOG = LoggerFactory.getLogger(RuntimeServiceImpl.class);
+
 	public ProcessInstance startProcessInstanceByKey(String processDefinitionKey) {
 		return commandExecutor.execute(new StartProcessInstanceCmd<ProcessInstance>(processDefinitionKey, null, null, null, null));
 	}
@@ -62,6 +77,57 @@ public class RuntimeServiceImpl extends ServiceImpl implements RuntimeService {
 		return commandExecutor.execute(new StartProcessInstanceCmd<ProcessInstance>(processDefinitionKey, null, bizKey, transientVariables, persistenceVariables));
 	}
 
+	public BatchStartResult startProcessInstancesByKey(String processDefinitionKey, List<ProcessInstanceStartItem> startItems) {
+		// 只查询一次最新版本，之后各批按编号从部署缓存获取
+		String processDefinitionId = commandExecutor.execute(new GetLatestProcessDefinitionByKey(processDefinitionKey)).getId();
+		return startProcessInstancesById(processDefinitionId, startItems);
+	}
+
+	public BatchStartResult startProcessInstancesById(String processDefinitionId, List<ProcessInstanceStartItem> startItems) {
+		long startTime = System.currentTimeMillis();
+		int size = startItems.size();
+		List<ProcessInstanceStartResult> results = new ArrayList<ProcessInstanceStartResult>(size);
+
+		// 每批使用新的命令上下文和事务，提交后不受后面批次影响
+		CommandConfig config = new CommandConfig();
+		config.setContextReuse(false);
+		config.setPropagation(TransactionPropagation.REQUIRES_NEW);
+		int batchSize = Math.max(1, processEngineConfiguration.getProcessStartBatchSize());
+		int batchCount = 0;
+		for (int start = 0; start < size; start += batchSize) {
+			List<ProcessInstanceStartItem> batch = startItems.subList(start, Math.min(start + batchSize, size));
+			try {
+				List<String> processInstanceIds = commandExecutor.execute(config, new StartProcessInstancesCmd(processDefinitionId, batch));
+				batchCount++;
+				for (int i = 0; i < batch.size(); i++) {
+					results.add(new ProcessInstanceStartResult(batch.get(i).getBizKey(), processInstanceIds.get(i), null));
+				}
+			} catch (RuntimeException batchException) {
+				// 整批已回滚，逐个启动得到每个实例的结果
+				for (ProcessInstanceStartItem startItem : batch) {
+					ProcessInstanceStartResult result = startProcessInstance(config, processDefinitionId, startItem);
+					if (result.isSuccess()) {
+						batchCount++;
+					}
+					results.add(result);
+				}
+			}
+		}
+		BatchStartResult batchStartResult = new BatchStartResult(processDefinitionId, results, batchCount, System.currentTimeMillis() - startTime);
+		LOG.info("批量启动流程实例完成: {}", batchStartResult);
+		return batchStartResult;
+	}
+
+	protected ProcessInstanceStartResult startProcessInstance(CommandConfig config, String processDefinitionId, ProcessInstanceStartItem startItem) {
+		try {
+			ProcessInstance processInstance = commandExecutor.execute(config, new StartProcessInstanceCmd<ProcessInstance>(null, processDefinitionId, startItem.getBizKey(),
+					startItem.getTransientVariables(), startItem.getPersistenceVariables()));
+			return new ProcessInstanceStartResult(startItem.getBizKey(), processInstance.getId(), null);
+		} catch (RuntimeException e) {
+			return new ProcessInstanceStartResult(startItem.getBizKey(), null, e);
+		}
+	}
+
 	public ProcessInstance startProcessInstanceById(String processDefinitionId) {
 		return commandExecutor.execute(new StartProcessInstanceCmd<ProcessInstance>(null, processDefinitionId, null, null, null));
 	}
@@ -101,6 +167,10 @@ public class RuntimeServiceImpl extends ServiceImpl implements RuntimeService {
 	public void signal(String executionId, Map<String, Object> transientVariables, Map<String, Object> persistenceVariables) {
 		commandExecutor.execute(new SignalCmd(executionId, null, null, transientVariables, persistenceVariables));
 	}
+	
+	public void setVariables(String processInstanceId, Map<String, Object> variables) {
+		commandExecutor.execute(new SetProcessInstanceVariablesCmd(processInstanceId, variables));
+	}
 
 	public TokenQuery createTokenQuery() {
 		return new TokenQueryImpl(commandExecutor);
@@ -174,6 +244,48 @@ public class RuntimeServiceImpl extends ServiceImpl implements RuntimeService {
 		commandExecutor.execute(new TimeExecuteConnectorCmd(processInstanceID, connectorID, eventName, tokenID, nodeID));
 	}
 
+	/**
+	 * 调度器继续执行异步节点
+	 * 
+	 * @param tokenId
+	 *            令牌ID
+	 * @param nodeId
+	 *            异步节点ID
+	 */
+	public void executeAsyncContinuation(String tokenId, String nodeId) {
+		commandExecutor.execute(new AsyncContinuationCmd(tokenId, nodeId));
+	}
+
+	/**
+	 * 异步并行网关的分支令牌沿线条离开网关，由调度器调用
+	 * 
+	 * @param tokenId
+	 *            分支令牌
+	 * @param nodeId
+	 *            并行网关编号
+	 * @param sequenceFlowId
+	 *            线条编号
+	 */
+	public void executeAsyncFork(String tokenId, String nodeId, String sequenceFlowId) {
+		commandExecutor.execute(new AsyncContinuationCmd(tokenId, nodeId, sequenceFlowId));
+	}
+
+	/**
+	 * 执行异步并行多实例的一个实例，由调度器调用
+	 * 
+	 * @param tokenId
+	 *            多实例节点上的令牌
+	 * @param nodeId
+	 *            节点编号
+	 * @param groupId
+	 *            多实例任务组号
+	 * @param loopItem
+	 *            输入项
+	 */
+	public void executeAsyncLoop(String tokenId, String nodeId, String groupId, Object loopItem) {
+		commandExecutor.execute(new AsyncContinuationCmd(tokenId, nodeId, groupId, loopItem));
+	}
+
 	/**
 	 * 
 	 * autoStartProcessInstance(调度器启动流程实例)
@@ -17,14 +17,26 @@
  */
 package org.foxbpm.engine.impl;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.foxbpm.engine.ScheduleService;
 import org.foxbpm.engine.exception.FoxBPMException;
+import org.foxbpm.engine.impl.schedule.FoxbpmJobExecutionContext;
 import org.foxbpm.engine.impl.schedule.FoxbpmScheduler;
+import org.foxbpm.engine.impl.schedule.quartz.AsyncContinuationJob;
+import org.foxbpm.engine.impl.util.ClockUtil;
+import org.foxbpm.engine.impl.util.ExceptionUtil;
+import org.foxbpm.engine.impl.util.GuidUtil;
+import org.foxbpm.engine.impl.util.QuartzUtil;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
 import org.quartz.JobKey;
 import org.quartz.SchedulerException;
 import org.quartz.Trigger;
+import org.quartz.impl.matchers.GroupMatcher;
 
 /**
  * 调度器实现类
@@ -65,4 +77,56 @@ public class ScheduleServiceImpl implements ScheduleService {
 		// TODO Auto-generated method stub
 		return null;
 	}
+
+	public List<Map<String, Object>> getFailedAsyncJobs() {
+		List<Map<String, Object>> failedJobs = new ArrayList<Map<String, Object>>();
+		try {
+			for (JobKey jobKey : getFoxbpmScheduler().getJobKeys(GroupMatcher.jobGroupEquals(AsyncContinuationJob.DEAD_LETTER_GROUP_NAME))) {
+				JobDetail jobDetail = foxbpmScheduler.getJobDetail(jobKey);
+				if (jobDetail == null) {
+					continue;
+				}
+				Map<String, Object> failedJob = new HashMap<String, Object>(jobDetail.getJobDataMap());
+				failedJob.put("jobName", jobKey.getName());
+				failedJobs.add(failedJob);
+			}
+		} catch (SchedulerException e) {
+			throw ExceptionUtil.getException("10408003", e, AsyncContinuationJob.DEAD_LETTER_GROUP_NAME);
+		}
+		return failedJobs;
+	}
+
+	public void retryFailedAsyncJob(String jobName) {
+		JobKey jobKey = new JobKey(jobName, AsyncContinuationJob.DEAD_LETTER_GROUP_NAME);
+		try {
+			JobDetail jobDetail = getFoxbpmScheduler().getJobDetail(jobKey);
+			if (jobDetail == null) {
+				throw ExceptionUtil.getException("10602004", jobName);
+			}
+			JobDataMap jobDataMap = new JobDataMap(jobDetail.getJobDataMap());
+			jobDataMap.put(FoxbpmJobExecutionContext.RETRIES, "0");
+			JobDetail retryJob = AsyncContinuationJob.newJobDetail(GuidUtil.CreateGuid(), AsyncContinuationJob.GROUP_NAME, jobDataMap, false);
+			foxbpmScheduler.scheduleJob(retryJob, QuartzUtil.createSimpleTrigger(AsyncContinuationJob.GROUP_NAME, ClockUtil.getCurrentTime()));
+			foxbpmScheduler.deleteJob(jobKey);
+		} catch (SchedulerException e) {
+			throw ExceptionUtil.getException("10408003", e, jobName);
+		}
+	}
+
+	public void deleteFailedAsyncJob(String jobName) {
+		try {
+			if (!getFoxbpmScheduler().deleteJob(new JobKey(jobName, AsyncContinuationJob.DEAD_LETTER_GROUP_NAME))) {
+				throw ExceptionUtil.getException("10602004", jobName);
+			}
+		} catch (SchedulerException e) {
+			throw ExceptionUtil.getException("10408003", e, jobName);
+		}
+	}
+
+	private FoxbpmScheduler getFoxbpmScheduler() {
+		if (foxbpmScheduler == null || foxbpmScheduler.getScheduler() == null) {
+			throw ExceptionUtil.getException("00008002");
+		}
+		return foxbpmScheduler;
+	}
 }
@@ -23,6 +23,8 @@ import org.foxbpm.engine.impl.interceptor.CommandExecutor;
 
 public abstract class ServiceImpl implements ProcessService {
 	protected CommandExecutor commandExecutor;
+	/** 服务所属引擎的配置，由引擎初始化服务时设置 */
+	protected ProcessEngineConfigurationImpl processEngineConfiguration;
 	  
 	public CommandExecutor getCommandExecutor() {
 	    return commandExecutor;
@@ -32,6 +34,14 @@ public abstract class ServiceImpl implements ProcessService {
 	    this.commandExecutor = commandExecutor;
 	}
 	
+	public ProcessEngineConfigurationImpl getProcessEngineConfiguration() {
+		return processEngineConfiguration;
+	}
+	
+	public void setProcessEngineConfiguration(ProcessEngineConfigurationImpl processEngineConfiguration) {
+		this.processEngineConfiguration = processEngineConfiguration;
+	}
+	
 	 
 	public Class<?> getInterfaceClass() {
 		return null;
@@ -18,11 +18,15 @@
  */
 package org.foxbpm.engine.impl;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
 import org.foxbpm.engine.TaskService;
+import org.foxbpm.engine.config.TransactionPropagation;
+import org.foxbpm.engine.exception.FoxBPMOptimisticLockingException;
 import org.foxbpm.engine.impl.cmd.ClaimCmd;
 import org.foxbpm.engine.impl.cmd.CompleteTaskCmd;
 import org.foxbpm.engine.impl.cmd.DeleteTasksCmd;
@@ -40,13 +44,17 @@ import org.foxbpm.engine.impl.cmd.UnClaimCmd;
 import org.foxbpm.engine.impl.entity.IdentityLinkEntity;
 import org.foxbpm.engine.impl.entity.ProcessOperatingEntity;
 import org.foxbpm.engine.impl.entity.TaskEntity;
+import org.foxbpm.engine.impl.interceptor.CommandConfig;
 import org.foxbpm.engine.impl.query.NativeTaskQueryImpl;
 import org.foxbpm.engine.impl.task.TaskQueryImpl;
+import org.foxbpm.engine.impl.task.cmd.CompleteTasksCmd;
 import org.foxbpm.engine.impl.task.cmd.ExpandTaskCompleteCmd;
 import org.foxbpm.engine.impl.task.command.ExpandTaskCommand;
 import org.foxbpm.engine.query.NativeTaskQuery;
 import org.foxbpm.engine.task.Task;
 import org.foxbpm.engine.task.TaskCommand;
+import org.foxbpm.engine.task.TaskCompleteResult;
+import org.foxbpm.engine.task.TaskCompleteResult.Status;
 import org.foxbpm.engine.task.TaskQuery;
 import org.foxbpm.kernel.process.KernelFlowNode;
 
@@ -108,6 +116,51 @@ public class TaskServiceImpl extends ServiceImpl implements TaskService {
 				expandTaskCommand));
 	}
 
+	public List<TaskCompleteResult> completeTasks(List<ExpandTaskCommand> expandTaskCommands) {
+		int size = expandTaskCommands.size();
+		TaskCompleteResult[] results = new TaskCompleteResult[size];
+		if (size == 0) {
+			return new ArrayList<TaskCompleteResult>();
+		}
+		Map<String, String> processInstanceIds = commandExecutor.execute(new CompleteTasksCmd.FindProcessInstanceIdsCmd(CompleteTasksCmd.getTaskIds(expandTaskCommands)));
+		List<Integer> order = CompleteTasksCmd.groupByProcessInstance(expandTaskCommands, processInstanceIds);
+
+		// 每批使用新的命令上下文和事务，提交后不受后面批次影响
+		CommandConfig config = new CommandConfig();
+		config.setContextReuse(false);
+		config.setPropagation(TransactionPropagation.REQUIRES_NEW);
+		int batchSize = Math.max(1, processEngineConfiguration.getTaskCompleteBatchSize());
+		for (int start = 0; start < size; start += batchSize) {
+			List<Integer> batch = order.subList(start, Math.min(start + batchSize, size));
+			List<ExpandTaskCommand> batchCommands = new ArrayList<ExpandTaskCommand>(batch.size());
+			for (Integer index : batch) {
+				batchCommands.add(expandTaskCommands.get(index.intValue()));
+			}
+			try {
+				List<Object> batchResults = commandExecutor.execute(config, new CompleteTasksCmd(batchCommands));
+				for (int i = 0; i < batch.size(); i++) {
+					results[batch.get(i).intValue()] = new TaskCompleteResult(batchCommands.get(i).getTaskId(), Status.SUCCESS, batchResults.get(i), null);
+				}
+			} catch (RuntimeException batchException) {
+				// 整批已回滚，逐个执行得到每个任务的结果
+				for (int i = 0; i < batch.size(); i++) {
+					results[batch.get(i).intValue()] = completeTask(config, batchCommands.get(i));
+				}
+			}
+		}
+		return new ArrayList<TaskCompleteResult>(Arrays.asList(results));
+	}
+
+	protected TaskCompleteResult completeTask(CommandConfig config, ExpandTaskCommand expandTaskCommand) {
+		try {
+			Object result = commandExecutor.execute(config, new ExpandTaskCompleteCmd<Object>(expandTaskCommand));
+			return new TaskCompleteResult(expandTaskCommand.getTaskId(), Status.SUCCESS, result, null);
+		} catch (RuntimeException e) {
+			Status status = FoxBPMOptimisticLockingException.isCausedBy(e) ? Status.CONFLICT : Status.ERROR;
+			return new TaskCompleteResult(expandTaskCommand.getTaskId(), status, null, e);
+		}
+	}
+
 	public NativeTaskQuery createNativeTaskQuery() {
 		return new NativeTaskQueryImpl(commandExecutor);
 	}
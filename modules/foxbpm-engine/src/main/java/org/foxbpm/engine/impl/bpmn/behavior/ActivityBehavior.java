@@ -17,6 +17,7 @@
  */
 package org.foxbpm.engine.impl.bpmn.behavior;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -26,8 +27,10 @@ import org.foxbpm.engine.impl.entity.TokenEntity;
 import org.foxbpm.engine.impl.expression.ExpressionMgmt;
 import org.foxbpm.engine.impl.schedule.FoxbpmScheduler;
 import org.foxbpm.engine.impl.schedule.FoxbpmSchedulerGroupnameGernerater;
+import org.foxbpm.engine.impl.schedule.quartz.AsyncContinuationJob;
 import org.foxbpm.engine.impl.util.ExceptionUtil;
 import org.foxbpm.engine.impl.util.GuidUtil;
+import org.foxbpm.engine.impl.util.QuartzUtil;
 import org.foxbpm.engine.impl.util.StringUtil;
 import org.foxbpm.kernel.runtime.FlowNodeExecutionContext;
 import org.foxbpm.model.Activity;
@@ -85,9 +88,55 @@ public class ActivityBehavior extends FlowNodeBehavior {
 				}
 			}
 		}
+		/** 异步节点,令牌停在当前节点,命令提交后由调度线程继续执行;并行多实例在循环时按实例异步执行 */
+		if (activity.isAsync() && !isParallelMultiInstance(activity)) {
+			if (QuartzUtil.isAsyncJobSupported()) {
+				LOG.debug("节点: {}({}) 异步执行,令牌号: {}.", this.getName(), this.getId(), executionContext.getId());
+				QuartzUtil.addAsyncJob(AsyncContinuationJob.createActivityJob(executionContext));
+				return;
+			}
+			LOG.warn("调度器未启动,异步节点: {}({}) 同步执行.", this.getName(), this.getId());
+		}
+		eventExecute(executionContext);
+	}
+
+	/**
+	 * 异步节点继续执行，由调度线程在新的命令中调用
+	 * 
+	 * @param executionContext
+	 *            停在当前节点的令牌
+	 */
+	public void asyncContinue(FlowNodeExecutionContext executionContext) {
 		eventExecute(executionContext);
 	}
 
+	/**
+	 * 异步并行多实例执行一个实例，由调度线程在新的命令中调用
+	 * 
+	 * @param executionContext
+	 *            停在当前节点的令牌
+	 * @param groupId
+	 *            多实例任务组号
+	 * @param loopItem
+	 *            本实例的输入项
+	 */
+	public void asyncLoopContinue(FlowNodeExecutionContext executionContext, String groupId, Object loopItem) {
+		// 重新加载的令牌没有组号，恢复后创建的任务才能归入同一任务组
+		((TokenEntity) executionContext).setGroupID(groupId);
+		MultiInstanceLoopCharacteristics milc = (MultiInstanceLoopCharacteristics) ((Activity) baseElement).getLoopCharacteristics();
+		try {
+			ExpressionMgmt.setVariable(milc.getInputDataItem(), loopItem, executionContext);
+		} catch (Exception e) {
+			throw ExceptionUtil.getException("10404011", this.flowNode.getId());
+		}
+		executionContext.execute();
+	}
+
+	private boolean isParallelMultiInstance(Activity activity) {
+		LoopCharacteristics loopCharacteristics = activity.getLoopCharacteristics();
+		return loopCharacteristics instanceof MultiInstanceLoopCharacteristics && !((MultiInstanceLoopCharacteristics) loopCharacteristics).isSequential();
+	}
+
 	protected void eventExecute(FlowNodeExecutionContext executionContext) {
 
 		List<BoundaryEventBehavior> boundaryEventBehaviors = getBoundaryEventBehaviors();
@@ -296,6 +345,19 @@ public class ActivityBehavior extends FlowNodeBehavior {
 	protected void parallelMultiInstanceExecute(FlowNodeExecutionContext executionContext, Collection<?> valueObjCollection,
 			String inputDataItemExpressionValue) {
 
+		// 异步节点每个实例在单独的命令中执行，输入项随任务保存，必须可以序列化
+		if (((Activity) baseElement).isAsync()) {
+			if (QuartzUtil.isAsyncJobSupported() && isSerializable(valueObjCollection)) {
+				String groupId = ((TokenEntity) executionContext).getGroupID();
+				for (Object object : valueObjCollection) {
+					QuartzUtil.addAsyncJob(AsyncContinuationJob.createLoopJob(executionContext, groupId, (Serializable) object));
+				}
+				LOG.debug("节点: {}({}) 并行多实例异步执行,实例数: {}.", getName(), getId(), valueObjCollection.size());
+				return;
+			}
+			LOG.warn("调度器未启动或输入项不能序列化,并行多实例: {}({}) 同步执行.", getName(), getId());
+		}
+
 		int i = 1;
 		for (Object object : valueObjCollection) {
 			LOG.debug("多实例循环第 '{}' 次开始执行,循环值为: '{}'", i, StringUtil.getString(object));
@@ -313,6 +375,15 @@ public class ActivityBehavior extends FlowNodeBehavior {
 
 	}
 
+	private boolean isSerializable(Collection<?> valueObjCollection) {
+		for (Object object : valueObjCollection) {
+			if (object != null && !(object instanceof Serializable)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/** 跳过策略记录 */
 	protected void skipTaskRecord(FlowNodeExecutionContext executionContext, SkipStrategy skipStrategy) {
 		/** 需要生成记录的节点重写这个方法 */
@@ -17,9 +17,6 @@
  */
 package org.foxbpm.engine.impl.bpmn.behavior;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import org.foxbpm.engine.exception.FoxBPMException;
 import org.foxbpm.kernel.process.KernelSequenceFlow;
 import org.foxbpm.kernel.runtime.FlowNodeExecutionContext;
@@ -44,44 +41,21 @@ public class ExclusiveGatewayBehavior extends GatewayBehavior {
 	
 	public void leave(FlowNodeExecutionContext executionContext) {
 		
+		// 按线条顺序取第一条满足条件的线条，之后的线条不再计算条件
+		KernelSequenceFlow sequenceFlow = executionContext.getFlowNode().getRoutingTable().findFirstSequenceFlow(executionContext);
 		
-		List<KernelSequenceFlow> outgoingSequenceFlows = executionContext.getFlowNode().getOutgoingSequenceFlows();
-		
-		
-		List<KernelSequenceFlow> sequenceFlowList = new ArrayList<KernelSequenceFlow>();
-
-		for (KernelSequenceFlow sequenceFlow : outgoingSequenceFlows) {
-			
-			if(sequenceFlow.isContinue(executionContext))
-			{
-				sequenceFlowList.add(sequenceFlow);
-			}
-
-		}
 		// 节点后面没有线的处理
-		if (sequenceFlowList.size()==0) {
-			if(outgoingSequenceFlows.size()==0){
+		if (sequenceFlow == null) {
+			if(executionContext.getFlowNode().getOutgoingSequenceFlows().size()==0){
 				throw new FoxBPMException(this.getName()+"("+this.getId()+") 节点后面没有处理线条！");
 			}
 			else{
 				throw new FoxBPMException(this.getName()+"("+this.getId()+") 节点后面的条件都不满足导致节点后面没有处理线条,请检查后续线条条件！");
 			}
-			
-			
-		}
-
-		// 节点后面就一条线的处理
-		if (sequenceFlowList.size() == 1) {
-			((KernelTokenImpl) executionContext).leave(sequenceFlowList.get(0));
-			return;
 		}
-		// 节点后面大于一条线的处理
-		if (sequenceFlowList.size() > 1) {
-			
-			LOG.info("唯一网关后面的链接线条满足条件的大于一条,默认选择第一条满足的线条. 默认离开线条为: 编号:"+sequenceFlowList.get(0).getId()+"  名称:"+sequenceFlowList.get(0).getName());
-			((KernelTokenImpl) executionContext).leave(sequenceFlowList.get(0));
-		}
-
+		
+		LOG.debug("唯一网关: {}({}) 离开线条: {}({})", this.getName(), this.getId(), sequenceFlow.getName(), sequenceFlow.getId());
+		((KernelTokenImpl) executionContext).leave(sequenceFlow);
 	}
 
 }
@@ -19,6 +19,10 @@ package org.foxbpm.engine.impl.bpmn.behavior;
 
 import java.util.List;
 
+import org.foxbpm.engine.impl.Context;
+import org.foxbpm.engine.impl.entity.TokenEntity;
+import org.foxbpm.engine.impl.schedule.quartz.AsyncContinuationJob;
+import org.foxbpm.engine.impl.util.QuartzUtil;
 import org.foxbpm.kernel.process.KernelFlowNode;
 import org.foxbpm.kernel.process.KernelSequenceFlow;
 import org.foxbpm.kernel.process.impl.KernelFlowNodeImpl;
@@ -50,63 +54,148 @@ public class ParallelGatewayBehavior extends GatewayBehavior {
 	 * 线条数量 合并方式
 	 */
 	protected String convergType = "flowNum";// tokenNum
+	/**
+	 * 异步网关，每个分支令牌在单独的命令中沿线条离开；汇聚时每个到达的分支令牌在单独的命令中合并
+	 */
+	protected boolean async;
 
 	public void execute(FlowNodeExecutionContext executionContext) {
-		/** 获取当前的pvm节点 */
-		KernelFlowNode flowNode = executionContext.getFlowNode();
-		/** 获取pvm节点的进入线条 */
-		List<KernelSequenceFlow> incomingSequenceFlows = flowNode.getIncomingSequenceFlows();
-		/** 获取pvm节点的输出线条 */
-
 		KernelTokenImpl token = (KernelTokenImpl) executionContext;
 		KernelTokenImpl parentToken = token.getParent();
 		// 判断是否有父令牌
 		if (parentToken != null) {
-			// 判断令牌是否需要重新激活
-			if (token.isActive()) {
-				token.setActive(false);
-				if (this.convergType.equals(CONVERGTYPE_TOKENNUM)) {
-					/** 按照令牌数量合并方式 */
-					// 当子令牌都处于非激活状态才会驱动父令牌向下 ！！这里可能会出现一种情况有问题,
-					boolean reactivateParent = !parentToken.hasActiveChildren();
-					// 判断是否需要把父令牌移动到下一个节点
-					if (reactivateParent) {
-						this.signalParentToken(parentToken, token.getFlowNode());
-					}
-				} else {
-					/** 按照进入线的数量合并方式 */
-					List<KernelTokenImpl> joinedExecutions = executionContext.findInactiveToken(flowNode);
-					int nbrOfExecutionsToJoin = incomingSequenceFlows.size();
-					int nbrOfExecutionsJoined = joinedExecutions.size();
-					if (nbrOfExecutionsJoined == nbrOfExecutionsToJoin) {
-						// Fork
-						if (LOG.isDebugEnabled()) {
-							LOG.debug("并行网关 '{}' activates: {} of {} joined", flowNode.getId(), nbrOfExecutionsJoined,
-									nbrOfExecutionsToJoin);
-						}
-
-						this.signalParentToken(parentToken, token.getFlowNode());
-					} else if (LOG.isDebugEnabled()) {
-						LOG.debug("并行网关 '{}' does not activate: {} of {} joined", flowNode.getId(), nbrOfExecutionsJoined,
+			if (token.isActive() && joinAsync(token)) {
+				return;
+			}
+			join(token);
+		} else {
+			// 没有父令牌则直接离开
+			executionContext.signal();
+		}
+
+	}
+
+	/**
+	 * 异步汇聚的分支令牌在网关上合并，由调度线程在新的命令中调用
+	 * 
+	 * @param executionContext
+	 *            停在网关上的分支令牌
+	 */
+	public void asyncJoin(FlowNodeExecutionContext executionContext) {
+		join((KernelTokenImpl) executionContext);
+	}
+
+	/**
+	 * 分支令牌到达网关，所有分支都到达时驱动父令牌离开
+	 * 
+	 * @param token
+	 *            分支令牌
+	 */
+	private void join(KernelTokenImpl token) {
+		/** 获取当前的pvm节点 */
+		KernelFlowNode flowNode = token.getFlowNode();
+		/** 获取pvm节点的进入线条 */
+		List<KernelSequenceFlow> incomingSequenceFlows = flowNode.getIncomingSequenceFlows();
+		KernelTokenImpl parentToken = token.getParent();
+		// 判断令牌是否需要重新激活
+		if (token.isActive()) {
+			token.setActive(false);
+			// 先锁定合并点，再统计到达的分支
+			lockJoin(parentToken);
+			if (this.convergType.equals(CONVERGTYPE_TOKENNUM)) {
+				/** 按照令牌数量合并方式 */
+				// 当子令牌都处于非激活状态才会驱动父令牌向下 ！！这里可能会出现一种情况有问题,
+				boolean reactivateParent = !parentToken.hasActiveChildren();
+				// 判断是否需要把父令牌移动到下一个节点
+				if (reactivateParent) {
+					this.signalParentToken(parentToken, token.getFlowNode());
+				}
+			} else {
+				/** 按照进入线的数量合并方式 */
+				List<KernelTokenImpl> joinedExecutions = token.findInactiveToken(flowNode);
+				int nbrOfExecutionsToJoin = incomingSequenceFlows.size();
+				int nbrOfExecutionsJoined = joinedExecutions.size();
+				if (nbrOfExecutionsJoined == nbrOfExecutionsToJoin) {
+					// Fork
+					if (LOG.isDebugEnabled()) {
+						LOG.debug("并行网关 '{}' activates: {} of {} joined", flowNode.getId(), nbrOfExecutionsJoined,
 								nbrOfExecutionsToJoin);
 					}
-				}
 
+					this.signalParentToken(parentToken, token.getFlowNode());
+				} else if (LOG.isDebugEnabled()) {
+					LOG.debug("并行网关 '{}' does not activate: {} of {} joined", flowNode.getId(), nbrOfExecutionsJoined,
+							nbrOfExecutionsToJoin);
+				}
 			}
 
-		} else {
-			// 没有父令牌则直接离开
-			executionContext.signal();
 		}
 
 	}
 
+	/**
+	 * 异步汇聚时，分支令牌停在网关上，不在当前命令中合并，而是添加异步任务，命令提交后由调度线程在新的命令中合并。
+	 * 分支在网关前的执行(如连接器)先单独提交，并发分支在合并点锁定冲突重试时只重新执行合并，不会重复执行分支上的节点。
+	 * 
+	 * @param token
+	 *            到达网关的分支令牌
+	 * @return 是否已添加异步任务，返回false时调用方同步合并
+	 */
+	protected boolean joinAsync(KernelTokenImpl token) {
+		if (!async || token.getFlowNode().getIncomingSequenceFlows().size() < 2) {
+			return false;
+		}
+		if (!QuartzUtil.isAsyncJobSupported()) {
+			LOG.warn("调度器未启动,异步并行网关 '{}' 同步合并", getId());
+			return false;
+		}
+		LOG.debug("并行网关 '{}' 异步合并,令牌号: {}", getId(), token.getId());
+		QuartzUtil.addAsyncJob(AsyncContinuationJob.createActivityJob(token));
+		return true;
+	}
+
 	public void leave(FlowNodeExecutionContext executionContext) {
 		List<KernelSequenceFlow> outgoingSequenceFlows = executionContext.getFlowNode().getOutgoingSequenceFlows();
 		// 并行网关 直接忽略所有线条条件产生并发
 		((KernelTokenImpl) executionContext).leave(outgoingSequenceFlows);
 	}
 
+	/**
+	 * 异步分支时，分支令牌不在当前命令中离开，而是添加异步任务，由调度线程池并发执行。
+	 * 分支令牌在当前命令提交后才可见，每个分支在自己的命令上下文中执行。
+	 * 
+	 * @param childToken
+	 *            分支令牌
+	 * @param sequenceFlow
+	 *            分支令牌离开的线条
+	 * @return 是否已添加异步任务，返回false时调用方同步执行
+	 */
+	public boolean forkAsync(KernelTokenImpl childToken, KernelSequenceFlow sequenceFlow) {
+		if (!async) {
+			return false;
+		}
+		if (!QuartzUtil.isAsyncJobSupported()) {
+			LOG.warn("调度器未启动,异步并行网关 '{}' 的分支同步执行", getId());
+			return false;
+		}
+		LOG.debug("并行网关 '{}' 异步分支,令牌号: {},线条: {}", getId(), childToken.getId(), sequenceFlow.getId());
+		QuartzUtil.addAsyncJob(AsyncContinuationJob.createForkJob(childToken, sequenceFlow.getId()));
+		return true;
+	}
+
+	/**
+	 * 锁定合并点。分支令牌在各自的事务中到达网关时，按版本号更新父令牌，同时到达的分支只有一个能提交，
+	 * 其他分支抛出乐观锁异常回滚(异步任务按重试策略重新执行)，避免都看不到对方或都驱动父令牌。
+	 * 
+	 * @param parentToken
+	 *            父令牌
+	 */
+	protected void lockJoin(KernelTokenImpl parentToken) {
+		if (parentToken instanceof TokenEntity && Context.getCommandContext() != null) {
+			Context.getCommandContext().getTokenManager().lockTokenRevision((TokenEntity) parentToken);
+		}
+	}
+
 	/**
 	 * 
 	 * 驱动令牌
@@ -134,4 +223,12 @@ public class ParallelGatewayBehavior extends GatewayBehavior {
 		this.convergType = convergType;
 	}
 
+	public boolean isAsync() {
+		return async;
+	}
+
+	public void setAsync(boolean async) {
+		this.async = async;
+	}
+
 }
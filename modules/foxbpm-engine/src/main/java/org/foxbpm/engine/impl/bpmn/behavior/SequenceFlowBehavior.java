@@ -19,10 +19,12 @@
 package org.foxbpm.engine.impl.bpmn.behavior;
 
 import org.foxbpm.engine.impl.expression.ExpressionMgmt;
+import org.foxbpm.engine.impl.expression.ParsedExpression;
 import org.foxbpm.engine.impl.util.ExceptionUtil;
 import org.foxbpm.engine.impl.util.StringUtil;
 import org.foxbpm.kernel.behavior.KernelSequenceFlowBehavior;
 import org.foxbpm.kernel.runtime.FlowNodeExecutionContext;
+import org.foxbpm.engine.scriptlanguage.AbstractScriptLanguageMgmt;
 import org.foxbpm.model.SequenceFlow;
 
 public class SequenceFlowBehavior extends FlowElementBehavior implements KernelSequenceFlowBehavior {
@@ -32,14 +34,21 @@ public class SequenceFlowBehavior extends FlowElementBehavior implements KernelS
 	 */
 	private static final long serialVersionUID = 1L;
 
+	/** 解析后的线条条件，构建路由表时解析，执行时不再重复解析 */
+	protected ParsedExpression parsedCondition;
+
+	public boolean hasCondition() {
+		return getParsedCondition() != null;
+	}
+
 	public boolean isContinue(FlowNodeExecutionContext executionContext) {
-		SequenceFlow sequenceFlow = (SequenceFlow)baseElement;
-		if(StringUtil.isEmpty(sequenceFlow.getFlowCondition())){
+		ParsedExpression condition = getParsedCondition();
+		if(condition == null){
 			return true;
 		}
 		Object expressionValue = null;
 		try{
-			expressionValue = StringUtil.getBoolean(ExpressionMgmt.execute(sequenceFlow.getFlowCondition(), executionContext));
+			expressionValue = StringUtil.getBoolean(ExpressionMgmt.execute(condition, executionContext));
 		}catch(Exception ex){
 			throw ExceptionUtil.getException("10404020",ex,this.getId());
 		}
@@ -52,4 +61,14 @@ public class SequenceFlowBehavior extends FlowElementBehavior implements KernelS
 		throw ExceptionUtil.getException("10404021",this.getId());
 	}
 
+	protected ParsedExpression getParsedCondition() {
+		if (parsedCondition == null) {
+			String flowCondition = ((SequenceFlow) baseElement).getFlowCondition();
+			if (StringUtil.isNotEmpty(flowCondition)) {
+				parsedCondition = AbstractScriptLanguageMgmt.parseExpression(flowCondition);
+			}
+		}
+		return parsedCondition;
+	}
+
 }
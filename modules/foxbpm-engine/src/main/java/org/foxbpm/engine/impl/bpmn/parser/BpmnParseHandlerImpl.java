@@ -45,8 +45,11 @@ import org.foxbpm.engine.impl.bpmn.behavior.SubProcessBehavior;
 import org.foxbpm.engine.impl.connector.ConnectorListener;
 import org.foxbpm.engine.impl.entity.ProcessDefinitionEntity;
 import org.foxbpm.engine.impl.mgmt.DataVariableMgmtDefinition;
+import org.foxbpm.engine.impl.scriptlanguage.GroovyScriptCache;
 import org.foxbpm.engine.impl.util.ExceptionUtil;
+import org.foxbpm.engine.impl.util.StringUtil;
 import org.foxbpm.engine.modelparse.ProcessModelParseHandler;
+import org.foxbpm.engine.scriptlanguage.AbstractScriptLanguageMgmt;
 import org.foxbpm.kernel.ProcessDefinitionBuilder;
 import org.foxbpm.kernel.behavior.KernelFlowNodeBehavior;
 import org.foxbpm.kernel.behavior.KernelSequenceFlowBehavior;
@@ -70,20 +73,29 @@ import org.foxbpm.model.BaseElement;
 import org.foxbpm.model.Bounds;
 import org.foxbpm.model.BpmnModel;
 import org.foxbpm.model.Connector;
+import org.foxbpm.model.DataVariableDefinition;
+import org.foxbpm.model.FlowContainer;
 import org.foxbpm.model.FlowElement;
 import org.foxbpm.model.FlowNode;
+import org.foxbpm.model.InputParam;
 import org.foxbpm.model.Lane;
 import org.foxbpm.model.LaneSet;
+import org.foxbpm.model.MultiInstanceLoopCharacteristics;
 import org.foxbpm.model.Process;
+import org.foxbpm.model.ScriptTask;
 import org.foxbpm.model.SequenceFlow;
 import org.foxbpm.model.StartEvent;
 import org.foxbpm.model.SubProcess;
 import org.foxbpm.model.WayPoint;
 import org.foxbpm.model.constant.StyleOption;
 import org.foxbpm.model.style.Style;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class BpmnParseHandlerImpl implements ProcessModelParseHandler {
 	
+	private static Logger log = LoggerFactory.getLogger(BpmnParseHandlerImpl.class);
+	
 	private static Map<String, Style> styleContainer = new HashMap<String, Style>(); 
 	//初始化加载监听器
 	private static Map<String,List<String>> eventTypeMap = new HashMap<String,List<String>>();
@@ -165,9 +177,80 @@ public class BpmnParseHandlerImpl implements ProcessModelParseHandler {
 		behaviorRelationMemo.attachActivityAndBoundaryEventBehaviorRelation();
 		// 加载监听器
 		registListener((ProcessDefinitionEntity) processDefinition);
+		// 预编译表达式，避免第一个流程实例承担编译开销
+		precompileExpressions(bpmnModel.getProcesses().get(0));
 		return processDefinition;
 	}
 	
+	/**
+	 * 预编译流程中的表达式并放入脚本缓存，编译失败只记录日志，运行时仍会按原方式报错
+	 * 
+	 * @param process
+	 */
+	private void precompileExpressions(Process process) {
+		if (Context.getProcessEngineConfiguration() == null) {
+			return;
+		}
+		GroovyScriptCache scriptCache = Context.getProcessEngineConfiguration().getGroovyScriptCache();
+		if (scriptCache == null) {
+			return;
+		}
+		List<String> expressions = new ArrayList<String>();
+		expressions.add(process.getSubject());
+		for (DataVariableDefinition dataVariable : process.getDataVariables()) {
+			expressions.add(dataVariable.getExpression());
+		}
+		collectExpressions(process, expressions);
+		for (String expression : expressions) {
+			if (StringUtil.isEmpty(expression)) {
+				continue;
+			}
+			try {
+				scriptCache.compile(AbstractScriptLanguageMgmt.getExpressionAll(expression));
+			} catch (Exception e) {
+				log.warn("流程" + process.getId() + "中的表达式预编译失败：" + expression, e);
+			}
+		}
+	}
+	
+	private void collectExpressions(FlowElement flowElement, List<String> expressions) {
+		if (flowElement.getConnector() != null) {
+			for (Connector connector : flowElement.getConnector()) {
+				expressions.add(connector.getSkipExpression());
+				if (connector.getInputsParam() != null) {
+					for (InputParam inputParam : connector.getInputsParam()) {
+						expressions.add(inputParam.getExpression());
+					}
+				}
+			}
+		}
+		if (flowElement instanceof SequenceFlow) {
+			expressions.add(((SequenceFlow) flowElement).getFlowCondition());
+		} else if (flowElement instanceof ScriptTask) {
+			expressions.add(((ScriptTask) flowElement).getScript());
+		}
+		if (flowElement instanceof Activity) {
+			Activity activity = (Activity) flowElement;
+			if (activity.getSkipStrategy() != null) {
+				expressions.add(activity.getSkipStrategy().getSkipExpression());
+			}
+			if (activity.getLoopCharacteristics() instanceof MultiInstanceLoopCharacteristics) {
+				expressions.add(((MultiInstanceLoopCharacteristics) activity.getLoopCharacteristics()).getCompletionCondition());
+			}
+		}
+		if (flowElement instanceof FlowContainer) {
+			FlowContainer flowContainer = (FlowContainer) flowElement;
+			for (FlowElement childElement : flowContainer.getFlowElements()) {
+				collectExpressions(childElement, expressions);
+			}
+			if (flowContainer.getSequenceFlows() != null) {
+				for (SequenceFlow sequenceFlow : flowContainer.getSequenceFlows().values()) {
+					collectExpressions(sequenceFlow, expressions);
+				}
+			}
+		}
+	}
+	
 	/**
 	 * loadBehavior 根据Process模型加载流程定义对象
 	 * 
@@ -33,6 +33,7 @@ public class ParallelGatewayParser extends GatewayParser {
 		if(StringUtil.isNotEmpty(convergType)){
 			parallelGatewayBehavior.setConvergType(convergType);
 		}
+		parallelGatewayBehavior.setAsync(parallelGateway.isAsync());
 		return super.parser(baseElement);
 	}
 	 
@@ -0,0 +1,107 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author ych
+ */
+package org.foxbpm.engine.impl.cache;
+
+/**
+ * foxbpm.cfg.xml中caches节点的缓存配置
+ * 
+ * <pre>
+ * &lt;cache id="processDefinition" cacheClass="org.foxbpm.engine.impl.cache.ConcurrentCache"
+ *        limit="500" expireTime="0" concurrencyLevel="16" /&gt;
+ * </pre>
+ * 
+ * @author ych
+ */
+public class CacheDefinitionImpl {
+
+	public static final String PROCESS_DEFINITION_CACHE = "processDefinition";
+	public static final String IDENTITY_CACHE = "identity";
+	public static final String USER_PROCESS_DEFINITION_CACHE = "userProcessDefinition";
+	public static final String SCRIPT_CACHE = "script";
+
+	protected String id;
+	/** 缓存实现类，为空时使用ConcurrentCache */
+	protected String cacheClass;
+	/** 最大条目数，小于等于0表示不限制 */
+	protected int limit = -1;
+	/** 最大总权重，需同时配置weigherClass */
+	protected long maxWeight = -1;
+	/** 权重计算器实现类 */
+	protected String weigherClass;
+	/** 写入后失效时间(秒)，小于等于0表示永不失效 */
+	protected int expireTime = -1;
+	/** 预计并发线程数 */
+	protected int concurrencyLevel = ConcurrentCache.DEFAULT_CONCURRENCY_LEVEL;
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getCacheClass() {
+		return cacheClass;
+	}
+
+	public void setCacheClass(String cacheClass) {
+		this.cacheClass = cacheClass;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	public void setLimit(int limit) {
+		this.limit = limit;
+	}
+
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+
+	public void setMaxWeight(long maxWeight) {
+		this.maxWeight = maxWeight;
+	}
+
+	public String getWeigherClass() {
+		return weigherClass;
+	}
+
+	public void setWeigherClass(String weigherClass) {
+		this.weigherClass = weigherClass;
+	}
+
+	public int getExpireTime() {
+		return expireTime;
+	}
+
+	public void setExpireTime(int expireTime) {
+		this.expireTime = expireTime;
+	}
+
+	public int getConcurrencyLevel() {
+		return concurrencyLevel;
+	}
+
+	public void setConcurrencyLevel(int concurrencyLevel) {
+		this.concurrencyLevel = concurrencyLevel;
+	}
+
+}
@@ -58,8 +58,12 @@ public class CacheUtil {
 		return ProcessEngineManagement.getDefaultProcessEngine().getProcessEngineConfiguration().getUserProcessDefinitionCache();
 	}
 	
+	/**
+	 * 清空用户组织缓存，用户可发起的流程依赖用户所在组，一并清空
+	 */
 	public static void clearIdentityCache(){
 		getIdentityCache().clear();
+		clearUserProcessDefinitionCache();
 	}
 	
 	public static void clearProcessDefinitionCache(){
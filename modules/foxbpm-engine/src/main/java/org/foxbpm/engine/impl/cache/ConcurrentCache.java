@@ -0,0 +1,361 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author ych
+ */
+package org.foxbpm.engine.impl.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.foxbpm.engine.cache.Cache;
+import org.foxbpm.engine.cache.CacheStatistics;
+import org.foxbpm.engine.cache.CacheWeigher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 线程安全的缓存实现
+ * <p>
+ * 缓存按key的hash分成多个段，每个段是一个按访问顺序排列的LinkedHashMap，由独立的锁保护，
+ * 不同段之间的读写互不阻塞。每个段独立执行LRU淘汰，支持：
+ * <ul>
+ * <li>按条目数限制容量(limit)</li>
+ * <li>按权重限制容量(maxWeight，需配合{@link CacheWeigher})</li>
+ * <li>写入后超时失效(expireTime)</li>
+ * <li>命中、未命中、淘汰、失效计数</li>
+ * </ul>
+ * 
+ * @author ych
+ */
+public class ConcurrentCache<T> implements Cache<T>, CacheStatistics {
+
+	private static final Logger logger = LoggerFactory.getLogger(ConcurrentCache.class);
+
+	public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+	private static final int MAX_SEGMENTS = 1 << 16;
+
+	protected final Segment<T>[] segments;
+	protected final int segmentShift;
+	protected final int segmentMask;
+
+	/** 写入后的失效时间(毫秒)，小于等于0表示永不失效 */
+	protected final long expireTime;
+	protected final CacheWeigher<? super T> weigher;
+
+	protected final AtomicLong hitCount = new AtomicLong();
+	protected final AtomicLong missCount = new AtomicLong();
+	protected final AtomicLong evictionCount = new AtomicLong();
+	protected final AtomicLong expiredCount = new AtomicLong();
+
+	/** Cache with no limit */
+	public ConcurrentCache() {
+		this(-1, -1, -1, DEFAULT_CONCURRENCY_LEVEL, null);
+	}
+
+	/** Cache which holds no more elements than the limit */
+	public ConcurrentCache(int limit) {
+		this(limit, -1, -1, DEFAULT_CONCURRENCY_LEVEL, null);
+	}
+
+	/**
+	 * @param limit
+	 *            最大条目数，小于等于0表示不限制
+	 * @param maxWeight
+	 *            最大总权重，小于等于0或weigher为空时不限制
+	 * @param expireTime
+	 *            写入后的失效时间(毫秒)，小于等于0表示永不失效
+	 * @param concurrencyLevel
+	 *            预计并发写线程数，决定分段数
+	 * @param weigher
+	 *            权重计算器，可为空
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentCache(int limit, long maxWeight, long expireTime, int concurrencyLevel, CacheWeigher<? super T> weigher) {
+		if (concurrencyLevel <= 0) {
+			concurrencyLevel = DEFAULT_CONCURRENCY_LEVEL;
+		}
+		// 有容量限制时，分段数不能超过容量，否则每段至少一个条目会使总数超出限制
+		if (limit > 0 && concurrencyLevel > limit) {
+			concurrencyLevel = limit;
+		}
+		if (concurrencyLevel > MAX_SEGMENTS) {
+			concurrencyLevel = MAX_SEGMENTS;
+		}
+		int shift = 0;
+		int segmentCount = 1;
+		while (segmentCount < concurrencyLevel) {
+			++shift;
+			segmentCount <<= 1;
+		}
+		// 向下取整为2的幂，保证 segmentCount <= limit
+		if (segmentCount > concurrencyLevel) {
+			--shift;
+			segmentCount >>= 1;
+		}
+		this.segmentShift = 32 - shift;
+		this.segmentMask = segmentCount - 1;
+		this.expireTime = expireTime;
+		this.weigher = maxWeight > 0 ? weigher : null;
+
+		int segmentLimit = limit > 0 ? (limit + segmentCount - 1) / segmentCount : -1;
+		// 上取整后总容量可能略大于limit，将多出的部分从后面的段扣除
+		int overflow = limit > 0 ? segmentLimit * segmentCount - limit : 0;
+		long segmentWeight = this.weigher != null ? (maxWeight + segmentCount - 1) / segmentCount : -1;
+		this.segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			int currentLimit = segmentLimit;
+			if (overflow > 0 && i >= segmentCount - overflow) {
+				currentLimit--;
+			}
+			segments[i] = new Segment<T>(this, currentLimit, segmentWeight);
+		}
+	}
+
+	public T get(String id) {
+		return segmentFor(id).get(id);
+	}
+
+	public void add(String id, T object) {
+		segmentFor(id).put(id, object);
+	}
+
+	public void remove(String id) {
+		segmentFor(id).remove(id);
+	}
+
+	public void clear() {
+		for (int i = 0; i < segments.length; i++) {
+			segments[i].clear();
+		}
+	}
+
+	public int size() {
+		int size = 0;
+		for (int i = 0; i < segments.length; i++) {
+			size += segments[i].size();
+		}
+		return size;
+	}
+
+	public long getWeight() {
+		long weight = 0;
+		for (int i = 0; i < segments.length; i++) {
+			weight += segments[i].getWeight();
+		}
+		return weight;
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	public long getExpiredCount() {
+		return expiredCount.get();
+	}
+
+	public String toString() {
+		return "ConcurrentCache[size=" + size() + ", hit=" + getHitCount() + ", miss=" + getMissCount() + ", eviction="
+		        + getEvictionCount() + ", expired=" + getExpiredCount() + "]";
+	}
+
+	protected Segment<T> segmentFor(String id) {
+		int hash = hash(id == null ? 0 : id.hashCode());
+		return segments[(hash >>> segmentShift) & segmentMask];
+	}
+
+	protected int weigh(String id, T object) {
+		if (weigher == null) {
+			return 0;
+		}
+		int weight = weigher.weigh(id, object);
+		return weight < 0 ? 0 : weight;
+	}
+
+	protected long now() {
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * 对hashCode再次散列，避免低质量的hashCode集中在少数段上(同ConcurrentHashMap)
+	 */
+	private static int hash(int h) {
+		h += (h << 15) ^ 0xffffcd7d;
+		h ^= (h >>> 10);
+		h += (h << 3);
+		h ^= (h >>> 6);
+		h += (h << 2) + (h << 14);
+		return h ^ (h >>> 16);
+	}
+
+	static final class Entry<T> {
+		final T value;
+		final int weight;
+		final long writeTime;
+
+		Entry(T value, int weight, long writeTime) {
+			this.value = value;
+			this.weight = weight;
+			this.writeTime = writeTime;
+		}
+	}
+
+	static final class Segment<T> extends ReentrantLock {
+
+		private static final long serialVersionUID = 1L;
+
+		final ConcurrentCache<T> cache;
+		final int limit;
+		final long maxWeight;
+		final LinkedHashMap<String, Entry<T>> map;
+		long weight;
+
+		Segment(ConcurrentCache<T> cache, int limit, long maxWeight) {
+			this.cache = cache;
+			this.limit = limit;
+			this.maxWeight = maxWeight;
+			// true 保持访问顺序，用于LRU淘汰
+			this.map = new LinkedHashMap<String, Entry<T>>(16, 0.75f, true);
+		}
+
+		T get(String id) {
+			lock();
+			try {
+				Entry<T> entry = map.get(id);
+				if (entry == null) {
+					cache.missCount.incrementAndGet();
+					return null;
+				}
+				if (isExpired(entry, cache.now())) {
+					map.remove(id);
+					weight -= entry.weight;
+					cache.expiredCount.incrementAndGet();
+					cache.missCount.incrementAndGet();
+					return null;
+				}
+				cache.hitCount.incrementAndGet();
+				return entry.value;
+			} finally {
+				unlock();
+			}
+		}
+
+		void put(String id, T object) {
+			// 权重计算在锁外进行，避免用户代码持有锁
+			int entryWeight = cache.weigh(id, object);
+			lock();
+			try {
+				long now = cache.now();
+				Entry<T> old = map.put(id, new Entry<T>(object, entryWeight, now));
+				if (old != null) {
+					weight -= old.weight;
+				}
+				weight += entryWeight;
+				evict(id, now);
+			} finally {
+				unlock();
+			}
+		}
+
+		void remove(String id) {
+			lock();
+			try {
+				Entry<T> old = map.remove(id);
+				if (old != null) {
+					weight -= old.weight;
+				}
+			} finally {
+				unlock();
+			}
+		}
+
+		void clear() {
+			lock();
+			try {
+				map.clear();
+				weight = 0;
+			} finally {
+				unlock();
+			}
+		}
+
+		int size() {
+			lock();
+			try {
+				return map.size();
+			} finally {
+				unlock();
+			}
+		}
+
+		long getWeight() {
+			lock();
+			try {
+				return weight;
+			} finally {
+				unlock();
+			}
+		}
+
+		/**
+		 * 先清理已失效条目，再按LRU顺序淘汰超出容量或权重的条目，刚写入的条目不会被淘汰
+		 */
+		private void evict(String currentId, long now) {
+			Iterator<Map.Entry<String, Entry<T>>> iterator = map.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Map.Entry<String, Entry<T>> eldest = iterator.next();
+				boolean expired = isExpired(eldest.getValue(), now);
+				if (!expired && !isOverflow()) {
+					break;
+				}
+				if (isSameKey(currentId, eldest.getKey())) {
+					continue;
+				}
+				iterator.remove();
+				weight -= eldest.getValue().weight;
+				if (expired) {
+					cache.expiredCount.incrementAndGet();
+				} else {
+					cache.evictionCount.incrementAndGet();
+					logger.trace("Cache limit is reached, {} will be evicted", eldest.getKey());
+				}
+			}
+		}
+
+		private boolean isOverflow() {
+			return (limit > 0 && map.size() > limit) || (maxWeight > 0 && weight > maxWeight);
+		}
+
+		private boolean isExpired(Entry<T> entry, long now) {
+			return cache.expireTime > 0 && now - entry.writeTime >= cache.expireTime;
+		}
+
+		private static boolean isSameKey(String a, String b) {
+			return a == null ? b == null : a.equals(b);
+		}
+	}
+}
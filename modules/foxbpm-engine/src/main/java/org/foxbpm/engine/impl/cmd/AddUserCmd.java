@@ -18,6 +18,7 @@
 package org.foxbpm.engine.impl.cmd;
 
 import org.foxbpm.engine.impl.entity.UserEntity;
+import org.foxbpm.engine.impl.identity.Authentication;
 import org.foxbpm.engine.impl.interceptor.Command;
 import org.foxbpm.engine.impl.interceptor.CommandContext;
 
@@ -37,6 +38,7 @@ public class AddUserCmd implements Command<Void> {
 	 
 	public Void execute(CommandContext commandContext) {
 		commandContext.getUserEntityManager().addUser(userEntity);;
+		Authentication.refreshUser(userEntity.getUserId());
 		return null;
 	}
 	
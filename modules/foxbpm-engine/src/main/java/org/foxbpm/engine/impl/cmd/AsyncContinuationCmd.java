@@ -0,0 +1,99 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.impl.cmd;
+
+import org.foxbpm.engine.impl.bpmn.behavior.ActivityBehavior;
+import org.foxbpm.engine.impl.bpmn.behavior.ParallelGatewayBehavior;
+import org.foxbpm.engine.impl.entity.TokenEntity;
+import org.foxbpm.engine.impl.interceptor.CommandContext;
+import org.foxbpm.engine.impl.util.ExceptionUtil;
+import org.foxbpm.engine.impl.util.StringUtil;
+import org.foxbpm.kernel.behavior.KernelFlowNodeBehavior;
+import org.foxbpm.kernel.process.KernelSequenceFlow;
+
+/**
+ * 继续执行异步节点、异步并行网关分支、异步汇聚或异步并行多实例的一个实例，由调度线程调用。令牌已不在该节点时(流程被退回、终止等)抛出异常，由调度任务记录失败。
+ * <p>
+ * 同一流程实例的多个分支在不同的命令中并发执行，互不锁定，只在汇聚网关上锁定父令牌(见ParallelGatewayBehavior.lockJoin)：
+ * 同时到达的分支只有一个能提交，其余命令抛出乐观锁异常并回滚，由调度任务重试。
+ * 汇聚网关设置为异步时，分支在网关前的执行先单独提交，重试时只重新合并，不会重复执行分支上的连接器。
+ * 
+ * @author ych
+ */
+public class AsyncContinuationCmd extends NeedsTokenCmd<Object> {
+
+	private static final long serialVersionUID = 1L;
+
+	protected String nodeId;
+
+	/** 异步分支离开网关的线条 */
+	protected String sequenceFlowId;
+
+	/** 异步多实例的任务组号 */
+	protected String groupId;
+
+	/** 异步多实例的输入项 */
+	protected Object loopItem;
+
+	protected boolean loop;
+
+	public AsyncContinuationCmd(String tokenId, String nodeId) {
+		super(tokenId);
+		this.nodeId = nodeId;
+	}
+
+	public AsyncContinuationCmd(String tokenId, String nodeId, String sequenceFlowId) {
+		this(tokenId, nodeId);
+		this.sequenceFlowId = sequenceFlowId;
+	}
+
+	public AsyncContinuationCmd(String tokenId, String nodeId, String groupId, Object loopItem) {
+		this(tokenId, nodeId);
+		this.groupId = groupId;
+		this.loopItem = loopItem;
+		this.loop = true;
+	}
+
+	protected Object execute(CommandContext commandContext, TokenEntity token) {
+		if (!StringUtil.equals(token.getNodeId(), nodeId)) {
+			throw ExceptionUtil.getException("10603005", tokenId, nodeId);
+		}
+		KernelFlowNodeBehavior behavior = token.getFlowNode().getKernelFlowNodeBehavior();
+		if (sequenceFlowId != null) {
+			KernelSequenceFlow sequenceFlow = token.getFlowNode().findOutgoingSequenceFlow(sequenceFlowId);
+			if (!(behavior instanceof ParallelGatewayBehavior) || sequenceFlow == null) {
+				throw ExceptionUtil.getException("10603005", tokenId, nodeId);
+			}
+			token.take(sequenceFlow);
+			return null;
+		}
+		if (behavior instanceof ParallelGatewayBehavior) {
+			((ParallelGatewayBehavior) behavior).asyncJoin(token);
+			return null;
+		}
+		if (!(behavior instanceof ActivityBehavior)) {
+			throw ExceptionUtil.getException("10603005", tokenId, nodeId);
+		}
+		if (loop) {
+			((ActivityBehavior) behavior).asyncLoopContinue(token, groupId, loopItem);
+		} else {
+			((ActivityBehavior) behavior).asyncContinue(token);
+		}
+		return null;
+	}
+}
@@ -17,6 +17,7 @@
  */
 package org.foxbpm.engine.impl.cmd;
 
+import org.foxbpm.engine.impl.identity.Authentication;
 import org.foxbpm.engine.impl.interceptor.Command;
 import org.foxbpm.engine.impl.interceptor.CommandContext;
 
@@ -36,6 +37,7 @@ public class DeleteUserCmd implements Command<Void> {
 	 
 	public Void execute(CommandContext commandContext) {
 		commandContext.getUserEntityManager().deleteUser(userId);
+		Authentication.refreshUser(userId);
 		return null;
 	}
 	
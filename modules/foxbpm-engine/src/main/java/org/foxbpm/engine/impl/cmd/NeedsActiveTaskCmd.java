@@ -53,7 +53,7 @@ public abstract class NeedsActiveTaskCmd<T> implements Command<T>, Serializable
 		if (task.isSuspended()) {
 			throw ExceptionUtil.getException("10603202");
 		}
-		//增加流程修改时间
+		//增加流程修改时间，只更新时间时不按版本号更新流程实例(见ProcessInstanceManager)
 		ProcessInstanceEntity processInstance = task.getProcessInstance();
 		if(processInstance != null){
 			processInstance.setUpdateTime(ClockUtil.getCurrentTime());
@@ -0,0 +1,65 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.impl.cmd;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.foxbpm.engine.impl.Context;
+import org.foxbpm.engine.impl.interceptor.Command;
+import org.foxbpm.engine.impl.interceptor.CommandContext;
+import org.foxbpm.engine.impl.scriptlanguage.GroovyScriptLanguageMgmtImpl;
+import org.foxbpm.engine.runtime.ProcessInstance;
+import org.foxbpm.engine.runtime.ProcessInstanceStartItem;
+
+/**
+ * 在同一个命令上下文中启动一批流程实例。
+ * <p>
+ * 流程定义按编号从部署缓存获取，不再查询最新版本。命令结束时统一刷新，流程实例、令牌、任务、变量和运行轨迹
+ * 按insert语句分组批量插入。任意实例出错时整批不提交，由调用方逐个重新执行。
+ * 每个实例使用单独的脚本管理器，脚本变量不会带到下一个实例。
+ *
+ * @author ych
+ */
+public class StartProcessInstancesCmd implements Command<List<String>> {
+
+	protected String processDefinitionId;
+
+	protected List<ProcessInstanceStartItem> startItems;
+
+	public StartProcessInstancesCmd(String processDefinitionId, List<ProcessInstanceStartItem> startItems) {
+		this.processDefinitionId = processDefinitionId;
+		this.startItems = startItems;
+	}
+
+	public List<String> execute(CommandContext commandContext) {
+		commandContext.setBatchFlush(true);
+		List<String> processInstanceIds = new ArrayList<String>(startItems.size());
+		for (ProcessInstanceStartItem startItem : startItems) {
+			Context.setAbstractScriptLanguageMgmt(new GroovyScriptLanguageMgmtImpl(Context.getProcessEngineConfiguration().getGroovyScriptCache()).init());
+			try {
+				ProcessInstance processInstance = new StartProcessInstanceCmd<ProcessInstance>(null, processDefinitionId, startItem.getBizKey(), startItem.getTransientVariables(),
+						startItem.getPersistenceVariables()).execute(commandContext);
+				processInstanceIds.add(processInstance.getId());
+			} finally {
+				Context.removeAbstractScriptLanguageMgmt();
+			}
+		}
+		return processInstanceIds;
+	}
+}
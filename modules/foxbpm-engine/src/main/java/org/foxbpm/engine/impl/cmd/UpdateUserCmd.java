@@ -18,6 +18,7 @@
 package org.foxbpm.engine.impl.cmd;
 
 import org.foxbpm.engine.impl.entity.UserEntity;
+import org.foxbpm.engine.impl.identity.Authentication;
 import org.foxbpm.engine.impl.interceptor.Command;
 import org.foxbpm.engine.impl.interceptor.CommandContext;
 
@@ -36,6 +37,7 @@ public class UpdateUserCmd implements Command<Void> {
 	 
 	public Void execute(CommandContext commandContext) {
 		commandContext.getUserEntityManager().updateUser(userEntity);
+		Authentication.refreshUser(userEntity.getUserId());
 		return null;
 	}
 	
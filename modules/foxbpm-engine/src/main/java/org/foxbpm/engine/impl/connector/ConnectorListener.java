@@ -23,7 +23,9 @@ import org.foxbpm.engine.execution.ConnectorExecutionContext;
 import org.foxbpm.engine.impl.bpmn.behavior.TimerEventBehavior;
 import org.foxbpm.engine.impl.entity.TokenEntity;
 import org.foxbpm.engine.impl.expression.ExpressionMgmt;
+import org.foxbpm.engine.impl.schedule.quartz.AsyncContinuationJob;
 import org.foxbpm.engine.impl.util.ExceptionUtil;
+import org.foxbpm.engine.impl.util.QuartzUtil;
 import org.foxbpm.engine.impl.util.StringUtil;
 import org.foxbpm.kernel.event.KernelListener;
 import org.foxbpm.kernel.runtime.FlowNodeExecutionContext;
@@ -60,6 +62,9 @@ public class ConnectorListener implements KernelListener {
 					executionContext.getEventSource().getId()};
 			timerBehavior.execute((KernelTokenImpl) executionContext,
 					TimerEventBehavior.EVENT_TYPE_CONNECTOR, params);
+		} else if (connector.isAsync() && QuartzUtil.isAsyncJobSupported()) {
+			// 异步执行方式，命令提交后由调度线程执行
+			QuartzUtil.addAsyncJob(AsyncContinuationJob.createConnectorJob(executionContext, connector));
 		} else {
 			// 直接执行方式
 			execute(executionContext);
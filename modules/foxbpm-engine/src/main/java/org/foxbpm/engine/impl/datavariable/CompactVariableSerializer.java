@@ -0,0 +1,256 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author ych
+ */
+package org.foxbpm.engine.impl.datavariable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.foxbpm.engine.datavariable.VariableSerializer;
+import org.foxbpm.engine.impl.util.ExceptionUtil;
+
+/**
+ * 紧凑的类型化二进制格式，支持基本类型包装类、String、Date、BigDecimal、byte[]，
+ * 以及元素均为上述类型的ArrayList、HashMap、LinkedHashMap(可嵌套)。
+ * <p>
+ * 每个值由1字节类型标记加数据组成，相比java序列化不写类描述信息，体积和编解码开销都小得多。
+ * 只支持上述具体类，子类(如java.sql.Timestamp)交给java序列化处理，保证读出的类型与写入一致。
+ * 
+ * @author ych
+ */
+public class CompactVariableSerializer implements VariableSerializer {
+
+	public static final byte FORMAT = 0x01;
+
+	private static final byte TYPE_NULL = 0;
+	private static final byte TYPE_STRING = 1;
+	private static final byte TYPE_INTEGER = 2;
+	private static final byte TYPE_LONG = 3;
+	private static final byte TYPE_DOUBLE = 4;
+	private static final byte TYPE_FLOAT = 5;
+	private static final byte TYPE_BOOLEAN = 6;
+	private static final byte TYPE_SHORT = 7;
+	private static final byte TYPE_BYTE = 8;
+	private static final byte TYPE_CHARACTER = 9;
+	private static final byte TYPE_DATE = 10;
+	private static final byte TYPE_BIG_DECIMAL = 11;
+	private static final byte TYPE_BYTES = 12;
+	private static final byte TYPE_LIST = 13;
+	private static final byte TYPE_HASH_MAP = 14;
+	private static final byte TYPE_LINKED_HASH_MAP = 15;
+
+	/** 嵌套层数上限，防止自引用集合导致栈溢出 */
+	private static final int MAX_DEPTH = 32;
+
+	private static final String CHARSET = "UTF-8";
+
+	public byte getFormat() {
+		return FORMAT;
+	}
+
+	public boolean isSupport(Object value) {
+		return isSupport(value, 0);
+	}
+
+	public byte[] serialize(Object value) {
+		try {
+			ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(byteOut);
+			write(out, value);
+			out.flush();
+			return byteOut.toByteArray();
+		} catch (IOException e) {
+			throw ExceptionUtil.getException("10304005", e, value.getClass().getName());
+		}
+	}
+
+	public Object deserialize(byte[] bytes, int offset) {
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, offset, bytes.length - offset));
+			return read(in);
+		} catch (IOException e) {
+			throw ExceptionUtil.getException("10304006", e, "compact");
+		}
+	}
+
+	private boolean isSupport(Object value, int depth) {
+		if (value == null) {
+			return true;
+		}
+		if (depth > MAX_DEPTH) {
+			return false;
+		}
+		Class<?> clazz = value.getClass();
+		if (clazz == String.class || clazz == Integer.class || clazz == Long.class || clazz == Double.class || clazz == Float.class
+		        || clazz == Boolean.class || clazz == Short.class || clazz == Byte.class || clazz == Character.class
+		        || clazz == Date.class || clazz == BigDecimal.class || clazz == byte[].class) {
+			return true;
+		}
+		if (clazz == ArrayList.class) {
+			for (Object element : (List<?>) value) {
+				if (!isSupport(element, depth + 1)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		if (clazz == HashMap.class || clazz == LinkedHashMap.class) {
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				if (!isSupport(entry.getKey(), depth + 1) || !isSupport(entry.getValue(), depth + 1)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	private void write(DataOutputStream out, Object value) throws IOException {
+		if (value == null) {
+			out.writeByte(TYPE_NULL);
+			return;
+		}
+		Class<?> clazz = value.getClass();
+		if (clazz == String.class) {
+			out.writeByte(TYPE_STRING);
+			writeBytes(out, ((String) value).getBytes(CHARSET));
+		} else if (clazz == Integer.class) {
+			out.writeByte(TYPE_INTEGER);
+			out.writeInt((Integer) value);
+		} else if (clazz == Long.class) {
+			out.writeByte(TYPE_LONG);
+			out.writeLong((Long) value);
+		} else if (clazz == Double.class) {
+			out.writeByte(TYPE_DOUBLE);
+			out.writeDouble((Double) value);
+		} else if (clazz == Float.class) {
+			out.writeByte(TYPE_FLOAT);
+			out.writeFloat((Float) value);
+		} else if (clazz == Boolean.class) {
+			out.writeByte(TYPE_BOOLEAN);
+			out.writeBoolean((Boolean) value);
+		} else if (clazz == Short.class) {
+			out.writeByte(TYPE_SHORT);
+			out.writeShort((Short) value);
+		} else if (clazz == Byte.class) {
+			out.writeByte(TYPE_BYTE);
+			out.writeByte((Byte) value);
+		} else if (clazz == Character.class) {
+			out.writeByte(TYPE_CHARACTER);
+			out.writeChar((Character) value);
+		} else if (clazz == Date.class) {
+			out.writeByte(TYPE_DATE);
+			out.writeLong(((Date) value).getTime());
+		} else if (clazz == BigDecimal.class) {
+			out.writeByte(TYPE_BIG_DECIMAL);
+			writeBytes(out, value.toString().getBytes(CHARSET));
+		} else if (clazz == byte[].class) {
+			out.writeByte(TYPE_BYTES);
+			writeBytes(out, (byte[]) value);
+		} else if (clazz == ArrayList.class) {
+			List<?> list = (List<?>) value;
+			out.writeByte(TYPE_LIST);
+			out.writeInt(list.size());
+			for (Object element : list) {
+				write(out, element);
+			}
+		} else if (clazz == HashMap.class || clazz == LinkedHashMap.class) {
+			Map<?, ?> map = (Map<?, ?>) value;
+			out.writeByte(clazz == HashMap.class ? TYPE_HASH_MAP : TYPE_LINKED_HASH_MAP);
+			out.writeInt(map.size());
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				write(out, entry.getKey());
+				write(out, entry.getValue());
+			}
+		} else {
+			throw new IOException("unsupported type " + clazz.getName());
+		}
+	}
+
+	private Object read(DataInputStream in) throws IOException {
+		byte type = in.readByte();
+		switch (type) {
+			case TYPE_NULL :
+				return null;
+			case TYPE_STRING :
+				return new String(readBytes(in), CHARSET);
+			case TYPE_INTEGER :
+				return in.readInt();
+			case TYPE_LONG :
+				return in.readLong();
+			case TYPE_DOUBLE :
+				return in.readDouble();
+			case TYPE_FLOAT :
+				return in.readFloat();
+			case TYPE_BOOLEAN :
+				return in.readBoolean();
+			case TYPE_SHORT :
+				return in.readShort();
+			case TYPE_BYTE :
+				return in.readByte();
+			case TYPE_CHARACTER :
+				return in.readChar();
+			case TYPE_DATE :
+				return new Date(in.readLong());
+			case TYPE_BIG_DECIMAL :
+				return new BigDecimal(new String(readBytes(in), CHARSET));
+			case TYPE_BYTES :
+				return readBytes(in);
+			case TYPE_LIST : {
+				int size = in.readInt();
+				List<Object> list = new ArrayList<Object>(size);
+				for (int i = 0; i < size; i++) {
+					list.add(read(in));
+				}
+				return list;
+			}
+			case TYPE_HASH_MAP :
+			case TYPE_LINKED_HASH_MAP : {
+				int size = in.readInt();
+				Map<Object, Object> map = type == TYPE_HASH_MAP ? new HashMap<Object, Object>() : new LinkedHashMap<Object, Object>();
+				for (int i = 0; i < size; i++) {
+					Object key = read(in);
+					map.put(key, read(in));
+				}
+				return map;
+			}
+			default :
+				throw new IOException("unknown type " + type);
+		}
+	}
+
+	private void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private byte[] readBytes(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return bytes;
+	}
+}
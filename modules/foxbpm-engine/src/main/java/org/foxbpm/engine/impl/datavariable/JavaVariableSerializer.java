@@ -0,0 +1,113 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author ych
+ */
+package org.foxbpm.engine.impl.datavariable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamConstants;
+import java.io.Serializable;
+
+import org.foxbpm.engine.datavariable.VariableSerializer;
+import org.foxbpm.engine.impl.util.ExceptionUtil;
+
+/**
+ * java序列化，其他序列化器都不支持时使用。
+ * <p>
+ * java序列化流本身以0xACED开头，所以不额外写格式标识字节，
+ * 既有数据和旧版本引擎都可以直接读取。
+ * 
+ * @author ych
+ */
+public class JavaVariableSerializer implements VariableSerializer {
+
+	public static final byte FORMAT = (byte) (ObjectStreamConstants.STREAM_MAGIC >>> 8);
+
+	public byte getFormat() {
+		return FORMAT;
+	}
+
+	public boolean isSupport(Object value) {
+		return value instanceof Serializable;
+	}
+
+	public byte[] serialize(Object value) {
+		ObjectOutputStream out = null;
+		try {
+			ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+			out = new ObjectOutputStream(byteOut);
+			out.writeObject(value);
+			out.flush();
+			return byteOut.toByteArray();
+		} catch (IOException e) {
+			throw ExceptionUtil.getException("10304005", e, value.getClass().getName());
+		} finally {
+			close(out);
+		}
+	}
+
+	public Object deserialize(byte[] bytes, int offset) {
+		ObjectInputStream in = null;
+		try {
+			in = new ClassLoaderObjectInputStream(new ByteArrayInputStream(bytes, offset, bytes.length - offset));
+			return in.readObject();
+		} catch (IOException e) {
+			throw ExceptionUtil.getException("10304006", e, "java");
+		} catch (ClassNotFoundException e) {
+			throw ExceptionUtil.getException("10304006", e, "java");
+		} finally {
+			close(in);
+		}
+	}
+
+	private void close(Closeable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+
+	/**
+	 * 优先使用线程上下文类加载器解析类，保证web容器中业务类可以被反序列化
+	 */
+	static class ClassLoaderObjectInputStream extends ObjectInputStream {
+
+		ClassLoaderObjectInputStream(ByteArrayInputStream in) throws IOException {
+			super(in);
+		}
+
+		protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+			if (classLoader != null) {
+				try {
+					return Class.forName(desc.getName(), false, classLoader);
+				} catch (ClassNotFoundException e) {
+					// 继续使用默认方式解析
+				}
+			}
+			return super.resolveClass(desc);
+		}
+	}
+}
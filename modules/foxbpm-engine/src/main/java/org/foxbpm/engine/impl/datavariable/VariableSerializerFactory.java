@@ -0,0 +1,109 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author ych
+ */
+package org.foxbpm.engine.impl.datavariable;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.foxbpm.engine.datavariable.VariableSerializer;
+import org.foxbpm.engine.impl.util.ExceptionUtil;
+
+/**
+ * 流程变量序列化器注册表
+ * <p>
+ * BLOB格式：首字节为序列化器格式标识，其后为序列化内容。
+ * java序列化流以0xACED开头，首字节即为其格式标识，因此升级前写入的数据无需迁移即可读取。
+ * 
+ * @author ych
+ */
+public class VariableSerializerFactory {
+
+	protected static final JavaVariableSerializer javaSerializer = new JavaVariableSerializer();
+
+	protected static List<VariableSerializer> serializers = new CopyOnWriteArrayList<VariableSerializer>();
+
+	protected static VariableSerializer[] formatSerializers = new VariableSerializer[256];
+
+	static {
+		register(new CompactVariableSerializer());
+		formatSerializers[javaSerializer.getFormat() & 0xFF] = javaSerializer;
+	}
+
+	/**
+	 * 注册序列化器，后注册的优先
+	 */
+	public static synchronized void register(VariableSerializer serializer) {
+		int format = serializer.getFormat() & 0xFF;
+		if (format == (javaSerializer.getFormat() & 0xFF)) {
+			throw ExceptionUtil.getException("10304007", serializer.getClass().getName(), String.valueOf(format));
+		}
+		VariableSerializer registered = formatSerializers[format];
+		if (registered != null) {
+			serializers.remove(registered);
+		}
+		serializers.add(0, serializer);
+		formatSerializers[format] = serializer;
+	}
+
+	/**
+	 * 序列化变量值
+	 * 
+	 * @param value
+	 *            变量值
+	 * @return 带格式标识的字节数组，value为null时返回null
+	 */
+	public static byte[] serialize(Object value) {
+		if (value == null) {
+			return null;
+		}
+		for (VariableSerializer serializer : serializers) {
+			if (serializer.isSupport(value)) {
+				byte[] content = serializer.serialize(value);
+				byte[] bytes = new byte[content.length + 1];
+				bytes[0] = serializer.getFormat();
+				System.arraycopy(content, 0, bytes, 1, content.length);
+				return bytes;
+			}
+		}
+		if (javaSerializer.isSupport(value)) {
+			return javaSerializer.serialize(value);
+		}
+		throw ExceptionUtil.getException("10304008", value.getClass().getName());
+	}
+
+	/**
+	 * 反序列化变量值
+	 * 
+	 * @param bytes
+	 *            带格式标识的字节数组
+	 * @return 变量值，bytes为空时返回null
+	 */
+	public static Object deserialize(byte[] bytes) {
+		if (bytes == null || bytes.length == 0) {
+			return null;
+		}
+		VariableSerializer serializer = formatSerializers[bytes[0] & 0xFF];
+		if (serializer == null) {
+			throw ExceptionUtil.getException("10304006", String.valueOf(bytes[0] & 0xFF));
+		}
+		if (serializer == javaSerializer) {
+			return javaSerializer.deserialize(bytes, 0);
+		}
+		return serializer.deserialize(bytes, 1);
+	}
+}
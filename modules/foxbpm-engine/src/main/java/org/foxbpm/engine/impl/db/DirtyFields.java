@@ -0,0 +1,173 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.impl.db;
+
+import java.io.Serializable;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.foxbpm.engine.exception.FoxBPMException;
+
+/**
+ * 持久化对象的字段修改标记，每个字段对应位图中的一位。
+ * <p>
+ * 字段序号表按实体类共享(fieldIndexes)，每个对象只保存一个位图。未开始记录时mark()直接返回，
+ * 因此mybatis加载对象时调用setter没有额外开销；值没有变化的赋值也不标记。mapper中的部分更新语句通过
+ * dirtyFields.isDirty('字段名')判断是否更新对应列。
+ *
+ * @author ych
+ */
+public class DirtyFields implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Map<String, Integer> fieldIndexes;
+
+	private final BitSet dirtyBits = new BitSet();
+
+	private boolean tracking;
+
+	/**
+	 * @param fieldIndexes
+	 *            字段序号表，使用indexFields()创建
+	 */
+	public DirtyFields(Map<String, Integer> fieldIndexes) {
+		this.fieldIndexes = fieldIndexes;
+	}
+
+	/**
+	 * 创建字段序号表，实体类中作为静态常量保存
+	 *
+	 * @param fieldNames
+	 *            参与部分更新的字段名
+	 * @return
+	 */
+	public static Map<String, Integer> indexFields(String... fieldNames) {
+		Map<String, Integer> fieldIndexes = new HashMap<String, Integer>();
+		for (int i = 0; i < fieldNames.length; i++) {
+			fieldIndexes.put(fieldNames[i], Integer.valueOf(i));
+		}
+		return Collections.unmodifiableMap(fieldIndexes);
+	}
+
+	/**
+	 * 标记字段已修改，未开始记录时忽略
+	 *
+	 * @param fieldName
+	 *            字段名
+	 */
+	public void mark(String fieldName) {
+		if (!tracking) {
+			return;
+		}
+		dirtyBits.set(indexOf(fieldName));
+	}
+
+	/**
+	 * 值有变化时标记字段已修改，setter中在赋值之前调用。
+	 * 懒加载或重复设置相同的值不会产生多余的update。
+	 *
+	 * @param fieldName
+	 *            字段名
+	 * @param oldValue
+	 *            原值
+	 * @param newValue
+	 *            新值
+	 */
+	public void markChanged(String fieldName, Object oldValue, Object newValue) {
+		if (!tracking) {
+			return;
+		}
+		if (oldValue == newValue || (oldValue != null && oldValue.equals(newValue))) {
+			return;
+		}
+		dirtyBits.set(indexOf(fieldName));
+	}
+
+	/**
+	 * 标记多个字段已修改
+	 *
+	 * @param fieldNames
+	 *            字段名
+	 */
+	public void mark(String... fieldNames) {
+		for (String fieldName : fieldNames) {
+			mark(fieldName);
+		}
+	}
+
+	public boolean isDirty(String fieldName) {
+		return dirtyBits.get(indexOf(fieldName));
+	}
+
+	public boolean isDirty() {
+		return !dirtyBits.isEmpty();
+	}
+
+	/**
+	 * 开始记录修改并清空已有标记
+	 */
+	public void start() {
+		dirtyBits.clear();
+		tracking = true;
+	}
+
+	/**
+	 * 停止记录修改并清空已有标记
+	 */
+	public void stop() {
+		dirtyBits.clear();
+		tracking = false;
+	}
+
+	public boolean isTracking() {
+		return tracking;
+	}
+
+	/**
+	 * 复制一个未开始记录的实例，用于实体clone
+	 *
+	 * @return
+	 */
+	public DirtyFields copy() {
+		return new DirtyFields(fieldIndexes);
+	}
+
+	private int indexOf(String fieldName) {
+		Integer index = fieldIndexes.get(fieldName);
+		if (index == null) {
+			throw new FoxBPMException("字段" + fieldName + "不支持修改标记");
+		}
+		return index.intValue();
+	}
+
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for (Map.Entry<String, Integer> entry : fieldIndexes.entrySet()) {
+			if (dirtyBits.get(entry.getValue().intValue())) {
+				if (sb.length() > 1) {
+					sb.append(", ");
+				}
+				sb.append(entry.getKey());
+			}
+		}
+		return sb.append("]").toString();
+	}
+}
@@ -78,6 +78,13 @@ public class ListQueryParameterObject {
     return "RES.ID asc";
   }
   
+  /**
+   * 分页窗口函数(mssql的row_number)使用的排序，不能为空
+   */
+  public String getOrderByColumns() {
+    return getOrderBy();
+  }
+  
   public void setDatabaseType(String databaseType) {
     this.databaseType = databaseType;
   }
@@ -20,17 +20,19 @@ package org.foxbpm.engine.impl.entity;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
-import org.foxbpm.engine.datavariable.VariableQuery;
 import org.foxbpm.engine.db.HasRevision;
 import org.foxbpm.engine.db.PersistentObject;
 import org.foxbpm.engine.impl.Context;
-import org.foxbpm.engine.impl.datavariable.VariableQueryImpl;
 import org.foxbpm.engine.impl.expression.ExpressionMgmt;
 import org.foxbpm.engine.impl.mgmt.DataVariableMgmtInstance;
+import org.foxbpm.engine.impl.persistence.VariableManager;
 import org.foxbpm.engine.impl.runtime.ContextInstanceImpl;
+import org.foxbpm.engine.impl.runtime.ProcessLocation;
 import org.foxbpm.engine.impl.util.ClockUtil;
 import org.foxbpm.engine.impl.util.ExceptionUtil;
 import org.foxbpm.engine.impl.util.GuidUtil;
@@ -122,6 +124,12 @@ public class ProcessInstanceEntity extends KernelProcessInstanceImpl implements
 	 */
 	protected boolean isLocationChange;
 	
+	/** 位置有变化的任务编号 */
+	protected Set<String> locationChangedTaskIds = new HashSet<String>();
+	
+	/** 流程位置，第一次使用时从processLocation恢复 */
+	protected transient ProcessLocation location;
+	
 	public boolean isModified() {
 		return true;
 	}
@@ -475,25 +483,38 @@ public class ProcessInstanceEntity extends KernelProcessInstanceImpl implements
 		return mapPersistentState;
 	}
 	
+	/**
+	 * 设置持久化变量，已存在的变量更新，不存在的插入。
+	 * <p>
+	 * 已有变量通过一次查询按key批量加载，insert和update在命令结束flush时统一执行；
+	 * 流程实例第一次启动时数据库中还没有变量，不查询。
+	 * 
+	 * @param variables
+	 *            变量
+	 */
 	public void setVariables(Map<String, Object> variables) {
-		if (variables == null) {
+		if (variables == null || variables.isEmpty()) {
 			return;
 		}
-		for (String mapKey : variables.keySet()) {
-			VariableQuery variableQuery = new VariableQueryImpl(Context.getProcessEngineConfiguration().getCommandExecutor());
-			variableQuery.addVariableKey(mapKey);
-			variableQuery.processInstanceId(this.id);
-			@SuppressWarnings({"unchecked", "rawtypes"})
-			List<VariableInstanceEntity> variableInstances = (List) variableQuery.list();
-			if (variableInstances != null && variableInstances.size() == 1) {
+		VariableManager variableManager = Context.getCommandContext().getVariableManager();
+		Map<String, VariableInstanceEntity> existingVariables = new HashMap<String, VariableInstanceEntity>();
+		if (revision != 0) {
+			for (VariableInstanceEntity variableInstance : variableManager.findVariablesByProcessInstanceIdAndKeys(this.id, variables.keySet())) {
+				existingVariables.put(variableInstance.getKey(), variableInstance);
+			}
+		}
+		for (Map.Entry<String, Object> variable : variables.entrySet()) {
+			VariableInstanceEntity variableInstance = existingVariables.get(variable.getKey());
+			if (variableInstance != null) {
 				// 更新
-				Context.getCommandContext().getVariableManager().update(variableInstances.get(0));
-				dataVariableMgmtInstance.getDataVariableEntities().add(variableInstances.get(0));
+				variableInstance.setValue(variable.getValue());
+				variableManager.update(variableInstance);
+				dataVariableMgmtInstance.addDataVariableEntity(variableInstance);
 			} else {
-				VariableInstanceEntity variableInstanceEntity = addVariableToMgmt(mapKey, variables.get(mapKey));
-				Context.getCommandContext().getVariableManager().insert(variableInstanceEntity);
+				VariableInstanceEntity variableInstanceEntity = addVariableToMgmt(variable.getKey(), variable.getValue());
+				variableManager.insert(variableInstanceEntity);
 			}
-			ExpressionMgmt.setVariable(mapKey, variables.get(mapKey));
+			ExpressionMgmt.setVariable(variable.getKey(), variable.getValue());
 		}
 	}
 	
@@ -515,7 +536,7 @@ public class ProcessInstanceEntity extends KernelProcessInstanceImpl implements
 		variableInstanceEntity.setProcessDefinitionId(processDefinitionId);
 		variableInstanceEntity.setProcessDefinitionKey(processDefinitionKey);
 		variableInstanceEntity.setId(GuidUtil.CreateGuid());
-		dataVariableMgmtInstance.getDataVariableEntities().add(variableInstanceEntity);
+		dataVariableMgmtInstance.addDataVariableEntity(variableInstanceEntity);
 		return variableInstanceEntity;
 	}
 	
@@ -571,4 +592,27 @@ public class ProcessInstanceEntity extends KernelProcessInstanceImpl implements
 	public boolean isLocationChange() {
 		return isLocationChange;
 	}
+	
+	/**
+	 * 任务新建、结束或处理者变化，下次保存时只重新计算这个任务的位置
+	 * 
+	 * @param task
+	 */
+	public void taskLocationChanged(TaskEntity task) {
+		this.isLocationChange = true;
+		this.locationChangedTaskIds.add(task.getId());
+	}
+	
+	/**
+	 * 按当前任务和令牌更新流程位置，并清空位置变化标记
+	 */
+	public void updateProcessLocation() {
+		if (location == null) {
+			location = ProcessLocation.parse(processLocation);
+		}
+		location.update(this, locationChangedTaskIds);
+		setProcessLocation(location.toJson());
+		locationChangedTaskIds.clear();
+		isLocationChange = false;
+	}
 }
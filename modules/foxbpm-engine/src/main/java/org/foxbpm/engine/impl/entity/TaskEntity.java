@@ -25,11 +25,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.foxbpm.engine.db.DirtyTrackable;
 import org.foxbpm.engine.db.HasRevision;
 import org.foxbpm.engine.db.PersistentObject;
 import org.foxbpm.engine.exception.FoxBPMException;
 import org.foxbpm.engine.execution.ConnectorExecutionContext;
 import org.foxbpm.engine.impl.Context;
+import org.foxbpm.engine.impl.db.DirtyFields;
 import org.foxbpm.engine.impl.interceptor.CommandContext;
 import org.foxbpm.engine.impl.task.TaskCommandSystemType;
 import org.foxbpm.engine.impl.task.TaskDefinition;
@@ -55,7 +57,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class TaskEntity extends KernelVariableScopeImpl implements Task, DelegateTask,
-    PersistentObject, HasRevision {
+    PersistentObject, HasRevision, DirtyTrackable {
 	
 	private static Logger log = LoggerFactory.getLogger(TaskEntity.class);
 	
@@ -180,6 +182,19 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	/** 控制并发修改标示 */
 	protected int revision;
 	
+	/** 参与部分更新的字段，与Task.xml中updateTaskDirtyFields的列对应 */
+	private static final Map<String, Integer> DIRTY_FIELD_INDEXES = DirtyFields.indexFields("processInstanceId",
+	        "processDefinitionId", "version", "tokenId", "nodeId", "subject", "completeDescription", "description",
+	        "parentId", "assignee", "claimTime", "name", "createTime", "startTime", "isBlocking", "endTime",
+	        "processStartTime", "processInitiator", "dueDate", "priority", "category", "owner", "delegationState",
+	        "bizKey", "commandType", "commandMessage", "taskComment", "processDefinitionKey", "formUri", "taskGroup",
+	        "taskType", "processDefinitionName", "isCancelled", "isSuspended", "isOpen", "isDraft",
+	        "expectedExecutionTime", "agent", "admin", "formUriView", "callActivityInstanceId", "commandId",
+	        "pendingTaskId", "archiveTime");
+	
+	/** 字段修改标记 */
+	protected DirtyFields dirtyFields = new DirtyFields(DIRTY_FIELD_INDEXES);
+	
 	/** 下一步骤任务 */
 	protected String nextTaskId;
 	
@@ -211,7 +226,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 		commandContext.getTaskManager().insert(this);
 		if (processInstance != null) {
 			processInstance.addTask(this);
-			processInstance.setLocationChange(true);
+			processInstance.taskLocationChanged(this);
 		}
 		
 	}
@@ -285,8 +300,8 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	protected void ensureProcessDefinitionInitialized() {
 		
 		if (processDefinition == null && processDefinitionId != null) {
-			ProcessDefinitionEntity processDefinition = Context.getProcessEngineConfiguration().getDeploymentManager().findDeployedProcessDefinitionById(processDefinitionId);
-			setProcessDefinition(processDefinition);
+			// 懒加载只读取流程定义，直接赋值，不能通过setter标记字段修改，否则只读的任务也会被更新
+			this.processDefinition = Context.getProcessEngineConfiguration().getDeploymentManager().findDeployedProcessDefinitionById(processDefinitionId);
 		}
 		
 	}
@@ -298,9 +313,9 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	
 	public void setProcessDefinition(ProcessDefinitionEntity processDefinition) {
 		if (processDefinition != null) {
-			processDefinitionId = processDefinition.getId();
-			processDefinitionKey = processDefinition.getKey();
-			processDefinitionName = processDefinition.getName();
+			setProcessDefinitionId(processDefinition.getId());
+			setProcessDefinitionKey(processDefinition.getKey());
+			setProcessDefinitionName(processDefinition.getName());
 		}
 		this.processDefinition = processDefinition;
 	}
@@ -352,6 +367,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setDelegationState(DelegationState delegationState) {
+		dirtyFields.markChanged("delegationState", this.delegationState, delegationState);
 		this.delegationState = delegationState;
 	}
 	
@@ -360,7 +376,9 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setDelegationStateString(String delegationStateString) {
-		this.delegationState = (delegationStateString != null ? DelegationState.valueOf(DelegationState.class, delegationStateString) : null);
+		DelegationState delegationState = (delegationStateString != null ? DelegationState.valueOf(DelegationState.class, delegationStateString) : null);
+		dirtyFields.markChanged("delegationState", this.delegationState, delegationState);
+		this.delegationState = delegationState;
 	}
 	
 	public void setRevision(int revision) {
@@ -379,11 +397,32 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 		return false;
 	}
 	
+	public void startDirtyTracking() {
+		dirtyFields.start();
+	}
+	
+	public void stopDirtyTracking() {
+		dirtyFields.stop();
+	}
+	
+	public boolean isDirtyTracking() {
+		return dirtyFields.isTracking();
+	}
+	
+	public boolean isDirty() {
+		return dirtyFields.isDirty();
+	}
+	
+	public DirtyFields getDirtyFields() {
+		return dirtyFields;
+	}
+	
 	public String getName() {
 		return name;
 	}
 	
 	public void setName(String name) {
+		dirtyFields.markChanged("name", this.name, name);
 		this.name = name;
 	}
 	
@@ -392,6 +431,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setDescription(String description) {
+		dirtyFields.markChanged("description", this.description, description);
 		this.description = description;
 	}
 	
@@ -400,6 +440,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setProcessInstanceId(String processInstanceId) {
+		dirtyFields.markChanged("processInstanceId", this.processInstanceId, processInstanceId);
 		this.processInstanceId = processInstanceId;
 	}
 	
@@ -408,6 +449,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setProcessDefinitionId(String processDefinitionId) {
+		dirtyFields.markChanged("processDefinitionId", this.processDefinitionId, processDefinitionId);
 		this.processDefinitionId = processDefinitionId;
 	}
 	
@@ -416,6 +458,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setProcessDefinitionKey(String processDefinitionKey) {
+		dirtyFields.markChanged("processDefinitionKey", this.processDefinitionKey, processDefinitionKey);
 		this.processDefinitionKey = processDefinitionKey;
 	}
 	
@@ -424,6 +467,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setProcessDefinitionName(String processDefinitionName) {
+		dirtyFields.markChanged("processDefinitionName", this.processDefinitionName, processDefinitionName);
 		this.processDefinitionName = processDefinitionName;
 	}
 	
@@ -432,6 +476,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setVersion(int version) {
+		dirtyFields.markChanged("version", this.version, version);
 		this.version = version;
 	}
 	
@@ -440,6 +485,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setTokenId(String tokenId) {
+		dirtyFields.markChanged("tokenId", this.tokenId, tokenId);
 		this.tokenId = tokenId;
 	}
 	
@@ -448,6 +494,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setNodeId(String nodeId) {
+		dirtyFields.markChanged("nodeId", this.nodeId, nodeId);
 		this.nodeId = nodeId;
 	}
 	
@@ -464,6 +511,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setParentId(String parentId) {
+		dirtyFields.markChanged("parentId", this.parentId, parentId);
 		this.parentId = parentId;
 	}
 	
@@ -476,13 +524,15 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 		if(assignee != null && !assignee.equals(this.assignee)){
 			ProcessInstanceEntity processInstance = getProcessInstance();
 			if(processInstance != null){
-				processInstance.setLocationChange(true);
+				processInstance.taskLocationChanged(this);
 			}
 		}
+		dirtyFields.markChanged("assignee", this.assignee, assignee);
 		this.assignee = assignee;
 	}
 	
 	public void setAssigneeString(String assignee) {
+		dirtyFields.markChanged("assignee", this.assignee, assignee);
 		this.assignee = assignee;
 	}
 	
@@ -491,6 +541,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setClaimTime(Date claimTime) {
+		dirtyFields.markChanged("claimTime", this.claimTime, claimTime);
 		this.claimTime = claimTime;
 	}
 	
@@ -499,6 +550,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setCreateTime(Date createTime) {
+		dirtyFields.markChanged("createTime", this.createTime, createTime);
 		this.createTime = createTime;
 	}
 	
@@ -507,6 +559,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setStartTime(Date startTime) {
+		dirtyFields.markChanged("startTime", this.startTime, startTime);
 		this.startTime = startTime;
 	}
 	
@@ -515,6 +568,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setEndTime(Date endTime) {
+		dirtyFields.markChanged("endTime", this.endTime, endTime);
 		this.endTime = endTime;
 	}
 	
@@ -523,6 +577,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setDueDate(Date dueDate) {
+		dirtyFields.markChanged("dueDate", this.dueDate, dueDate);
 		this.dueDate = dueDate;
 	}
 	
@@ -531,6 +586,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setBlocking(boolean isBlocking) {
+		dirtyFields.markChanged("isBlocking", this.isBlocking, isBlocking);
 		this.isBlocking = isBlocking;
 	}
 	
@@ -539,6 +595,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setPriority(int priority) {
+		dirtyFields.markChanged("priority", this.priority, priority);
 		this.priority = priority;
 	}
 	
@@ -547,6 +604,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setCategory(String category) {
+		dirtyFields.markChanged("category", this.category, category);
 		this.category = category;
 	}
 	
@@ -555,6 +613,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setOwner(String owner) {
+		dirtyFields.markChanged("owner", this.owner, owner);
 		this.owner = owner;
 	}
 	
@@ -563,6 +622,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setBizKey(String bizKey) {
+		dirtyFields.markChanged("bizKey", this.bizKey, bizKey);
 		this.bizKey = bizKey;
 	}
 	
@@ -571,6 +631,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setTaskComment(String taskComment) {
+		dirtyFields.markChanged("taskComment", this.taskComment, taskComment);
 		this.taskComment = taskComment;
 	}
 	
@@ -579,6 +640,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setFormUri(String formUri) {
+		dirtyFields.markChanged("formUri", this.formUri, formUri);
 		this.formUri = formUri;
 	}
 	
@@ -587,6 +649,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setFormUriView(String formUriView) {
+		dirtyFields.markChanged("formUriView", this.formUriView, formUriView);
 		this.formUriView = formUriView;
 	}
 	
@@ -595,6 +658,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setTaskGroup(String taskGroup) {
+		dirtyFields.markChanged("taskGroup", this.taskGroup, taskGroup);
 		this.taskGroup = taskGroup;
 	}
 	
@@ -603,6 +667,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setTaskType(String taskType) {
+		dirtyFields.markChanged("taskType", this.taskType, taskType);
 		this.taskType = taskType;
 	}
 	
@@ -611,6 +676,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setCancelled(boolean isCancelled) {
+		dirtyFields.markChanged("isCancelled", this.isCancelled, isCancelled);
 		this.isCancelled = isCancelled;
 	}
 	
@@ -619,6 +685,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setSuspended(boolean isSuspended) {
+		dirtyFields.markChanged("isSuspended", this.isSuspended, isSuspended);
 		this.isSuspended = isSuspended;
 	}
 	
@@ -627,6 +694,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setOpen(boolean isOpen) {
+		dirtyFields.markChanged("isOpen", this.isOpen, isOpen);
 		this.isOpen = isOpen;
 	}
 	
@@ -635,6 +703,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setDraft(boolean isDraft) {
+		dirtyFields.markChanged("isDraft", this.isDraft, isDraft);
 		this.isDraft = isDraft;
 	}
 	
@@ -643,6 +712,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setExpectedExecutionTime(double expectedExecutionTime) {
+		dirtyFields.markChanged("expectedExecutionTime", this.expectedExecutionTime, expectedExecutionTime);
 		this.expectedExecutionTime = expectedExecutionTime;
 	}
 	
@@ -651,6 +721,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setAgent(String agent) {
+		dirtyFields.markChanged("agent", this.agent, agent);
 		this.agent = agent;
 	}
 	
@@ -659,6 +730,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setAdmin(String admin) {
+		dirtyFields.markChanged("admin", this.admin, admin);
 		this.admin = admin;
 	}
 	
@@ -667,6 +739,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setCallActivityInstanceId(String callActivityInstanceId) {
+		dirtyFields.markChanged("callActivityInstanceId", this.callActivityInstanceId, callActivityInstanceId);
 		this.callActivityInstanceId = callActivityInstanceId;
 	}
 	
@@ -675,6 +748,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setPendingTaskId(String pendingTaskId) {
+		dirtyFields.markChanged("pendingTaskId", this.pendingTaskId, pendingTaskId);
 		this.pendingTaskId = pendingTaskId;
 	}
 	
@@ -683,6 +757,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setArchiveTime(Date archiveTime) {
+		dirtyFields.markChanged("archiveTime", this.archiveTime, archiveTime);
 		this.archiveTime = archiveTime;
 	}
 	
@@ -691,6 +766,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setCommandId(String commandId) {
+		dirtyFields.markChanged("commandId", this.commandId, commandId);
 		this.commandId = commandId;
 	}
 	
@@ -699,6 +775,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setCommandType(String commandType) {
+		dirtyFields.markChanged("commandType", this.commandType, commandType);
 		this.commandType = commandType;
 	}
 	
@@ -718,6 +795,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setCommandMessage(String commandMessage) {
+		dirtyFields.markChanged("commandMessage", this.commandMessage, commandMessage);
 		this.commandMessage = commandMessage;
 	}
 	
@@ -738,6 +816,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setSubject(String subject) {
+		dirtyFields.markChanged("subject", this.subject, subject);
 		this.subject = subject;
 	}
 	
@@ -746,6 +825,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setCompleteDescription(String completeDescription) {
+		dirtyFields.markChanged("completeDescription", this.completeDescription, completeDescription);
 		this.completeDescription = completeDescription;
 	}
 	
@@ -830,7 +910,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 		
 		ProcessInstanceEntity processInstance = getProcessInstance();
 		if(processInstance != null){
-			processInstance.setLocationChange(true);
+			processInstance.taskLocationChanged(this);
 		}
 		identityLinkEntity.insert();
 		return identityLinkEntity;
@@ -943,12 +1023,19 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 		
 		/** 设置结束时间 */
 		this.endTime = new Date();
+		dirtyFields.mark("endTime");
 		/** 结束草稿状态 */
 		this.isDraft = false;
+		dirtyFields.mark("isDraft");
 		/** 是否已经查阅 */
 		this.isOpen = true;
+		dirtyFields.mark("isOpen");
 		/** 更新完成率 */
 		setCompletionRate(1.0);
+		ProcessInstanceEntity processInstance = getProcessInstance();
+		if (processInstance != null) {
+			processInstance.taskLocationChanged(this);
+		}
 	}
 	
 	/**
@@ -1077,6 +1164,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setProcessStartTime(Date processStartTime) {
+		dirtyFields.markChanged("processStartTime", this.processStartTime, processStartTime);
 		this.processStartTime = processStartTime;
 	}
 	
@@ -1085,6 +1173,7 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	}
 	
 	public void setProcessInitiator(String processInitiator) {
+		dirtyFields.markChanged("processInitiator", this.processInitiator, processInitiator);
 		this.processInitiator = processInitiator;
 	}
 	
@@ -1103,7 +1192,9 @@ public class TaskEntity extends KernelVariableScopeImpl implements Task, Delegat
 	 
 	public Object clone() {
 		try {
-			return super.clone();
+			TaskEntity task = (TaskEntity) super.clone();
+			task.dirtyFields = dirtyFields.copy();
+			return task;
 		} catch (CloneNotSupportedException e) {
 			throw ExceptionUtil.getException("10313001",e);
 		}
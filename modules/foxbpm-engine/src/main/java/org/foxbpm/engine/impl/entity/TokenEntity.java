@@ -27,12 +27,15 @@ import org.foxbpm.engine.db.HasRevision;
 import org.foxbpm.engine.db.PersistentObject;
 import org.foxbpm.engine.execution.ConnectorExecutionContext;
 import org.foxbpm.engine.impl.Context;
+import org.foxbpm.engine.impl.bpmn.behavior.ParallelGatewayBehavior;
 import org.foxbpm.engine.impl.expression.ExpressionMgmt;
 import org.foxbpm.engine.impl.identity.Authentication;
 import org.foxbpm.engine.impl.util.ClockUtil;
 import org.foxbpm.engine.impl.util.StringUtil;
 import org.foxbpm.engine.runtime.Token;
+import org.foxbpm.kernel.behavior.KernelFlowNodeBehavior;
 import org.foxbpm.kernel.process.KernelProcessDefinition;
+import org.foxbpm.kernel.process.KernelSequenceFlow;
 import org.foxbpm.kernel.process.impl.KernelFlowNodeImpl;
 import org.foxbpm.kernel.runtime.KernelProcessInstance;
 import org.foxbpm.kernel.runtime.impl.KernelProcessInstanceImpl;
@@ -129,6 +132,15 @@ public class TokenEntity extends KernelTokenImpl implements Token, ConnectorExec
 		super.setParent(parent);
 	}
 	
+	/** 异步并行网关的分支在单独的命令中执行 */
+	protected void takeForkedToken(KernelTokenImpl childToken, KernelSequenceFlow sequenceFlow) {
+		KernelFlowNodeBehavior behavior = getFlowNode().getKernelFlowNodeBehavior();
+		if (behavior instanceof ParallelGatewayBehavior && ((ParallelGatewayBehavior) behavior).forkAsync(childToken, sequenceFlow)) {
+			return;
+		}
+		super.takeForkedToken(childToken, sequenceFlow);
+	}
+	
 	 
 	public void ensureEnterInitialized(KernelFlowNodeImpl flowNode) {
 		/** 设置令牌进入节点的时间 */
@@ -232,6 +244,7 @@ public class TokenEntity extends KernelTokenImpl implements Token, ConnectorExec
 		objectParam.put("nodeEnterTime", getNodeEnterTime());
 		objectParam.put("isSuspended", String.valueOf(isSuspended()));
 		objectParam.put("isLocked", String.valueOf(isLocked()));
+		objectParam.put("isActive", String.valueOf(isActive()));
 		objectParam.put("nodeId", getNodeId());
 		objectParam.put("processInstanceId", getProcessInstanceId());
 		objectParam.put("parentId", getParentId());
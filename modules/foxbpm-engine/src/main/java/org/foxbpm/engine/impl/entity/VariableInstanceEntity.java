@@ -17,13 +17,6 @@
  */
 package org.foxbpm.engine.impl.entity;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.ObjectInput;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutput;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Date;
 import java.util.HashMap;
@@ -32,6 +25,7 @@ import java.util.Map;
 import org.foxbpm.engine.datavariable.VariableInstance;
 import org.foxbpm.engine.db.HasRevision;
 import org.foxbpm.engine.db.PersistentObject;
+import org.foxbpm.engine.impl.datavariable.VariableSerializerFactory;
 import org.foxbpm.engine.impl.expression.ExpressionMgmt;
 import org.foxbpm.engine.impl.mgmt.DataVariableMgmtInstance;
 import org.foxbpm.engine.impl.util.ExceptionUtil;
@@ -90,6 +84,11 @@ public class VariableInstanceEntity extends KernelVariableInstanceImpl implement
 	/** 控制并发修改标示 */
 	protected int revision;
 	
+	/** 反序列化后的变量值，首次访问时才从value中解析 */
+	protected transient Object valueObject;
+	
+	protected transient boolean valueObjectResolved;
+	
 	public VariableInstanceEntity() {
 		
 	}
@@ -130,19 +129,35 @@ public class VariableInstanceEntity extends KernelVariableInstanceImpl implement
 		return value;
 	}
 	
+	/**
+	 * 获取变量值，反序列化结果会缓存，多次调用返回同一实例。
+	 * <p>
+	 * 引擎把该实例放入脚本上下文，刷新时insertVariable/updateVariable通过
+	 * getExpressionValueByte()从上下文重新序列化，因此脚本对该实例的原地修改会被持久化。
+	 * 引擎外的调用方应把返回值视为只读，修改后需调用setValue(Object)重新序列化，
+	 * 否则修改不会写回value，并且会被后续getValueObject()读到。
+	 * 
+	 * @return
+	 */
 	public Object getValueObject() {
-		if (value == null) {
-			return null;
+		if (!valueObjectResolved) {
+			valueObject = value == null ? null : bytesToObject(value);
+			valueObjectResolved = true;
 		}
-		return bytesToObject(value);
+		return valueObject;
 	}
 	
 	public void setValue(byte[] value) {
 		this.value = value;
+		this.valueObject = null;
+		this.valueObjectResolved = false;
 	}
 	
 	public void setValue(Object value) {
 		this.value = ObjectToBytes(value);
+		this.className = value == null ? null : value.getClass().getName();
+		this.valueObject = value;
+		this.valueObjectResolved = true;
 	}
 	
 	public String getClassName() {
@@ -216,14 +231,14 @@ public class VariableInstanceEntity extends KernelVariableInstanceImpl implement
 	
 	public Object getExpressionValue() {
 		Object object = ExpressionMgmt.getVariable(getKey());
-		value = ObjectToBytes(object);
+		setValue(object);
 		return object;
 	}
 	
 	public byte[] getExpressionValueByte() {
 		Object object = ExpressionMgmt.getVariable(getKey());
-		value = ObjectToBytes(object);
-		return ObjectToBytes(object);
+		setValue(object);
+		return value;
 	}
 	
 	public void setExpressionValue(Object expressionValue) {
@@ -298,69 +313,22 @@ public class VariableInstanceEntity extends KernelVariableInstanceImpl implement
 	}
 	
 	/**
-	 * byte[] to long
+	 * 反序列化变量值，格式由首字节决定，兼容java序列化的历史数据
 	 * 
 	 * @param b
 	 * @return
 	 */
 	public static Object bytesToObject(byte[] b) {
-		
-		if (b.length > 0) {
-			ObjectInput in = null;
-			try {
-				ByteArrayInputStream byteIn = new ByteArrayInputStream(b);
-				in = new ObjectInputStream(byteIn);
-				Object obj = in.readObject();
-				
-				if (obj != null) {
-					return obj;
-				}
-				
-			} catch (IOException e) {
-				
-			} catch (ClassNotFoundException e) {
-				
-			} finally {
-				if (in != null) {
-					try {
-						in.close();
-					} catch (IOException e) {
-						
-					}
-				}
-			}
-			
-			return null;
-		} else {
-			
-			return null;
-		}
+		return VariableSerializerFactory.deserialize(b);
 	}
 	
+	/**
+	 * 序列化变量值，按值类型选择序列化器
+	 * 
+	 * @param obj
+	 * @return
+	 */
 	public static byte[] ObjectToBytes(Object obj) {
-		
-		if (obj == null) {
-			return null;
-		}
-		
-		ObjectOutput out = null;
-		try {
-			ByteArrayOutputStream byteout = new ByteArrayOutputStream();
-			out = new ObjectOutputStream(byteout);
-			out.writeObject(obj);
-			byte[] buf = byteout.toByteArray();
-			
-			return buf;
-		} catch (IOException e) {
-			return null;
-		} finally {
-			if (out != null) {
-				try {
-					out.close();
-				} catch (IOException e) {
-					
-				}
-			}
-		}
+		return VariableSerializerFactory.serialize(obj);
 	}
 }
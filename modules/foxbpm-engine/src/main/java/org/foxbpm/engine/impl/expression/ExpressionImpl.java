@@ -19,6 +19,7 @@ package org.foxbpm.engine.impl.expression;
 
 import org.foxbpm.engine.expression.Expression;
 import org.foxbpm.engine.impl.util.StringUtil;
+import org.foxbpm.engine.scriptlanguage.AbstractScriptLanguageMgmt;
 import org.foxbpm.kernel.runtime.FlowNodeExecutionContext;
 import org.foxbpm.kernel.runtime.KernelVariableScope;
 
@@ -28,13 +29,22 @@ public class ExpressionImpl implements Expression {
 	
 	protected String expressionText;
 	
+	/** 构造时解析，流程定义加载后执行时不再重复解析表达式文本 */
+	protected ParsedExpression parsedExpression;
+	
 	public ExpressionImpl(String expressionText){
 		this.expressionText=expressionText;
+		if(StringUtil.isNotEmpty(expressionText)){
+			this.parsedExpression = AbstractScriptLanguageMgmt.parseExpression(expressionText);
+		}
 	}
 
 	public Object getValue(FlowNodeExecutionContext executionContext) throws Exception {
 		if(StringUtil.isNotEmpty(expressionText)){
-			return ExpressionMgmt.execute(expressionText,executionContext);
+			if(parsedExpression == null){
+				parsedExpression = AbstractScriptLanguageMgmt.parseExpression(expressionText);
+			}
+			return ExpressionMgmt.execute(parsedExpression,executionContext);
 		}
 		return null;
 	}
@@ -47,6 +57,10 @@ public class ExpressionImpl implements Expression {
 		return expressionText;
 	}
 
+	public ParsedExpression getParsedExpression() {
+		return parsedExpression;
+	}
+
 	public boolean isNullText() {
 		return StringUtil.isEmpty(expressionText);
 	}
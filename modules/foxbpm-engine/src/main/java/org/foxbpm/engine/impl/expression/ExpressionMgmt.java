@@ -18,6 +18,9 @@
  */
 package org.foxbpm.engine.impl.expression;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.foxbpm.engine.impl.Context;
 import org.foxbpm.engine.impl.entity.ProcessDefinitionEntity;
 import org.foxbpm.engine.impl.util.StringUtil;
@@ -36,10 +39,12 @@ public class ExpressionMgmt {
 	 */
 	public static Object execute(String scriptText,
 			ListenerExecutionContext executionContext) {
+		Map<String, Object> localVariables = null;
 		if (executionContext != null) {
-			setVariable("listenerExecutionContext", executionContext);
+			localVariables = new HashMap<String, Object>();
+			localVariables.put("listenerExecutionContext", executionContext);
 		}
-		return Context.getAbstractScriptLanguageMgmt().execute(scriptText,(FlowNodeExecutionContext)executionContext);
+		return Context.getAbstractScriptLanguageMgmt().execute(scriptText,(FlowNodeExecutionContext)executionContext,localVariables);
 
 	}
 
@@ -51,6 +56,10 @@ public class ExpressionMgmt {
 		
 	}
 
+	public static Object execute(ParsedExpression parsedExpression,FlowNodeExecutionContext executionContext) {
+		return Context.getAbstractScriptLanguageMgmt().execute(parsedExpression,executionContext);
+	}
+
 	public static Object getVariable(String variableName) {
 		return Context.getAbstractScriptLanguageMgmt()
 				.getVariable(variableName);
@@ -0,0 +1,87 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.impl.expression;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 解析后的表达式，保存表达式引用的变量编号和替换${}后的脚本文本。
+ * <p>
+ * 对象不可变，由AbstractScriptLanguageMgmt.parseExpression按表达式文本缓存，可在多线程间共享。
+ *
+ * @author ych
+ */
+public class ParsedExpression implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** ${var}形式的流程变量引用 */
+	public static final Pattern VARIABLE_PATTERN = Pattern.compile("\\$\\{[^}{]+\\}");
+
+	private final String expressionText;
+
+	private final String scriptText;
+
+	private final List<String> dataVariableIds;
+
+	public ParsedExpression(String expressionText) {
+		this.expressionText = expressionText;
+		Matcher matcher = VARIABLE_PATTERN.matcher(expressionText);
+		List<String> variableIds = new ArrayList<String>();
+		StringBuffer sb = new StringBuffer();
+		while (matcher.find()) {
+			String group = matcher.group();
+			String variableId = group.substring(2, group.length() - 1);
+			variableIds.add(variableId);
+			matcher.appendReplacement(sb, variableId);
+		}
+		matcher.appendTail(sb);
+		this.scriptText = sb.toString();
+		this.dataVariableIds = Collections.unmodifiableList(variableIds);
+	}
+
+	/**
+	 * @return 原始表达式文本
+	 */
+	public String getExpressionText() {
+		return expressionText;
+	}
+
+	/**
+	 * @return 将${var}替换为var后的脚本文本
+	 */
+	public String getScriptText() {
+		return scriptText;
+	}
+
+	/**
+	 * @return 表达式中按出现顺序引用的变量编号，不可修改
+	 */
+	public List<String> getDataVariableIds() {
+		return dataVariableIds;
+	}
+
+	public boolean hasDataVariable() {
+		return !dataVariableIds.isEmpty();
+	}
+}
@@ -18,10 +18,18 @@
 package org.foxbpm.engine.impl.identity;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.foxbpm.engine.ProcessEngine;
 import org.foxbpm.engine.ProcessEngineManagement;
+import org.foxbpm.engine.config.TransactionPropagation;
+import org.foxbpm.engine.config.TransactionState;
+import org.foxbpm.engine.identity.GroupDefinition;
+import org.foxbpm.engine.identity.RefreshableGroupDefinition;
+import org.foxbpm.engine.impl.Context;
+import org.foxbpm.engine.impl.ProcessEngineConfigurationImpl;
 import org.foxbpm.engine.impl.cache.CacheUtil;
 import org.foxbpm.engine.impl.cmd.FindGroupByIdCmd;
 import org.foxbpm.engine.impl.cmd.FindGroupChildrenIncludeByGroupIdCmd;
@@ -29,8 +37,13 @@ import org.foxbpm.engine.impl.cmd.FindUserByGroupIdAndTypeCmd;
 import org.foxbpm.engine.impl.cmd.FindUserByIdNoCacheCmd;
 import org.foxbpm.engine.impl.entity.GroupEntity;
 import org.foxbpm.engine.impl.entity.UserEntity;
+import org.foxbpm.engine.impl.interceptor.Command;
+import org.foxbpm.engine.impl.interceptor.CommandConfig;
+import org.foxbpm.engine.impl.interceptor.CommandContext;
 import org.foxbpm.engine.impl.interceptor.CommandExecutor;
 import org.foxbpm.engine.impl.util.ExceptionUtil;
+import org.foxbpm.engine.transaction.TransactionContext;
+import org.foxbpm.engine.transaction.TransactionListener;
 
 public abstract class Authentication {
 	
@@ -143,7 +156,7 @@ public abstract class Authentication {
 	@SuppressWarnings("unchecked")
 	public static List<GroupEntity> findGroupChildMembersIncludeByGroupId(String groupId,
 	    String groupType) {
-		List<GroupEntity> groups = (List<GroupEntity>)CacheUtil.getIdentityCache().get("selectChildrenByGroupId_" + groupId);
+		List<GroupEntity> groups = (List<GroupEntity>)CacheUtil.getIdentityCache().get("childrenGroup_"+ groupType + "_" + groupId);
 		if(groups != null){
 			return groups;
 		}
@@ -157,6 +170,71 @@ public abstract class Authentication {
 		return groups;
 	}
 	
+	/**
+	 * 用户新增、修改、删除后调用，在命令中执行：
+	 * 事务提交后清除该用户的缓存和所在组(修改前后)的组成员缓存，并刷新组织结构快照中该用户的成员关系。
+	 * 提交前清除的话，并发的查询会把未提交前的旧数据重新放回缓存。
+	 * 
+	 * @param userId
+	 */
+	public static void refreshUser(final String userId) {
+		CommandContext commandContext = Context.getCommandContext();
+		ProcessEngineConfigurationImpl processEngineConfiguration = commandContext.getProcessEngineConfigurationImpl();
+		// 修改前的组取缓存中的用户，修改后的组在本事务中查询，提交后两者的组成员缓存都要清除。
+		// 快照中还是修改前的成员关系，并且不能在未提交的事务中加载快照，所以直接查询数据库
+		final Set<String> groupCacheKeys = new HashSet<String>();
+		UserEntity cachedUser = (UserEntity) processEngineConfiguration.getIdentityCache().get("user_" + userId);
+		if (cachedUser != null) {
+			addGroupCacheKeys(groupCacheKeys, cachedUser.getGroups());
+		}
+		for (GroupDefinition groupDefinition : processEngineConfiguration.getGroupDefinitions()) {
+			if (groupDefinition instanceof RefreshableGroupDefinition) {
+				addGroupCacheKeys(groupCacheKeys, ((RefreshableGroupDefinition) groupDefinition).selectCurrentGroupsByUserId(userId));
+			} else {
+				addGroupCacheKeys(groupCacheKeys, groupDefinition.selectGroupByUserId(userId));
+			}
+		}
+		TransactionListener refreshListener = new TransactionListener() {
+			public void execute(CommandContext commandContext) {
+				ProcessEngineConfigurationImpl processEngineConfiguration = commandContext.getProcessEngineConfigurationImpl();
+				processEngineConfiguration.getIdentityCache().remove("user_" + userId);
+				processEngineConfiguration.getUserProcessDefinitionCache().remove(userId);
+				for (String groupCacheKey : groupCacheKeys) {
+					processEngineConfiguration.getIdentityCache().remove(groupCacheKey);
+				}
+				// 事务已经提交，快照在新的事务中查询最新的成员关系
+				CommandConfig config = new CommandConfig();
+				config.setContextReuse(false);
+				config.setPropagation(TransactionPropagation.REQUIRES_NEW);
+				processEngineConfiguration.getCommandExecutor().execute(config, new Command<Void>() {
+					public Void execute(CommandContext commandContext) {
+						for (GroupDefinition groupDefinition : commandContext.getProcessEngineConfigurationImpl().getGroupDefinitions()) {
+							if (groupDefinition instanceof RefreshableGroupDefinition) {
+								((RefreshableGroupDefinition) groupDefinition).refreshUser(userId);
+							}
+						}
+						return null;
+					}
+				});
+			}
+		};
+		TransactionContext transactionContext = commandContext.getTransactionContext();
+		if (transactionContext != null) {
+			transactionContext.addTransactionListener(TransactionState.COMMITTED, refreshListener);
+		} else {
+			refreshListener.execute(commandContext);
+		}
+	}
+	
+	private static void addGroupCacheKeys(Set<String> groupCacheKeys, List<GroupEntity> groups) {
+		if (groups == null) {
+			return;
+		}
+		for (GroupEntity group : groups) {
+			groupCacheKeys.add("groupUserIdsCache_" + group.getGroupType() + "_" + group.getGroupId());
+		}
+	}
+	
 	public static GroupEntity findGroupById(String groupId, String groupType) {
 		GroupEntity group = (GroupEntity)CacheUtil.getIdentityCache().get("Cache_" + groupType + "_" + groupId);
 		if(group != null){
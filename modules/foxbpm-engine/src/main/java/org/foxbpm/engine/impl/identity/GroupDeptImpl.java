@@ -20,12 +20,23 @@ package org.foxbpm.engine.impl.identity;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.foxbpm.engine.identity.GroupDefinition;
+import org.foxbpm.engine.cache.Cache;
+import org.foxbpm.engine.identity.RefreshableGroupDefinition;
 import org.foxbpm.engine.impl.Context;
 import org.foxbpm.engine.impl.entity.GroupEntity;
 import org.foxbpm.engine.sqlsession.ISqlSession;
 
-public class GroupDeptImpl implements GroupDefinition {
+/**
+ * 部门组定义
+ * <p>
+ * 部门树和人员对照一次性加载为GroupSnapshot，保存在身份缓存中，子部门、用户所在部门等查询不再访问数据库。
+ * 清空身份缓存(CacheUtil.clearIdentityCache)后下次查询重新加载，用户变化时只刷新该用户的成员关系。
+ * @author ych
+ *
+ */
+public class GroupDeptImpl implements RefreshableGroupDefinition {
+
+	private static final String SNAPSHOT_CACHE_KEY = "groupSnapshot_";
 
 	private String name;
 	private String type;
@@ -34,11 +45,9 @@ public class GroupDeptImpl implements GroupDefinition {
 		this.name = groupDefinitionName;
 		this.type = groupType;
 	}
-	@SuppressWarnings("unchecked")
+	
 	public List<GroupEntity> selectGroupByUserId(String userId) {
-		ISqlSession sqlsession = Context.getCommandContext().getSqlSession();
-		List<GroupEntity> groups = (List<GroupEntity>)sqlsession.selectList("selectDeptByUserId", userId);
-		return groups;
+		return getSnapshot().getGroupsByUserId(userId);
 	}
 	
 	 
@@ -52,49 +61,27 @@ public class GroupDeptImpl implements GroupDefinition {
 		return name;
 	}
 	
-	@SuppressWarnings("unchecked")
-	 
 	public List<String> selectUserIdsByGroupId(String groupId) {
-		ISqlSession sqlsession = Context.getCommandContext().getSqlSession();
-		List<String> userIds = (List<String>)sqlsession.selectList("selectUserIdsByDeptId", groupId);
-		return userIds;
+		return getSnapshot().getUserIdsByGroupId(groupId);
 	}
 	
 	 
 	public List<GroupEntity> selectChildrenByGroupId(String groupId) {
-		List<GroupEntity> groups = new ArrayList<GroupEntity>();
-		//获取本身
-		GroupEntity group = selectGroupByGroupId(groupId);
-		if(group != null){
-			groups.add(group);
-			//递归子组
-			selectSubDept(groupId,groups);
-		}
-		return groups;
+		return getSnapshot().getDescendants(groupId, true);
 	}
 	
 	/**
-	 * 递归子组
+	 * 子组(不含自身)
 	 * @param groupId
 	 * @param groups
 	 */
-	@SuppressWarnings("unchecked")
 	public void selectSubDept(String groupId,List<GroupEntity> groups){
-		ISqlSession sqlSession = Context.getCommandContext().getSqlSession();
-		List<GroupEntity> tmpGroups = (List<GroupEntity>)sqlSession.selectList("selectDeptBySupId", groupId);
-		if(tmpGroups != null){
-			groups.addAll(tmpGroups);
-			for(GroupEntity tmp : tmpGroups){
-				selectSubDept(tmp.getGroupId(),groups);
-			}
-		}
+		groups.addAll(getSnapshot().getDescendants(groupId, false));
 	}
 	
 	 
 	public GroupEntity selectGroupByGroupId(String groupId) {
-		ISqlSession sqlSession = Context.getCommandContext().getSqlSession();
-		GroupEntity group = (GroupEntity) sqlSession.selectOne("selectDeptById", groupId);
-		return group;
+		return getSnapshot().getGroup(groupId);
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -112,5 +99,44 @@ public class GroupDeptImpl implements GroupDefinition {
 		List<GroupRelationEntity> groupRelations = (List<GroupRelationEntity>) sqlSession.selectList("selectAllDeptRelation");
 		return groupRelations;
 	}
+	
+	@SuppressWarnings("unchecked")
+	public List<GroupEntity> selectCurrentGroupsByUserId(String userId) {
+		ISqlSession sqlsession = Context.getCommandContext().getSqlSession();
+		return (List<GroupEntity>) sqlsession.selectList("selectDeptByUserId", userId);
+	}
+	
+	public synchronized void refreshUser(String userId) {
+		Cache<Object> identityCache = Context.getProcessEngineConfiguration().getIdentityCache();
+		GroupSnapshot snapshot = (GroupSnapshot) identityCache.get(SNAPSHOT_CACHE_KEY + type);
+		if (snapshot == null) {
+			// 还没有加载，下次查询时加载的就是最新数据
+			return;
+		}
+		List<GroupEntity> groups = selectCurrentGroupsByUserId(userId);
+		List<String> groupIds = new ArrayList<String>();
+		if (groups != null) {
+			for (GroupEntity group : groups) {
+				groupIds.add(group.getGroupId());
+			}
+		}
+		identityCache.add(SNAPSHOT_CACHE_KEY + type, snapshot.withUserGroups(userId, groupIds));
+	}
+	
+	protected GroupSnapshot getSnapshot() {
+		Cache<Object> identityCache = Context.getProcessEngineConfiguration().getIdentityCache();
+		GroupSnapshot snapshot = (GroupSnapshot) identityCache.get(SNAPSHOT_CACHE_KEY + type);
+		if (snapshot != null) {
+			return snapshot;
+		}
+		synchronized (this) {
+			snapshot = (GroupSnapshot) identityCache.get(SNAPSHOT_CACHE_KEY + type);
+			if (snapshot == null) {
+				snapshot = new GroupSnapshot(type, selectAllGroup(), selectAllRelation());
+				identityCache.add(SNAPSHOT_CACHE_KEY + type, snapshot);
+			}
+		}
+		return snapshot;
+	}
 
 }
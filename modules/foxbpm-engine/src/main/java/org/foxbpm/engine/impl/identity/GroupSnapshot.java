@@ -0,0 +1,383 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.impl.identity;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.foxbpm.engine.impl.entity.GroupEntity;
+
+/**
+ * 一种组类型(如部门)的组织树和成员关系快照，一次性从数据库加载，查询时不再访问数据库。
+ * <p>
+ * 组按序号保存在数组中。建立快照时对组织树做一次深度优先遍历，记录每个组在先序序列中的区间
+ * [enter, exit)，子孙组就是先序序列中的一段连续区间，祖先判断只需比较区间，
+ * 不需要逐级递归查询。成员关系按用户保存所在组的序号，按组保存用户编号。
+ * <p>
+ * 快照建立后不再修改，单个用户的成员关系变化时通过withUserGroups()生成新的快照，组织树数组共享。
+ *
+ * @author ych
+ */
+public class GroupSnapshot implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int[] EMPTY_INDEXES = new int[0];
+
+	private static final String[] EMPTY_USER_IDS = new String[0];
+
+	private final String groupType;
+
+	private final GroupEntity[] groups;
+
+	private final Map<String, Integer> groupIndexes;
+
+	/** 遍历树中的父组序号，根为-1 */
+	private final int[] parents;
+
+	/** 先序遍历序列，元素为组序号 */
+	private final int[] preorder;
+
+	/** 组在先序序列中的开始位置 */
+	private final int[] enter;
+
+	/** 组的子孙在先序序列中的结束位置(不含) */
+	private final int[] exit;
+
+	/** 用户编号 -> 所在组序号 */
+	private final Map<String, int[]> userGroups;
+
+	/** 组序号 -> 用户编号 */
+	private final String[][] groupUsers;
+
+	/**
+	 * @param groupType
+	 *            组类型
+	 * @param groupList
+	 *            所有组，supGroupId为空、等于自身或不存在时作为根
+	 * @param relations
+	 *            所有成员关系，组不存在的关系忽略
+	 */
+	public GroupSnapshot(String groupType, List<GroupEntity> groupList, List<GroupRelationEntity> relations) {
+		this.groupType = groupType;
+		int size = groupList == null ? 0 : groupList.size();
+		GroupEntity[] loadedGroups = new GroupEntity[size];
+		this.groupIndexes = new HashMap<String, Integer>(size * 2);
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			GroupEntity group = groupList.get(i);
+			if (group.getGroupId() == null || groupIndexes.containsKey(group.getGroupId())) {
+				continue;
+			}
+			groupIndexes.put(group.getGroupId(), Integer.valueOf(count));
+			loadedGroups[count++] = copy(group);
+		}
+		this.groups = new GroupEntity[count];
+		System.arraycopy(loadedGroups, 0, groups, 0, count);
+		this.parents = new int[count];
+		this.preorder = new int[count];
+		this.enter = new int[count];
+		this.exit = new int[count];
+		buildTree(count);
+		this.userGroups = new HashMap<String, int[]>();
+		this.groupUsers = new String[groups.length][];
+		buildMemberships(relations);
+	}
+
+	private GroupSnapshot(GroupSnapshot source, Map<String, int[]> userGroups, String[][] groupUsers) {
+		this.groupType = source.groupType;
+		this.groups = source.groups;
+		this.groupIndexes = source.groupIndexes;
+		this.parents = source.parents;
+		this.preorder = source.preorder;
+		this.enter = source.enter;
+		this.exit = source.exit;
+		this.userGroups = userGroups;
+		this.groupUsers = groupUsers;
+	}
+
+	private void buildTree(int count) {
+		// 子组按压缩邻接表保存：children[childStart[i], childStart[i + 1])
+		int[] supIndexes = new int[count];
+		int[] childStart = new int[count + 1];
+		for (int i = 0; i < count; i++) {
+			supIndexes[i] = indexOf(groups[i].getSupGroupId());
+			if (supIndexes[i] == i) {
+				supIndexes[i] = -1;
+			}
+			if (supIndexes[i] >= 0) {
+				childStart[supIndexes[i] + 1]++;
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			childStart[i + 1] += childStart[i];
+		}
+		int[] children = new int[childStart[count]];
+		int[] fill = new int[count];
+		for (int i = 0; i < count; i++) {
+			if (supIndexes[i] >= 0) {
+				children[childStart[supIndexes[i]] + fill[supIndexes[i]]++] = i;
+			}
+		}
+		boolean[] visited = new boolean[count];
+		int[] stack = new int[count];
+		int[] next = new int[count];
+		int position = 0;
+		// 先从根开始遍历，存在循环引用时剩下的组再逐个作为根
+		for (int pass = 0; pass < 2; pass++) {
+			for (int root = 0; root < count; root++) {
+				if (visited[root] || (pass == 0 && supIndexes[root] >= 0)) {
+					continue;
+				}
+				int top = 0;
+				stack[0] = root;
+				visited[root] = true;
+				parents[root] = -1;
+				enter[root] = position;
+				preorder[position++] = root;
+				next[root] = childStart[root];
+				while (top >= 0) {
+					int node = stack[top];
+					if (next[node] < childStart[node + 1]) {
+						int child = children[next[node]++];
+						if (!visited[child]) {
+							visited[child] = true;
+							parents[child] = node;
+							enter[child] = position;
+							preorder[position++] = child;
+							next[child] = childStart[child];
+							stack[++top] = child;
+						}
+					} else {
+						exit[node] = position;
+						top--;
+					}
+				}
+			}
+		}
+	}
+
+	private void buildMemberships(List<GroupRelationEntity> relations) {
+		Map<String, Set<Integer>> userGroupSets = new HashMap<String, Set<Integer>>();
+		Map<Integer, Set<String>> groupUserSets = new HashMap<Integer, Set<String>>();
+		if (relations != null) {
+			for (GroupRelationEntity relation : relations) {
+				int index = indexOf(relation.getGroupId());
+				if (index < 0 || relation.getUserId() == null) {
+					continue;
+				}
+				Integer groupIndex = Integer.valueOf(index);
+				Set<Integer> userGroupSet = userGroupSets.get(relation.getUserId());
+				if (userGroupSet == null) {
+					userGroupSet = new LinkedHashSet<Integer>();
+					userGroupSets.put(relation.getUserId(), userGroupSet);
+				}
+				userGroupSet.add(groupIndex);
+				Set<String> groupUserSet = groupUserSets.get(groupIndex);
+				if (groupUserSet == null) {
+					groupUserSet = new LinkedHashSet<String>();
+					groupUserSets.put(groupIndex, groupUserSet);
+				}
+				groupUserSet.add(relation.getUserId());
+			}
+		}
+		for (Map.Entry<String, Set<Integer>> entry : userGroupSets.entrySet()) {
+			userGroups.put(entry.getKey(), toIndexes(entry.getValue()));
+		}
+		for (int i = 0; i < groupUsers.length; i++) {
+			Set<String> groupUserSet = groupUserSets.get(Integer.valueOf(i));
+			groupUsers[i] = groupUserSet == null ? EMPTY_USER_IDS : groupUserSet.toArray(new String[groupUserSet.size()]);
+		}
+	}
+
+	/**
+	 * 替换一个用户的成员关系，返回新的快照，当前快照不变
+	 *
+	 * @param userId
+	 *            用户编号
+	 * @param groupIds
+	 *            用户现在所在的组编号，为空表示用户不再属于任何组
+	 * @return
+	 */
+	public GroupSnapshot withUserGroups(String userId, Collection<String> groupIds) {
+		Set<Integer> newIndexes = new LinkedHashSet<Integer>();
+		if (groupIds != null) {
+			for (String groupId : groupIds) {
+				int index = indexOf(groupId);
+				if (index >= 0) {
+					newIndexes.add(Integer.valueOf(index));
+				}
+			}
+		}
+		int[] oldIndexes = userGroups.get(userId);
+		if (oldIndexes == null) {
+			oldIndexes = EMPTY_INDEXES;
+		}
+		Map<String, int[]> newUserGroups = new HashMap<String, int[]>(userGroups);
+		if (newIndexes.isEmpty()) {
+			newUserGroups.remove(userId);
+		} else {
+			newUserGroups.put(userId, toIndexes(newIndexes));
+		}
+		String[][] newGroupUsers = groupUsers.clone();
+		for (int index : oldIndexes) {
+			if (!newIndexes.contains(Integer.valueOf(index))) {
+				newGroupUsers[index] = removeUser(newGroupUsers[index], userId);
+			}
+		}
+		for (Integer index : newIndexes) {
+			String[] users = newGroupUsers[index.intValue()];
+			if (!Arrays.asList(users).contains(userId)) {
+				String[] added = new String[users.length + 1];
+				System.arraycopy(users, 0, added, 0, users.length);
+				added[users.length] = userId;
+				newGroupUsers[index.intValue()] = added;
+			}
+		}
+		return new GroupSnapshot(this, newUserGroups, newGroupUsers);
+	}
+
+	public String getGroupType() {
+		return groupType;
+	}
+
+	public int size() {
+		return groups.length;
+	}
+
+	public GroupEntity getGroup(String groupId) {
+		int index = indexOf(groupId);
+		return index < 0 ? null : copy(groups[index]);
+	}
+
+	/**
+	 * 子孙组，按先序遍历顺序返回
+	 *
+	 * @param groupId
+	 *            组编号
+	 * @param includeSelf
+	 *            是否包含组本身
+	 * @return 组不存在时返回空集合
+	 */
+	public List<GroupEntity> getDescendants(String groupId, boolean includeSelf) {
+		List<GroupEntity> result = new ArrayList<GroupEntity>();
+		int index = indexOf(groupId);
+		if (index < 0) {
+			return result;
+		}
+		for (int position = includeSelf ? enter[index] : enter[index] + 1; position < exit[index]; position++) {
+			result.add(copy(groups[preorder[position]]));
+		}
+		return result;
+	}
+
+	/**
+	 * 祖先组，从直接上级开始
+	 *
+	 * @param groupId
+	 *            组编号
+	 * @return
+	 */
+	public List<GroupEntity> getAncestors(String groupId) {
+		List<GroupEntity> result = new ArrayList<GroupEntity>();
+		int index = indexOf(groupId);
+		while (index >= 0 && parents[index] >= 0) {
+			index = parents[index];
+			result.add(copy(groups[index]));
+		}
+		return result;
+	}
+
+	/**
+	 * 判断ancestorId是否是groupId的祖先(不含自身)
+	 */
+	public boolean isAncestor(String ancestorId, String groupId) {
+		int ancestor = indexOf(ancestorId);
+		int index = indexOf(groupId);
+		if (ancestor < 0 || index < 0 || ancestor == index) {
+			return false;
+		}
+		return enter[ancestor] < enter[index] && enter[index] < exit[ancestor];
+	}
+
+	public List<GroupEntity> getGroupsByUserId(String userId) {
+		int[] indexes = userGroups.get(userId);
+		if (indexes == null) {
+			return new ArrayList<GroupEntity>();
+		}
+		List<GroupEntity> result = new ArrayList<GroupEntity>(indexes.length);
+		for (int index : indexes) {
+			result.add(copy(groups[index]));
+		}
+		return result;
+	}
+
+	public List<String> getUserIdsByGroupId(String groupId) {
+		int index = indexOf(groupId);
+		if (index < 0) {
+			return new ArrayList<String>();
+		}
+		List<String> result = new ArrayList<String>(groupUsers[index].length);
+		Collections.addAll(result, groupUsers[index]);
+		return result;
+	}
+
+	private int indexOf(String groupId) {
+		if (groupId == null) {
+			return -1;
+		}
+		Integer index = groupIndexes.get(groupId);
+		return index == null ? -1 : index.intValue();
+	}
+
+	private static int[] toIndexes(Collection<Integer> indexSet) {
+		int[] indexes = new int[indexSet.size()];
+		int i = 0;
+		for (Integer index : indexSet) {
+			indexes[i++] = index.intValue();
+		}
+		return indexes;
+	}
+
+	private static String[] removeUser(String[] users, String userId) {
+		List<String> result = new ArrayList<String>(Arrays.asList(users));
+		result.remove(userId);
+		return result.toArray(new String[result.size()]);
+	}
+
+	/**
+	 * 返回组的副本，调用方修改返回的对象不影响快照
+	 */
+	private GroupEntity copy(GroupEntity group) {
+		GroupEntity result = new GroupEntity(group.getGroupId(), groupType);
+		result.setGroupName(group.getGroupName());
+		result.setSupGroupId(group.getSupGroupId());
+		if (group.getPropertyMap() != null) {
+			result.setPropertyMap(new HashMap<String, Object>(group.getPropertyMap()));
+		}
+		return result;
+	}
+}
@@ -17,13 +17,16 @@
  */
 package org.foxbpm.engine.impl.interceptor;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
+import org.foxbpm.engine.config.TransactionState;
 import org.foxbpm.engine.identity.UserDefinition;
 import org.foxbpm.engine.impl.ProcessEngineConfigurationImpl;
 import org.foxbpm.engine.impl.persistence.AgentManager;
@@ -38,9 +41,12 @@ import org.foxbpm.engine.impl.persistence.RunningTrackManager;
 import org.foxbpm.engine.impl.persistence.TaskManager;
 import org.foxbpm.engine.impl.persistence.TokenManager;
 import org.foxbpm.engine.impl.persistence.VariableManager;
+import org.foxbpm.engine.impl.schedule.FoxbpmJobDetail;
 import org.foxbpm.engine.impl.util.ExceptionUtil;
 import org.foxbpm.engine.sqlsession.ISqlSession;
 import org.foxbpm.engine.transaction.TransactionContext;
+import org.foxbpm.engine.transaction.TransactionContextFactory;
+import org.foxbpm.engine.transaction.TransactionListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,11 +63,18 @@ public class CommandContext {
 	protected Throwable exception = null;
 	protected ProcessEngineConfigurationImpl processEngineConfigurationImpl;
 	protected boolean isCommit = true;
+	/** 本命令刷新时是否按语句分组批量执行，不受全局batchFlushEnabled配置影响 */
+	protected boolean batchFlush = false;
+	protected List<FoxbpmJobDetail<?>> asyncJobs = new ArrayList<FoxbpmJobDetail<?>>();
 	
 	public CommandContext(Command<?> command, ProcessEngineConfigurationImpl processEngineConfigurationImpl) {
 		this.command = command;
 		this.processEngineConfigurationImpl = processEngineConfigurationImpl;
 		sessionFactories = processEngineConfigurationImpl.getSessionFactories();
+		TransactionContextFactory transactionContextFactory = processEngineConfigurationImpl.getTransactionContextFactory();
+		if (transactionContextFactory != null) {
+			transactionContext = transactionContextFactory.openTransactionContext(this);
+		}
 	}
 	
 	public ProcessEngineConfigurationImpl getProcessEngineConfigurationImpl() {
@@ -166,14 +179,81 @@ public class CommandContext {
 		return exception;
 	}
 	
+	public boolean isBatchFlush() {
+		return batchFlush;
+	}
+	
+	public void setBatchFlush(boolean batchFlush) {
+		this.batchFlush = batchFlush;
+	}
+	
+	/**
+	 * 记录命令执行中的异常，关闭时不再刷新数据，后续命令不再复用此上下文
+	 * @param exception
+	 */
+	public void setException(Throwable exception) {
+		this.exception = exception;
+	}
+	
 	public void setCommit(boolean isCommit) {
 		this.isCommit = isCommit;
 	}
 	
+	public TransactionContext getTransactionContext() {
+		return transactionContext;
+	}
+	
+	/**
+	 * 添加异步任务，事务提交后才调度，命令出错或事务回滚时丢弃。
+	 * 提交前调度的话，任务可能读到未提交的数据，回滚后任务也无法撤回。
+	 * 
+	 * @param jobDetail
+	 */
+	public void addAsyncJob(FoxbpmJobDetail<?> jobDetail) {
+		if (asyncJobs.isEmpty() && transactionContext != null) {
+			transactionContext.addTransactionListener(TransactionState.COMMITTED, new TransactionListener() {
+				public void execute(CommandContext commandContext) {
+					if (commandContext.getException() == null) {
+						commandContext.scheduleAsyncJobs();
+					}
+				}
+			});
+		}
+		asyncJobs.add(jobDetail);
+	}
+	
+	public List<FoxbpmJobDetail<?>> getAsyncJobs() {
+		return asyncJobs;
+	}
+	
+	/**
+	 * 调度命令执行过程中添加的异步任务，事务提交后调用。
+	 * 此时数据已经提交，调度失败不能再让调用方报错，只记录日志。
+	 */
+	public void scheduleAsyncJobs() {
+		if (asyncJobs.isEmpty()) {
+			return;
+		}
+		List<FoxbpmJobDetail<?>> jobs = new ArrayList<FoxbpmJobDetail<?>>(asyncJobs);
+		asyncJobs.clear();
+		for (FoxbpmJobDetail<?> jobDetail : jobs) {
+			try {
+				processEngineConfigurationImpl.getFoxbpmScheduler().scheduleFoxbpmJob(jobDetail);
+			} catch (Exception e) {
+				log.error(ExceptionUtil.getException("10408002", jobDetail.getJobDetail().getKey().toString()).getMessage(), e);
+			}
+		}
+	}
+	
 	public void close() {
 		try {
 			if (exception == null) {
 				flushSession();
+				if (transactionContext != null) {
+					transactionContext.commit();
+				}
+			} else if (transactionContext != null) {
+				transactionContext.rollback();
 			}
 		}finally {
 			closeSessions();
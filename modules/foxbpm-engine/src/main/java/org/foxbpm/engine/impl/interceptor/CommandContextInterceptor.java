@@ -71,9 +71,16 @@ public class CommandContextInterceptor extends CommandInterceptor {
 			Context.setProcessEngineConfiguration(processEngineConfiguration);
 			return next.execute(config,command);
 
+		} catch (RuntimeException e) {
+			// 命令出错时不刷新数据，避免只写入部分修改
+			if (!contextReused) {
+				context.setException(e);
+			}
+			throw e;
 		}finally {
 			try {
 				if (!contextReused) {
+					// 异步任务在事务提交后由事务监听调度
 					context.close();
 					Context.clearAbstractScriptLanguageMgmt();
 				}
@@ -86,7 +93,11 @@ public class CommandContextInterceptor extends CommandInterceptor {
 	
 	private void setAbstractScriptLanguageMgmt(){
 		AbstractScriptLanguageMgmt abstractScriptLanguageMgmt = null;
-		abstractScriptLanguageMgmt = new GroovyScriptLanguageMgmtImpl();
+		if (processEngineConfiguration != null) {
+			abstractScriptLanguageMgmt = new GroovyScriptLanguageMgmtImpl(processEngineConfiguration.getGroovyScriptCache());
+		} else {
+			abstractScriptLanguageMgmt = new GroovyScriptLanguageMgmtImpl();
+		}
 		Context.setAbstractScriptLanguageMgmt(abstractScriptLanguageMgmt.init());
 	}
 
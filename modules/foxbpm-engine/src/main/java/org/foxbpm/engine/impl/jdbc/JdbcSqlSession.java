@@ -30,6 +30,22 @@ public class JdbcSqlSession implements ISqlSession {
 	}
 
 	 
+	public void insertBatch(String insertStatement, List<?> persistentObjects) {
+		for (Object persistentObject : persistentObjects) {
+			insert(insertStatement, persistentObject);
+		}
+	}
+
+	 
+	public int[] updateBatch(String updateStatement, List<?> persistentObjects) {
+		int[] affectedRows = new int[persistentObjects.size()];
+		for (int i = 0; i < affectedRows.length; i++) {
+			affectedRows[i] = update(updateStatement, persistentObjects.get(i));
+		}
+		return affectedRows;
+	}
+
+	 
 	public void delete(String deleteStatement, Object parameter) {
 		// TODO Auto-generated method stub
 		
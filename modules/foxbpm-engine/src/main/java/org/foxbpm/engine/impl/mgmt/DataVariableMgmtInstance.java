@@ -19,7 +19,9 @@ package org.foxbpm.engine.impl.mgmt;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
 import org.foxbpm.engine.impl.entity.VariableInstanceEntity;
@@ -36,6 +38,8 @@ public class DataVariableMgmtInstance implements Serializable {
 	protected DataVariableMgmtDefinition dataVariableMgmtDefinition;
 	protected KernelProcessInstanceImpl processInstance;
 	protected List<VariableInstanceEntity> variableInstanceEntities = new ArrayList<VariableInstanceEntity>();
+	/** 按变量key索引已加载的变量，避免每次表达式计算都遍历变量列表 */
+	protected Map<String, VariableInstanceEntity> variableIndex = new HashMap<String, VariableInstanceEntity>();
 
 	public DataVariableMgmtInstance(KernelProcessInstanceImpl processInstance) {
 		this.processInstance = processInstance;
@@ -46,32 +50,46 @@ public class DataVariableMgmtInstance implements Serializable {
 	}
 
 	public VariableInstanceEntity getDataVariableById(String id) {
-		for (VariableInstanceEntity dataVariableInstance : variableInstanceEntities) {
-			if (StringUtils.equals(dataVariableInstance.getKey(), id)) {
-				return dataVariableInstance;
-			}
-		}
-		return null;
-
+		return getDataVariableByKey(id);
 	}
 
 	public VariableInstanceEntity getDataVariableByExpressionId(String expressionId) {
-		for (VariableInstanceEntity dataVariableInstance : variableInstanceEntities) {
-			if (StringUtils.equals(dataVariableInstance.getKey(), expressionId)) {
-				return dataVariableInstance;
-			}
-		}
-		return null;
+		return getDataVariableByKey(expressionId);
+	}
+
+	/**
+	 * 将已加载(或新建)的变量放入实例缓存
+	 */
+	public void addDataVariableEntity(VariableInstanceEntity variableInstanceEntity) {
+		variableInstanceEntities.add(variableInstanceEntity);
+		variableIndex.put(variableInstanceEntity.getKey(), variableInstanceEntity);
 	}
 
 	public VariableInstanceEntity createDataVariableInstance(
 			DataVariableDefinition dataVariableDefinition) {
 		VariableInstanceEntity dataVariableInstance = new VariableInstanceEntity(
 				dataVariableDefinition, this);
-		variableInstanceEntities.add(dataVariableInstance);
+		addDataVariableEntity(dataVariableInstance);
 		return dataVariableInstance;
 	}
 
+	protected VariableInstanceEntity getDataVariableByKey(String key) {
+		VariableInstanceEntity dataVariableInstance = variableIndex.get(key);
+		if (dataVariableInstance != null) {
+			return dataVariableInstance;
+		}
+		// 兼容直接向getDataVariableEntities()中添加变量的情况
+		if (variableIndex.size() != variableInstanceEntities.size()) {
+			for (VariableInstanceEntity tmp : variableInstanceEntities) {
+				if (StringUtils.equals(tmp.getKey(), key)) {
+					variableIndex.put(key, tmp);
+					return tmp;
+				}
+			}
+		}
+		return null;
+	}
+
 	public KernelProcessInstanceImpl getProcessInstance() {
 		return processInstance;
 	}
@@ -85,8 +85,9 @@ public class MyBatisSqlSessionFactory implements ISqlSessionFactory {
 	    databaseSpecificOrderByStatements.put("oracle", defaultOrderBy);
 	    
 	    databaseSpecificLimitBeforeStatements.put("mssql", "SELECT SUB.* FROM (");
-	    databaseSpecificLimitAfterStatements.put("mssql", ")RES ) SUB WHERE SUB.rnk >= #{firstRow} AND SUB.rnk < #{lastRow}");
-	    databaseSpecificLimitBetweenStatements.put("mssql", ", row_number() over (ORDER BY #{orderBy}) rnk FROM ( select distinct RES.* ");
+	    databaseSpecificLimitAfterStatements.put("mssql", ")RES ) SUB WHERE SUB.rnk >= #{firstRow} AND SUB.rnk < #{lastRow} ORDER BY SUB.rnk");
+	    // 排序必须拼接到sql中，绑定成参数时按常量排序，分页顺序不确定
+	    databaseSpecificLimitBetweenStatements.put("mssql", ", row_number() over (ORDER BY ${orderByColumns}) rnk FROM ( select distinct RES.* ");
 	    databaseOuterJoinLimitBetweenStatements.put("mssql", "");
 	    databaseSpecificOrderByStatements.put("mssql", "");
 	    
@@ -198,7 +199,7 @@ public class MyBatisSqlSessionFactory implements ISqlSessionFactory {
 	}
 
 	public Session openSession() {
-		return new MybatisSqlSession(getSqlSession());
+		return new MybatisSqlSession(getSqlSession(), sqlSessionFactory);
 	}
 	
 	
@@ -19,7 +19,15 @@ package org.foxbpm.engine.impl.mybatis;
 
 import java.util.List;
 
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.defaults.DefaultSqlSession;
+import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.managed.ManagedTransaction;
 import org.foxbpm.engine.impl.interceptor.Session;
 import org.foxbpm.engine.sqlsession.ISqlSession;
 import org.slf4j.Logger;
@@ -28,11 +36,19 @@ import org.slf4j.LoggerFactory;
 public class MybatisSqlSession implements ISqlSession,Session {
 
 	SqlSession sqlSession ;
+	SqlSessionFactory sqlSessionFactory;
+	/** 批量执行session，与sqlSession共用同一连接，首次批量操作时创建 */
+	SqlSession batchSqlSession;
 	public static Logger log = LoggerFactory.getLogger(MybatisSqlSession.class);
 	public MybatisSqlSession(SqlSession sqlSession){
 		this.sqlSession = sqlSession;
 	}
 	
+	public MybatisSqlSession(SqlSession sqlSession, SqlSessionFactory sqlSessionFactory){
+		this.sqlSession = sqlSession;
+		this.sqlSessionFactory = sqlSessionFactory;
+	}
+	
 	 
 	public void insert(String insertStatement, Object persistentObject) {
 		sqlSession.insert(insertStatement, persistentObject);
@@ -42,6 +58,69 @@ public class MybatisSqlSession implements ISqlSession,Session {
 		return sqlSession.update(updateStatement, persistentObject);
 	}
 
+	public void insertBatch(String insertStatement, List<?> persistentObjects) {
+		SqlSession batchSession = getBatchSqlSession();
+		if (batchSession == null) {
+			for (Object persistentObject : persistentObjects) {
+				insert(insertStatement, persistentObject);
+			}
+			return;
+		}
+		for (Object persistentObject : persistentObjects) {
+			batchSession.insert(insertStatement, persistentObject);
+		}
+		batchSession.flushStatements();
+		// 批量语句不经过sqlSession，清空一级缓存，避免同一命令中后续查询读到旧数据
+		sqlSession.clearCache();
+	}
+	
+	public int[] updateBatch(String updateStatement, List<?> persistentObjects) {
+		int[] affectedRows = new int[persistentObjects.size()];
+		SqlSession batchSession = getBatchSqlSession();
+		if (batchSession == null) {
+			for (int i = 0; i < affectedRows.length; i++) {
+				affectedRows[i] = update(updateStatement, persistentObjects.get(i));
+			}
+			return affectedRows;
+		}
+		for (Object persistentObject : persistentObjects) {
+			batchSession.update(updateStatement, persistentObject);
+		}
+		// 动态sql生成不同语句时会拆分为多个BatchResult，按顺序拼接即与参数顺序一致
+		List<BatchResult> batchResults = batchSession.flushStatements();
+		sqlSession.clearCache();
+		int index = 0;
+		for (BatchResult batchResult : batchResults) {
+			int[] updateCounts = batchResult.getUpdateCounts();
+			for (int i = 0; i < updateCounts.length && index < affectedRows.length; i++) {
+				affectedRows[index++] = updateCounts[i];
+			}
+		}
+		if (index != affectedRows.length) {
+			return null;
+		}
+		return affectedRows;
+	}
+	
+	protected SqlSession getBatchSqlSession() {
+		if (batchSqlSession == null && sqlSessionFactory != null) {
+			batchSqlSession = openBatchSqlSession();
+		}
+		return batchSqlSession;
+	}
+
+	/**
+	 * 在当前连接上打开BATCH执行器，保证批量语句与其他语句处于同一事务。
+	 * 执行器使用不关闭连接的ManagedTransaction，连接仍由sqlSession持有并关闭，
+	 * 避免批量执行器close()时提前关闭共用连接。
+	 */
+	protected SqlSession openBatchSqlSession() {
+		Configuration configuration = sqlSessionFactory.getConfiguration();
+		Transaction transaction = new ManagedTransaction(sqlSession.getConnection(), false);
+		Executor executor = configuration.newExecutor(transaction, ExecutorType.BATCH);
+		return new DefaultSqlSession(configuration, executor);
+	}
+
 	public void delete(String statement, Object parameter) {
 		sqlSession.delete(statement, parameter);
 	}
@@ -66,6 +145,9 @@ public class MybatisSqlSession implements ISqlSession,Session {
 	}
 	
 	public void rollback(){
+		if(this.batchSqlSession != null){
+			this.batchSqlSession.rollback();
+		}
 		if(this.sqlSession != null){
 			this.sqlSession.rollback();
 		}
@@ -73,8 +155,16 @@ public class MybatisSqlSession implements ISqlSession,Session {
 	
 	 
 	public void close() {
-		if(this.sqlSession != null){
-			this.sqlSession.close();
+		try {
+			// 先关闭批量执行器（不关闭连接），再由sqlSession关闭共用连接
+			if (this.batchSqlSession != null) {
+				this.batchSqlSession.close();
+				this.batchSqlSession = null;
+			}
+		} finally {
+			if (this.sqlSession != null) {
+				this.sqlSession.close();
+			}
 		}
 	}
 	
@@ -18,12 +18,16 @@
  */
 package org.foxbpm.engine.impl.persistence;
 
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.foxbpm.engine.db.DirtyTrackable;
 import org.foxbpm.engine.db.HasRevision;
 import org.foxbpm.engine.db.PersistentObject;
 import org.foxbpm.engine.impl.Context;
@@ -45,8 +49,10 @@ public abstract class AbstractManager implements Session {
 	protected Map<String, CachedObject> cachedObjects = new HashMap<String, CachedObject>();
 	protected List<PersistentObject> insertedObjects = new ArrayList<PersistentObject>();
 	protected List<DeleteOperation> deleteOperations = new ArrayList<DeleteOperation>();
+	/** deleteOperations中CheckedDeleteOperation对应的对象，按(类, 编号)索引 */
+	protected Set<ObjectKey> deletedObjectKeys = new HashSet<ObjectKey>();
 	
-	private ISqlSession getSqlSession() {
+	protected ISqlSession getSqlSession() {
 		return getSession(ISqlSession.class);
 	}
 	
@@ -186,9 +192,13 @@ public abstract class AbstractManager implements Session {
 	}
 	
 	public void flushUpdates(List<PersistentObject> updateObjects) {
+		if (isBatchFlushEnabled()) {
+			flushUpdatesBatch(updateObjects);
+			return;
+		}
 		int affectedRow;
 		for (PersistentObject updateObject : updateObjects) {
-			String updateStatement = StatementMap.getUpdateStatement(updateObject);
+			String updateStatement = getUpdateStatement(updateObject);
 			if (updateStatement == null) {
 				throw ExceptionUtil.getException("10202003",updateObject.getClass().getName());
 			}
@@ -199,17 +209,52 @@ public abstract class AbstractManager implements Session {
 				throw ExceptionUtil.getException("10209001",ex,updateStatement);
 			}
 			// 并发处理
-			if (updateObject instanceof HasRevision) {
+			if (isRevisionChecked(updateStatement, updateObject)) {
 				if (affectedRow != 1) {
-					throw ExceptionUtil.getException("10211001",updateObject.getClass().getName(),updateObject.getId());
+					throw ExceptionUtil.getOptimisticLockingException(updateObject.getClass().getName(),updateObject.getId());
 				}
 				((HasRevision) updateObject).setRevision(((HasRevision) updateObject).getRevisionNext());
 			}
+			restartDirtyTracking(updateObject);
 		}
 		updateObjects.clear();
 	}
 	
+	/**
+	 * 记录修改标记的对象使用只更新修改列的语句，其他对象使用完整的update语句
+	 */
+	protected String getUpdateStatement(PersistentObject updateObject) {
+		if (updateObject instanceof DirtyTrackable && ((DirtyTrackable) updateObject).isDirtyTracking()) {
+			String dirtyUpdateStatement = StatementMap.getDirtyUpdateStatement(updateObject);
+			if (dirtyUpdateStatement != null) {
+				return dirtyUpdateStatement;
+			}
+		}
+		return StatementMap.getUpdateStatement(updateObject);
+	}
+	
+	/**
+	 * update语句是否按版本号更新，是则校验影响行数并增加对象的版本号。
+	 * 子类可以对不带版本号条件的语句(如只更新时间戳)返回false
+	 */
+	protected boolean isRevisionChecked(String updateStatement, PersistentObject updateObject) {
+		return updateObject instanceof HasRevision;
+	}
+	
+	/**
+	 * update成功后清空修改标记，同一命令中再次flush时不会重复更新
+	 */
+	private void restartDirtyTracking(PersistentObject updateObject) {
+		if (updateObject instanceof DirtyTrackable && ((DirtyTrackable) updateObject).isDirtyTracking()) {
+			((DirtyTrackable) updateObject).startDirtyTracking();
+		}
+	}
+	
 	public void flushInserts() {
+		if (isBatchFlushEnabled()) {
+			flushInsertsBatch();
+			return;
+		}
 		for (PersistentObject insertedObject : insertedObjects) {
 			String insertStatement = StatementMap.getInsertStatement(insertedObject);
 			if (insertStatement == null) {
@@ -229,12 +274,159 @@ public abstract class AbstractManager implements Session {
 		insertedObjects.clear();
 	}
 	
+	/**
+	 * 批量模式：相邻的相同insert语句分为一组，每组作为一个jdbc batch执行。
+	 * 不跨组合并，插入顺序与insert()调用顺序一致，有外键依赖的记录不会先于被依赖的记录插入
+	 */
+	protected void flushInsertsBatch() {
+		List<String> insertStatements = new ArrayList<String>(insertedObjects.size());
+		for (PersistentObject insertedObject : insertedObjects) {
+			String insertStatement = StatementMap.getInsertStatement(insertedObject);
+			if (insertStatement == null) {
+				throw ExceptionUtil.getException("10202001",insertedObject.getClass().getName());
+			}
+			insertStatements.add(insertStatement);
+		}
+		for (StatementGroup statementGroup : groupAdjacent(insertStatements, insertedObjects)) {
+			String insertStatement = statementGroup.getStatement();
+			List<PersistentObject> groupObjects = statementGroup.getObjects();
+			log.debug("batch inserting: {} x {}", insertStatement, groupObjects.size());
+			try{
+				if (groupObjects.size() == 1) {
+					getSqlSession().insert(insertStatement, groupObjects.get(0));
+				} else {
+					getSqlSession().insertBatch(insertStatement, groupObjects);
+				}
+			}catch(Exception ex){
+				throw ExceptionUtil.getException("10209001",ex,insertStatement);
+			}
+			// 并发处理
+			for (PersistentObject insertedObject : groupObjects) {
+				if (insertedObject instanceof HasRevision) {
+					((HasRevision) insertedObject).setRevision(((HasRevision) insertedObject).getRevisionNext());
+				}
+			}
+		}
+		insertedObjects.clear();
+	}
+	
+	/**
+	 * 批量模式：按update语句分组，每组作为一个jdbc batch执行，
+	 * 并按batch返回的影响行数逐个对象进行乐观锁校验
+	 */
+	protected void flushUpdatesBatch(List<PersistentObject> updateObjects) {
+		Map<String, List<PersistentObject>> statementGroups = new LinkedHashMap<String, List<PersistentObject>>();
+		for (PersistentObject updateObject : updateObjects) {
+			String updateStatement = getUpdateStatement(updateObject);
+			if (updateStatement == null) {
+				throw ExceptionUtil.getException("10202003",updateObject.getClass().getName());
+			}
+			addToStatementGroup(statementGroups, updateStatement, updateObject);
+		}
+		for (Map.Entry<String, List<PersistentObject>> statementGroup : statementGroups.entrySet()) {
+			String updateStatement = statementGroup.getKey();
+			List<PersistentObject> groupObjects = statementGroup.getValue();
+			log.debug("batch updating: {} x {}", updateStatement, groupObjects.size());
+			int[] affectedRows;
+			try{
+				if (groupObjects.size() == 1) {
+					affectedRows = new int[]{getSqlSession().update(updateStatement, groupObjects.get(0))};
+				} else {
+					affectedRows = getSqlSession().updateBatch(updateStatement, groupObjects);
+				}
+			}catch(Exception ex){
+				throw ExceptionUtil.getException("10209001",ex,updateStatement);
+			}
+			// 并发处理
+			for (int i = 0; i < groupObjects.size(); i++) {
+				PersistentObject updateObject = groupObjects.get(i);
+				if (isRevisionChecked(updateStatement, updateObject)) {
+					if (affectedRows == null || affectedRows.length != groupObjects.size() || affectedRows[i] == Statement.SUCCESS_NO_INFO) {
+						// 驱动未返回每行的影响行数，无法进行乐观锁校验
+						throw ExceptionUtil.getException("10211002",updateObject.getClass().getName(),updateObject.getId());
+					}
+					if (affectedRows[i] != 1) {
+						throw ExceptionUtil.getOptimisticLockingException(updateObject.getClass().getName(),updateObject.getId());
+					}
+					((HasRevision) updateObject).setRevision(((HasRevision) updateObject).getRevisionNext());
+				}
+				restartDirtyTracking(updateObject);
+			}
+		}
+		updateObjects.clear();
+	}
+	
+	/**
+	 * 按语句把相邻的对象分组，保持对象原有的先后顺序
+	 * 
+	 * @param statements
+	 *            每个对象对应的语句
+	 * @param persistentObjects
+	 *            对象
+	 * @return
+	 */
+	public static List<StatementGroup> groupAdjacent(List<String> statements, List<PersistentObject> persistentObjects) {
+		List<StatementGroup> statementGroups = new ArrayList<StatementGroup>();
+		StatementGroup current = null;
+		for (int i = 0; i < persistentObjects.size(); i++) {
+			String statement = statements.get(i);
+			if (current == null || !current.getStatement().equals(statement)) {
+				current = new StatementGroup(statement);
+				statementGroups.add(current);
+			}
+			current.getObjects().add(persistentObjects.get(i));
+		}
+		return statementGroups;
+	}
+	
+	/**
+	 * 使用同一语句批量执行的一组对象
+	 */
+	public static class StatementGroup {
+		
+		private final String statement;
+		private final List<PersistentObject> objects = new ArrayList<PersistentObject>();
+		
+		public StatementGroup(String statement) {
+			this.statement = statement;
+		}
+		
+		public String getStatement() {
+			return statement;
+		}
+		
+		public List<PersistentObject> getObjects() {
+			return objects;
+		}
+	}
+	
+	private void addToStatementGroup(Map<String, List<PersistentObject>> statementGroups, String statement, PersistentObject persistentObject) {
+		List<PersistentObject> groupObjects = statementGroups.get(statement);
+		if (groupObjects == null) {
+			groupObjects = new ArrayList<PersistentObject>();
+			statementGroups.put(statement, groupObjects);
+		}
+		groupObjects.add(persistentObject);
+	}
+	
+	protected boolean isBatchFlushEnabled() {
+		if (Context.getCommandContext() != null && Context.getCommandContext().isBatchFlush()) {
+			return true;
+		}
+		return Context.getProcessEngineConfiguration() != null && Context.getProcessEngineConfiguration().isBatchFlushEnabled();
+	}
+	
+	protected boolean isDirtyTrackingEnabled() {
+		return Context.getProcessEngineConfiguration() != null && Context.getProcessEngineConfiguration().isDirtyTrackingEnabled();
+	}
+	
 	protected void flushDeletes() {
 		for (DeleteOperation delete : deleteOperations) {
 			log.debug("executing: {}", delete);
 			delete.execute();
 		}
 		deleteOperations.clear();
+		deletedObjectKeys.clear();
 	}
 	
 	// delete
@@ -245,11 +437,9 @@ public abstract class AbstractManager implements Session {
 	}
 	
 	public void delete(PersistentObject persistentObject) {
-		for (DeleteOperation deleteOperation : deleteOperations) {
-			if (deleteOperation.sameIdentity(persistentObject)) {
-				log.debug("skipping redundant delete: {}", persistentObject);
-				return; // Skip this delete. It was already added.
-			}
+		if (!deletedObjectKeys.add(new ObjectKey(persistentObject))) {
+			log.debug("skipping redundant delete: {}", persistentObject);
+			return; // Skip this delete. It was already added.
 		}
 		
 		deleteOperations.add(new CheckedDeleteOperation(persistentObject));
@@ -257,15 +447,36 @@ public abstract class AbstractManager implements Session {
 	
 	public void removeUnnecessaryOperations() {
 		// 如果对象既在insert中，又在delete中，则直接删除，不做处理
-		for (Iterator<DeleteOperation> deleteIt = deleteOperations.iterator(); deleteIt.hasNext();) {
-			DeleteOperation deleteOperation = deleteIt.next();
-			for (Iterator<PersistentObject> insertIt = insertedObjects.iterator(); insertIt.hasNext();) {
-				PersistentObject insertedObject = insertIt.next();
-				if (deleteOperation.sameIdentity(insertedObject)) {
-					insertIt.remove();
-					deleteIt.remove();
+		// 按(类, 编号)索引匹配，insert和delete各遍历一次，避免两层循环
+		if (!deletedObjectKeys.isEmpty() && !insertedObjects.isEmpty()) {
+			Set<ObjectKey> cancelledKeys = new HashSet<ObjectKey>();
+			List<PersistentObject> remainingInserts = new ArrayList<PersistentObject>(insertedObjects.size());
+			for (PersistentObject insertedObject : insertedObjects) {
+				ObjectKey objectKey = new ObjectKey(insertedObject);
+				if (deletedObjectKeys.contains(objectKey)) {
+					cancelledKeys.add(objectKey);
+				} else {
+					remainingInserts.add(insertedObject);
 				}
 			}
+			if (!cancelledKeys.isEmpty()) {
+				List<DeleteOperation> remainingDeletes = new ArrayList<DeleteOperation>(deleteOperations.size());
+				for (DeleteOperation deleteOperation : deleteOperations) {
+					if (deleteOperation instanceof CheckedDeleteOperation
+					        && cancelledKeys.contains(new ObjectKey(((CheckedDeleteOperation) deleteOperation).getPersistentObject()))) {
+						deleteOperation.clearCache();
+					} else {
+						remainingDeletes.add(deleteOperation);
+					}
+				}
+				insertedObjects.clear();
+				insertedObjects.addAll(remainingInserts);
+				deleteOperations.clear();
+				deleteOperations.addAll(remainingDeletes);
+				deletedObjectKeys.removeAll(cancelledKeys);
+			}
+		}
+		for (DeleteOperation deleteOperation : deleteOperations) {
 			deleteOperation.clearCache();
 		}
 		
@@ -274,6 +485,34 @@ public abstract class AbstractManager implements Session {
 		}
 	}
 	
+	/**
+	 * 持久化对象的标识(类, 编号)，与CheckedDeleteOperation.sameIdentity()的判断一致
+	 */
+	protected static final class ObjectKey {
+		private final Class<?> objectClass;
+		private final String id;
+		
+		public ObjectKey(PersistentObject persistentObject) {
+			this.objectClass = persistentObject.getClass();
+			this.id = persistentObject.getId();
+		}
+		
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof ObjectKey)) {
+				return false;
+			}
+			ObjectKey other = (ObjectKey) obj;
+			return objectClass.equals(other.objectClass) && (id == null ? other.id == null : id.equals(other.id));
+		}
+		
+		public int hashCode() {
+			return objectClass.hashCode() * 31 + (id == null ? 0 : id.hashCode());
+		}
+	}
+	
 	public static class CachedObject {
 		protected PersistentObject persistentObject;
 		protected Object persistentObjectState;
@@ -299,6 +538,15 @@ public abstract class AbstractManager implements Session {
 		for (CachedObject cachedObject : cachedObjects.values()) {
 			PersistentObject persistentObject = cachedObject.getPersistentObject();
 			if (!isPersistentObjectDeleted(persistentObject)) {
+				if (persistentObject instanceof DirtyTrackable && ((DirtyTrackable) persistentObject).isDirtyTracking()) {
+					// 只检查修改标记，不构造persistentState
+					if (((DirtyTrackable) persistentObject).isDirty()) {
+						updatedObjects.add(persistentObject);
+					} else {
+						log.trace("loaded object '{}' was not updated", persistentObject);
+					}
+					continue;
+				}
 				Object originalState = cachedObject.getPersistentObjectState();
 				if (!persistentObject.getPersistentState().equals(originalState)) {
 					updatedObjects.add(persistentObject);
@@ -311,15 +559,19 @@ public abstract class AbstractManager implements Session {
 	}
 	
 	protected boolean isPersistentObjectDeleted(PersistentObject persistentObject) {
-		for (DeleteOperation deleteOperation : deleteOperations) {
-			if (deleteOperation.sameIdentity(persistentObject)) {
-				return true;
-			}
-		}
-		return false;
+		return !deletedObjectKeys.isEmpty() && deletedObjectKeys.contains(new ObjectKey(persistentObject));
 	}
 	
 	protected CachedObject cachePut(PersistentObject persistentObject, boolean storeState) {
+		if (persistentObject instanceof DirtyTrackable) {
+			// 从数据库加载的对象改为记录修改标记，不再保存快照；insert和显式update的对象仍按完整语句处理
+			if (storeState && isDirtyTrackingEnabled()) {
+				((DirtyTrackable) persistentObject).startDirtyTracking();
+				storeState = false;
+			} else {
+				((DirtyTrackable) persistentObject).stopDirtyTracking();
+			}
+		}
 		CachedObject cachedObject = new CachedObject(persistentObject, storeState);
 		cachedObjects.put(persistentObject.getId(), cachedObject);
 		return cachedObject;
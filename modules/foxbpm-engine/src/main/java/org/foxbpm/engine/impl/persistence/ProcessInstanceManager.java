@@ -18,7 +18,9 @@
  */
 package org.foxbpm.engine.impl.persistence;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.foxbpm.engine.db.PersistentObject;
 import org.foxbpm.engine.impl.entity.ProcessInstanceEntity;
@@ -34,6 +36,11 @@ import org.foxbpm.kernel.event.KernelEvent;
  */
 public class ProcessInstanceManager extends AbstractManager {
 	
+	/** 只更新流程实例更新时间的语句，不校验版本号 */
+	private static final String UPDATE_TIME_STATEMENT = "updateProcessInstanceUpdateTime";
+	
+	private static final String UPDATE_TIME = "updateTime";
+	
 	public ProcessInstanceEntity findProcessInstanceById(String id) {
 		return selectById(ProcessInstanceEntity.class , id);
 	}
@@ -99,6 +106,37 @@ public class ProcessInstanceManager extends AbstractManager {
 		cascadeDelete(processInstanceId);
 	}
 	
+	/**
+	 * 只修改了更新时间的流程实例用不带版本号的语句更新。
+	 * 任务操作、异步分支等都会刷新流程实例的更新时间，如果按版本号更新，同一流程实例的并发分支都会互相冲突；
+	 * 更新时间以最后提交的为准即可。流程位置、状态等其他字段变化时仍按版本号更新。
+	 */
+	@Override
+	protected String getUpdateStatement(PersistentObject updateObject) {
+		if (isUpdateTimeOnly(updateObject)) {
+			return UPDATE_TIME_STATEMENT;
+		}
+		return super.getUpdateStatement(updateObject);
+	}
+	
+	@Override
+	protected boolean isRevisionChecked(String updateStatement, PersistentObject updateObject) {
+		return !UPDATE_TIME_STATEMENT.equals(updateStatement) && super.isRevisionChecked(updateStatement, updateObject);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private boolean isUpdateTimeOnly(PersistentObject updateObject) {
+		CachedObject cachedObject = cachedObjects.get(updateObject.getId());
+		if (cachedObject == null || cachedObject.getPersistentObject() != updateObject || cachedObject.getPersistentObjectState() == null) {
+			return false;
+		}
+		Map<String, Object> originalState = new HashMap<String, Object>((Map<String, Object>) cachedObject.getPersistentObjectState());
+		Map<String, Object> currentState = new HashMap<String, Object>((Map<String, Object>) updateObject.getPersistentState());
+		originalState.remove(UPDATE_TIME);
+		currentState.remove(UPDATE_TIME);
+		return originalState.equals(currentState);
+	}
+	
 	@Override
 	public void beforeFlush() {
 		removeUnnecessaryOperations();
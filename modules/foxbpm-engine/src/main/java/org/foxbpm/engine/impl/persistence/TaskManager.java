@@ -18,6 +18,8 @@
  */
 package org.foxbpm.engine.impl.persistence;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -35,6 +37,8 @@ import org.foxbpm.engine.task.TaskQuery;
  */
 public class TaskManager extends AbstractManager {
 
+	private static final int MAX_IN_SIZE = 1000;
+
 	/**
 	 * 普通查询
 	 * @param parameterMap 
@@ -86,15 +90,51 @@ public class TaskManager extends AbstractManager {
 	}
 
 
-	@SuppressWarnings("unchecked")
+	@SuppressWarnings({"unchecked", "rawtypes"})
 	public List<Task> findTasksByQueryCriteria(TaskQueryImpl taskQuery) {
+		if (taskQuery.isOptimizedCandidateQuery()) {
+			List<String> taskIds = (List<String>) selectList("findTaskIdsByCandidateCriteria", taskQuery);
+			return (List) findTasksByIds(taskIds);
+		}
 		return (List<Task>) selectList("findTasksByQueryCriteria", taskQuery);
 	}
 
 	public long findTaskCountByQueryCriteria(TaskQueryImpl taskQuery) {
+		if (taskQuery.isOptimizedCandidateQuery()) {
+			return (Long) selectOne("findTaskCountByCandidateCriteria", taskQuery);
+		}
 		return (Long) selectOne("findTaskCountByQueryCriteria", taskQuery);
 	}
 
+	/**
+	 * 根据任务编号集合查询任务，返回结果与编号顺序一致，不存在的任务忽略
+	 * @param taskIds 任务编号
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public List<TaskEntity> findTasksByIds(List<String> taskIds) {
+		List<TaskEntity> result = new ArrayList<TaskEntity>(taskIds.size());
+		if (taskIds.isEmpty()) {
+			return result;
+		}
+		Map<String, TaskEntity> taskMap = new HashMap<String, TaskEntity>();
+		// oracle的in条件最多1000个
+		for (int i = 0; i < taskIds.size(); i += MAX_IN_SIZE) {
+			List<String> subIds = taskIds.subList(i, Math.min(i + MAX_IN_SIZE, taskIds.size()));
+			List<TaskEntity> tasks = (List<TaskEntity>) selectList("selectTasksByIds", new ArrayList<String>(subIds));
+			for (TaskEntity task : tasks) {
+				taskMap.put(task.getId(), task);
+			}
+		}
+		for (String taskId : taskIds) {
+			TaskEntity task = taskMap.get(taskId);
+			if (task != null) {
+				result.add(task);
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * 根据令牌编号查询任务
 	 * @param tokenId 令牌编号
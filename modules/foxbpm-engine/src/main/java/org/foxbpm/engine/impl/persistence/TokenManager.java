@@ -18,10 +18,13 @@
  */
 package org.foxbpm.engine.impl.persistence;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.foxbpm.engine.impl.entity.TokenEntity;
 import org.foxbpm.engine.impl.runtime.TokenQueryImpl;
+import org.foxbpm.engine.impl.util.ExceptionUtil;
 import org.foxbpm.engine.runtime.Token;
 
 /**
@@ -32,6 +35,9 @@ import org.foxbpm.engine.runtime.Token;
  */
 public class TokenManager extends AbstractManager {
 
+	/** 当前命令中已锁定版本号的令牌 */
+	protected Set<String> revisionLockedTokenIds = new HashSet<String>();
+
 	@SuppressWarnings("unchecked")
 	public List<TokenEntity> findTokensByProcessInstanceId(String id) {
 		return (List<TokenEntity>) selectList("selectTokensByProcessInstanceId", id);
@@ -61,6 +67,33 @@ public class TokenManager extends AbstractManager {
 	public void deleteTokenByProcessInstanceId(String processInstanceId) {
 		delete("deleteTokenByProcessInstanceId", processInstanceId);
 	}
+
+	/**
+	 * 立即按版本号更新令牌的REV_，用于并行网关合并时锁定父令牌。
+	 * <p>
+	 * 同一父令牌下的分支在不同事务中同时到达合并网关时，后到的事务在这里等待行锁，先到的事务提交后
+	 * 版本号已变化，后到的事务更新不到记录，抛出乐观锁异常并回滚，重新执行时可以看到先提交分支的状态。
+	 * 只锁定合并点的父令牌，同一流程实例的其他分支不受影响。当前命令中新建还未插入的令牌和已锁定过的令牌不再更新。
+	 * 
+	 * @param token
+	 *            要锁定的令牌
+	 */
+	public void lockTokenRevision(TokenEntity token) {
+		if (token.getRevision() == 0 || revisionLockedTokenIds.contains(token.getId())) {
+			return;
+		}
+		int affectedRow;
+		try {
+			affectedRow = getSqlSession().update("updateTokenRevision", token);
+		} catch (Exception ex) {
+			throw ExceptionUtil.getException("10209001", ex, "updateTokenRevision");
+		}
+		if (affectedRow != 1) {
+			throw ExceptionUtil.getOptimisticLockingException(token.getClass().getName(), token.getId());
+		}
+		token.setRevision(token.getRevisionNext());
+		revisionLockedTokenIds.add(token.getId());
+	}
 	
 	
 	
@@ -18,6 +18,8 @@
  */
 package org.foxbpm.engine.impl.persistence;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -35,6 +37,8 @@ import org.foxbpm.kernel.runtime.impl.KernelVariableInstanceImpl;
  */
 public class VariableManager extends AbstractManager {
 
+	private static final int MAX_IN_SIZE = 1000;
+
 	/**
 	 * by ych 2014-12-12
 	 * jiejue bianliang chongfu
@@ -81,6 +85,32 @@ public class VariableManager extends AbstractManager {
 		return (VariableInstanceEntity)selectOne("selectVariableByProcessInstanceIdAndKey",paraMap);
 	}
 	
+	/**
+	 * 只加载流程实例中指定key的变量，用于表达式按需加载变量
+	 * 
+	 * @param processInstanceId
+	 *            流程实例编号
+	 * @param keys
+	 *            变量key
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public List<VariableInstanceEntity> findVariablesByProcessInstanceIdAndKeys(String processInstanceId, Collection<String> keys) {
+		List<VariableInstanceEntity> result = new ArrayList<VariableInstanceEntity>();
+		if (keys == null || keys.isEmpty()) {
+			return result;
+		}
+		List<String> keyList = new ArrayList<String>(keys);
+		// oracle的in条件最多1000个
+		for (int i = 0; i < keyList.size(); i += MAX_IN_SIZE) {
+			Map<String,Object> paraMap = new HashMap<String,Object>();
+			paraMap.put("processInstanceId", processInstanceId);
+			paraMap.put("keys", new ArrayList<String>(keyList.subList(i, Math.min(i + MAX_IN_SIZE, keyList.size()))));
+			result.addAll((List<VariableInstanceEntity>)selectList("selectVariableByProcessInstanceIdAndKeys", paraMap));
+		}
+		return result;
+	}
+	
 	@SuppressWarnings("unchecked")
 	public Map<String,Object> queryVariable(QueryVariablesCommand queryVariableCommand){
 		List<VariableInstanceEntity> variables =  (List<VariableInstanceEntity>)selectList("selectVariableByQueryCommand", queryVariableCommand);
@@ -20,15 +20,23 @@ package org.foxbpm.engine.impl.persistence.deploy;
 
 import java.util.List;
 
+import org.foxbpm.engine.Constant;
 import org.foxbpm.engine.cache.Cache;
 import org.foxbpm.engine.impl.Context;
 import org.foxbpm.engine.impl.entity.DeploymentEntity;
+import org.foxbpm.engine.impl.entity.GroupEntity;
 import org.foxbpm.engine.impl.entity.ProcessDefinitionEntity;
+import org.foxbpm.engine.impl.expression.ExpressionImpl;
+import org.foxbpm.engine.impl.identity.Authentication;
 import org.foxbpm.engine.impl.model.ProcessDefinitionQueryImpl;
 import org.foxbpm.engine.impl.persistence.DeploymentEntityManager;
 import org.foxbpm.engine.impl.util.ExceptionUtil;
 import org.foxbpm.engine.impl.util.QuartzUtil;
+import org.foxbpm.engine.impl.util.StringUtil;
 import org.foxbpm.engine.repository.ProcessDefinition;
+import org.foxbpm.model.PotentialStarter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * 流程发布管理器
@@ -38,13 +46,116 @@ import org.foxbpm.engine.repository.ProcessDefinition;
  */
 public class DeploymentManager {
 	
+	private static final Logger log = LoggerFactory.getLogger(DeploymentManager.class);
+	
 	protected Cache<ProcessDefinition> processDefinitionCache;
 	protected List<Deployer> deployers;
 	
+	/** 流程启动人索引，第一次查询时建立，发布和删除发布时失效 */
+	protected volatile ProcessStarterIndex processStarterIndex;
+	/** 索引版本，失效时递增，避免建立过程中发生的失效被覆盖 */
+	private volatile int processStarterIndexVersion;
+	
 	public void deploy(DeploymentEntity deployment) {
 		for (Deployer deployer : deployers) {
 			deployer.deploy(deployment);
 		}
+		// 加载缓存时也会调用deploy，此时流程定义没有变化
+		if (deployment.isNew()) {
+			invalidateProcessStarterIndex();
+		}
+	}
+	
+	/**
+	 * 查询用户可以发起的流程(最新版本)，使用启动人索引，不再逐个流程验证启动人
+	 * 
+	 * @param userId
+	 *            用户编号
+	 * @return
+	 */
+	public List<ProcessDefinition> findStartProcessDefinitionsByUserId(String userId) {
+		ProcessStarterIndex starterIndex = getProcessStarterIndex();
+		List<GroupEntity> groups = null;
+		try {
+			groups = Authentication.selectGroupByUserId(userId);
+		} catch (Exception ex) {
+			// 用户不存在时只能发起未配置启动人的流程
+			log.warn("查询用户" + userId + "所在组失败", ex);
+		}
+		return starterIndex.getStartProcessDefinitions(userId, groups);
+	}
+	
+	public ProcessStarterIndex getProcessStarterIndex() {
+		ProcessStarterIndex starterIndex = processStarterIndex;
+		if (starterIndex == null) {
+			int version = processStarterIndexVersion;
+			starterIndex = buildProcessStarterIndex();
+			synchronized (this) {
+				if (version == processStarterIndexVersion) {
+					processStarterIndex = starterIndex;
+				}
+			}
+		}
+		return starterIndex;
+	}
+	
+	/**
+	 * 流程定义或启动人发生变化时调用，下次查询时重建索引，同时清空用户可发起流程缓存
+	 */
+	public void invalidateProcessStarterIndex() {
+		synchronized (this) {
+			processStarterIndexVersion++;
+			processStarterIndex = null;
+		}
+		if (Context.getProcessEngineConfiguration() != null && Context.getProcessEngineConfiguration().getUserProcessDefinitionCache() != null) {
+			Context.getProcessEngineConfiguration().getUserProcessDefinitionCache().clear();
+		}
+	}
+	
+	protected ProcessStarterIndex buildProcessStarterIndex() {
+		ProcessStarterIndex starterIndex = new ProcessStarterIndex();
+		for (ProcessDefinitionEntity processDefinition : findProcessDefinitionGroupByKey()) {
+			try {
+				indexProcessStarters(starterIndex, processDefinition);
+			} catch (Exception ex) {
+				log.error("验证流程发起失败,流程编号:" + processDefinition.getId(), ex);
+				continue;
+			}
+			starterIndex.addProcessDefinition(processDefinition);
+		}
+		return starterIndex;
+	}
+	
+	/**
+	 * 计算流程的启动人表达式并加入索引，规则与VerificationStartUserCmd一致
+	 */
+	private void indexProcessStarters(ProcessStarterIndex starterIndex, ProcessDefinitionEntity processDefinition) {
+		String processKey = processDefinition.getKey();
+		List<PotentialStarter> processStarters = processDefinition.getPotentialStarters();
+		// 如果未配置，则默认所有人
+		if (processStarters == null || processStarters.isEmpty()) {
+			starterIndex.addUnrestrictedProcess(processKey);
+			return;
+		}
+		for (PotentialStarter starter : processStarters) {
+			String tmpValue = null;
+			try {
+				tmpValue = (String) new ExpressionImpl(starter.getExpression()).getValue(null);
+			} catch (Exception ex) {
+				throw ExceptionUtil.getException("10604001", ex);
+			}
+			// 表达式值为空，则不进行判断
+			if (StringUtil.isEmpty(tmpValue)) {
+				break;
+			}
+			if (Constant.FOXBPM_ALL_USER.equals(tmpValue)) {
+				starterIndex.addAllUserProcess(processKey);
+			} else if (Constant.USER_TYPE.equals(starter.getResourceType())) {
+				starterIndex.addUserStarter(processKey, tmpValue);
+			} else if (starter.getResourceType() != null) {
+				starterIndex.addGroupStarter(processKey, starter.getResourceType(), tmpValue);
+			}
+		}
 	}
 	
 	public ProcessDefinitionEntity findDeployedProcessDefinitionById(String processDefinitionId) {
@@ -117,6 +228,7 @@ public class DeploymentManager {
 			QuartzUtil.deleteJob(processDefinition.getKey());
 		}
 		deploymentEntityManager.deleteDeployment(deploymentId, cascade);
+		invalidateProcessStarterIndex();
 	}
 	
 	// getters and setters
@@ -0,0 +1,140 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.impl.persistence.deploy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.foxbpm.engine.impl.entity.GroupEntity;
+import org.foxbpm.engine.repository.ProcessDefinition;
+
+/**
+ * 流程启动人倒排索引：用户编号、(组类型, 组编号)到流程key的映射。
+ * <p>
+ * 启动人表达式在建立索引时计算一次，查询用户可发起的流程时只需要按用户及其所在组取并集，
+ * 不再逐个流程验证。未配置启动人和配置了foxbpm_all_user的流程单独保存。
+ * 索引建立后不再修改，发布流程时由DeploymentManager整体重建。
+ *
+ * @author ych
+ */
+public class ProcessStarterIndex {
+
+	/** 按发布管理器返回顺序保存的最新版本流程定义 */
+	private final List<ProcessDefinition> processDefinitions = new ArrayList<ProcessDefinition>();
+
+	/** 未配置启动人的流程，任何人(包括不存在的用户)都可以发起 */
+	private final Set<String> unrestrictedKeys = new HashSet<String>();
+
+	/** 启动人为foxbpm_all_user的流程 */
+	private final Set<String> allUserKeys = new HashSet<String>();
+
+	private final Map<String, Set<String>> userIndex = new HashMap<String, Set<String>>();
+
+	private final Map<String, Set<String>> groupIndex = new HashMap<String, Set<String>>();
+
+	public void addProcessDefinition(ProcessDefinition processDefinition) {
+		processDefinitions.add(processDefinition);
+	}
+
+	public void addUnrestrictedProcess(String processKey) {
+		unrestrictedKeys.add(processKey);
+	}
+
+	public void addAllUserProcess(String processKey) {
+		allUserKeys.add(processKey);
+	}
+
+	public void addUserStarter(String processKey, String userId) {
+		addToIndex(userIndex, userId, processKey);
+	}
+
+	public void addGroupStarter(String processKey, String groupType, String groupId) {
+		addToIndex(groupIndex, groupKey(groupType, groupId), processKey);
+	}
+
+	/**
+	 * 用户可以发起的流程key
+	 *
+	 * @param userId
+	 *            用户编号
+	 * @param groups
+	 *            用户所在的组，为null表示用户不存在，只返回未配置启动人的流程
+	 * @return
+	 */
+	public Set<String> getStartProcessKeys(String userId, List<GroupEntity> groups) {
+		Set<String> processKeys = new HashSet<String>(unrestrictedKeys);
+		if (groups == null) {
+			return processKeys;
+		}
+		processKeys.addAll(allUserKeys);
+		addAll(processKeys, userIndex.get(userId));
+		for (GroupEntity group : groups) {
+			addAll(processKeys, groupIndex.get(groupKey(group.getGroupType(), group.getGroupId())));
+		}
+		return processKeys;
+	}
+
+	/**
+	 * 用户可以发起的流程定义，顺序与建立索引时一致
+	 *
+	 * @param userId
+	 *            用户编号
+	 * @param groups
+	 *            用户所在的组，为null表示用户不存在
+	 * @return
+	 */
+	public List<ProcessDefinition> getStartProcessDefinitions(String userId, List<GroupEntity> groups) {
+		Set<String> processKeys = getStartProcessKeys(userId, groups);
+		List<ProcessDefinition> result = new ArrayList<ProcessDefinition>();
+		for (ProcessDefinition processDefinition : processDefinitions) {
+			if (processKeys.contains(processDefinition.getKey())) {
+				result.add(processDefinition);
+			}
+		}
+		return result;
+	}
+
+	public List<ProcessDefinition> getProcessDefinitions() {
+		return Collections.unmodifiableList(processDefinitions);
+	}
+
+	private static String groupKey(String groupType, String groupId) {
+		return groupType + "\u0000" + groupId;
+	}
+
+	private static void addToIndex(Map<String, Set<String>> index, String key, String processKey) {
+		Set<String> processKeys = index.get(key);
+		if (processKeys == null) {
+			processKeys = new LinkedHashSet<String>();
+			index.put(key, processKeys);
+		}
+		processKeys.add(processKey);
+	}
+
+	private static void addAll(Set<String> processKeys, Set<String> indexedKeys) {
+		if (indexedKeys != null) {
+			processKeys.addAll(indexedKeys);
+		}
+	}
+}
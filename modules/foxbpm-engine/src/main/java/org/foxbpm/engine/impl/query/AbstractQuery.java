@@ -28,6 +28,7 @@ import org.foxbpm.engine.impl.interceptor.CommandContext;
 import org.foxbpm.engine.impl.interceptor.CommandExecutor;
 import org.foxbpm.engine.impl.util.ExceptionUtil;
 import org.foxbpm.engine.query.Query;
+import org.foxbpm.engine.query.QueryCursor;
 import org.foxbpm.engine.query.QueryProperty;
 
 /**
@@ -58,6 +59,14 @@ public abstract class AbstractQuery<T extends Query<?, ?>, U> extends ListQueryP
 
 	protected QueryProperty orderProperty;
 
+	protected QueryCursor afterCursor;
+
+	/** 是否为游标分页查询 */
+	protected boolean keysetPaging;
+
+	/** 游标分页的尾段，只读取时间为空的记录 */
+	protected boolean nullTimeTail;
+
 	protected AbstractQuery() {
 		parameter = this;
 	}
@@ -149,6 +158,75 @@ public abstract class AbstractQuery<T extends Query<?, ?>, U> extends ListQueryP
 		return executeList(Context.getCommandContext());
 	}
 
+	/**
+	 * 游标分页，按(timeProperty desc, idProperty desc)排序，返回游标之后的pageSize条记录。
+	 * 时间为空的记录统一排在最后(各数据库对空值的默认排序不同，oracle降序时空值在前)。
+	 * <p>
+	 * 分两段查询：先用(时间, 编号)的范围条件读取时间不为空的记录，条件和排序都可以走索引；
+	 * 不足一页时再按编号降序读取时间为空的记录补足。游标时间为空表示已经进入尾段。
+	 * 会覆盖之前设置的排序；游标只在本次查询中生效，之后调用count()统计的是全部记录。
+	 * 
+	 * @param cursor
+	 *            上一页最后一条记录的游标，为null时返回第一页
+	 * @param pageSize
+	 *            每页条数
+	 * @param timeProperty
+	 *            游标时间列
+	 * @param idProperty
+	 *            游标编号列
+	 * @return
+	 */
+	protected List<U> listAfter(QueryCursor cursor, int pageSize, QueryProperty timeProperty, QueryProperty idProperty) {
+		this.orderProperty = null;
+		List<U> result = new ArrayList<U>();
+		this.keysetPaging = true;
+		try {
+			if (cursor == null || cursor.getTime() != null) {
+				this.orderBy = null;
+				addOrder(timeProperty.getName(), SORTORDER_DESC);
+				addOrder(idProperty.getName(), SORTORDER_DESC);
+				this.afterCursor = cursor;
+				this.nullTimeTail = false;
+				addPage(result, pageSize);
+				if (result.size() >= pageSize) {
+					return result;
+				}
+				// 时间不为空的记录已读完，尾段从头开始
+				this.afterCursor = null;
+			} else {
+				this.afterCursor = cursor;
+			}
+			this.orderBy = null;
+			addOrder(idProperty.getName(), SORTORDER_DESC);
+			this.nullTimeTail = true;
+			addPage(result, pageSize - result.size());
+			return result;
+		} finally {
+			this.afterCursor = null;
+			this.keysetPaging = false;
+			this.nullTimeTail = false;
+		}
+	}
+
+	private void addPage(List<U> result, int size) {
+		List<U> page = listPage(0, size);
+		if (page != null) {
+			result.addAll(page);
+		}
+	}
+
+	public QueryCursor getAfterCursor() {
+		return afterCursor;
+	}
+
+	public boolean isKeysetPaging() {
+		return keysetPaging;
+	}
+
+	public boolean isNullTimeTail() {
+		return nullTimeTail;
+	}
+
 	public long count() {
 		this.resultType = ResultType.COUNT;
 		if (commandExecutor != null) {
@@ -192,6 +270,13 @@ public abstract class AbstractQuery<T extends Query<?, ?>, U> extends ListQueryP
 		return orderBy;
 	}
 
+	public String getOrderByColumns() {
+		if (orderBy == null) {
+			return super.getOrderBy();
+		}
+		return orderBy;
+	}
+
 	protected void addOrder(String column, String sortOrder) {
 		if (orderBy == null) {
 			orderBy = column + " " + sortOrder;
@@ -25,6 +25,7 @@ import java.util.List;
 import org.foxbpm.engine.impl.interceptor.CommandContext;
 import org.foxbpm.engine.impl.interceptor.CommandExecutor;
 import org.foxbpm.engine.impl.query.AbstractQuery;
+import org.foxbpm.engine.query.QueryCursor;
 import org.foxbpm.engine.runtime.ProcessInstance;
 import org.foxbpm.engine.runtime.ProcessInstanceQuery;
 
@@ -189,6 +190,10 @@ public class ProcessInstanceQueryImpl extends AbstractQuery<ProcessInstanceQuery
 		return this;
 	}
 
+	public List<ProcessInstance> listAfter(QueryCursor cursor, int pageSize) {
+		return listAfter(cursor, pageSize, ProcessInstanceQueryProperty.START_TIME, ProcessInstanceQueryProperty.ID);
+	}
+
 	// results /////////////////////////////////////////////////////////////////
 
 	public long executeCount(CommandContext commandContext) {
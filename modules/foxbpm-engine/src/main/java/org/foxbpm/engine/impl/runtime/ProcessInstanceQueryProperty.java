@@ -36,6 +36,7 @@ public class ProcessInstanceQueryProperty implements QueryProperty {
 	public static final ProcessInstanceQueryProperty PROCESS_DEFINITION_ID = new ProcessInstanceQueryProperty("RES.RROCESSDEFINITION_ID");
 	public static final ProcessInstanceQueryProperty START_TIME = new ProcessInstanceQueryProperty("RES.START_TIME");
 	public static final ProcessInstanceQueryProperty UPDATE_TIME = new ProcessInstanceQueryProperty("RES.UPDATE_TIME");
+	public static final ProcessInstanceQueryProperty ID = new ProcessInstanceQueryProperty("RES.ID");
 	private String name;
 
 	public ProcessInstanceQueryProperty(String name) {
@@ -0,0 +1,228 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.impl.runtime;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.foxbpm.engine.Constant;
+import org.foxbpm.engine.impl.entity.GroupEntity;
+import org.foxbpm.engine.impl.entity.IdentityLinkEntity;
+import org.foxbpm.engine.impl.entity.ProcessInstanceEntity;
+import org.foxbpm.engine.impl.entity.TaskEntity;
+import org.foxbpm.engine.impl.entity.UserEntity;
+import org.foxbpm.engine.impl.identity.Authentication;
+import org.foxbpm.engine.impl.util.ExceptionUtil;
+import org.foxbpm.engine.impl.util.LocationUtil;
+import org.foxbpm.engine.impl.util.StringUtil;
+import org.foxbpm.kernel.process.KernelFlowNode;
+import org.foxbpm.kernel.runtime.impl.KernelTokenImpl;
+
+/**
+ * 流程实例的当前位置，对应流程实例的PROCESSLOCATION字段。
+ * <p>
+ * 任务位置按任务编号保存，只有新建、完成、修改处理者的任务(changedTaskIds)才重新查询处理者信息，
+ * 其他未结束任务沿用上次的位置；令牌位置只有节点信息，每次按未被任务覆盖的令牌生成。
+ * 字段格式与原来的json保持一致，任务位置额外保存taskId，旧数据中没有taskId的任务位置在第一次更新时重新生成。
+ * 
+ * @author ych
+ */
+public class ProcessLocation {
+
+	public static final String PROCESS_STATUS = "processStatus";
+	public static final String NODES = "nodes";
+	public static final String TASK_ID = "taskId";
+	public static final String NODE_ID = "nodeId";
+	public static final String NODE_NAME = "nodeName";
+	public static final String USERS = "users";
+	public static final String GROUPS = "groups";
+
+	/** 上次计算的任务位置，按任务编号索引 */
+	private Map<String, Map<String, Object>> taskNodes = new LinkedHashMap<String, Map<String, Object>>();
+
+	private Map<String, Object> location = new HashMap<String, Object>();
+
+	/**
+	 * 从PROCESSLOCATION字段恢复位置
+	 * 
+	 * @param processLocationJson
+	 *            字段值，可为空
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public static ProcessLocation parse(String processLocationJson) {
+		ProcessLocation processLocation = new ProcessLocation();
+		if (StringUtil.isEmpty(processLocationJson)) {
+			return processLocation;
+		}
+		Map<String, Object> location;
+		try {
+			location = LocationUtil.getObjectMapper().readValue(processLocationJson, Map.class);
+		} catch (Exception e) {
+			throw ExceptionUtil.getException("10806001", e, processLocationJson);
+		}
+		processLocation.location = location;
+		Object nodes = location.get(NODES);
+		if (nodes instanceof List) {
+			for (Object node : (List<Object>) nodes) {
+				if (node instanceof Map && ((Map<String, Object>) node).get(TASK_ID) != null) {
+					Map<String, Object> nodeMap = (Map<String, Object>) node;
+					processLocation.taskNodes.put(nodeMap.get(TASK_ID).toString(), nodeMap);
+				}
+			}
+		}
+		return processLocation;
+	}
+
+	/**
+	 * 按流程实例当前的任务和令牌更新位置
+	 * 
+	 * @param processInstance
+	 *            流程实例
+	 * @param changedTaskIds
+	 *            位置有变化的任务编号
+	 */
+	public void update(ProcessInstanceEntity processInstance, Set<String> changedTaskIds) {
+		Map<String, Object> resultMap = new HashMap<String, Object>();
+		resultMap.put(PROCESS_STATUS, processInstance.getInstanceStatus());
+		if (processInstance.isEnd()) {
+			taskNodes.clear();
+			location = resultMap;
+			return;
+		}
+
+		List<Map<String, Object>> nodes = new ArrayList<Map<String, Object>>();
+		resultMap.put(NODES, nodes);
+		Map<String, Map<String, Object>> currentTaskNodes = new LinkedHashMap<String, Map<String, Object>>();
+		Set<String> taskNodeIds = new HashSet<String>();
+		for (TaskEntity task : processInstance.getTasks()) {
+			if (task.hasEnded()) {
+				continue;
+			}
+			Map<String, Object> nodeMap = taskNodes.get(task.getId());
+			if (nodeMap == null || changedTaskIds.contains(task.getId())) {
+				nodeMap = createTaskNode(task);
+			}
+			currentTaskNodes.put(task.getId(), nodeMap);
+			taskNodeIds.add(task.getNodeId());
+			nodes.add(nodeMap);
+		}
+
+		// 存在未结束的子令牌时，不计算主令牌的位置
+		List<KernelTokenImpl> tokens = processInstance.getTokens();
+		boolean isRootTokenEnable = true;
+		for (KernelTokenImpl token : tokens) {
+			if (!token.isRoot() && !token.isEnded()) {
+				isRootTokenEnable = false;
+				break;
+			}
+		}
+		for (KernelTokenImpl token : tokens) {
+			if (token.isEnded() || (token.isRoot() && !isRootTokenEnable)) {
+				continue;
+			}
+			KernelFlowNode node = token.getFlowNode();
+			if (node == null || taskNodeIds.contains(node.getId())) {
+				continue;
+			}
+			Map<String, Object> tokenNodeMap = new HashMap<String, Object>();
+			tokenNodeMap.put(NODE_ID, node.getId());
+			tokenNodeMap.put(NODE_NAME, node.getName());
+			nodes.add(tokenNodeMap);
+		}
+		taskNodes = currentTaskNodes;
+		location = resultMap;
+	}
+
+	private Map<String, Object> createTaskNode(TaskEntity task) {
+		Map<String, Object> nodeMap = new HashMap<String, Object>();
+		nodeMap.put(TASK_ID, task.getId());
+		nodeMap.put(NODE_ID, task.getNodeId());
+		nodeMap.put(NODE_NAME, task.getNodeName());
+
+		List<Map<String, Object>> users = new ArrayList<Map<String, Object>>();
+		nodeMap.put(USERS, users);
+		String assignee = task.getAssignee();
+		if (StringUtil.isNotEmpty(assignee)) {
+			UserEntity user = Authentication.selectUserByUserId(assignee);
+			if (user == null) {
+				users.add(createUser(assignee, "未知用户：" + assignee));
+			} else {
+				users.add(createUser(user.getUserId(), user.getUserName()));
+			}
+			return nodeMap;
+		}
+
+		Map<String, List<GroupEntity>> groups = new HashMap<String, List<GroupEntity>>();
+		nodeMap.put(GROUPS, groups);
+		for (IdentityLinkEntity identityLink : task.getIdentityLinks()) {
+			String userId = identityLink.getUserId();
+			if (userId == null) {
+				String groupTypeId = identityLink.getGroupType();
+				GroupEntity group = Authentication.findGroupById(identityLink.getGroupId(), groupTypeId);
+				if (group == null) {
+					continue;
+				}
+				List<GroupEntity> groupTos = groups.get(groupTypeId);
+				if (groupTos == null) {
+					groupTos = new ArrayList<GroupEntity>();
+					groups.put(groupTypeId, groupTos);
+				}
+				groupTos.add(group);
+			} else {
+				UserEntity user;
+				if (userId.equals(Constant.FOXBPM_ALL_USER)) {
+					user = new UserEntity(Constant.FOXBPM_ALL_USER, "所有人");
+				} else {
+					user = Authentication.selectUserByUserId(userId);
+				}
+				if (user != null) {
+					users.add(createUser(user.getUserId(), user.getUserName()));
+				}
+			}
+		}
+		return nodeMap;
+	}
+
+	private Map<String, Object> createUser(String userId, String userName) {
+		Map<String, Object> user = new HashMap<String, Object>();
+		user.put("userId", userId);
+		user.put("userName", userName);
+		return user;
+	}
+
+	/**
+	 * @return PROCESSLOCATION字段值
+	 */
+	public String toJson() {
+		try {
+			return LocationUtil.getObjectMapper().writeValueAsString(location);
+		} catch (Exception e) {
+			throw ExceptionUtil.getException("10806001", e, String.valueOf(location));
+		}
+	}
+
+	public Map<String, Object> getLocation() {
+		return location;
+	}
+}
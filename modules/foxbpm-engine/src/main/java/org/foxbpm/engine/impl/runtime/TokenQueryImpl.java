@@ -22,6 +22,7 @@ import java.util.List;
 import org.foxbpm.engine.impl.interceptor.CommandContext;
 import org.foxbpm.engine.impl.interceptor.CommandExecutor;
 import org.foxbpm.engine.impl.query.AbstractQuery;
+import org.foxbpm.engine.query.QueryCursor;
 import org.foxbpm.engine.runtime.Token;
 import org.foxbpm.engine.runtime.TokenQuery;
 
@@ -81,6 +82,10 @@ public class TokenQueryImpl extends AbstractQuery<TokenQuery, Token> implements
 		return (List) commandContext.getTokenManager().findTokenByQueryCriteria(this);
 	}
 
+	public List<Token> listAfter(QueryCursor cursor, int pageSize) {
+		return listAfter(cursor, pageSize, TokenQueryProperty.START_TIME, TokenQueryProperty.ID);
+	}
+
 	public TokenQuery orderByProcessInstanceId() {
 		return orderBy(TokenQueryProperty.PROCESSINSTANCE_ID);
 	}
@@ -103,7 +108,10 @@ public class TokenQueryImpl extends AbstractQuery<TokenQuery, Token> implements
 	
 	@Override
 	public String getOrderBy() {
-		// TODO Auto-generated method stub
+		// 游标分页时使用(START_TIME, ID)排序
+		if (afterCursor != null) {
+			return super.getOrderBy();
+		}
 		return "RES.ID";
 	}
 }
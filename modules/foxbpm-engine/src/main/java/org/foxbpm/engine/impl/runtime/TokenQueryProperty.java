@@ -28,6 +28,8 @@ public class TokenQueryProperty implements QueryProperty {
 
 	public static final TokenQueryProperty PROCESSINSTANCE_ID = new TokenQueryProperty("PROCESSINSTANCE_ID");
 	public static final TokenQueryProperty TOKEN_ID = new TokenQueryProperty("TOKEN_ID");
+	public static final TokenQueryProperty ID = new TokenQueryProperty("RES.ID");
+	public static final TokenQueryProperty START_TIME = new TokenQueryProperty("RES.START_TIME");
 
 	private String name;
 
@@ -53,6 +53,23 @@ public class FoxbpmJobExecutionContext {
 	public final static String CONNECTOR_INSTANCE_NAME = "connectorInstanceName";
 	public final static String EVENT_TYPE = "eventType";
 	public final static String TASK_ID = "taskId";
+	public final static String JOB_TYPE = "jobType";
+	public final static String SEQUENCE_FLOW_ID = "sequenceFlowId";
+	public final static String LOOP_ITEM = "loopItem";
+	/**
+	 * 多实例任务组号，令牌的groupID不保存到数据库，随异步多实例任务传递
+	 */
+	public final static String GROUP_ID = "groupId";
+	/**
+	 * 异步任务已重试次数、最后一次失败信息和时间
+	 */
+	public final static String RETRIES = "retries";
+	public final static String EXCEPTION_MESSAGE = "exceptionMessage";
+	public final static String FAILED_TIME = "failedTime";
+	/**
+	 * 乐观锁冲突后的重试次数，不计入RETRIES
+	 */
+	public final static String CONFLICTS = "conflicts";
 
 	private String tokenId;
 	private String processInstanceId;
@@ -68,12 +85,17 @@ public class FoxbpmJobExecutionContext {
 	private String eventType;
 	private String eventName;
 	private String taskId;
+	private String sequenceFlowId;
+	private Object loopItem;
+	private String groupId;
 	private Job scheduleJob;
+	private JobDataMap jobDataMap;
 
 	public FoxbpmJobExecutionContext(JobExecutionContext jobExecutionContext) {
 		JobDataMap jobDataMap = jobExecutionContext.getJobDetail()
 				.getJobDataMap();
 		scheduleJob = jobExecutionContext.getJobInstance();
+		this.jobDataMap = jobDataMap;
 		this.tokenId = jobDataMap.getString(TOKEN_ID);
 		this.processInstanceId = jobDataMap.getString(PROCESS_INSTANCE_ID);
 		this.nodeId = jobDataMap.getString(NODE_ID);
@@ -81,7 +103,7 @@ public class FoxbpmJobExecutionContext {
 		this.processId = jobDataMap.getString(PROCESS_DEFINITION_ID);
 		this.processName = jobDataMap.getString(PROCESS_DEFINITION_NAME);
 		this.bizKey = jobDataMap.getString(BUSINESS_KEY);
-		this.jobType = jobDataMap.getString("jobType");
+		this.jobType = jobDataMap.getString(JOB_TYPE);
 		this.connectorId = jobDataMap.getString(CONNECTOR_ID);
 		this.connectorInstanceId = jobDataMap.getString(CONNECTOR_INSTANCE_ID);
 		this.connectorInstanceName = jobDataMap
@@ -89,6 +111,9 @@ public class FoxbpmJobExecutionContext {
 		this.eventType = jobDataMap.getString(EVENT_TYPE);
 		this.eventName = jobDataMap.getString(EVENT_NAME);
 		this.taskId = jobDataMap.getString(TASK_ID);
+		this.sequenceFlowId = jobDataMap.getString(SEQUENCE_FLOW_ID);
+		this.loopItem = jobDataMap.get(LOOP_ITEM);
+		this.groupId = jobDataMap.getString(GROUP_ID);
 
 	}
 
@@ -211,4 +236,39 @@ public class FoxbpmJobExecutionContext {
 	public void setTaskId(String taskId) {
 		this.taskId = taskId;
 	}
+
+	public String getSequenceFlowId() {
+		return sequenceFlowId;
+	}
+
+	public void setSequenceFlowId(String sequenceFlowId) {
+		this.sequenceFlowId = sequenceFlowId;
+	}
+
+	public Object getLoopItem() {
+		return loopItem;
+	}
+
+	public void setLoopItem(Object loopItem) {
+		this.loopItem = loopItem;
+	}
+
+	public String getGroupId() {
+		return groupId;
+	}
+
+	public void setGroupId(String groupId) {
+		this.groupId = groupId;
+	}
+
+	/**
+	 * 获取任务数据，用于插件任务自定义的参数
+	 * 
+	 * @param key
+	 *            参数名
+	 * @return
+	 */
+	public Object getJobData(String key) {
+		return jobDataMap.get(key);
+	}
 }
@@ -205,8 +205,7 @@ public class FoxbpmScheduler implements Scheduler {
 	
 	 
 	public void addJob(JobDetail jobDetail, boolean replace) throws SchedulerException {
-		// TODO Auto-generated method stub
-		
+		scheduler.addJob(jobDetail, replace);
 	}
 	
 	 
@@ -348,8 +347,7 @@ public class FoxbpmScheduler implements Scheduler {
 	
 	 
 	public JobDetail getJobDetail(JobKey jobKey) throws SchedulerException {
-		// TODO Auto-generated method stub
-		return null;
+		return scheduler.getJobDetail(jobKey);
 	}
 	
 	 
@@ -0,0 +1,346 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.impl.schedule.quartz;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Random;
+
+import org.foxbpm.engine.ProcessEngineManagement;
+import org.foxbpm.engine.exception.FoxBPMOptimisticLockingException;
+import org.foxbpm.engine.impl.ProcessEngineConfigurationImpl;
+import org.foxbpm.engine.impl.RuntimeServiceImpl;
+import org.foxbpm.engine.impl.schedule.FoxbpmJobDetail;
+import org.foxbpm.engine.impl.schedule.FoxbpmJobExecutionContext;
+import org.foxbpm.engine.impl.schedule.FoxbpmScheduleJob;
+import org.foxbpm.engine.impl.util.ClockUtil;
+import org.foxbpm.engine.impl.util.GuidUtil;
+import org.foxbpm.engine.impl.util.QuartzUtil;
+import org.foxbpm.engine.impl.util.StringUtil;
+import org.foxbpm.kernel.runtime.FlowNodeExecutionContext;
+import org.foxbpm.kernel.runtime.ListenerExecutionContext;
+import org.foxbpm.model.Connector;
+import org.quartz.JobBuilder;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 异步执行JOB，执行异步节点、异步连接器、异步并行网关分支、异步汇聚和异步并行多实例。
+ * <p>
+ * 命令执行成功后由CommandContext统一调度，调度线程在新的命令中继续执行。执行失败时按
+ * asyncJobRetryWaitTime指数退避重新调度，超过asyncJobRetries次后转入失败组(DEAD_LETTER_GROUP_NAME)，
+ * 不再自动执行，通过ScheduleService查询和重新执行。
+ * <p>
+ * 乐观锁冲突(如并行分支同时到达汇聚网关)不是执行错误，重新加载数据后就能成功：
+ * 不计入重试次数，随机等待很短的时间后立即重试，避免冲突的任务同时重试再次冲突。
+ * 连续冲突超过MAX_CONFLICT_RETRIES次后才按普通失败处理。
+ *
+ * @author ych
+ */
+public class AsyncContinuationJob extends AbstractQuartzScheduleJob {
+	
+	private static Logger LOG = LoggerFactory.getLogger(AsyncContinuationJob.class);
+	
+	/**
+	 * 待执行的异步任务组名
+	 */
+	public final static String GROUP_NAME = "FOXBPM_ASYNC";
+	
+	/**
+	 * 执行失败且重试次数用完的异步任务组名
+	 */
+	public final static String DEAD_LETTER_GROUP_NAME = "FOXBPM_ASYNC_DEADLETTER";
+	
+	public final static String JOB_TYPE_ACTIVITY = "asyncActivity";
+	
+	public final static String JOB_TYPE_CONNECTOR = "asyncConnector";
+	
+	public final static String JOB_TYPE_FORK = "asyncFork";
+	
+	public final static String JOB_TYPE_LOOP = "asyncLoop";
+	
+	/**
+	 * 重试等待时间上限，防止指数退避溢出
+	 */
+	private final static long MAX_RETRY_WAIT_TIME = 24L * 60 * 60 * 1000;
+	
+	/**
+	 * 乐观锁冲突最多重试次数
+	 */
+	public final static int MAX_CONFLICT_RETRIES = 50;
+	
+	/**
+	 * 乐观锁冲突重试的随机等待时间上限(毫秒)，随冲突次数增长，最多MAX_CONFLICT_WAIT_TIME
+	 */
+	private final static long CONFLICT_WAIT_TIME = 50;
+	
+	private final static long MAX_CONFLICT_WAIT_TIME = 2000;
+	
+	private final static Random RANDOM = new Random();
+	
+	/**
+	 * quartz系统创建
+	 */
+	public AsyncContinuationJob() {
+	}
+	
+	public AsyncContinuationJob(String name, String groupName) {
+		super(name, groupName);
+	}
+	
+	/**
+	 * 创建异步节点任务，令牌已进入节点，任务执行时继续执行节点；异步汇聚的网关也用此任务，任务执行时合并分支
+	 * 
+	 * @param executionContext
+	 *            令牌
+	 * @return
+	 */
+	public static FoxbpmJobDetail<FoxbpmScheduleJob> createActivityJob(FlowNodeExecutionContext executionContext) {
+		FoxbpmJobDetail<FoxbpmScheduleJob> jobDetail = createJobDetail(JOB_TYPE_ACTIVITY, executionContext.getProcessInstanceId(), executionContext.getId());
+		jobDetail.putContextAttribute(FoxbpmJobExecutionContext.NODE_ID, executionContext.getFlowNode().getId());
+		return jobDetail;
+	}
+	
+	/**
+	 * 创建异步连接器任务
+	 * 
+	 * @param executionContext
+	 *            触发连接器的令牌
+	 * @param connector
+	 *            连接器
+	 * @return
+	 */
+	public static FoxbpmJobDetail<FoxbpmScheduleJob> createConnectorJob(ListenerExecutionContext executionContext, Connector connector) {
+		FoxbpmJobDetail<FoxbpmScheduleJob> jobDetail = createJobDetail(JOB_TYPE_CONNECTOR, executionContext.getProcessInstanceId(), executionContext.getId());
+		jobDetail.putContextAttribute(FoxbpmJobExecutionContext.NODE_ID, executionContext.getEventSource().getId());
+		jobDetail.putContextAttribute(FoxbpmJobExecutionContext.CONNECTOR_ID, connector.getConnectorInstanceId());
+		jobDetail.putContextAttribute(FoxbpmJobExecutionContext.CONNECTOR_INSTANCE_NAME, connector.getConnectorInstanceName());
+		jobDetail.putContextAttribute(FoxbpmJobExecutionContext.EVENT_NAME, connector.getEventType());
+		return jobDetail;
+	}
+	
+	/**
+	 * 创建异步并行网关分支任务，任务执行时分支令牌沿线条离开网关
+	 * 
+	 * @param childToken
+	 *            停在网关上的分支令牌
+	 * @param sequenceFlowId
+	 *            分支线条
+	 * @return
+	 */
+	public static FoxbpmJobDetail<FoxbpmScheduleJob> createForkJob(FlowNodeExecutionContext childToken, String sequenceFlowId) {
+		FoxbpmJobDetail<FoxbpmScheduleJob> jobDetail = createJobDetail(JOB_TYPE_FORK, childToken.getProcessInstanceId(), childToken.getId());
+		jobDetail.putContextAttribute(FoxbpmJobExecutionContext.NODE_ID, childToken.getFlowNode().getId());
+		jobDetail.putContextAttribute(FoxbpmJobExecutionContext.SEQUENCE_FLOW_ID, sequenceFlowId);
+		return jobDetail;
+	}
+	
+	/**
+	 * 创建异步并行多实例任务，每个输入项一个任务
+	 * 
+	 * @param executionContext
+	 *            多实例节点上的令牌
+	 * @param groupId
+	 *            多实例任务组号
+	 * @param loopItem
+	 *            输入项
+	 * @return
+	 */
+	public static FoxbpmJobDetail<FoxbpmScheduleJob> createLoopJob(FlowNodeExecutionContext executionContext, String groupId, Serializable loopItem) {
+		FoxbpmJobDetail<FoxbpmScheduleJob> jobDetail = createJobDetail(JOB_TYPE_LOOP, executionContext.getProcessInstanceId(), executionContext.getId());
+		jobDetail.putContextAttribute(FoxbpmJobExecutionContext.NODE_ID, executionContext.getFlowNode().getId());
+		jobDetail.putContextAttribute(FoxbpmJobExecutionContext.GROUP_ID, groupId);
+		jobDetail.putContextAttribute(FoxbpmJobExecutionContext.LOOP_ITEM, loopItem);
+		return jobDetail;
+	}
+	
+	private static FoxbpmJobDetail<FoxbpmScheduleJob> createJobDetail(String jobType, String processInstanceId, String tokenId) {
+		FoxbpmJobDetail<FoxbpmScheduleJob> jobDetail = new FoxbpmJobDetail<FoxbpmScheduleJob>(new AsyncContinuationJob(GuidUtil.CreateGuid(), GROUP_NAME));
+		jobDetail.putContextAttribute(FoxbpmJobExecutionContext.JOB_TYPE, jobType);
+		jobDetail.putContextAttribute(FoxbpmJobExecutionContext.PROCESS_INSTANCE_ID, processInstanceId);
+		jobDetail.putContextAttribute(FoxbpmJobExecutionContext.TOKEN_ID, tokenId);
+		jobDetail.putContextAttribute(FoxbpmJobExecutionContext.RETRIES, "0");
+		jobDetail.getTriggerList().add(QuartzUtil.createSimpleTrigger(GROUP_NAME, ClockUtil.getCurrentTime()));
+		return jobDetail;
+	}
+	
+	/**
+	 * 根据已有的任务数据创建新的任务，用于失败重试和转入失败组
+	 * 
+	 * @param name
+	 *            任务名
+	 * @param groupName
+	 *            组名
+	 * @param jobDataMap
+	 *            任务数据
+	 * @param durable
+	 *            没有触发器时是否保留
+	 * @return
+	 */
+	public static JobDetail newJobDetail(String name, String groupName, JobDataMap jobDataMap, boolean durable) {
+		return JobBuilder.newJob(AsyncContinuationJob.class).withIdentity(name, groupName).usingJobData(jobDataMap).storeDurably(durable).build();
+	}
+	
+	/**
+	 * 第retries次重试前的等待时间，每次翻倍
+	 * 
+	 * @param retryWaitTime
+	 *            第一次重试的等待时间(毫秒)
+	 * @param retries
+	 *            重试次数，从1开始
+	 * @return
+	 */
+	public static long getRetryWaitTime(long retryWaitTime, int retries) {
+		long waitTime = retryWaitTime;
+		for (int i = 1; i < retries && waitTime < MAX_RETRY_WAIT_TIME; i++) {
+			waitTime = waitTime * 2;
+		}
+		return Math.min(waitTime, MAX_RETRY_WAIT_TIME);
+	}
+	
+	/**
+	 * 乐观锁冲突后的随机等待时间，在0到上限之间均匀分布，上限随冲突次数线性增长
+	 * 
+	 * @param conflicts
+	 *            冲突次数，从1开始
+	 * @param random
+	 *            随机数
+	 * @return
+	 */
+	public static long getConflictWaitTime(int conflicts, Random random) {
+		long maxWaitTime = Math.min(CONFLICT_WAIT_TIME * conflicts, MAX_CONFLICT_WAIT_TIME);
+		return (long) (random.nextDouble() * maxWaitTime);
+	}
+	
+	/**
+	 * 普通失败的重试等待时间加上最多四分之一的随机时间，同时失败的任务不会同时重试
+	 * 
+	 * @param waitTime
+	 *            getRetryWaitTime计算的等待时间
+	 * @param random
+	 *            随机数
+	 * @return
+	 */
+	public static long addJitter(long waitTime, Random random) {
+		return waitTime + (long) (random.nextDouble() * (waitTime / 4));
+	}
+	
+	/**
+	 * 失败是否按乐观锁冲突立即重试
+	 * 
+	 * @param exception
+	 *            执行异常
+	 * @param conflicts
+	 *            已经冲突重试的次数
+	 * @return
+	 */
+	public static boolean isConflictRetry(Throwable exception, int conflicts) {
+		return conflicts < MAX_CONFLICT_RETRIES && FoxBPMOptimisticLockingException.isCausedBy(exception);
+	}
+	
+	public void execute(JobExecutionContext context) {
+		FoxbpmJobExecutionContext foxbpmJobExecutionContext = new FoxbpmJobExecutionContext(context);
+		try {
+			this.executeJob(foxbpmJobExecutionContext);
+			LOG.debug("异步任务{}执行成功", context.getJobDetail().getKey());
+		} catch (Exception e) {
+			if (FoxBPMOptimisticLockingException.isCausedBy(e)) {
+				LOG.debug("异步任务{}乐观锁冲突：{}", context.getJobDetail().getKey(), e.getMessage());
+			} else {
+				LOG.warn("异步任务" + context.getJobDetail().getKey() + "执行失败", e);
+			}
+			handleFailure(context, e);
+		}
+	}
+	
+	public void executeJob(FoxbpmJobExecutionContext foxpmJobExecutionContext) throws JobExecutionException {
+		String processInstanceId = foxpmJobExecutionContext.getProcessInstanceId();
+		String tokenId = foxpmJobExecutionContext.getTokenId();
+		String nodeId = foxpmJobExecutionContext.getNodeId();
+		RuntimeServiceImpl runtimeService = (RuntimeServiceImpl) ProcessEngineManagement.getDefaultProcessEngine().getRuntimeService();
+		if (StringUtil.equals(foxpmJobExecutionContext.getJobType(), JOB_TYPE_CONNECTOR)) {
+			LOG.debug("异步执行连接器,执行参数为= 流程实例ID:{} 连接器ID:{} 令牌ID:{} 节点ID:{}", processInstanceId, foxpmJobExecutionContext.getConnectorId(), tokenId, nodeId);
+			runtimeService.autoExecuteConnector(processInstanceId, foxpmJobExecutionContext.getConnectorId(), foxpmJobExecutionContext.getEventName(), tokenId, nodeId);
+		} else if (StringUtil.equals(foxpmJobExecutionContext.getJobType(), JOB_TYPE_FORK)) {
+			LOG.debug("异步执行并行分支,执行参数为= 流程实例ID:{} 令牌ID:{} 节点ID:{} 线条ID:{}", processInstanceId, tokenId, nodeId, foxpmJobExecutionContext.getSequenceFlowId());
+			runtimeService.executeAsyncFork(tokenId, nodeId, foxpmJobExecutionContext.getSequenceFlowId());
+		} else if (StringUtil.equals(foxpmJobExecutionContext.getJobType(), JOB_TYPE_LOOP)) {
+			LOG.debug("异步执行多实例,执行参数为= 流程实例ID:{} 令牌ID:{} 节点ID:{}", processInstanceId, tokenId, nodeId);
+			runtimeService.executeAsyncLoop(tokenId, nodeId, foxpmJobExecutionContext.getGroupId(), foxpmJobExecutionContext.getLoopItem());
+		} else {
+			LOG.debug("异步执行节点,执行参数为= 流程实例ID:{} 令牌ID:{} 节点ID:{}", processInstanceId, tokenId, nodeId);
+			runtimeService.executeAsyncContinuation(tokenId, nodeId);
+		}
+	}
+	
+	/**
+	 * 执行失败，乐观锁冲突时随机等待后立即重试；其他失败在重试次数未用完时延迟重新调度，否则转入失败组
+	 */
+	protected void handleFailure(JobExecutionContext context, Exception exception) {
+		JobDetail jobDetail = context.getJobDetail();
+		JobDataMap jobDataMap = new JobDataMap(jobDetail.getJobDataMap());
+		Scheduler scheduler = context.getScheduler();
+		int conflicts = StringUtil.getInt(jobDataMap.getString(FoxbpmJobExecutionContext.CONFLICTS));
+		if (isConflictRetry(exception, conflicts)) {
+			conflicts++;
+			jobDataMap.put(FoxbpmJobExecutionContext.CONFLICTS, String.valueOf(conflicts));
+			Date startTime = new Date(ClockUtil.getCurrentTime().getTime() + getConflictWaitTime(conflicts, RANDOM));
+			try {
+				scheduler.scheduleJob(newJobDetail(GuidUtil.CreateGuid(), GROUP_NAME, jobDataMap, false), QuartzUtil.createSimpleTrigger(GROUP_NAME, startTime));
+				LOG.debug("异步任务{}第{}次乐观锁冲突后重试,重试时间:{}", jobDetail.getKey(), conflicts, startTime);
+			} catch (SchedulerException e) {
+				LOG.error("异步任务" + jobDetail.getKey() + "冲突后重新调度出错", e);
+			}
+			return;
+		}
+		int retries = StringUtil.getInt(jobDataMap.getString(FoxbpmJobExecutionContext.RETRIES)) + 1;
+		jobDataMap.put(FoxbpmJobExecutionContext.RETRIES, String.valueOf(retries));
+		jobDataMap.put(FoxbpmJobExecutionContext.EXCEPTION_MESSAGE, getExceptionMessage(exception));
+		jobDataMap.put(FoxbpmJobExecutionContext.FAILED_TIME, ClockUtil.getCurrentTime());
+		
+		ProcessEngineConfigurationImpl processEngineConfiguration = ProcessEngineManagement.getDefaultProcessEngine().getProcessEngineConfiguration();
+		try {
+			if (retries <= processEngineConfiguration.getAsyncJobRetries()) {
+				long waitTime = addJitter(getRetryWaitTime(processEngineConfiguration.getAsyncJobRetryWaitTime(), retries), RANDOM);
+				Date startTime = new Date(ClockUtil.getCurrentTime().getTime() + waitTime);
+				scheduler.scheduleJob(newJobDetail(GuidUtil.CreateGuid(), GROUP_NAME, jobDataMap, false), QuartzUtil.createSimpleTrigger(GROUP_NAME, startTime));
+				LOG.debug("异步任务{}第{}次重试,重试时间:{}", jobDetail.getKey(), retries, startTime);
+			} else {
+				scheduler.addJob(newJobDetail(jobDetail.getKey().getName(), DEAD_LETTER_GROUP_NAME, jobDataMap, true), true);
+				LOG.error("异步任务{}重试{}次后仍然失败，转入失败组", jobDetail.getKey(), retries - 1);
+			}
+		} catch (SchedulerException e) {
+			LOG.error("异步任务" + jobDetail.getKey() + "失败后重新调度出错", e);
+		}
+	}
+	
+	private String getExceptionMessage(Exception exception) {
+		Throwable cause = exception;
+		while (cause.getCause() != null && cause.getMessage() == null) {
+			cause = cause.getCause();
+		}
+		String message = cause.getClass().getName() + ": " + cause.getMessage();
+		return message.length() > 2000 ? message.substring(0, 2000) : message;
+	}
+}
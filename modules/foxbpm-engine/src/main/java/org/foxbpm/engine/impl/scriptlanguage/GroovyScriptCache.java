@@ -0,0 +1,150 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.impl.scriptlanguage;
+
+import groovy.lang.Binding;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovyCodeSource;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.foxbpm.engine.cache.Cache;
+import org.foxbpm.engine.cache.CacheStatistics;
+import org.foxbpm.engine.impl.cache.ConcurrentCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 已编译groovy脚本类的缓存，key为替换${}后的脚本文本。
+ * <p>
+ * 缓存的是Script类而不是实例，每次执行都会创建新的Script实例并绑定调用方传入的Binding，
+ * 因此同一个脚本类可以被多个线程同时执行。每个脚本类使用独立的GroovyClassLoader，
+ * 被缓存淘汰后可以随类加载器一起卸载。
+ *
+ * @author ych
+ */
+public class GroovyScriptCache {
+
+	private static final Logger log = LoggerFactory.getLogger(GroovyScriptCache.class);
+
+	/** 未配置script缓存时的默认容量 */
+	public static final int DEFAULT_LIMIT = 1000;
+
+	protected Cache<Class<?>> scriptClassCache;
+
+	private final AtomicLong scriptNameCounter = new AtomicLong();
+	private final AtomicLong compileCount = new AtomicLong();
+	private final AtomicLong compileTime = new AtomicLong();
+
+	public GroovyScriptCache() {
+		this(new ConcurrentCache<Class<?>>(DEFAULT_LIMIT));
+	}
+
+	public GroovyScriptCache(Cache<Class<?>> scriptClassCache) {
+		this.scriptClassCache = scriptClassCache;
+	}
+
+	/**
+	 * 执行脚本，脚本类从缓存中获取，未命中时编译后放入缓存
+	 *
+	 * @param scriptText
+	 *            替换${}后的脚本文本
+	 * @param binding
+	 *            本次执行使用的变量绑定
+	 * @return 脚本执行结果
+	 */
+	public Object evaluate(String scriptText, Binding binding) {
+		return InvokerHelper.createScript(getScriptClass(scriptText), binding).run();
+	}
+
+	/**
+	 * 预编译脚本，已在缓存中时不做处理
+	 *
+	 * @param scriptText
+	 *            替换${}后的脚本文本
+	 */
+	public void compile(String scriptText) {
+		getScriptClass(scriptText);
+	}
+
+	public Class<?> getScriptClass(String scriptText) {
+		Class<?> scriptClass = scriptClassCache.get(scriptText);
+		if (scriptClass == null) {
+			// 并发情况下同一脚本可能被编译多次，结果等价，后放入的覆盖先放入的
+			scriptClass = parseClass(scriptText);
+			scriptClassCache.add(scriptText, scriptClass);
+		}
+		return scriptClass;
+	}
+
+	protected Class<?> parseClass(String scriptText) {
+		long start = System.nanoTime();
+		ClassLoader parent = Thread.currentThread().getContextClassLoader();
+		if (parent == null) {
+			parent = GroovyScriptCache.class.getClassLoader();
+		}
+		GroovyClassLoader classLoader = new GroovyClassLoader(parent);
+		GroovyCodeSource codeSource = new GroovyCodeSource(scriptText, "Script" + scriptNameCounter.incrementAndGet() + ".groovy", "/groovy/shell");
+		codeSource.setCachable(false);
+		Class<?> scriptClass = classLoader.parseClass(codeSource, false);
+		long time = System.nanoTime() - start;
+		compileCount.incrementAndGet();
+		compileTime.addAndGet(time);
+		if (log.isDebugEnabled()) {
+			log.debug("编译groovy脚本耗时{}微秒：{}", time / 1000, scriptText);
+		}
+		return scriptClass;
+	}
+
+	public void clear() {
+		scriptClassCache.clear();
+	}
+
+	public long getHitCount() {
+		if (scriptClassCache instanceof CacheStatistics) {
+			return ((CacheStatistics) scriptClassCache).getHitCount();
+		}
+		return -1;
+	}
+
+	public long getMissCount() {
+		if (scriptClassCache instanceof CacheStatistics) {
+			return ((CacheStatistics) scriptClassCache).getMissCount();
+		}
+		return -1;
+	}
+
+	/**
+	 * @return 脚本编译次数
+	 */
+	public long getCompileCount() {
+		return compileCount.get();
+	}
+
+	/**
+	 * @return 脚本编译累计耗时(毫秒)
+	 */
+	public long getCompileTime() {
+		return compileTime.get() / 1000000;
+	}
+
+	public Cache<Class<?>> getScriptClassCache() {
+		return scriptClassCache;
+	}
+}
@@ -18,13 +18,15 @@
  */
 package org.foxbpm.engine.impl.scriptlanguage;
 
-import groovy.lang.GroovyShell;
+import groovy.lang.Binding;
 
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
 import org.foxbpm.engine.impl.entity.ProcessDefinitionEntity;
 import org.foxbpm.engine.impl.expression.ExpressionMgmt;
+import org.foxbpm.engine.impl.expression.ParsedExpression;
 import org.foxbpm.engine.impl.util.StringUtil;
 import org.foxbpm.engine.scriptlanguage.AbstractScriptLanguageMgmt;
 import org.foxbpm.kernel.runtime.FlowNodeExecutionContext;
@@ -32,15 +34,28 @@ import org.foxbpm.model.DataVariableDefinition;
 
 public class GroovyScriptLanguageMgmtImpl extends AbstractScriptLanguageMgmt {
 
-	private GroovyShell groovyShell;
+	private Binding binding;
+
+	private GroovyScriptCache scriptCache;
+
+	public GroovyScriptLanguageMgmtImpl() {
+
+	}
+
+	public GroovyScriptLanguageMgmtImpl(GroovyScriptCache scriptCache) {
+		this.scriptCache = scriptCache;
+	}
 
 	public AbstractScriptLanguageMgmt init() {
-		groovyShell = new GroovyShell();
+		binding = new Binding();
+		if (scriptCache == null) {
+			scriptCache = new GroovyScriptCache();
+		}
 		return this;
 	}
 
 	public void close() {
-		groovyShell = null;
+		binding = null;
 	}
 
 	public Object execute(String scriptText, ProcessDefinitionEntity processDefinition) {
@@ -61,40 +76,75 @@ public class GroovyScriptLanguageMgmtImpl extends AbstractScriptLanguageMgmt {
 			}
 		}
 		String scriptTextTemp = getExpressionAll(scriptText);
-		return groovyShell.evaluate(scriptTextTemp);
+		return evaluate(scriptTextTemp, new ScriptBinding(binding));
 	}
 
 	public void setVariable(String variableName, Object variableObj) {
-		groovyShell.setVariable(variableName, variableObj);
+		binding.setVariable(variableName, variableObj);
 	}
 
 	public void setVariable(String variableName, Object variableObj, FlowNodeExecutionContext executionContext) {
 		dataVariableCalculate(variableName, executionContext);
 		String scriptText = getExpressionAll(variableName);
-		groovyShell.setVariable(scriptText, variableObj);
+		binding.setVariable(scriptText, variableObj);
 	}
 
 	public Object getVariable(String variableName) {
-		return groovyShell.getVariable(variableName);
+		return binding.getVariable(variableName);
 	}
 
 	public Object execute(String scriptText, FlowNodeExecutionContext executionContext) {
+		return execute(scriptText, executionContext, null);
+	}
+
+	public Object execute(String scriptText, FlowNodeExecutionContext executionContext, Map<String, Object> localVariables) {
 		if (scriptText == null) {
 			return null;
 		}
+		return execute(parseExpression(scriptText), executionContext, localVariables);
+	}
+
+	public Object execute(ParsedExpression parsedExpression, FlowNodeExecutionContext executionContext) {
+		return execute(parsedExpression, executionContext, null);
+	}
+
+	protected Object execute(ParsedExpression parsedExpression, FlowNodeExecutionContext executionContext, Map<String, Object> localVariables) {
 		Object resultObj = false;
-		// 绑定变量
+		ScriptBinding scriptBinding = new ScriptBinding(binding);
+		// 绑定变量，processInfo只在本次执行中可见
 		if (executionContext != null) {
-			dataVariableCalculate(scriptText, executionContext);
-			groovyShell.setVariable("processInfo", executionContext);
+			dataVariableCalculate(parsedExpression, executionContext);
+			scriptBinding.setLocalVariable("processInfo", executionContext);
 		}
-		String scriptTextTemp = getExpressionAll(scriptText);
-		resultObj = groovyShell.evaluate(scriptTextTemp);
+		if (localVariables != null) {
+			for (Map.Entry<String, Object> entry : localVariables.entrySet()) {
+				scriptBinding.setLocalVariable(entry.getKey(), entry.getValue());
+			}
+		}
+		resultObj = evaluate(parsedExpression.getScriptText(), scriptBinding);
 		return resultObj;
 	}
 
 	public Object execute(String scriptText) {
-		return groovyShell.evaluate(scriptText);
+		return evaluate(scriptText, new ScriptBinding(binding));
+	}
+
+	/**
+	 * 从缓存中取已编译的脚本类，创建新的脚本实例执行。
+	 * 脚本类不持有状态，每次执行使用独立的绑定，同一脚本类可以被多个线程同时执行。
+	 * 
+	 * @param scriptText
+	 *            替换${}后的脚本文本
+	 * @param scriptBinding
+	 *            本次执行的变量绑定
+	 * @return
+	 */
+	protected Object evaluate(String scriptText, ScriptBinding scriptBinding) {
+		return scriptCache.evaluate(scriptText, scriptBinding);
+	}
+
+	public GroovyScriptCache getScriptCache() {
+		return scriptCache;
 	}
 
 }
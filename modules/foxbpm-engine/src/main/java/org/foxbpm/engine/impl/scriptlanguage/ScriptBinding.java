@@ -0,0 +1,73 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.impl.scriptlanguage;
+
+import groovy.lang.Binding;
+import groovy.lang.MissingPropertyException;
+
+/**
+ * 单次脚本执行使用的变量绑定，叠加在流程变量绑定之上。
+ * <p>
+ * 读取变量时先查本次执行的局部变量，再查流程变量；给已存在的流程变量赋值时写回流程变量，
+ * 其他赋值(包括processInfo等上下文对象)只在本次执行中可见，不会泄漏到其他表达式。
+ * 局部变量表在第一次写入时才创建，每次执行新建实例的开销很小。
+ *
+ * @author ych
+ */
+public class ScriptBinding extends Binding {
+
+	private final Binding parent;
+
+	public ScriptBinding(Binding parent) {
+		this.parent = parent;
+	}
+
+	public Object getVariable(String name) {
+		if (super.hasVariable(name)) {
+			return super.getVariable(name);
+		}
+		if (parent != null && parent.hasVariable(name)) {
+			return parent.getVariable(name);
+		}
+		throw new MissingPropertyException(name, ScriptBinding.class);
+	}
+
+	public void setVariable(String name, Object value) {
+		if (!super.hasVariable(name) && parent != null && parent.hasVariable(name)) {
+			parent.setVariable(name, value);
+		} else {
+			super.setVariable(name, value);
+		}
+	}
+
+	public boolean hasVariable(String name) {
+		return super.hasVariable(name) || (parent != null && parent.hasVariable(name));
+	}
+
+	/**
+	 * 设置只在本次执行中可见的变量，同名流程变量在本次执行中被遮蔽
+	 *
+	 * @param name
+	 *            变量名称
+	 * @param value
+	 *            变量值
+	 */
+	public void setLocalVariable(String name, Object value) {
+		super.setVariable(name, value);
+	}
+}
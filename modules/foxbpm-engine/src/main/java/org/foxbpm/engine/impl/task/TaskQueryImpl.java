@@ -22,6 +22,8 @@ import java.util.Date;
 import java.util.List;
 
 import org.foxbpm.engine.Constant;
+import org.foxbpm.engine.impl.Context;
+import org.foxbpm.engine.impl.ProcessEngineConfigurationImpl;
 import org.foxbpm.engine.impl.agent.AgentTo;
 import org.foxbpm.engine.impl.entity.GroupEntity;
 import org.foxbpm.engine.impl.entity.UserEntity;
@@ -30,6 +32,7 @@ import org.foxbpm.engine.impl.interceptor.CommandContext;
 import org.foxbpm.engine.impl.interceptor.CommandExecutor;
 import org.foxbpm.engine.impl.query.AbstractQuery;
 import org.foxbpm.engine.impl.util.ExceptionUtil;
+import org.foxbpm.engine.query.QueryCursor;
 import org.foxbpm.engine.task.Task;
 import org.foxbpm.engine.task.TaskQuery;
 
@@ -84,6 +87,8 @@ public class TaskQueryImpl extends AbstractQuery<TaskQuery, Task> implements
 	// 查询代理任务时，用来存放原始任务处理人
 	protected String oldAssigneeId;
 	protected List<String> taskTypeList = new ArrayList<String>();
+	// 候选任务是否使用EXISTS/UNION ALL优化查询，为空时取引擎配置
+	protected Boolean optimizedCandidateQuery;
 
 	public TaskQueryImpl() {
 	}
@@ -155,6 +160,34 @@ public class TaskQueryImpl extends AbstractQuery<TaskQuery, Task> implements
 		return processKeys;
 	}
 
+	/**
+	 * 设置查询候选任务时是否使用优化查询，不设置时使用引擎配置optimizedTaskQuery。
+	 * 两种查询结果一致，关闭后走原来的DISTINCT + LEFT JOIN查询，可用于结果比对。
+	 * 
+	 * @param optimizedCandidateQuery
+	 * @return
+	 */
+	public TaskQueryImpl optimizedCandidateQuery(boolean optimizedCandidateQuery) {
+		this.optimizedCandidateQuery = optimizedCandidateQuery;
+		return this;
+	}
+
+	/**
+	 * 是否使用优化查询，只有指定了候选人时才需要
+	 * 
+	 * @return
+	 */
+	public boolean isOptimizedCandidateQuery() {
+		if (candidateUser == null) {
+			return false;
+		}
+		if (optimizedCandidateQuery != null) {
+			return optimizedCandidateQuery.booleanValue();
+		}
+		ProcessEngineConfigurationImpl processEngineConfiguration = Context.getProcessEngineConfiguration();
+		return processEngineConfiguration == null || processEngineConfiguration.isOptimizedTaskQuery();
+	}
+
 	public TaskQueryImpl isAgent(boolean isAgent) {
 		this.isAgent = isAgent;
 		return this;
@@ -436,6 +469,10 @@ public class TaskQueryImpl extends AbstractQuery<TaskQuery, Task> implements
 		return orderBy(TaskQueryProperty.END_TIME);
 	}
 
+	public List<Task> listAfter(QueryCursor cursor, int pageSize) {
+		return listAfter(cursor, pageSize, TaskQueryProperty.CREATE_TIME, TaskQueryProperty.TASK_ID);
+	}
+
 	// results ////////////////////////////////////////////////////////////////
 
 	@SuppressWarnings({ "rawtypes", "unchecked" })
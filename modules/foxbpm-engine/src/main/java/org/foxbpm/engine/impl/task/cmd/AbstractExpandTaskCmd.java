@@ -125,7 +125,7 @@ public abstract class AbstractExpandTaskCmd<P extends AbstractCustomExpandTaskCo
 		if (transientVariables != null && transientVariables.size() > 0) {
 			task.setProcessInstanceTransientVariables(transientVariables);
 		}
-		// 增加流程更新时间功能，by ych
+		// 增加流程更新时间功能，by ych；只更新时间时不按版本号更新流程实例，并行分支上的任务不会因此冲突
 		task.getProcessInstance().setUpdateTime(ClockUtil.getCurrentTime());
 		return execute(commandContext, task);
 	}
@@ -0,0 +1,121 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.impl.task.cmd;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.foxbpm.engine.impl.Context;
+import org.foxbpm.engine.impl.entity.TaskEntity;
+import org.foxbpm.engine.impl.interceptor.Command;
+import org.foxbpm.engine.impl.interceptor.CommandContext;
+import org.foxbpm.engine.impl.scriptlanguage.GroovyScriptLanguageMgmtImpl;
+import org.foxbpm.engine.impl.task.command.ExpandTaskCommand;
+
+/**
+ * 在同一个命令上下文中依次完成一批任务。
+ * <p>
+ * 执行前一次查询出本批任务放入缓存，同一流程实例的流程实例、令牌和变量只加载一次，所有修改在命令结束时统一刷新。
+ * 任意任务出错时整批不提交，由调用方逐个重新执行得到每个任务的结果。
+ * 每个任务使用单独的脚本管理器，脚本变量不会带到下一个任务。
+ *
+ * @author ych
+ */
+public class CompleteTasksCmd implements Command<List<Object>> {
+
+	protected List<ExpandTaskCommand> expandTaskCommands;
+
+	public CompleteTasksCmd(List<ExpandTaskCommand> expandTaskCommands) {
+		this.expandTaskCommands = expandTaskCommands;
+	}
+
+	public List<Object> execute(CommandContext commandContext) {
+		// 预加载任务，之后按编号查询时直接从缓存读取
+		commandContext.getTaskManager().findTasksByIds(getTaskIds(expandTaskCommands));
+		List<Object> results = new ArrayList<Object>(expandTaskCommands.size());
+		for (ExpandTaskCommand expandTaskCommand : expandTaskCommands) {
+			Context.setAbstractScriptLanguageMgmt(new GroovyScriptLanguageMgmtImpl(Context.getProcessEngineConfiguration().getGroovyScriptCache()).init());
+			try {
+				results.add(new ExpandTaskCompleteCmd<Object>(expandTaskCommand).execute(commandContext));
+			} finally {
+				Context.removeAbstractScriptLanguageMgmt();
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * 按流程实例分组排序，同一流程实例的任务相邻，组之间和组内保持原有顺序。查不到的任务各自单独成组。
+	 * 
+	 * @param expandTaskCommands
+	 *            任务命令
+	 * @param processInstanceIds
+	 *            任务编号到流程实例编号的映射
+	 * @return 排序后的命令在原集合中的下标
+	 */
+	public static List<Integer> groupByProcessInstance(List<ExpandTaskCommand> expandTaskCommands, Map<String, String> processInstanceIds) {
+		Map<String, List<Integer>> groups = new LinkedHashMap<String, List<Integer>>();
+		for (int i = 0; i < expandTaskCommands.size(); i++) {
+			String processInstanceId = processInstanceIds.get(expandTaskCommands.get(i).getTaskId());
+			String key = processInstanceId != null ? processInstanceId : "#" + i;
+			List<Integer> group = groups.get(key);
+			if (group == null) {
+				group = new ArrayList<Integer>();
+				groups.put(key, group);
+			}
+			group.add(Integer.valueOf(i));
+		}
+		List<Integer> order = new ArrayList<Integer>(expandTaskCommands.size());
+		for (List<Integer> group : groups.values()) {
+			order.addAll(group);
+		}
+		return order;
+	}
+
+	public static List<String> getTaskIds(List<ExpandTaskCommand> expandTaskCommands) {
+		List<String> taskIds = new ArrayList<String>(expandTaskCommands.size());
+		for (ExpandTaskCommand expandTaskCommand : expandTaskCommands) {
+			if (expandTaskCommand.getTaskId() != null) {
+				taskIds.add(expandTaskCommand.getTaskId());
+			}
+		}
+		return taskIds;
+	}
+
+	/**
+	 * 查询任务所属的流程实例，用于分组
+	 */
+	public static class FindProcessInstanceIdsCmd implements Command<Map<String, String>> {
+
+		protected List<String> taskIds;
+
+		public FindProcessInstanceIdsCmd(List<String> taskIds) {
+			this.taskIds = taskIds;
+		}
+
+		public Map<String, String> execute(CommandContext commandContext) {
+			Map<String, String> processInstanceIds = new LinkedHashMap<String, String>();
+			for (TaskEntity task : commandContext.getTaskManager().findTasksByIds(taskIds)) {
+				processInstanceIds.put(task.getId(), task.getProcessInstanceId());
+			}
+			return processInstanceIds;
+		}
+	}
+}
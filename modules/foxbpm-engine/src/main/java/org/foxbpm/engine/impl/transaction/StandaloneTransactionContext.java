@@ -0,0 +1,74 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.impl.transaction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.foxbpm.engine.config.TransactionState;
+import org.foxbpm.engine.impl.interceptor.CommandContext;
+import org.foxbpm.engine.transaction.TransactionContext;
+import org.foxbpm.engine.transaction.TransactionListener;
+
+/**
+ * 不使用外部事务管理时的事务上下文。
+ * <p>
+ * 数据在CommandContext刷新时已经写入数据库，commit()和rollback()只负责按顺序触发监听。
+ *
+ * @author ych
+ */
+public class StandaloneTransactionContext implements TransactionContext {
+
+	protected CommandContext commandContext;
+	protected Map<TransactionState, List<TransactionListener>> stateTransactionListeners = new HashMap<TransactionState, List<TransactionListener>>();
+
+	public StandaloneTransactionContext(CommandContext commandContext) {
+		this.commandContext = commandContext;
+	}
+
+	public void addTransactionListener(TransactionState transactionState, TransactionListener transactionListener) {
+		List<TransactionListener> transactionListeners = stateTransactionListeners.get(transactionState);
+		if (transactionListeners == null) {
+			transactionListeners = new ArrayList<TransactionListener>();
+			stateTransactionListeners.put(transactionState, transactionListeners);
+		}
+		transactionListeners.add(transactionListener);
+	}
+
+	public void commit() {
+		fireTransactionEvent(TransactionState.COMMITTING);
+		fireTransactionEvent(TransactionState.COMMITTED);
+	}
+
+	public void rollback() {
+		fireTransactionEvent(TransactionState.ROLLINGBACK);
+		fireTransactionEvent(TransactionState.ROLLED_BACK);
+	}
+
+	protected void fireTransactionEvent(TransactionState transactionState) {
+		List<TransactionListener> transactionListeners = stateTransactionListeners.remove(transactionState);
+		if (transactionListeners == null) {
+			return;
+		}
+		for (TransactionListener transactionListener : transactionListeners) {
+			transactionListener.execute(commandContext);
+		}
+	}
+}
@@ -0,0 +1,209 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.impl.util;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 引擎启动时检查运行表上的索引是否存在，缺失时只打印警告，不影响引擎启动。
+ * <p>
+ * 期望的索引与database目录下*_index.sql中的索引一一对应，来源于mapper中的where条件。
+ * 检查按列而不是按索引名进行：只要已有索引(包括主键)以期望的列开头，就认为索引存在。
+ *
+ * @author ych
+ */
+public class DBIndexChecker {
+
+	private static final Logger log = LoggerFactory.getLogger(DBIndexChecker.class);
+
+	/** 表名(不含前缀) -> 期望的索引列 */
+	private static final Map<String, List<String[]>> EXPECTED_INDEXES = new LinkedHashMap<String, List<String[]>>();
+
+	static {
+		expect("_RUN_TASK", "PROCESSINSTANCE_ID");
+		expect("_RUN_TASK", "TOKEN_ID");
+		expect("_RUN_TASK", "ASSIGNEE", "END_TIME");
+		expect("_RUN_TASK", "PROCESSDEFINITION_KEY");
+		expect("_RUN_TASK", "CREATE_TIME", "ID");
+		expect("_RUN_TASKIDENTITYLINK", "TASK_ID");
+		expect("_RUN_TASKIDENTITYLINK", "USER_ID", "TASK_ID");
+		expect("_RUN_TASKIDENTITYLINK", "GROUP_ID", "GROUP_TYPE", "TASK_ID");
+		expect("_RUN_TOKEN", "PROCESSINSTANCE_ID");
+		expect("_RUN_TOKEN", "PARENT_ID");
+		expect("_RUN_TOKEN", "START_TIME", "ID");
+		expect("_RUN_PROCESSINSTANCE", "START_TIME", "ID");
+		expect("_RUN_VARIABLE", "PROCESSINSTANCE_ID", "VARIABLE_KEY");
+		expect("_RUN_VARIABLE", "TASK_ID");
+		expect("_RUN_VARIABLE", "TOKEN_ID");
+		expect("_RUN_RUNNINGTRACK", "PROCESSINSTANCE_ID");
+	}
+
+	private static void expect(String table, String... columns) {
+		List<String[]> indexes = EXPECTED_INDEXES.get(table);
+		if (indexes == null) {
+			indexes = new ArrayList<String[]>();
+			EXPECTED_INDEXES.put(table, indexes);
+		}
+		indexes.add(columns);
+	}
+
+	/**
+	 * 检查索引，缺失的索引以警告日志输出
+	 *
+	 * @param dataSource
+	 *            数据源
+	 * @param prefix
+	 *            表前缀，默认foxbpm
+	 * @return 缺失的索引描述，格式为 表名(列1,列2)
+	 */
+	public static List<String> check(DataSource dataSource, String prefix) {
+		List<String> missingIndexes = new ArrayList<String>();
+		if (dataSource == null) {
+			return missingIndexes;
+		}
+		Connection connection = null;
+		try {
+			connection = dataSource.getConnection();
+			DatabaseMetaData metaData = connection.getMetaData();
+			String schema = null;
+			if (StringUtil.getString(metaData.getDatabaseProductName()).toLowerCase().contains("oracle")) {
+				schema = StringUtil.getString(metaData.getUserName()).toUpperCase();
+			}
+			for (Map.Entry<String, List<String[]>> entry : EXPECTED_INDEXES.entrySet()) {
+				String tableName = findTableName(metaData, connection.getCatalog(), schema, prefix + entry.getKey());
+				if (tableName == null) {
+					log.debug("表{}不存在，跳过索引检查", prefix + entry.getKey());
+					continue;
+				}
+				List<List<String>> existingIndexes = getIndexColumns(metaData, connection.getCatalog(), schema, tableName);
+				for (String[] columns : entry.getValue()) {
+					if (!isCovered(existingIndexes, columns)) {
+						missingIndexes.add(tableName + Arrays.toString(columns).replace('[', '(').replace(']', ')').replace(" ", ""));
+					}
+				}
+			}
+		} catch (SQLException e) {
+			log.warn("检查数据库索引时出错，跳过检查", e);
+			return missingIndexes;
+		} finally {
+			if (connection != null) {
+				try {
+					connection.close();
+				} catch (SQLException e) {
+					log.debug("关闭数据库连接出错", e);
+				}
+			}
+		}
+		for (String missingIndex : missingIndexes) {
+			log.warn("运行表缺少索引：{}，数据量大时查询会全表扫描，请执行database目录下对应数据库的*_index.sql", missingIndex);
+		}
+		return missingIndexes;
+	}
+
+	private static String findTableName(DatabaseMetaData metaData, String catalog, String schema, String tableName) throws SQLException {
+		String[] candidates = {tableName.toUpperCase(), tableName.toLowerCase(), tableName};
+		for (String candidate : candidates) {
+			ResultSet rs = metaData.getTables(catalog, schema, candidate, null);
+			try {
+				if (rs.next()) {
+					return rs.getString("TABLE_NAME");
+				}
+			} finally {
+				rs.close();
+			}
+		}
+		return null;
+	}
+
+	private static List<List<String>> getIndexColumns(DatabaseMetaData metaData, String catalog, String schema, String tableName) throws SQLException {
+		Map<String, TreeMap<Integer, String>> indexes = new HashMap<String, TreeMap<Integer, String>>();
+		ResultSet rs = metaData.getIndexInfo(catalog, schema, tableName, false, true);
+		try {
+			while (rs.next()) {
+				String indexName = rs.getString("INDEX_NAME");
+				String columnName = rs.getString("COLUMN_NAME");
+				if (indexName == null || columnName == null) {
+					continue;
+				}
+				TreeMap<Integer, String> columns = indexes.get(indexName);
+				if (columns == null) {
+					columns = new TreeMap<Integer, String>();
+					indexes.put(indexName, columns);
+				}
+				columns.put(Integer.valueOf(rs.getShort("ORDINAL_POSITION")), columnName.toUpperCase());
+			}
+		} finally {
+			rs.close();
+		}
+		List<List<String>> result = new ArrayList<List<String>>();
+		for (TreeMap<Integer, String> columns : indexes.values()) {
+			result.add(new ArrayList<String>(columns.values()));
+		}
+		// 主键也可以满足以ID开头的查询
+		ResultSet pk = metaData.getPrimaryKeys(catalog, schema, tableName);
+		try {
+			TreeMap<Integer, String> columns = new TreeMap<Integer, String>();
+			while (pk.next()) {
+				columns.put(Integer.valueOf(pk.getShort("KEY_SEQ")), pk.getString("COLUMN_NAME").toUpperCase());
+			}
+			if (!columns.isEmpty()) {
+				result.add(new ArrayList<String>(columns.values()));
+			}
+		} finally {
+			pk.close();
+		}
+		return result;
+	}
+
+	/**
+	 * 已有索引以期望的列开头时视为已覆盖
+	 */
+	static boolean isCovered(List<List<String>> existingIndexes, String[] columns) {
+		for (List<String> indexColumns : existingIndexes) {
+			if (indexColumns.size() < columns.length) {
+				continue;
+			}
+			boolean match = true;
+			for (int i = 0; i < columns.length; i++) {
+				if (!columns[i].equals(indexColumns.get(i))) {
+					match = false;
+					break;
+				}
+			}
+			if (match) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
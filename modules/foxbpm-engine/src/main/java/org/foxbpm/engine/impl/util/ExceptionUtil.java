@@ -23,6 +23,7 @@ import java.text.MessageFormat;
 import java.util.Properties;
 
 import org.foxbpm.engine.exception.FoxBPMException;
+import org.foxbpm.engine.exception.FoxBPMOptimisticLockingException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -76,6 +77,15 @@ public class ExceptionUtil {
 		return createException(getMessage(exceptionCode,args)+"，错误类型"+ex.getClass(),ex);
 	}
 	
+	/**
+	 * 乐观锁冲突异常，错误码10211001
+	 * @param args 对象类型，对象编号
+	 * @return
+	 */
+	public static FoxBPMOptimisticLockingException getOptimisticLockingException(String ...args){
+		return new FoxBPMOptimisticLockingException(getMessage("10211001",args));
+	}
+	
 	private static FoxBPMException createException(String message,Throwable ex){
 		if(ex == null){
 			return new FoxBPMException(message);
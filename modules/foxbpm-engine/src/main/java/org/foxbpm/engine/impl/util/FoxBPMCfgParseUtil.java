@@ -33,6 +33,7 @@ import org.dom4j.Element;
 import org.dom4j.io.SAXReader;
 import org.foxbpm.engine.config.FoxBPMConfig;
 import org.foxbpm.engine.config.ProcessEngineConfigurator;
+import org.foxbpm.engine.impl.cache.CacheDefinitionImpl;
 import org.foxbpm.engine.impl.datavariable.DataObjectDefinitionImpl;
 import org.foxbpm.engine.impl.event.EventListenerImpl;
 import org.foxbpm.engine.impl.task.CommandParam;
@@ -63,6 +64,8 @@ public class FoxBPMCfgParseUtil {
 	public static final String ELEMENT_DATAOBJECTBEHAVIOR = "dataObjectBehavior";
 	public static final String ELEMENT_PLUGIN = "plugin";
 	public static final String ELEMENT_PLUGINS = "plugins";
+	public static final String ELEMENT_CACHES = "caches";
+	public static final String ELEMENT_CACHE = "cache";
 	private FoxBPMCfgParseUtil() {
 		
 	}
@@ -122,6 +125,8 @@ public class FoxBPMCfgParseUtil {
 				foxBPMConfig.setDataObjectDefinitions(parseBizDataObject(childElem));
 			}else if(ELEMENT_PLUGINS.equals(nodeName)){
 				foxBPMConfig.setConfigurators(parsePlugins(childElem));
+			}else if(ELEMENT_CACHES.equals(nodeName)){
+				foxBPMConfig.setCacheDefinitions(parseCaches(childElem));
 			}
 		}
 		return foxBPMConfig;
@@ -261,6 +266,27 @@ public class FoxBPMCfgParseUtil {
 		return dataObjectDefinitions;
 	}
 	
+	private List<CacheDefinitionImpl> parseCaches(Element element){
+		Element childElem = null;
+		String nodeName = null;
+		List<CacheDefinitionImpl> cacheDefinitions = null;
+		CacheDefinitionImpl cacheDefinition = null;
+		for (Iterator<Element> iterator = element.elementIterator(); iterator.hasNext();) {
+			childElem = iterator.next();
+			nodeName = childElem.getName();
+			if (ELEMENT_CACHE.equals(nodeName)) {
+				cacheDefinition = new CacheDefinitionImpl();
+				// 处理基本属性
+				doAttributes(childElem, cacheDefinition);
+				if (null == cacheDefinitions) {
+					cacheDefinitions = new ArrayList<CacheDefinitionImpl>();
+				}
+				cacheDefinitions.add(cacheDefinition);
+			}
+		}
+		return cacheDefinitions;
+	}
+	
 	private void doAttributes(Element element, Object paramObj){
 		// 处理element属性
 		Method method = null;
@@ -317,6 +343,8 @@ public class FoxBPMCfgParseUtil {
 				method.invoke(pObj, Boolean.valueOf(value));
 			} else if (int.class == pType) {
 				method.invoke(pObj, Integer.valueOf(value));
+			} else if (long.class == pType) {
+				method.invoke(pObj, Long.valueOf(value));
 			} else {
 				// 暂不支持的类型
 				LOGGER.warn("不支持的类型是:" + pType);
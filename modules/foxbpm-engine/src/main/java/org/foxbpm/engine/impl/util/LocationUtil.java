@@ -19,10 +19,12 @@
 package org.foxbpm.engine.impl.util;
 
 import java.util.Iterator;
+import java.util.regex.Pattern;
 
 import org.codehaus.jackson.JsonNode;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.jackson.node.ArrayNode;
+import org.foxbpm.engine.impl.cache.ConcurrentCache;
 import org.foxbpm.kernel.runtime.ProcessInstanceStatus;
 
 /**
@@ -33,16 +35,37 @@ import org.foxbpm.kernel.runtime.ProcessInstanceStatus;
  */
 public class LocationUtil {
 
+	/** 共享的ObjectMapper，配置完成后线程安全 */
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+	
+	/** 已解析的显示格式，按去掉taskId的json串缓存，列表中节点和处理者相同的流程不再重复解析 */
+	private static final ConcurrentCache<String> RENDERED_LOCATIONS = new ConcurrentCache<String>(1000);
+	
+	/** 位置中的任务编号，每个流程实例都不同，不参与显示 */
+	private static final Pattern TASK_ID_PATTERN = Pattern.compile("\"taskId\":\"[^\"]*\",?");
+	
+	public static ObjectMapper getObjectMapper() {
+		return OBJECT_MAPPER;
+	}
 	
 	public static String parseProcessLocation(String processLocationJson){
-		ObjectMapper objectMapper = new ObjectMapper();
-		String processStatus = "";
-		JsonNode jsonNode= null ;
 		if(StringUtil.isEmpty(processLocationJson)){
 			return "";
 		}
+		String cacheKey = TASK_ID_PATTERN.matcher(processLocationJson).replaceAll("");
+		String rendered = RENDERED_LOCATIONS.get(cacheKey);
+		if(rendered == null){
+			rendered = renderProcessLocation(processLocationJson);
+			RENDERED_LOCATIONS.add(cacheKey, rendered);
+		}
+		return rendered;
+	}
+	
+	private static String renderProcessLocation(String processLocationJson){
+		String processStatus = "";
+		JsonNode jsonNode= null ;
 		try {
-			jsonNode = objectMapper.readTree(processLocationJson);
+			jsonNode = OBJECT_MAPPER.readTree(processLocationJson);
 		}catch (Exception e) {
 			throw ExceptionUtil.getException("10806001", e,processLocationJson);
 		}
@@ -25,6 +25,8 @@ import java.util.Properties;
 
 import org.foxbpm.engine.ProcessEngineManagement;
 import org.foxbpm.engine.exception.FoxBPMException;
+import org.foxbpm.engine.impl.Context;
+import org.foxbpm.engine.impl.interceptor.CommandContext;
 import org.foxbpm.engine.impl.schedule.FoxbpmJobDetail;
 import org.foxbpm.engine.impl.schedule.FoxbpmScheduler;
 import org.foxbpm.kernel.runtime.ListenerExecutionContext;
@@ -213,6 +215,29 @@ public final class QuartzUtil {
 			throw new FoxBPMException("调度  《流程自动启动JOB》时候出现问题！");
 		}
 	}
+	/**
+	 * 当前命令中是否可以添加异步任务
+	 * 
+	 * @return 没有命令上下文或调度器未启动时返回false，调用方应同步执行
+	 */
+	public final static boolean isAsyncJobSupported() {
+		if (Context.getCommandContext() == null) {
+			return false;
+		}
+		FoxbpmScheduler foxbpmScheduler = Context.getProcessEngineConfiguration().getFoxbpmScheduler();
+		return foxbpmScheduler != null && foxbpmScheduler.getScheduler() != null;
+	}
+	
+	/**
+	 * 添加异步任务到当前命令，命令执行成功后调度
+	 * 
+	 * @param jobDetail
+	 */
+	public final static void addAsyncJob(FoxbpmJobDetail<?> jobDetail) {
+		CommandContext commandContext = Context.getCommandContext();
+		commandContext.addAsyncJob(jobDetail);
+	}
+	
 	/**
 	 * 创建定时任务工厂
 	 * 
@@ -0,0 +1,114 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.query;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import org.foxbpm.engine.impl.util.ExceptionUtil;
+
+/**
+ * 游标分页位置，记录上一页最后一条记录的(时间, 编号)。
+ * <p>
+ * 查询按(时间 desc, 编号 desc)排序，下一页从游标之后开始读取，不使用offset，
+ * 翻到第几页查询代价都一样。toString()返回的字符串可以直接作为续页令牌返回给客户端，
+ * 客户端不应解析其内容，原样传回后用valueOf()还原。
+ * <p>
+ * 时间为空的记录排在最后，游标时间可以为空，表示上一页已经读到时间为空的记录。
+ *
+ * @author ych
+ */
+public class QueryCursor implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final char SEPARATOR = '.';
+
+	/** 时间为空时令牌中的时间部分 */
+	private static final String NULL_TIME = "_";
+
+	private final Date time;
+
+	private final String id;
+
+	public QueryCursor(Date time, String id) {
+		if (id == null) {
+			throw ExceptionUtil.getException("10313008", time + "," + id);
+		}
+		this.time = time == null ? null : new Date(time.getTime());
+		this.id = id;
+	}
+
+	/**
+	 * 根据续页令牌还原游标
+	 *
+	 * @param token
+	 *            toString()生成的令牌，为空时返回null，表示从第一页开始
+	 * @return
+	 */
+	public static QueryCursor valueOf(String token) {
+		if (token == null || token.length() == 0) {
+			return null;
+		}
+		int index = token.indexOf(SEPARATOR);
+		if (index <= 0 || index == token.length() - 1) {
+			throw ExceptionUtil.getException("10313008", token);
+		}
+		String timeToken = token.substring(0, index);
+		if (NULL_TIME.equals(timeToken)) {
+			return new QueryCursor(null, token.substring(index + 1));
+		}
+		try {
+			long time = Long.parseLong(timeToken, Character.MAX_RADIX);
+			return new QueryCursor(new Date(time), token.substring(index + 1));
+		} catch (NumberFormatException e) {
+			throw ExceptionUtil.getException("10313008", token);
+		}
+	}
+
+	/**
+	 * 游标时间，时间为空的记录作为游标时返回null
+	 */
+	public Date getTime() {
+		return time == null ? null : new Date(time.getTime());
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String toString() {
+		String timeToken = time == null ? NULL_TIME : Long.toString(time.getTime(), Character.MAX_RADIX);
+		return timeToken + SEPARATOR + id;
+	}
+
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof QueryCursor)) {
+			return false;
+		}
+		QueryCursor other = (QueryCursor) obj;
+		return (time == null ? other.time == null : time.equals(other.time)) && id.equals(other.id);
+	}
+
+	public int hashCode() {
+		return (time == null ? 0 : time.hashCode()) * 31 + id.hashCode();
+	}
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.runtime;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 批量启动流程实例的结果和吞吐量统计
+ *
+ * @author ych
+ */
+public class BatchStartResult implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	protected String processDefinitionId;
+
+	protected List<ProcessInstanceStartResult> results;
+
+	protected int successCount;
+
+	protected int batchCount;
+
+	protected long elapsedTime;
+
+	public BatchStartResult(String processDefinitionId, List<ProcessInstanceStartResult> results, int batchCount, long elapsedTime) {
+		this.processDefinitionId = processDefinitionId;
+		this.results = results;
+		this.batchCount = batchCount;
+		this.elapsedTime = elapsedTime;
+		for (ProcessInstanceStartResult result : results) {
+			if (result.isSuccess()) {
+				successCount++;
+			}
+		}
+	}
+
+	/**
+	 * @return 实际启动的流程定义编号
+	 */
+	public String getProcessDefinitionId() {
+		return processDefinitionId;
+	}
+
+	/**
+	 * @return 每个实例的启动结果，顺序与参数一致
+	 */
+	public List<ProcessInstanceStartResult> getResults() {
+		return results;
+	}
+
+	public int getSuccessCount() {
+		return successCount;
+	}
+
+	public int getFailureCount() {
+		return results.size() - successCount;
+	}
+
+	/**
+	 * @return 提交的事务数，出错回滚的批次不计，之后逐个启动成功的每个实例计一次
+	 */
+	public int getBatchCount() {
+		return batchCount;
+	}
+
+	/**
+	 * @return 总耗时(毫秒)
+	 */
+	public long getElapsedTime() {
+		return elapsedTime;
+	}
+
+	/**
+	 * @return 每秒成功启动的实例数
+	 */
+	public double getThroughput() {
+		if (elapsedTime <= 0) {
+			return successCount;
+		}
+		return successCount * 1000.0 / elapsedTime;
+	}
+
+	public String toString() {
+		return "BatchStartResult[" + processDefinitionId + ", success=" + successCount + ", failure=" + getFailureCount() + ", batches=" + batchCount + ", elapsed="
+				+ elapsedTime + "ms, throughput=" + String.format("%.1f", getThroughput()) + "/s]";
+	}
+}
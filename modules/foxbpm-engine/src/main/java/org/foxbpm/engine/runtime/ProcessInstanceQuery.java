@@ -19,8 +19,10 @@
 package org.foxbpm.engine.runtime;
 
 import java.util.Date;
+import java.util.List;
 
 import org.foxbpm.engine.query.Query;
+import org.foxbpm.engine.query.QueryCursor;
 
 /**
  * 流程实例查询
@@ -207,5 +209,18 @@ public interface ProcessInstanceQuery extends Query<ProcessInstanceQuery, Proces
 	 * @return
 	 */
 	ProcessInstanceQuery orderByUpdateTime();
+
+	/**
+	 * 游标分页查询，按(启动时间 desc, 编号 desc)排序，翻页代价与页码无关。
+	 * 下一页的游标用本页最后一条记录构造：new QueryCursor(last.getStartTime(), last.getId())，
+	 * 会覆盖之前设置的排序。
+	 * 
+	 * @param cursor
+	 *            上一页最后一条记录的游标，为null时返回第一页
+	 * @param pageSize
+	 *            每页条数
+	 * @return
+	 */
+	List<ProcessInstance> listAfter(QueryCursor cursor, int pageSize);
 	
 }
@@ -0,0 +1,78 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.runtime;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * 批量启动流程实例时的单个启动参数
+ *
+ * @author ych
+ */
+public class ProcessInstanceStartItem implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	protected String bizKey;
+
+	protected Map<String, Object> transientVariables;
+
+	protected Map<String, Object> persistenceVariables;
+
+	public ProcessInstanceStartItem() {
+	}
+
+	/**
+	 * @param bizKey
+	 *            流程关联键
+	 * @param transientVariables
+	 *            瞬态变量
+	 * @param persistenceVariables
+	 *            持久化变量
+	 */
+	public ProcessInstanceStartItem(String bizKey, Map<String, Object> transientVariables, Map<String, Object> persistenceVariables) {
+		this.bizKey = bizKey;
+		this.transientVariables = transientVariables;
+		this.persistenceVariables = persistenceVariables;
+	}
+
+	public String getBizKey() {
+		return bizKey;
+	}
+
+	public void setBizKey(String bizKey) {
+		this.bizKey = bizKey;
+	}
+
+	public Map<String, Object> getTransientVariables() {
+		return transientVariables;
+	}
+
+	public void setTransientVariables(Map<String, Object> transientVariables) {
+		this.transientVariables = transientVariables;
+	}
+
+	public Map<String, Object> getPersistenceVariables() {
+		return persistenceVariables;
+	}
+
+	public void setPersistenceVariables(Map<String, Object> persistenceVariables) {
+		this.persistenceVariables = persistenceVariables;
+	}
+}
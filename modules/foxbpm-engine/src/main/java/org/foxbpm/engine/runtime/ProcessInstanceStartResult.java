@@ -0,0 +1,68 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.runtime;
+
+import java.io.Serializable;
+
+/**
+ * 批量启动流程实例时单个实例的启动结果
+ *
+ * @author ych
+ */
+public class ProcessInstanceStartResult implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	protected String bizKey;
+
+	protected String processInstanceId;
+
+	protected RuntimeException exception;
+
+	public ProcessInstanceStartResult(String bizKey, String processInstanceId, RuntimeException exception) {
+		this.bizKey = bizKey;
+		this.processInstanceId = processInstanceId;
+		this.exception = exception;
+	}
+
+	public boolean isSuccess() {
+		return exception == null;
+	}
+
+	public String getBizKey() {
+		return bizKey;
+	}
+
+	/**
+	 * @return 启动成功的流程实例编号，失败时为null
+	 */
+	public String getProcessInstanceId() {
+		return processInstanceId;
+	}
+
+	/**
+	 * @return 失败原因，成功时为null
+	 */
+	public RuntimeException getException() {
+		return exception;
+	}
+
+	public String toString() {
+		return "ProcessInstanceStartResult[" + bizKey + ", " + (isSuccess() ? processInstanceId : exception.getMessage()) + "]";
+	}
+}
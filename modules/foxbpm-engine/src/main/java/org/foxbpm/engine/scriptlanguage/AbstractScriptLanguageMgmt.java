@@ -19,25 +19,30 @@
 package org.foxbpm.engine.scriptlanguage;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
 
-import org.foxbpm.engine.datavariable.VariableQuery;
+import org.foxbpm.engine.cache.Cache;
 import org.foxbpm.engine.exception.FoxBPMException;
 import org.foxbpm.engine.impl.Context;
-import org.foxbpm.engine.impl.datavariable.VariableQueryImpl;
+import org.foxbpm.engine.impl.cache.ConcurrentCache;
 import org.foxbpm.engine.impl.entity.ProcessDefinitionEntity;
 import org.foxbpm.engine.impl.entity.ProcessInstanceEntity;
 import org.foxbpm.engine.impl.entity.VariableInstanceEntity;
 import org.foxbpm.engine.impl.expression.ExpressionMgmt;
+import org.foxbpm.engine.impl.expression.ParsedExpression;
 import org.foxbpm.engine.impl.mgmt.DataVariableMgmtInstance;
 import org.foxbpm.kernel.runtime.FlowNodeExecutionContext;
 import org.foxbpm.model.DataVariableDefinition;
 
 public abstract class AbstractScriptLanguageMgmt {
 
-	private static String __REGEX_SIGNS = "\\$\\{[^}{]+\\}";
+	/** 解析结果缓存的容量 */
+	private static final int PARSED_EXPRESSION_CACHE_LIMIT = 5000;
+
+	private static final Cache<ParsedExpression> parsedExpressionCache = new ConcurrentCache<ParsedExpression>(PARSED_EXPRESSION_CACHE_LIMIT);
 
 	/**
 	 * 执行表达式
@@ -101,6 +106,39 @@ public abstract class AbstractScriptLanguageMgmt {
 	 */
 	public abstract Object execute(String scriptText, FlowNodeExecutionContext executionContext);
 
+	/**
+	 * 执行已解析的表达式，省去按表达式文本查找解析结果
+	 * 
+	 * @param parsedExpression
+	 *            解析后的表达式
+	 * @param executionContext
+	 *            流程上下文
+	 * @return
+	 */
+	public Object execute(ParsedExpression parsedExpression, FlowNodeExecutionContext executionContext) {
+		return execute(parsedExpression.getExpressionText(), executionContext);
+	}
+
+	/**
+	 * 执行表达式，localVariables中的变量只在本次执行中可见，不会影响其他表达式
+	 * 
+	 * @param scriptText
+	 *            表达式字符串
+	 * @param executionContext
+	 *            流程上下文
+	 * @param localVariables
+	 *            本次执行的局部变量
+	 * @return
+	 */
+	public Object execute(String scriptText, FlowNodeExecutionContext executionContext, Map<String, Object> localVariables) {
+		if (localVariables != null) {
+			for (Map.Entry<String, Object> entry : localVariables.entrySet()) {
+				setVariable(entry.getKey(), entry.getValue());
+			}
+		}
+		return execute(scriptText, executionContext);
+	}
+
 	/**
 	 * 脚本管理器初始化方法
 	 */
@@ -108,101 +146,120 @@ public abstract class AbstractScriptLanguageMgmt {
 
 	public abstract void close();
 
-	public static List<String> getDataVariableList(String scriptText) {
-		String inexp = scriptText;
-		// ${test} afdfs ${test1}erewr ${test3}
-		String regex = "\\$\\{[^}{]+\\}";
-		Pattern regexExpType = Pattern.compile(regex);
-		Matcher mType = regexExpType.matcher(inexp);
-		String expType = inexp;
-		List<String> list = new ArrayList<String>();
-		while (mType.find()) {
-			expType = mType.group();
-			expType = expType.substring(2, expType.length() - 1);
-			list.add(expType);
+	/**
+	 * 解析表达式，结果按表达式文本缓存，同一表达式只解析一次
+	 * 
+	 * @param expressionText
+	 *            表达式文本
+	 * @return 解析后的表达式
+	 */
+	public static ParsedExpression parseExpression(String expressionText) {
+		ParsedExpression parsedExpression = parsedExpressionCache.get(expressionText);
+		if (parsedExpression == null) {
+			parsedExpression = new ParsedExpression(expressionText);
+			parsedExpressionCache.add(expressionText, parsedExpression);
 		}
-		return list;
+		return parsedExpression;
+	}
+
+	/**
+	 * 获取表达式中引用的变量编号
+	 * 
+	 * @param scriptText
+	 *            表达式文本
+	 * @return 变量编号列表，不可修改
+	 */
+	public static List<String> getDataVariableList(String scriptText) {
+		return parseExpression(scriptText).getDataVariableIds();
 	}
 
 	public static String getExpressionAll(String inexp) {
-		String str = null;
-		String regex = __REGEX_SIGNS;
-		Pattern regexExpType = Pattern.compile(regex);
-		Matcher mType = regexExpType.matcher(inexp);
-		String expType = inexp;
-		StringBuffer sb = new StringBuffer();
-		while (mType.find()) {
-			expType = mType.group();
-			String dist = expType.substring(2, expType.length() - 1); // StringUtil.getString(getExpressionValue(dataView,expType));
-			mType.appendReplacement(sb, dist);
-		}
-		mType.appendTail(sb);
-		str = sb.toString();
-		return str;
+		return parseExpression(inexp).getScriptText();
 	}
 
 	protected void dataVariableCalculate(String scriptText, FlowNodeExecutionContext executionContext) {
+		dataVariableCalculate(parseExpression(scriptText), executionContext);
+	}
+
+	protected void dataVariableCalculate(ParsedExpression parsedExpression, FlowNodeExecutionContext executionContext) {
 
 		ProcessInstanceEntity processInstance = (ProcessInstanceEntity) executionContext.getProcessInstance();
-		List<String> dataVariableList = getDataVariableList(scriptText);
+		List<String> dataVariableList = parsedExpression.getDataVariableIds();
 		if(processInstance == null){
 			if(!dataVariableList.isEmpty()){
-				throw new FoxBPMException("没有流程实例上下文，不能解释带变量的表达式："+scriptText);
+				throw new FoxBPMException("没有流程实例上下文，不能解释带变量的表达式："+parsedExpression.getExpressionText());
 			}
 			return;
 		}
+		if (dataVariableList.isEmpty()) {
+			return;
+		}
 		DataVariableMgmtInstance dataVariableMgmtInstance = processInstance.getDataVariableMgmtInstance();
 		ProcessDefinitionEntity processDefinition = (ProcessDefinitionEntity) processInstance.getProcessDefinition();
 
+		// 找出表达式引用的、尚未加载的变量
+		Map<String, DataVariableDefinition> unresolvedDefinitions = new LinkedHashMap<String, DataVariableDefinition>();
+		List<String> persistenceKeys = new ArrayList<String>();
 		for (String expressionId : dataVariableList) {
-			if (dataVariableMgmtInstance.getDataVariableByExpressionId(expressionId) == null) {
-
-				DataVariableDefinition dataVariableDefinition = processDefinition.getDataVariableMgmtDefinition()
-						.getProcessDataVariableDefinition(expressionId);
+			if (unresolvedDefinitions.containsKey(expressionId) || dataVariableMgmtInstance.getDataVariableByExpressionId(expressionId) != null) {
+				continue;
+			}
+			DataVariableDefinition dataVariableDefinition = processDefinition.getDataVariableMgmtDefinition()
+					.getProcessDataVariableDefinition(expressionId);
+			if (dataVariableDefinition == null) {
+				continue;
+			}
+			unresolvedDefinitions.put(expressionId, dataVariableDefinition);
+			if (dataVariableDefinition.isPersistence()) {
+				persistenceKeys.add(expressionId);
+			}
+		}
+		if (unresolvedDefinitions.isEmpty()) {
+			return;
+		}
 
-				if (dataVariableDefinition == null) {
-					continue;
+		// 持久化变量一次查询全部加载，只加载表达式中用到的key
+		Map<String, VariableInstanceEntity> persistenceVariables = new HashMap<String, VariableInstanceEntity>();
+		if (!persistenceKeys.isEmpty()) {
+			List<VariableInstanceEntity> variableInstances = Context.getCommandContext().getVariableManager()
+					.findVariablesByProcessInstanceIdAndKeys(processInstance.getId(), persistenceKeys);
+			for (VariableInstanceEntity variableInstance : variableInstances) {
+				if (persistenceVariables.put(variableInstance.getKey(), variableInstance) != null) {
+					throw new FoxBPMException("一个流程实例中含有两个相同的key,key(" + variableInstance.getKey() + ") instanceId(" + processInstance.getId()
+							+ ")");
 				}
+			}
+		}
 
-				if (dataVariableDefinition.isPersistence()) {
-					VariableQuery variableQuery = new VariableQueryImpl(Context.getProcessEngineConfiguration().getCommandExecutor());
-					variableQuery.addVariableKey(expressionId);
-					variableQuery.processInstanceId(processInstance.getId());
-					@SuppressWarnings({ "unchecked", "rawtypes" })
-					List<VariableInstanceEntity> variableInstances = (List) variableQuery.list();
-					if (variableInstances != null && variableInstances.size() == 1) {
-						ExpressionMgmt.setVariable(expressionId, variableInstances.get(0).getValueObject());
-
-						// 更新
-						Context.getCommandContext().getVariableManager().update(variableInstances.get(0));
-						dataVariableMgmtInstance.getDataVariableEntities().add(variableInstances.get(0));
-					} else {
-						if (variableInstances != null && variableInstances.size() > 1) {
-
-							throw new FoxBPMException("一个流程实例中含有两个相同的key,key(" + expressionId + ") instanceId(" + processInstance.getId()
-									+ ")");
-
-						} else {
-							VariableInstanceEntity variableInstanceEntity = dataVariableMgmtInstance
-									.createDataVariableInstance(dataVariableDefinition);
-							Object defaultValue = variableInstanceEntity.getDefaultExpressionValue(executionContext);
-							ExpressionMgmt.setVariable(expressionId, defaultValue);
-
-							// 插入
-							Context.getCommandContext().getVariableManager().insert(variableInstanceEntity);
-
-						}
-
-					}
+		for (Map.Entry<String, DataVariableDefinition> entry : unresolvedDefinitions.entrySet()) {
+			String expressionId = entry.getKey();
+			DataVariableDefinition dataVariableDefinition = entry.getValue();
+			// 默认值表达式中引用的变量可能已在递归计算中加载
+			if (dataVariableMgmtInstance.getDataVariableByExpressionId(expressionId) != null) {
+				continue;
+			}
+			if (dataVariableDefinition.isPersistence()) {
+				VariableInstanceEntity variableInstance = persistenceVariables.get(expressionId);
+				if (variableInstance != null) {
+					ExpressionMgmt.setVariable(expressionId, variableInstance.getValueObject());
 
+					// 更新
+					Context.getCommandContext().getVariableManager().update(variableInstance);
+					dataVariableMgmtInstance.addDataVariableEntity(variableInstance);
 				} else {
-					Object defaultValue = dataVariableMgmtInstance.createDataVariableInstance(dataVariableDefinition)
-							.getDefaultExpressionValue(executionContext);
+					VariableInstanceEntity variableInstanceEntity = dataVariableMgmtInstance
+							.createDataVariableInstance(dataVariableDefinition);
+					Object defaultValue = variableInstanceEntity.getDefaultExpressionValue(executionContext);
 					ExpressionMgmt.setVariable(expressionId, defaultValue);
-				}
 
+					// 插入
+					Context.getCommandContext().getVariableManager().insert(variableInstanceEntity);
+				}
+			} else {
+				Object defaultValue = dataVariableMgmtInstance.createDataVariableInstance(dataVariableDefinition)
+						.getDefaultExpressionValue(executionContext);
+				ExpressionMgmt.setVariable(expressionId, defaultValue);
 			}
-
 		}
 
 	}
@@ -57,4 +57,10 @@ public class ProcessEngineConfigurationSpring extends ProcessEngineConfiguration
 	protected CommandInterceptor createTransactionInterceptor() {
 		return new SpringTransactionInterceptor(transactionManager);
 	}
+	
+	protected void initTransactionContextFactory() {
+		if (transactionContextFactory == null) {
+			transactionContextFactory = new SpringTransactionContextFactory();
+		}
+	}
 }
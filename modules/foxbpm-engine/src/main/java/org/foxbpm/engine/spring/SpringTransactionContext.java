@@ -0,0 +1,70 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.spring;
+
+import org.foxbpm.engine.config.TransactionState;
+import org.foxbpm.engine.impl.interceptor.CommandContext;
+import org.foxbpm.engine.impl.transaction.StandaloneTransactionContext;
+import org.foxbpm.engine.transaction.TransactionListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * spring事务上下文，监听注册为spring的事务同步，在spring事务真正提交或回滚时触发。
+ * <p>
+ * 提交和回滚由spring事务管理器完成。没有激活的事务同步时(如NOT_SUPPORTED)数据刷新后即已生效，
+ * 监听保存在本地，由CommandContext关闭时调用的commit()和rollback()直接触发。
+ * spring没有回滚前的回调，ROLLINGBACK和ROLLED_BACK都在回滚完成后触发。
+ *
+ * @author ych
+ */
+public class SpringTransactionContext extends StandaloneTransactionContext {
+
+	public SpringTransactionContext(CommandContext commandContext) {
+		super(commandContext);
+	}
+
+	public void addTransactionListener(final TransactionState transactionState, final TransactionListener transactionListener) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			super.addTransactionListener(transactionState, transactionListener);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+			public void beforeCommit(boolean readOnly) {
+				if (transactionState == TransactionState.COMMITTING) {
+					transactionListener.execute(commandContext);
+				}
+			}
+
+			public void afterCommit() {
+				if (transactionState == TransactionState.COMMITTED) {
+					transactionListener.execute(commandContext);
+				}
+			}
+
+			public void afterCompletion(int status) {
+				if (status == TransactionSynchronization.STATUS_ROLLED_BACK
+						&& (transactionState == TransactionState.ROLLINGBACK || transactionState == TransactionState.ROLLED_BACK)) {
+					transactionListener.execute(commandContext);
+				}
+			}
+		});
+	}
+}
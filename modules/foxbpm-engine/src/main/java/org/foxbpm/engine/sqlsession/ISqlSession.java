@@ -26,6 +26,18 @@ public interface ISqlSession {
 
 	public int update(String updateStatement,Object persistentObject);
 
+	/**
+	 * 使用同一语句批量新增，一次数据库交互执行
+	 */
+	public void insertBatch(String insertStatement, List<?> persistentObjects);
+
+	/**
+	 * 使用同一语句批量更新，一次数据库交互执行
+	 * 
+	 * @return 与persistentObjects顺序一致的影响行数，驱动不支持时可能为Statement.SUCCESS_NO_INFO
+	 */
+	public int[] updateBatch(String updateStatement, List<?> persistentObjects);
+
 	public List<?> selectList(String statement);
 
 	public List<?> selectList(String statement, Object parameter);
@@ -39,6 +39,8 @@ public class StatementMap {
 	protected static Map<Class<?>,String>  insertStatements = new ConcurrentHashMap<Class<?>, String>();
 	protected static Map<Class<?>,String>  updateStatements = new ConcurrentHashMap<Class<?>, String>();
 	protected static Map<Class<?>,String>  deleteStatements = new ConcurrentHashMap<Class<?>, String>();
+	/** 只更新修改过的列的update语句，实体需实现DirtyTrackable */
+	protected static Map<Class<?>,String>  dirtyUpdateStatements = new ConcurrentHashMap<Class<?>, String>();
 	protected static Map<Class<?>,String>  selectStatements = new ConcurrentHashMap<Class<?>, String>();
 	static{
 		
@@ -69,6 +71,8 @@ public class StatementMap {
 		updateStatements.put(AgentDetailsEntity.class, "updateAgentDetailsEntity");
 		updateStatements.put(ProcessOperatingEntity.class, "updateProcessOperatingById");
 		
+		dirtyUpdateStatements.put(TaskEntity.class, "updateTaskDirtyFields");
+		
 		selectStatements.put(ProcessInstanceEntity.class, "selectProcessInstanceById");
 		selectStatements.put(TaskEntity.class, "selectTaskById");
 		selectStatements.put(TokenEntity.class, "selectTokenById");
@@ -89,6 +93,10 @@ public class StatementMap {
 	    return updateStatements.get(object.getClass());
 	}
 
+	public static String getDirtyUpdateStatement(PersistentObject object) {
+	    return dirtyUpdateStatements.get(object.getClass());
+	}
+
 	public static String getDeleteStatement(PersistentObject object) {
 	    return deleteStatements.get(object.getClass());
 	}
@@ -0,0 +1,87 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.task;
+
+import java.io.Serializable;
+
+/**
+ * 批量完成任务时单个任务的处理结果
+ *
+ * @author ych
+ */
+public class TaskCompleteResult implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 处理状态
+	 */
+	public enum Status {
+		/** 完成成功 */
+		SUCCESS,
+		/** 乐观锁冲突，任务或流程实例已被其他事务修改，可以重新提交 */
+		CONFLICT,
+		/** 其他错误，如任务不存在、已完成、没有权限等 */
+		ERROR
+	}
+
+	protected String taskId;
+
+	protected Status status;
+
+	protected Object result;
+
+	protected RuntimeException exception;
+
+	public TaskCompleteResult(String taskId, Status status, Object result, RuntimeException exception) {
+		this.taskId = taskId;
+		this.status = status;
+		this.result = result;
+		this.exception = exception;
+	}
+
+	public String getTaskId() {
+		return taskId;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public boolean isSuccess() {
+		return status == Status.SUCCESS;
+	}
+
+	/**
+	 * @return 任务命令的返回值，只有成功时有值
+	 */
+	public Object getResult() {
+		return result;
+	}
+
+	/**
+	 * @return 失败原因，成功时为null
+	 */
+	public RuntimeException getException() {
+		return exception;
+	}
+
+	public String toString() {
+		return "TaskCompleteResult[" + taskId + ", " + status + (exception != null ? ", " + exception.getMessage() : "") + "]";
+	}
+}
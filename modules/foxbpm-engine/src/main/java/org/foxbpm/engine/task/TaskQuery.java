@@ -18,8 +18,10 @@
 package org.foxbpm.engine.task;
 
 import java.util.Date;
+import java.util.List;
 
 import org.foxbpm.engine.query.Query;
+import org.foxbpm.engine.query.QueryCursor;
 
 /**
  * 任务查询器
@@ -384,4 +386,17 @@ public interface TaskQuery extends Query<TaskQuery, Task> {
 	 */
 	TaskQuery orderByEndTime();
 
+	/**
+	 * 游标分页查询，按(创建时间 desc, 编号 desc)排序，翻页代价与页码无关。
+	 * 下一页的游标用本页最后一条记录构造：new QueryCursor(last.getCreateTime(), last.getId())，
+	 * 会覆盖之前设置的排序。
+	 * 
+	 * @param cursor
+	 *            上一页最后一条记录的游标，为null时返回第一页
+	 * @param pageSize
+	 *            每页条数
+	 * @return
+	 */
+	List<Task> listAfter(QueryCursor cursor, int pageSize);
+
 }
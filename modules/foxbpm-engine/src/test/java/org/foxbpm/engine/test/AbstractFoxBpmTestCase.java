@@ -35,6 +35,7 @@ import org.foxbpm.engine.exception.FoxBPMException;
 import org.foxbpm.engine.impl.cache.CacheUtil;
 import org.foxbpm.engine.impl.util.ReflectUtil;
 import org.foxbpm.engine.repository.DeploymentBuilder;
+import org.foxbpm.engine.repository.ProcessDefinition;
 import org.foxbpm.model.BpmnModel;
 import org.junit.After;
 import org.junit.Before;
@@ -140,4 +141,24 @@ public abstract class AbstractFoxBpmTestCase extends AbstractTransactionalJUnit4
 	public void clearCache() {
 		CacheUtil.clearCache();
 	}
+	
+	/**
+	 * 删除已提交的流程定义及其运行数据。
+	 * 使用REQUIRES_NEW的接口(如批量完成任务)在单独的事务中执行，测试方法不能在回滚的事务中运行，结束时用此方法清理。
+	 * 
+	 * @param processDefinitionKey
+	 *            流程定义KEY
+	 */
+	protected void deleteCommittedProcessData(String processDefinitionKey) {
+		String processInstanceIds = "select ID from foxbpm_run_processinstance where PROCESSDEFINITION_KEY = ?";
+		jdbcTemplate.update("delete from foxbpm_run_taskidentitylink where TASK_ID in (select ID from foxbpm_run_task where PROCESSINSTANCE_ID in (" + processInstanceIds + "))", processDefinitionKey);
+		String[] tableNames = {"foxbpm_run_task", "foxbpm_run_token", "foxbpm_run_variable", "foxbpm_run_runningtrack", "foxbpm_run_operating"};
+		for (String tableName : tableNames) {
+			jdbcTemplate.update("delete from " + tableName + " where PROCESSINSTANCE_ID in (" + processInstanceIds + ")", processDefinitionKey);
+		}
+		jdbcTemplate.update("delete from foxbpm_run_processinstance where PROCESSDEFINITION_KEY = ?", processDefinitionKey);
+		for (ProcessDefinition processDefinition : modelService.createProcessDefinitionQuery().processDefinitionKey(processDefinitionKey).list()) {
+			modelService.deleteDeployment(processDefinition.getDeploymentId());
+		}
+	}
 }
@@ -18,15 +18,24 @@
 package org.foxbpm.engine.test.api;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.foxbpm.engine.datavariable.VariableInstance;
 import org.foxbpm.engine.datavariable.VariableQuery;
 import org.foxbpm.engine.repository.ProcessDefinition;
 import org.foxbpm.engine.repository.ProcessDefinitionQuery;
+import org.foxbpm.engine.runtime.BatchStartResult;
 import org.foxbpm.engine.runtime.ProcessInstance;
+import org.foxbpm.engine.runtime.ProcessInstanceStartItem;
+import org.foxbpm.engine.runtime.ProcessInstanceStartResult;
 import org.foxbpm.engine.runtime.Token;
 import org.foxbpm.engine.runtime.TokenQuery;
 import org.foxbpm.engine.task.Task;
@@ -34,6 +43,8 @@ import org.foxbpm.engine.task.TaskQuery;
 import org.foxbpm.engine.test.AbstractFoxBpmTestCase;
 import org.foxbpm.engine.test.Deployment;
 import org.junit.Test;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * runTimeService 测试类
@@ -249,5 +260,150 @@ public class RuntimeServiceTest extends AbstractFoxBpmTestCase {
 		long variableCount = runtimeService.createVariableQuery().processInstanceId(processInstanceId).count();
 		assertEquals(0, variableCount);
 	}
-
+	
+	/**
+	 * <p>批量启动流程，整批在一个事务中提交</p>
+	 * <p>   1.验证每个实例都启动成功，结果顺序与参数一致</p>
+	 * <p>   2.验证只提交了一个事务</p>
+	 * <p>   3.验证每个实例的开始线条脚本使用自己的瞬态变量</p>
+	 */
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	@Deployment(resources = { "org/foxbpm/test/api/Test_RuntimeService_1.bpmn"})
+	public void testStartProcessInstances(){
+		try {
+			List<ProcessInstanceStartItem> startItems = new ArrayList<ProcessInstanceStartItem>();
+			startItems.add(createStartItem("batchStart_1", "一"));
+			startItems.add(createStartItem("batchStart_2", "二"));
+			BatchStartResult batchStartResult = runtimeService.startProcessInstancesByKey("Test_RuntimeService_1", startItems);
+			
+			assertEquals(2, batchStartResult.getSuccessCount());
+			assertEquals(1, batchStartResult.getBatchCount());
+			assertStarted(batchStartResult.getResults().get(0), "batchStart_1", "一变化");
+			assertStarted(batchStartResult.getResults().get(1), "batchStart_2", "二变化");
+		} finally {
+			deleteCommittedProcessData("Test_RuntimeService_1");
+		}
+	}
+	
+	/**
+	 * <p>批量启动流程，其中一个实例出错</p>
+	 * <p>   1.验证整批回滚后逐个启动，其他实例成功，出错的实例没有编号并带有异常</p>
+	 * <p>   2.验证每个成功实例的编号、bizKey和变量与参数对应</p>
+	 * <p>   3.验证出错实例没有写入数据</p>
+	 */
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	@Deployment(resources = { "org/foxbpm/test/api/Test_RuntimeService_1.bpmn"})
+	public void testStartProcessInstancesFallback(){
+		try {
+			List<ProcessInstanceStartItem> startItems = new ArrayList<ProcessInstanceStartItem>();
+			startItems.add(createStartItem("batchStart_1", "一"));
+			// 开始线条脚本对瞬态变量做字符串拼接，Object不支持，启动出错
+			startItems.add(createStartItem("batchStart_2", new Object()));
+			startItems.add(createStartItem("batchStart_3", "三"));
+			BatchStartResult batchStartResult = runtimeService.startProcessInstancesByKey("Test_RuntimeService_1", startItems);
+			
+			List<ProcessInstanceStartResult> results = batchStartResult.getResults();
+			assertEquals(3, results.size());
+			assertEquals(2, batchStartResult.getSuccessCount());
+			assertEquals(1, batchStartResult.getFailureCount());
+			// 整批回滚不计，逐个启动时只有成功的两个实例各计一次
+			assertEquals(2, batchStartResult.getBatchCount());
+			
+			assertStarted(results.get(0), "batchStart_1", "一变化");
+			assertStarted(results.get(2), "batchStart_3", "三变化");
+			assertFalse(results.get(0).getProcessInstanceId().equals(results.get(2).getProcessInstanceId()));
+			
+			ProcessInstanceStartResult failedResult = results.get(1);
+			assertFalse(failedResult.isSuccess());
+			assertEquals("batchStart_2", failedResult.getBizKey());
+			assertNull(failedResult.getProcessInstanceId());
+			assertNotNull(failedResult.getException());
+			assertEquals(0, runtimeService.createProcessInstanceQuery().processDefinitionKey("Test_RuntimeService_1").processInstanceBusinessKey("batchStart_2").count());
+		} finally {
+			deleteCommittedProcessData("Test_RuntimeService_1");
+		}
+	}
+	
+	/**
+	 * <p>批量设置流程实例变量</p>
+	 * <p>   1.不存在的变量插入，值与参数一致</p>
+	 * <p>   2.已存在的变量更新，不会插入重复的记录</p>
+	 */
+	@Test
+	@Deployment(resources = { "org/foxbpm/test/api/Test_RuntimeService_1.bpmn"})
+	public void testSetVariables(){
+		Map<String,Object> variable = new HashMap<String, Object>();
+		variable.put("variable", "variableValue");
+		ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("Test_RuntimeService_1","bizKey",null,variable);
+		String processInstanceId = processInstance.getId();
+		long variableCount = runtimeService.createVariableQuery().processInstanceId(processInstanceId).count();
+		
+		Map<String,Object> variables = new HashMap<String, Object>();
+		variables.put("variable", "changed");
+		variables.put("newVariable", "newValue");
+		variables.put("numberVariable", Integer.valueOf(3));
+		runtimeService.setVariables(processInstanceId, variables);
+		
+		assertVariable(processInstanceId, "variable", "changed");
+		assertVariable(processInstanceId, "newVariable", "newValue");
+		assertVariable(processInstanceId, "numberVariable", Integer.valueOf(3));
+		//variable已存在，只新增两条
+		assertEquals(variableCount + 2, runtimeService.createVariableQuery().processInstanceId(processInstanceId).count());
+		
+		//再次设置，上次插入的变量也只更新
+		variables = new HashMap<String, Object>();
+		variables.put("newVariable", "newValue2");
+		runtimeService.setVariables(processInstanceId, variables);
+		assertVariable(processInstanceId, "newVariable", "newValue2");
+		assertVariable(processInstanceId, "variable", "changed");
+		assertEquals(variableCount + 2, runtimeService.createVariableQuery().processInstanceId(processInstanceId).count());
+	}
+	
+	/**
+	 * <p>设置变量后提交，新事务中读取到的是持久化后的值</p>
+	 */
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	@Deployment(resources = { "org/foxbpm/test/api/Test_RuntimeService_1.bpmn"})
+	public void testSetVariablesPersisted(){
+		try {
+			ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("Test_RuntimeService_1");
+			String processInstanceId = processInstance.getId();
+			
+			Map<String,Object> variables = new HashMap<String, Object>();
+			variables.put("persistedVariable", "一");
+			runtimeService.setVariables(processInstanceId, variables);
+			variables.put("persistedVariable", "二");
+			runtimeService.setVariables(processInstanceId, variables);
+			
+			assertVariable(processInstanceId, "persistedVariable", "二");
+			Integer rowCount = jdbcTemplate.queryForObject("select count(*) from foxbpm_run_variable where PROCESSINSTANCE_ID = ? and VARIABLE_KEY = ?", Integer.class, processInstanceId, "persistedVariable");
+			assertEquals(Integer.valueOf(1), rowCount);
+		} finally {
+			deleteCommittedProcessData("Test_RuntimeService_1");
+		}
+	}
+	
+	private void assertVariable(String processInstanceId, String key, Object value) {
+		VariableInstance variableInstance = runtimeService.createVariableQuery().processInstanceId(processInstanceId).addVariableKey(key).singleResult();
+		assertNotNull(variableInstance);
+		assertEquals(value, variableInstance.getValueObject());
+	}
+	
+	private ProcessInstanceStartItem createStartItem(String bizKey, Object transientValue) {
+		Map<String, Object> transVariable = new HashMap<String, Object>();
+		transVariable.put("瞬态变量", transientValue);
+		return new ProcessInstanceStartItem(bizKey, transVariable, null);
+	}
+	
+	private void assertStarted(ProcessInstanceStartResult result, String bizKey, String variableValue) {
+		assertTrue(result.isSuccess());
+		assertEquals(bizKey, result.getBizKey());
+		ProcessInstance processInstance = runtimeService.createProcessInstanceQuery().processInstanceId(result.getProcessInstanceId()).singleResult();
+		assertEquals(bizKey, processInstance.getBizKey());
+		VariableInstance variableInstance = runtimeService.createVariableQuery().processInstanceId(result.getProcessInstanceId()).addVariableKey("持久变量").singleResult();
+		assertEquals(variableValue, variableInstance.getValueObject());
+	}
 }
@@ -19,6 +19,7 @@ package org.foxbpm.engine.test.api;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -30,17 +31,30 @@ import java.util.Map;
 import org.foxbpm.engine.datavariable.VariableInstance;
 import org.foxbpm.engine.datavariable.VariableQuery;
 import org.foxbpm.engine.exception.FoxBPMException;
+import org.foxbpm.engine.exception.FoxBPMOptimisticLockingException;
+import org.foxbpm.engine.impl.TaskServiceImpl;
+import org.foxbpm.engine.impl.cmd.SaveTaskCmd;
 import org.foxbpm.engine.impl.entity.TaskEntity;
 import org.foxbpm.engine.impl.identity.Authentication;
+import org.foxbpm.engine.impl.interceptor.Command;
+import org.foxbpm.engine.impl.interceptor.CommandConfig;
+import org.foxbpm.engine.impl.interceptor.CommandContext;
+import org.foxbpm.engine.impl.interceptor.CommandExecutor;
+import org.foxbpm.engine.impl.task.cmd.CompleteTasksCmd;
+import org.foxbpm.engine.impl.task.cmd.ExpandTaskCompleteCmd;
 import org.foxbpm.engine.impl.task.command.ExpandTaskCommand;
 import org.foxbpm.engine.impl.util.GuidUtil;
 import org.foxbpm.engine.runtime.ProcessInstance;
 import org.foxbpm.engine.task.Task;
 import org.foxbpm.engine.task.TaskCommand;
+import org.foxbpm.engine.task.TaskCompleteResult;
+import org.foxbpm.engine.task.TaskCompleteResult.Status;
 import org.foxbpm.engine.task.TaskQuery;
 import org.foxbpm.engine.test.AbstractFoxBpmTestCase;
 import org.foxbpm.engine.test.Deployment;
 import org.junit.Test;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 public class TaskServiceTest extends AbstractFoxBpmTestCase {
 
@@ -516,6 +530,180 @@ public class TaskServiceTest extends AbstractFoxBpmTestCase {
 		assertEquals("UserTask_2", task.getNodeId());
 	}
 	
+	/**
+	 * 批量完成任务，整批在一个命令中提交
+	 * 测试用例：启动两个流程-批量完成两个任务，验证都成功、只执行了一次批量命令，流程都已结束
+	 */
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	@Deployment(resources = {"org/foxbpm/test/api/Test_taskService_1.bpmn"})
+	public void testCompleteTasks(){
+		try {
+			List<String> taskIds = startProcessInstances(2);
+			CountingCommandExecutor commandExecutor = new CountingCommandExecutor(((TaskServiceImpl) taskService).getCommandExecutor(), null);
+			List<TaskCompleteResult> results = createTaskService(commandExecutor).completeTasks(createCompleteCommands(taskIds));
+			
+			assertEquals(2, results.size());
+			for (int i = 0; i < taskIds.size(); i++) {
+				assertEquals(taskIds.get(i), results.get(i).getTaskId());
+				assertEquals(Status.SUCCESS, results.get(i).getStatus());
+				assertNull(results.get(i).getException());
+				assertTaskEnd(taskIds.get(i), true);
+			}
+			assertEquals(1, commandExecutor.batchCount);
+			assertEquals(0, commandExecutor.singleCount);
+		} finally {
+			deleteCommittedProcessData("Test_taskService_1");
+		}
+	}
+	
+	/**
+	 * 批量完成任务，整批失败后逐个重新执行
+	 * 测试用例：两个正常任务、一个乐观锁冲突的任务、一个不存在的任务一起完成，整批回滚后逐个执行，
+	 * 验证结果顺序与请求一致，正常任务成功，冲突任务为CONFLICT且未完成，不存在的任务为ERROR
+	 */
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	@Deployment(resources = {"org/foxbpm/test/api/Test_taskService_1.bpmn"})
+	public void testCompleteTasksFallback(){
+		try {
+			List<String> taskIds = startProcessInstances(3);
+			String conflictTaskId = taskIds.get(1);
+			List<String> requestTaskIds = new ArrayList<String>(taskIds);
+			requestTaskIds.add("notExistTaskId");
+			CountingCommandExecutor commandExecutor = new CountingCommandExecutor(((TaskServiceImpl) taskService).getCommandExecutor(), conflictTaskId);
+			List<TaskCompleteResult> results = createTaskService(commandExecutor).completeTasks(createCompleteCommands(requestTaskIds));
+			
+			assertEquals(4, results.size());
+			for (int i = 0; i < requestTaskIds.size(); i++) {
+				assertEquals(requestTaskIds.get(i), results.get(i).getTaskId());
+			}
+			assertEquals(Status.SUCCESS, results.get(0).getStatus());
+			assertEquals(Status.CONFLICT, results.get(1).getStatus());
+			assertTrue(FoxBPMOptimisticLockingException.isCausedBy(results.get(1).getException()));
+			assertEquals(Status.SUCCESS, results.get(2).getStatus());
+			assertEquals(Status.ERROR, results.get(3).getStatus());
+			assertNotNull(results.get(3).getException());
+			
+			// 整批执行一次，回滚后每个任务单独执行一次
+			assertEquals(1, commandExecutor.batchCount);
+			assertEquals(4, commandExecutor.singleCount);
+			assertTaskEnd(taskIds.get(0), true);
+			assertTaskEnd(conflictTaskId, false);
+			assertTaskEnd(taskIds.get(2), true);
+		} finally {
+			deleteCommittedProcessData("Test_taskService_1");
+		}
+	}
+	
+	/**
+	 * 命令出错时不刷新已做的修改
+	 * 测试用例：命令中保存任务后抛出异常，验证任务没有写入数据库
+	 */
+	@Test
+	public void testFailedCommandNotFlushed(){
+		String taskId = GuidUtil.CreateGuid();
+		final Task task = taskService.newTask(taskId);
+		task.setName("name");
+		try {
+			((TaskServiceImpl) taskService).getCommandExecutor().execute(new Command<Void>() {
+				public Void execute(CommandContext commandContext) {
+					new SaveTaskCmd(task).execute(commandContext);
+					throw new RuntimeException("保存任务后出错");
+				}
+			});
+			fail();
+		} catch (RuntimeException ex) {
+			assertEquals("保存任务后出错", ex.getMessage());
+		}
+		assertEquals(0, jdbcTemplate.queryForList("select * from foxbpm_run_task where ID = ?", taskId).size());
+	}
+	
+	private List<String> startProcessInstances(int count) {
+		Authentication.setAuthenticatedUserId("admin");
+		List<String> taskIds = new ArrayList<String>();
+		for (int i = 0; i < count; i++) {
+			ExpandTaskCommand expandTaskCommand = new ExpandTaskCommand();
+			expandTaskCommand.setInitiator("admin");
+			expandTaskCommand.setProcessDefinitionKey("Test_taskService_1");
+			expandTaskCommand.setBusinessKey("bizKey" + i);
+			expandTaskCommand.setCommandType("startandsubmit");
+			expandTaskCommand.setTaskCommandId("HandleCommand_1");
+			taskService.expandTaskComplete(expandTaskCommand, null);
+			taskIds.add(taskService.createTaskQuery().processDefinitionKey("Test_taskService_1").businessKey("bizKey" + i).taskNotEnd().singleResult().getId());
+		}
+		return taskIds;
+	}
+	
+	private List<ExpandTaskCommand> createCompleteCommands(List<String> taskIds) {
+		List<ExpandTaskCommand> expandTaskCommands = new ArrayList<ExpandTaskCommand>();
+		for (String taskId : taskIds) {
+			ExpandTaskCommand expandTaskCommand = new ExpandTaskCommand();
+			expandTaskCommand.setTaskId(taskId);
+			expandTaskCommand.setCommandType("general");
+			expandTaskCommand.setTaskCommandId("HandleCommand_4");
+			expandTaskCommands.add(expandTaskCommand);
+		}
+		return expandTaskCommands;
+	}
+	
+	private TaskServiceImpl createTaskService(CommandExecutor commandExecutor) {
+		TaskServiceImpl countingTaskService = new TaskServiceImpl();
+		countingTaskService.setCommandExecutor(commandExecutor);
+		countingTaskService.setProcessEngineConfiguration(processEngine.getProcessEngineConfiguration());
+		return countingTaskService;
+	}
+	
+	private void assertTaskEnd(String taskId, boolean end) {
+		Task task = taskService.createTaskQuery().taskId(taskId).singleResult();
+		assertEquals(end, task.getEndTime() != null);
+	}
+	
+	/**
+	 * 统计批量和单个完成命令的执行次数。指定冲突任务时，在命令中先加载该任务，
+	 * 再在同一事务中修改其版本号，任务保存时乐观锁冲突，与其他事务同时完成该任务的效果相同。
+	 */
+	private class CountingCommandExecutor implements CommandExecutor {
+		
+		private CommandExecutor commandExecutor;
+		private String conflictTaskId;
+		private int batchCount;
+		private int singleCount;
+		
+		public CountingCommandExecutor(CommandExecutor commandExecutor, String conflictTaskId) {
+			this.commandExecutor = commandExecutor;
+			this.conflictTaskId = conflictTaskId;
+		}
+		
+		public <T> T execute(Command<T> command) {
+			return execute(getDefaultConfig(), command);
+		}
+		
+		public <T> T execute(CommandConfig config, final Command<T> command) {
+			if (command instanceof CompleteTasksCmd) {
+				batchCount++;
+			} else if (command instanceof ExpandTaskCompleteCmd) {
+				singleCount++;
+			} else {
+				return commandExecutor.execute(config, command);
+			}
+			if (conflictTaskId == null) {
+				return commandExecutor.execute(config, command);
+			}
+			return commandExecutor.execute(config, new Command<T>() {
+				public T execute(CommandContext commandContext) {
+					commandContext.getTaskManager().findTaskById(conflictTaskId);
+					jdbcTemplate.update("update foxbpm_run_task set REV_ = REV_ + 1 where ID = ?", conflictTaskId);
+					return command.execute(commandContext);
+				}
+			});
+		}
+		
+		public CommandConfig getDefaultConfig() {
+			return commandExecutor.getDefaultConfig();
+		}
+	}
+	
 	
 	
 	public void testTaskQuery(){
@@ -0,0 +1,44 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.test.api.command;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.foxbpm.engine.exception.FoxBPMException;
+import org.foxbpm.engine.runtime.BatchStartResult;
+import org.foxbpm.engine.runtime.ProcessInstanceStartResult;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BatchStartResultTest {
+
+	@Test
+	public void testCounts() {
+		List<ProcessInstanceStartResult> results = new ArrayList<ProcessInstanceStartResult>();
+		results.add(new ProcessInstanceStartResult("biz1", "p1", null));
+		results.add(new ProcessInstanceStartResult("biz2", null, new FoxBPMException("10602101")));
+		results.add(new ProcessInstanceStartResult("biz3", "p3", null));
+		BatchStartResult batchStartResult = new BatchStartResult("def1", results, 2, 500);
+		Assert.assertEquals(2, batchStartResult.getSuccessCount());
+		Assert.assertEquals(1, batchStartResult.getFailureCount());
+		Assert.assertFalse(results.get(1).isSuccess());
+		// 500毫秒成功2个，每秒4个
+		Assert.assertEquals(4.0, batchStartResult.getThroughput(), 0.001);
+	}
+}
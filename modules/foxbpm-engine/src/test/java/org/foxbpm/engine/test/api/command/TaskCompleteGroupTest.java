@@ -0,0 +1,61 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.test.api.command;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.foxbpm.engine.exception.FoxBPMException;
+import org.foxbpm.engine.exception.FoxBPMOptimisticLockingException;
+import org.foxbpm.engine.impl.task.cmd.CompleteTasksCmd;
+import org.foxbpm.engine.impl.task.command.ExpandTaskCommand;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TaskCompleteGroupTest {
+
+	@Test
+	public void testGroupByProcessInstance() {
+		List<ExpandTaskCommand> commands = new ArrayList<ExpandTaskCommand>();
+		String[] taskIds = {"t1", "t2", "t3", "t4", "t5"};
+		for (String taskId : taskIds) {
+			ExpandTaskCommand command = new ExpandTaskCommand();
+			command.setTaskId(taskId);
+			commands.add(command);
+		}
+		Map<String, String> processInstanceIds = new HashMap<String, String>();
+		processInstanceIds.put("t1", "p1");
+		processInstanceIds.put("t2", "p2");
+		processInstanceIds.put("t3", "p1");
+		processInstanceIds.put("t5", "p2");
+
+		// 同一流程实例相邻，组之间按第一次出现的顺序，查不到的任务单独成组
+		List<Integer> order = CompleteTasksCmd.groupByProcessInstance(commands, processInstanceIds);
+		Assert.assertEquals("[0, 2, 1, 4, 3]", order.toString());
+	}
+
+	@Test
+	public void testOptimisticLockingCause() {
+		FoxBPMOptimisticLockingException conflict = new FoxBPMOptimisticLockingException("10211001");
+		Assert.assertTrue(FoxBPMOptimisticLockingException.isCausedBy(conflict));
+		Assert.assertTrue(FoxBPMOptimisticLockingException.isCausedBy(new FoxBPMException("10300001", conflict)));
+		Assert.assertFalse(FoxBPMOptimisticLockingException.isCausedBy(new FoxBPMException("10300001")));
+	}
+}
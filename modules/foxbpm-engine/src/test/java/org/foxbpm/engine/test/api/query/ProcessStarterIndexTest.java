@@ -0,0 +1,60 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.test.api.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.foxbpm.engine.impl.entity.GroupEntity;
+import org.foxbpm.engine.impl.persistence.deploy.ProcessStarterIndex;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ProcessStarterIndexTest {
+
+	private ProcessStarterIndex createIndex() {
+		ProcessStarterIndex starterIndex = new ProcessStarterIndex();
+		starterIndex.addUnrestrictedProcess("free");
+		starterIndex.addAllUserProcess("all");
+		starterIndex.addUserStarter("userOnly", "admin");
+		starterIndex.addGroupStarter("deptOnly", "dept", "d1");
+		starterIndex.addGroupStarter("roleOnly", "role", "d1");
+		return starterIndex;
+	}
+
+	@Test
+	public void testUserAndGroups() {
+		ProcessStarterIndex starterIndex = createIndex();
+		List<GroupEntity> groups = new ArrayList<GroupEntity>();
+		groups.add(new GroupEntity("d1", "dept"));
+		Set<String> keys = starterIndex.getStartProcessKeys("admin", groups);
+		Assert.assertEquals(new HashSet<String>(Arrays.asList("free", "all", "userOnly", "deptOnly")), keys);
+		// 组类型和组编号都相同才匹配
+		keys = starterIndex.getStartProcessKeys("other", groups);
+		Assert.assertEquals(new HashSet<String>(Arrays.asList("free", "all", "deptOnly")), keys);
+	}
+
+	@Test
+	public void testUnknownUser() {
+		ProcessStarterIndex starterIndex = createIndex();
+		Assert.assertEquals(new HashSet<String>(Arrays.asList("free")), starterIndex.getStartProcessKeys("admin", null));
+	}
+}
@@ -18,12 +18,20 @@
 package org.foxbpm.engine.test.api.query;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
 import org.foxbpm.engine.impl.identity.Authentication;
+import org.foxbpm.engine.impl.task.TaskQueryImpl;
 import org.foxbpm.engine.impl.task.command.ExpandTaskCommand;
+import org.foxbpm.engine.query.QueryCursor;
 import org.foxbpm.engine.task.Task;
 import org.foxbpm.engine.task.TaskQuery;
 import org.foxbpm.engine.test.AbstractFoxBpmTestCase;
@@ -86,4 +94,173 @@ public class TaskQueryTest extends AbstractFoxBpmTestCase {
 		List<Task> tasks = taskQuery.list();
 		assertEquals(1, tasks.size());
 	}
+
+	/**
+	 * 候选任务优化查询(EXISTS/UNION ALL)与原查询(DISTINCT + LEFT JOIN)结果比对：处理人
+	 * test_query_user的独占任务只有task_1，没有任何候选任务
+	 */
+	@Test
+	public void testCandidateQueryAssignee() {
+		insertCandidateQueryData();
+		jdbcTemplate.execute("insert into au_userInfo(userId,USERNAME) VALUES ('test_query_user2','查询测试用户2')");
+		assertSameCandidateResult("test_query_user2", true);
+		assertSameCandidateResult("test_query_user", true, "test_query_task_1", "test_query_task_2", "test_query_task_3", "test_query_task_5");
+	}
+
+	/**
+	 * 候选人直接指定为用户：task_2只有用户候选，task_5同时有用户和组候选，只能出现一次；
+	 * task_6已经有处理人，不再算候选任务
+	 */
+	@Test
+	public void testCandidateQueryCandidateUser() {
+		insertCandidateQueryData();
+		assertSameCandidateResult("test_query_user", false, "test_query_task_2", "test_query_task_3", "test_query_task_5");
+	}
+
+	/**
+	 * 候选人通过所在的组匹配：用户属于角色test_query_role，task_3通过组候选匹配，task_4的组不包含该用户
+	 */
+	@Test
+	public void testCandidateQueryCandidateGroup() {
+		insertCandidateQueryData();
+		jdbcTemplate.execute("insert into au_userInfo(userId,USERNAME) VALUES ('test_query_user3','查询测试用户3')");
+		jdbcTemplate.execute("insert into au_group_relation(guid,userid,groupid,groupType) values('test_query_relation_3','test_query_user3','test_query_role','role')");
+		assertSameCandidateResult("test_query_user3", false, "test_query_task_3", "test_query_task_5");
+	}
+
+	/**
+	 * 游标分页跨页边界：同一时间的两条记录分在两页，时间为空的记录排在最后，
+	 * 每页用上一页最后一条记录的游标(经过令牌转换)继续查询，不能重复也不能遗漏
+	 */
+	@Test
+	public void testListAfterPageBoundary() {
+		Calendar calendar = Calendar.getInstance();
+		calendar.set(Calendar.MILLISECOND, 0);
+		Date time1 = calendar.getTime();
+		calendar.add(Calendar.MINUTE, 1);
+		Date time2 = calendar.getTime();
+		calendar.add(Calendar.MINUTE, 1);
+		Date time3 = calendar.getTime();
+		insertTask("test_keyset_a", "test_keysetQuery", null, time1);
+		insertTask("test_keyset_b", "test_keysetQuery", null, time2);
+		insertTask("test_keyset_c", "test_keysetQuery", null, time2);
+		insertTask("test_keyset_d", "test_keysetQuery", null, time3);
+		insertTask("test_keyset_e", "test_keysetQuery", null, null);
+		insertTask("test_keyset_f", "test_keysetQuery", null, null);
+
+		List<List<String>> pages = new ArrayList<List<String>>();
+		QueryCursor cursor = null;
+		while (true) {
+			List<Task> tasks = taskService.createTaskQuery().processDefinitionKey("test_keysetQuery").listAfter(cursor, 2);
+			if (tasks.isEmpty()) {
+				break;
+			}
+			pages.add(taskIds(tasks));
+			Task lastTask = tasks.get(tasks.size() - 1);
+			cursor = QueryCursor.valueOf(new QueryCursor(lastTask.getCreateTime(), lastTask.getId()).toString());
+			if (pages.size() > 4) {
+				break;
+			}
+		}
+		assertEquals(3, pages.size());
+		assertEquals(Arrays.asList("test_keyset_d", "test_keyset_c"), pages.get(0));
+		assertEquals(Arrays.asList("test_keyset_b", "test_keyset_a"), pages.get(1));
+		assertEquals(Arrays.asList("test_keyset_f", "test_keyset_e"), pages.get(2));
+	}
+
+	/**
+	 * 一页跨过时间不为空的记录和尾段：不足一页时用时间为空的记录补足，
+	 * 下一页的游标时间为空，只在尾段中继续查询
+	 */
+	@Test
+	public void testListAfterNullTimeTail() {
+		Calendar calendar = Calendar.getInstance();
+		calendar.set(Calendar.MILLISECOND, 0);
+		Date time1 = calendar.getTime();
+		calendar.add(Calendar.MINUTE, 1);
+		Date time2 = calendar.getTime();
+		insertTask("test_keyset_a", "test_keysetQuery", null, time1);
+		insertTask("test_keyset_b", "test_keysetQuery", null, time2);
+		insertTask("test_keyset_c", "test_keysetQuery", null, null);
+		insertTask("test_keyset_d", "test_keysetQuery", null, null);
+		insertTask("test_keyset_e", "test_keysetQuery", null, null);
+
+		List<Task> firstPage = taskService.createTaskQuery().processDefinitionKey("test_keysetQuery").listAfter(null, 3);
+		assertEquals(Arrays.asList("test_keyset_b", "test_keyset_a", "test_keyset_e"), taskIds(firstPage));
+		Task lastTask = firstPage.get(firstPage.size() - 1);
+		QueryCursor cursor = new QueryCursor(lastTask.getCreateTime(), lastTask.getId());
+		assertNull(cursor.getTime());
+		List<Task> secondPage = taskService.createTaskQuery().processDefinitionKey("test_keysetQuery").listAfter(cursor, 3);
+		assertEquals(Arrays.asList("test_keyset_d", "test_keyset_c"), taskIds(secondPage));
+		assertEquals(5, taskService.createTaskQuery().processDefinitionKey("test_keysetQuery").count());
+	}
+
+	/**
+	 * 两种查询分别查询列表、数量和分页结果，结果必须与期望一致
+	 */
+	private void assertSameCandidateResult(String userId, boolean withAssignee, String... expectedTaskIds) {
+		List<String> expected = new ArrayList<String>(Arrays.asList(expectedTaskIds));
+		Collections.sort(expected);
+		for (boolean optimized : new boolean[]{true, false}) {
+			assertEquals(expected, taskIds(createCandidateQuery(userId, withAssignee, optimized).list()));
+			assertEquals(expected.size(), createCandidateQuery(userId, withAssignee, optimized).count());
+			if (expected.size() > 1) {
+				// 第二页从第二条开始，用来验证分页后按编号加载时顺序不变
+				assertEquals(expected.subList(1, 2), taskIds(createCandidateQuery(userId, withAssignee, optimized).listPage(1, 1)));
+			}
+		}
+	}
+
+	private TaskQuery createCandidateQuery(String userId, boolean withAssignee, boolean optimized) {
+		TaskQueryImpl taskQuery = (TaskQueryImpl) taskService.createTaskQuery();
+		taskQuery.optimizedCandidateQuery(optimized);
+		taskQuery.processDefinitionKey("test_candidateQuery");
+		taskQuery.taskCandidateUser(userId);
+		if (withAssignee) {
+			taskQuery.taskAssignee(userId);
+		}
+		taskQuery.orderByTaskId().asc();
+		return taskQuery;
+	}
+
+	private List<String> taskIds(List<Task> tasks) {
+		List<String> taskIds = new ArrayList<String>();
+		for (Task task : tasks) {
+			taskIds.add(task.getId());
+		}
+		return taskIds;
+	}
+
+	/**
+	 * 准备候选任务数据，用户test_query_user属于角色test_query_role
+	 */
+	private void insertCandidateQueryData() {
+		jdbcTemplate.execute("insert into au_userInfo(userId,USERNAME) VALUES ('test_query_user','查询测试用户')");
+		jdbcTemplate.execute("insert into au_roleinfo(roleid,rolename) values('test_query_role','查询测试角色')");
+		jdbcTemplate.execute("insert into au_roleinfo(roleid,rolename) values('test_query_role2','查询测试角色2')");
+		jdbcTemplate.execute("insert into au_group_relation(guid,userid,groupid,groupType) values('test_query_relation','test_query_user','test_query_role','role')");
+		insertTask("test_query_task_1", "test_candidateQuery", "test_query_user", new Date());
+		insertTask("test_query_task_2", "test_candidateQuery", null, new Date());
+		insertTask("test_query_task_3", "test_candidateQuery", null, new Date());
+		insertTask("test_query_task_4", "test_candidateQuery", null, new Date());
+		insertTask("test_query_task_5", "test_candidateQuery", null, new Date());
+		insertTask("test_query_task_6", "test_candidateQuery", "test_query_other", new Date());
+		insertIdentityLink("test_query_link_2", "test_query_task_2", "test_query_user", null);
+		insertIdentityLink("test_query_link_3", "test_query_task_3", null, "test_query_role");
+		insertIdentityLink("test_query_link_4", "test_query_task_4", null, "test_query_role2");
+		insertIdentityLink("test_query_link_5a", "test_query_task_5", "test_query_user", null);
+		insertIdentityLink("test_query_link_5b", "test_query_task_5", null, "test_query_role");
+		insertIdentityLink("test_query_link_6", "test_query_task_6", "test_query_user", null);
+	}
+
+	private void insertTask(String taskId, String processDefinitionKey, String assignee, Date createTime) {
+		jdbcTemplate.update("insert into foxbpm_run_task(id,processdefinition_key,assignee,create_time) values(?,?,?,?)",
+				new Object[]{taskId, processDefinitionKey, assignee, createTime}, new int[]{Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP});
+	}
+
+	private void insertIdentityLink(String id, String taskId, String userId, String groupId) {
+		jdbcTemplate.update("insert into foxbpm_run_taskidentitylink(id,type,user_id,group_id,group_type,task_id) values(?,'candidate',?,?,?,?)",
+				new Object[]{id, userId, groupId, groupId == null ? null : "role", taskId},
+				new int[]{Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR});
+	}
 }
@@ -0,0 +1,320 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.test.api.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.foxbpm.engine.impl.Context;
+import org.foxbpm.engine.impl.ProcessEngineConfigurationImpl;
+import org.foxbpm.engine.impl.interceptor.Command;
+import org.foxbpm.engine.impl.interceptor.CommandContext;
+import org.foxbpm.engine.impl.schedule.FoxbpmJobExecutionContext;
+import org.foxbpm.engine.impl.schedule.quartz.AsyncContinuationJob;
+import org.foxbpm.engine.runtime.ProcessInstance;
+import org.foxbpm.engine.test.AbstractFoxBpmTestCase;
+import org.foxbpm.engine.test.Deployment;
+import org.junit.Test;
+import org.quartz.JobKey;
+import org.quartz.SchedulerException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 异步节点、异步连接器在引擎中的执行测试。
+ * 异步任务在事务提交后由quartz线程调度执行，测试方法不能在回滚的事务中运行，结束时清理已提交的数据。
+ * 流程中的groovy连接器调用本类的静态方法记录执行情况。
+ * 
+ * @author ych
+ */
+public class AsyncContinuationTest extends AbstractFoxBpmTestCase {
+	
+	/** 等待异步任务执行的最长时间(毫秒) */
+	private final static long WAIT_TIME = 30000;
+	
+	private final static long RETRY_WAIT_TIME = 100;
+	
+	private final static AtomicInteger activityCount = new AtomicInteger();
+	
+	private final static AtomicInteger connectorCount = new AtomicInteger();
+	
+	/** 异步连接器前几次执行抛出异常 */
+	private static volatile int connectorFailures;
+	
+	/** 节点id对应的连接器执行次数 */
+	private final static ConcurrentHashMap<String, AtomicInteger> nodeCounts = new ConcurrentHashMap<String, AtomicInteger>();
+	
+	private static volatile CommandContext activityCommandContext;
+	
+	private static volatile Thread activityThread;
+	
+	/**
+	 * testAsyncActivity_0中异步节点的node-execute连接器调用
+	 */
+	public static void activityExecuted() {
+		activityCommandContext = Context.getCommandContext();
+		activityThread = Thread.currentThread();
+		activityCount.incrementAndGet();
+	}
+	
+	/**
+	 * testAsyncConnector_0中的异步连接器调用，前connectorFailures次抛出异常
+	 */
+	public static void connectorExecuted() {
+		if (connectorCount.incrementAndGet() <= connectorFailures) {
+			throw new RuntimeException("异步连接器第" + connectorCount.get() + "次执行失败");
+		}
+	}
+	
+	/**
+	 * testAsyncForkJoin_0中分支节点和汇聚后节点的连接器调用，分支执行一段时间，两个分支同时到达汇聚网关
+	 */
+	public static void nodeExecuted(String nodeId) throws InterruptedException {
+		AtomicInteger count = new AtomicInteger();
+		AtomicInteger oldCount = nodeCounts.putIfAbsent(nodeId, count);
+		(oldCount == null ? count : oldCount).incrementAndGet();
+		Thread.sleep(200);
+	}
+	
+	private static int getNodeCount(String nodeId) {
+		AtomicInteger count = nodeCounts.get(nodeId);
+		return count == null ? 0 : count.get();
+	}
+	
+	private static void reset(int failures) {
+		activityCount.set(0);
+		connectorCount.set(0);
+		connectorFailures = failures;
+		nodeCounts.clear();
+		activityCommandContext = null;
+		activityThread = null;
+	}
+	
+	/**
+	 * 异步节点：启动流程的命令只登记异步任务，事务提交后才调度；
+	 * 调度线程在新的命令中继续执行节点，创建任务并触发node-execute连接器
+	 */
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	@Deployment(resources = {"org/foxbpm/engine/test/impl/scheduler/testAsyncActivity_0.bpmn"})
+	public void testAsyncActivity() throws Exception {
+		reset(0);
+		try {
+			scheduler.start();
+			final CommandContext[] startCommandContext = new CommandContext[1];
+			final String processInstanceId = processEngine.getProcessEngineConfiguration().getCommandExecutor().execute(new Command<String>() {
+				public String execute(CommandContext commandContext) {
+					startCommandContext[0] = commandContext;
+					ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("testAsyncActivity_0");
+					
+					// 命令内节点没有执行，异步任务只登记在命令上，还没有调度
+					assertEquals(1, commandContext.getAsyncJobs().size());
+					assertFalse(checkExists(commandContext.getAsyncJobs().get(0).getKey()));
+					assertEquals(0, activityCount.get());
+					assertEquals(0, taskService.createTaskQuery().processInstanceId(processInstance.getId()).count());
+					return processInstance.getId();
+				}
+			});
+			
+			waitFor(new Condition() {
+				public boolean isTrue() {
+					return taskService.createTaskQuery().processInstanceId(processInstanceId).count() == 1;
+				}
+			});
+			assertEquals(1, activityCount.get());
+			assertNotNull(activityCommandContext);
+			assertNotSame(startCommandContext[0], activityCommandContext);
+			assertNotSame(Thread.currentThread(), activityThread);
+		} finally {
+			deleteCommittedProcessData("testAsyncActivity_0");
+		}
+	}
+	
+	/**
+	 * 异步连接器：第一次执行失败后按重试等待时间重新调度，第二次执行成功，不进入失败组
+	 */
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	@Deployment(resources = {"org/foxbpm/engine/test/impl/scheduler/testAsyncConnector_0.bpmn"})
+	public void testAsyncConnectorRetry() throws Exception {
+		reset(1);
+		ProcessEngineConfigurationImpl processEngineConfiguration = processEngine.getProcessEngineConfiguration();
+		int asyncJobRetries = processEngineConfiguration.getAsyncJobRetries();
+		long asyncJobRetryWaitTime = processEngineConfiguration.getAsyncJobRetryWaitTime();
+		try {
+			processEngineConfiguration.setAsyncJobRetries(2);
+			processEngineConfiguration.setAsyncJobRetryWaitTime(RETRY_WAIT_TIME);
+			scheduler.start();
+			final String processInstanceId = runtimeService.startProcessInstanceByKey("testAsyncConnector_0").getId();
+			
+			// 连接器异步执行，不影响流程启动
+			assertEquals(1, taskService.createTaskQuery().processInstanceId(processInstanceId).count());
+			waitFor(new Condition() {
+				public boolean isTrue() {
+					return connectorCount.get() >= 2;
+				}
+			});
+			Thread.sleep(RETRY_WAIT_TIME * 10);
+			assertEquals(2, connectorCount.get());
+			assertNull(getFailedAsyncJob(processInstanceId));
+		} finally {
+			processEngineConfiguration.setAsyncJobRetries(asyncJobRetries);
+			processEngineConfiguration.setAsyncJobRetryWaitTime(asyncJobRetryWaitTime);
+			deleteCommittedProcessData("testAsyncConnector_0");
+		}
+	}
+	
+	/**
+	 * 异步连接器：一直失败，首次执行加asyncJobRetries次重试后转入失败组，不再自动执行
+	 */
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	@Deployment(resources = {"org/foxbpm/engine/test/impl/scheduler/testAsyncConnector_0.bpmn"})
+	public void testAsyncConnectorDeadLetter() throws Exception {
+		reset(Integer.MAX_VALUE);
+		ProcessEngineConfigurationImpl processEngineConfiguration = processEngine.getProcessEngineConfiguration();
+		int asyncJobRetries = processEngineConfiguration.getAsyncJobRetries();
+		long asyncJobRetryWaitTime = processEngineConfiguration.getAsyncJobRetryWaitTime();
+		Map<String, Object> failedJob = null;
+		try {
+			processEngineConfiguration.setAsyncJobRetries(2);
+			processEngineConfiguration.setAsyncJobRetryWaitTime(RETRY_WAIT_TIME);
+			scheduler.start();
+			final String processInstanceId = runtimeService.startProcessInstanceByKey("testAsyncConnector_0").getId();
+			waitFor(new Condition() {
+				public boolean isTrue() {
+					return getFailedAsyncJob(processInstanceId) != null;
+				}
+			});
+			failedJob = getFailedAsyncJob(processInstanceId);
+			assertEquals(AsyncContinuationJob.JOB_TYPE_CONNECTOR, failedJob.get(FoxbpmJobExecutionContext.JOB_TYPE));
+			assertEquals("3", failedJob.get(FoxbpmJobExecutionContext.RETRIES));
+			assertNotNull(failedJob.get(FoxbpmJobExecutionContext.EXCEPTION_MESSAGE));
+			
+			// 失败组中的任务不再执行
+			Thread.sleep(RETRY_WAIT_TIME * 10);
+			assertEquals(3, connectorCount.get());
+		} finally {
+			if (failedJob != null) {
+				processEngine.getScheduleService().deleteFailedAsyncJob((String) failedJob.get("jobName"));
+			}
+			processEngineConfiguration.setAsyncJobRetries(asyncJobRetries);
+			processEngineConfiguration.setAsyncJobRetryWaitTime(asyncJobRetryWaitTime);
+			deleteCommittedProcessData("testAsyncConnector_0");
+		}
+	}
+	
+	/**
+	 * 异步分支和异步汇聚：两个分支在各自的命令中执行连接器并提交，到达汇聚网关后分别在新的命令中合并，
+	 * 同时合并冲突时只重试合并，每个分支的连接器只执行一次，汇聚后的节点只进入一次
+	 */
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	@Deployment(resources = {"org/foxbpm/engine/test/impl/scheduler/testAsyncForkJoin_0.bpmn"})
+	public void testAsyncForkJoin() throws Exception {
+		reset(0);
+		try {
+			scheduler.start();
+			final String processInstanceId = runtimeService.startProcessInstanceByKey("testAsyncForkJoin_0").getId();
+			waitFor(new Condition() {
+				public boolean isTrue() {
+					return taskService.createTaskQuery().processInstanceId(processInstanceId).count() > 0;
+				}
+			});
+			
+			// 等待可能还在重试的合并任务执行完
+			Thread.sleep(2000);
+			assertEquals(1, getNodeCount("ScriptTask_1"));
+			assertEquals(1, getNodeCount("ScriptTask_2"));
+			assertEquals(1, getNodeCount("UserTask_1"));
+			assertEquals(1, taskService.createTaskQuery().processInstanceId(processInstanceId).count());
+			assertNull(getFailedAsyncJob(processInstanceId));
+		} finally {
+			deleteCommittedProcessData("testAsyncForkJoin_0");
+		}
+	}
+	
+	/**
+	 * 异步分支同步汇聚：两个分支在各自的命令中同时到达汇聚网关，只在父令牌上锁定，
+	 * 后到的分支冲突重试后完成合并，汇聚后的节点只进入一次，没有分支因冲突转入失败组
+	 */
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	@Deployment(resources = {"org/foxbpm/engine/test/impl/scheduler/testAsyncJoin_0.bpmn"})
+	public void testAsyncJoin() throws Exception {
+		reset(0);
+		try {
+			scheduler.start();
+			final String processInstanceId = runtimeService.startProcessInstanceByKey("testAsyncJoin_0").getId();
+			waitFor(new Condition() {
+				public boolean isTrue() {
+					return taskService.createTaskQuery().processInstanceId(processInstanceId).count() > 0;
+				}
+			});
+			
+			// 等待可能还在重试的分支任务执行完
+			Thread.sleep(2000);
+			assertEquals(1, getNodeCount("UserTask_1"));
+			assertEquals(1, taskService.createTaskQuery().processInstanceId(processInstanceId).count());
+			List<Map<String, Object>> tokens = jdbcTemplate.queryForList("select NODE_ID from foxbpm_run_token where PROCESSINSTANCE_ID = ? and END_TIME is null", processInstanceId);
+			assertEquals(1, tokens.size());
+			assertEquals("UserTask_1", tokens.get(0).get("NODE_ID"));
+			assertNull(getFailedAsyncJob(processInstanceId));
+		} finally {
+			deleteCommittedProcessData("testAsyncJoin_0");
+		}
+	}
+	
+	private boolean checkExists(JobKey jobKey) {
+		try {
+			return scheduler.checkExists(jobKey);
+		} catch (SchedulerException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	private Map<String, Object> getFailedAsyncJob(String processInstanceId) {
+		for (Map<String, Object> failedJob : processEngine.getScheduleService().getFailedAsyncJobs()) {
+			if (processInstanceId.equals(failedJob.get(FoxbpmJobExecutionContext.PROCESS_INSTANCE_ID))) {
+				return failedJob;
+			}
+		}
+		return null;
+	}
+	
+	private void waitFor(Condition condition) throws InterruptedException {
+		long endTime = System.currentTimeMillis() + WAIT_TIME;
+		while (!condition.isTrue()) {
+			assertTrue("等待异步任务执行超时", System.currentTimeMillis() < endTime);
+			Thread.sleep(100);
+		}
+	}
+	
+	private interface Condition {
+		boolean isTrue();
+	}
+}
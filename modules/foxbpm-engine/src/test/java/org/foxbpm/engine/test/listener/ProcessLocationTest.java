@@ -0,0 +1,166 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.test.listener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.foxbpm.engine.impl.entity.ProcessInstanceEntity;
+import org.foxbpm.engine.impl.entity.TaskEntity;
+import org.foxbpm.engine.impl.runtime.ProcessLocation;
+import org.foxbpm.engine.impl.util.LocationUtil;
+import org.foxbpm.kernel.process.impl.KernelFlowNodeImpl;
+import org.foxbpm.kernel.process.impl.KernelProcessDefinitionImpl;
+import org.foxbpm.kernel.runtime.ProcessInstanceStatus;
+import org.foxbpm.kernel.runtime.impl.KernelTokenImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ProcessLocationTest {
+
+	private static final String LOCATION = "{\"processStatus\":\"running\",\"nodes\":["
+			+ "{\"taskId\":\"task1\",\"nodeId\":\"UserTask_1\",\"nodeName\":\"审批\",\"users\":[{\"userId\":\"a\",\"userName\":\"张三\"}]},"
+			+ "{\"nodeId\":\"ReceiveTask_1\",\"nodeName\":\"等待\"}]}";
+
+	@Test
+	public void testParseTaskNodes() {
+		ProcessLocation location = ProcessLocation.parse(LOCATION);
+		Assert.assertEquals("running", location.getLocation().get(ProcessLocation.PROCESS_STATUS));
+		List<?> nodes = (List<?>) location.getLocation().get(ProcessLocation.NODES);
+		Assert.assertEquals(2, nodes.size());
+		Assert.assertEquals("task1", ((Map<?, ?>) nodes.get(0)).get(ProcessLocation.TASK_ID));
+		// 重新序列化后内容不变
+		ProcessLocation copy = ProcessLocation.parse(location.toJson());
+		Assert.assertEquals(location.getLocation(), copy.getLocation());
+	}
+
+	@Test
+	public void testParseEmpty() {
+		Assert.assertTrue(ProcessLocation.parse(null).getLocation().isEmpty());
+		Assert.assertEquals("", LocationUtil.parseProcessLocation(""));
+	}
+
+	@Test
+	public void testRenderCached() {
+		String rendered = LocationUtil.parseProcessLocation(LOCATION);
+		Assert.assertTrue(rendered.contains("审批"));
+		Assert.assertTrue(rendered.contains("等待"));
+		Assert.assertTrue(rendered.contains("张三"));
+		Assert.assertSame(rendered, LocationUtil.parseProcessLocation(LOCATION));
+		Assert.assertEquals("已完成", LocationUtil.parseProcessLocation("{\"processStatus\":\"complete\"}"));
+	}
+
+	@Test
+	public void testRenderCacheIgnoresTaskId() {
+		// 不同流程实例的任务编号不同，节点和处理者相同时共用缓存的显示格式
+		String rendered = LocationUtil.parseProcessLocation(LOCATION);
+		String otherInstance = LOCATION.replace("task1", "task2");
+		Assert.assertSame(rendered, LocationUtil.parseProcessLocation(otherInstance));
+		// 处理者不同时重新解析
+		String otherUser = LOCATION.replace("张三", "李四");
+		Assert.assertTrue(LocationUtil.parseProcessLocation(otherUser).contains("李四"));
+	}
+
+	@Test
+	public void testUpdateChangedTasksOnly() {
+		KernelProcessDefinitionImpl processDefinition = new KernelProcessDefinitionImpl("process");
+		ProcessInstanceEntity processInstance = new ProcessInstanceEntity();
+		processInstance.setInstanceStatus(ProcessInstanceStatus.RUNNING);
+		TaskEntity task1 = createTask(processInstance, "UserTask_1", "审批");
+		TaskEntity task2 = createTask(processInstance, "UserTask_2", "复核");
+
+		// 根令牌有未结束的子令牌，不计算位置；停在任务节点上的令牌由任务位置表示
+		KernelTokenImpl rootToken = createToken(null, createNode(processDefinition, "ParallelGateway_1", "分支"));
+		createToken(rootToken, createNode(processDefinition, "UserTask_1", "审批"));
+		createToken(rootToken, createNode(processDefinition, "ReceiveTask_1", "等待"));
+		KernelTokenImpl endedToken = createToken(rootToken, createNode(processDefinition, "ServiceTask_1", "服务"));
+		endedToken.setEnded(true);
+		List<KernelTokenImpl> tokens = new ArrayList<KernelTokenImpl>();
+		tokens.add(rootToken);
+		tokens.addAll(rootToken.getChildren());
+		processInstance.setRootTokenId("root");
+		processInstance.setTokens(tokens);
+
+		ProcessLocation location = new ProcessLocation();
+		Set<String> changedTaskIds = new HashSet<String>();
+		changedTaskIds.add(task1.getId());
+		changedTaskIds.add(task2.getId());
+		location.update(processInstance, changedTaskIds);
+		List<?> nodes = (List<?>) location.getLocation().get(ProcessLocation.NODES);
+		Assert.assertEquals(ProcessInstanceStatus.RUNNING, location.getLocation().get(ProcessLocation.PROCESS_STATUS));
+		Assert.assertEquals(3, nodes.size());
+		Map<?, ?> task1Node = (Map<?, ?>) nodes.get(0);
+		Assert.assertEquals(task1.getId(), task1Node.get(ProcessLocation.TASK_ID));
+		Assert.assertEquals("审批", task1Node.get(ProcessLocation.NODE_NAME));
+		Assert.assertEquals("复核", ((Map<?, ?>) nodes.get(1)).get(ProcessLocation.NODE_NAME));
+		Assert.assertEquals("ReceiveTask_1", ((Map<?, ?>) nodes.get(2)).get(ProcessLocation.NODE_ID));
+		Assert.assertNull(((Map<?, ?>) nodes.get(2)).get(ProcessLocation.TASK_ID));
+
+		// 只有变化的任务重新生成位置，未变化的任务沿用上次的位置
+		task1.setNodeName("审批（修改）");
+		task2.setNodeName("复核（修改）");
+		location.update(processInstance, Collections.singleton(task2.getId()));
+		nodes = (List<?>) location.getLocation().get(ProcessLocation.NODES);
+		Assert.assertEquals(3, nodes.size());
+		Assert.assertSame(task1Node, nodes.get(0));
+		Assert.assertEquals("审批", task1Node.get(ProcessLocation.NODE_NAME));
+		Assert.assertEquals("复核（修改）", ((Map<?, ?>) nodes.get(1)).get(ProcessLocation.NODE_NAME));
+		Assert.assertEquals("等待", ((Map<?, ?>) nodes.get(2)).get(ProcessLocation.NODE_NAME));
+
+		// 任务完成后移除位置，子令牌都结束后计算根令牌的位置
+		task2.setEndTime(new Date());
+		for (KernelTokenImpl token : rootToken.getChildren()) {
+			token.setEnded(true);
+		}
+		location.update(processInstance, Collections.singleton(task2.getId()));
+		nodes = (List<?>) location.getLocation().get(ProcessLocation.NODES);
+		Assert.assertEquals(2, nodes.size());
+		Assert.assertSame(task1Node, nodes.get(0));
+		Assert.assertEquals("ParallelGateway_1", ((Map<?, ?>) nodes.get(1)).get(ProcessLocation.NODE_ID));
+	}
+
+	private TaskEntity createTask(ProcessInstanceEntity processInstance, String nodeId, String nodeName) {
+		TaskEntity task = TaskEntity.create();
+		task.setNodeId(nodeId);
+		task.setNodeName(nodeName);
+		processInstance.addTask(task);
+		return task;
+	}
+
+	private KernelFlowNodeImpl createNode(KernelProcessDefinitionImpl processDefinition, String id, String name) {
+		KernelFlowNodeImpl node = new KernelFlowNodeImpl(id, processDefinition);
+		node.setName(name);
+		return node;
+	}
+
+	private KernelTokenImpl createToken(KernelTokenImpl parent, KernelFlowNodeImpl node) {
+		KernelTokenImpl token = new KernelTokenImpl();
+		token.setFlowNode(node);
+		token.setChildren(new ArrayList<KernelTokenImpl>());
+		if (parent != null) {
+			token.setParent(parent);
+			parent.addChild(token);
+		}
+		return token;
+	}
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.test.util;
+
+import java.util.Random;
+
+import org.foxbpm.engine.exception.FoxBPMOptimisticLockingException;
+import org.foxbpm.engine.impl.schedule.quartz.AsyncContinuationJob;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AsyncJobRetryTest {
+
+	@Test
+	public void testRetryWaitTime() {
+		Assert.assertEquals(10000, AsyncContinuationJob.getRetryWaitTime(10000, 1));
+		Assert.assertEquals(20000, AsyncContinuationJob.getRetryWaitTime(10000, 2));
+		Assert.assertEquals(40000, AsyncContinuationJob.getRetryWaitTime(10000, 3));
+	}
+
+	@Test
+	public void testMaxRetryWaitTime() {
+		// 重试次数很大时不溢出，最多等待一天
+		Assert.assertEquals(24L * 60 * 60 * 1000, AsyncContinuationJob.getRetryWaitTime(10000, 100));
+	}
+
+	@Test
+	public void testConflictWaitTime() {
+		Random random = new Random(0);
+		for (int conflicts = 1; conflicts <= 100; conflicts++) {
+			long waitTime = AsyncContinuationJob.getConflictWaitTime(conflicts, random);
+			Assert.assertTrue(waitTime >= 0);
+			Assert.assertTrue(waitTime <= Math.min(50L * conflicts, 2000));
+		}
+	}
+
+	@Test
+	public void testJitter() {
+		Random random = new Random(0);
+		for (int i = 0; i < 100; i++) {
+			long waitTime = AsyncContinuationJob.addJitter(10000, random);
+			Assert.assertTrue(waitTime >= 10000);
+			Assert.assertTrue(waitTime <= 12500);
+		}
+	}
+
+	@Test
+	public void testConflictRetry() {
+		FoxBPMOptimisticLockingException conflict = new FoxBPMOptimisticLockingException("10211001");
+		Assert.assertTrue(AsyncContinuationJob.isConflictRetry(conflict, 0));
+		Assert.assertTrue(AsyncContinuationJob.isConflictRetry(new RuntimeException(conflict), 10));
+		// 冲突次数用完后按普通失败处理
+		Assert.assertFalse(AsyncContinuationJob.isConflictRetry(conflict, AsyncContinuationJob.MAX_CONFLICT_RETRIES));
+		Assert.assertFalse(AsyncContinuationJob.isConflictRetry(new RuntimeException("error"), 0));
+	}
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.test.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.foxbpm.engine.db.PersistentObject;
+import org.foxbpm.engine.impl.mybatis.MybatisSqlSession;
+import org.foxbpm.engine.impl.persistence.AbstractManager;
+import org.foxbpm.engine.impl.persistence.AbstractManager.StatementGroup;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BatchFlushTest {
+
+	@Test
+	public void testGroupAdjacentKeepsOrder() {
+		List<PersistentObject> objects = new ArrayList<PersistentObject>();
+		for (int i = 0; i < 5; i++) {
+			objects.add(persistentObject("o" + i));
+		}
+		List<String> statements = Arrays.asList("insertProcessInstance", "insertToken", "insertToken", "insertProcessInstance", "insertToken");
+		List<StatementGroup> groups = AbstractManager.groupAdjacent(statements, objects);
+		// 不同语句交替出现时不合并，插入顺序不变
+		Assert.assertEquals(4, groups.size());
+		Assert.assertEquals("insertProcessInstance", groups.get(0).getStatement());
+		Assert.assertEquals("insertToken", groups.get(1).getStatement());
+		Assert.assertEquals(2, groups.get(1).getObjects().size());
+		Assert.assertEquals("o3", groups.get(2).getObjects().get(0).getId());
+		Assert.assertEquals("o4", groups.get(3).getObjects().get(0).getId());
+	}
+
+	@Test
+	public void testBatchSessionClosedAndCacheCleared() {
+		List<String> mainCalls = new ArrayList<String>();
+		List<String> batchCalls = new ArrayList<String>();
+		final SqlSession batchSession = sqlSession(batchCalls);
+		MybatisSqlSession mybatisSqlSession = new MybatisSqlSession(sqlSession(mainCalls), sqlSessionFactory()) {
+			protected SqlSession openBatchSqlSession() {
+				return batchSession;
+			}
+		};
+
+		List<PersistentObject> objects = Arrays.asList(persistentObject("a"), persistentObject("b"));
+		mybatisSqlSession.insertBatch("insertToken", objects);
+		Assert.assertEquals(Arrays.asList("insert", "insert", "flushStatements"), batchCalls);
+		// 批量后清空主session的一级缓存
+		Assert.assertTrue(mainCalls.contains("clearCache"));
+
+		mainCalls.clear();
+		mybatisSqlSession.updateBatch("updateToken", objects);
+		Assert.assertTrue(mainCalls.contains("clearCache"));
+
+		mainCalls.clear();
+		batchCalls.clear();
+		mybatisSqlSession.close();
+		Assert.assertEquals(Collections.singletonList("close"), batchCalls);
+		Assert.assertEquals(Collections.singletonList("close"), mainCalls);
+	}
+
+	private static SqlSession sqlSession(final List<String> calls) {
+		return (SqlSession) Proxy.newProxyInstance(BatchFlushTest.class.getClassLoader(), new Class<?>[]{SqlSession.class}, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				String name = method.getName();
+				if (!"getConnection".equals(name)) {
+					calls.add(name);
+				}
+				if ("flushStatements".equals(name)) {
+					return new ArrayList<Object>();
+				}
+				if (method.getReturnType() == int.class) {
+					return Integer.valueOf(1);
+				}
+				return null;
+			}
+		});
+	}
+
+	private static SqlSessionFactory sqlSessionFactory() {
+		return (SqlSessionFactory) Proxy.newProxyInstance(BatchFlushTest.class.getClassLoader(), new Class<?>[]{SqlSessionFactory.class}, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				return null;
+			}
+		});
+	}
+
+	private static PersistentObject persistentObject(final String id) {
+		return (PersistentObject) Proxy.newProxyInstance(BatchFlushTest.class.getClassLoader(), new Class<?>[]{PersistentObject.class}, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if ("getId".equals(method.getName()) || "toString".equals(method.getName())) {
+					return id;
+				}
+				if ("hashCode".equals(method.getName())) {
+					return Integer.valueOf(System.identityHashCode(proxy));
+				}
+				if ("equals".equals(method.getName())) {
+					return Boolean.valueOf(proxy == args[0]);
+				}
+				if ("isModified".equals(method.getName())) {
+					return Boolean.FALSE;
+				}
+				return null;
+			}
+		});
+	}
+}
@@ -19,8 +19,8 @@
 package org.foxbpm.engine.test.util;
 
 import org.foxbpm.engine.cache.Cache;
+import org.foxbpm.engine.cache.CacheStatistics;
 import org.foxbpm.engine.impl.cache.CacheUtil;
-import org.foxbpm.engine.impl.cache.DefaultCache;
 import org.foxbpm.engine.repository.ProcessDefinition;
 import org.foxbpm.engine.test.AbstractFoxBpmTestCase;
 import org.foxbpm.engine.test.Deployment;
@@ -34,16 +34,16 @@ public class CacheUtilTest extends AbstractFoxBpmTestCase {
 	public void testClear(){
 		//注解发布后，processDefinitionCache中应该有且仅有一个缓存定义
 		Cache<ProcessDefinition> processDefinitionCache = CacheUtil.getProcessDefinitionCache();
-		Assert.assertEquals(1, ((DefaultCache<ProcessDefinition>)processDefinitionCache).size());
+		Assert.assertEquals(1, ((CacheStatistics)processDefinitionCache).size());
 		
 		//查询一次用户后，userCache中应该存在一个user缓存对象
 		identityService.getUser("admin");
 		Cache<Object> userCache = CacheUtil.getIdentityCache();
-		Assert.assertEquals(1, ((DefaultCache<Object>)userCache).size());
+		Assert.assertEquals(1, ((CacheStatistics)userCache).size());
 		CacheUtil.clearCache();
 		//清空缓存后，缓存数量应该为0
-		Assert.assertEquals(0, ((DefaultCache<ProcessDefinition>)processDefinitionCache).size());
-		Assert.assertEquals(0, ((DefaultCache<Object>)userCache).size());
+		Assert.assertEquals(0, ((CacheStatistics)processDefinitionCache).size());
+		Assert.assertEquals(0, ((CacheStatistics)userCache).size());
 	}
 	
 }
@@ -0,0 +1,116 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * @author ych
+ */
+package org.foxbpm.engine.test.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.foxbpm.engine.cache.CacheWeigher;
+import org.foxbpm.engine.impl.cache.ConcurrentCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConcurrentCacheTest {
+
+	@Test
+	public void testStatistics() {
+		ConcurrentCache<String> cache = new ConcurrentCache<String>();
+		cache.add("a", "1");
+		Assert.assertEquals("1", cache.get("a"));
+		Assert.assertNull(cache.get("b"));
+		Assert.assertEquals(1, cache.getHitCount());
+		Assert.assertEquals(1, cache.getMissCount());
+		cache.remove("a");
+		Assert.assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testLimit() {
+		ConcurrentCache<String> cache = new ConcurrentCache<String>(10);
+		for (int i = 0; i < 100; i++) {
+			cache.add("key" + i, "value" + i);
+		}
+		//总数不能超过limit
+		Assert.assertTrue(cache.size() <= 10);
+		Assert.assertEquals(100 - cache.size(), cache.getEvictionCount());
+	}
+
+	@Test
+	public void testLru() {
+		//单段缓存，严格LRU
+		ConcurrentCache<String> cache = new ConcurrentCache<String>(2, -1, -1, 1, null);
+		cache.add("a", "1");
+		cache.add("b", "2");
+		cache.get("a");
+		cache.add("c", "3");
+		Assert.assertEquals("1", cache.get("a"));
+		Assert.assertNull(cache.get("b"));
+		Assert.assertEquals("3", cache.get("c"));
+	}
+
+	@Test
+	public void testWeight() {
+		CacheWeigher<String> weigher = new CacheWeigher<String>() {
+			public int weigh(String id, String object) {
+				return object.length();
+			}
+		};
+		ConcurrentCache<String> cache = new ConcurrentCache<String>(-1, 10, -1, 1, weigher);
+		cache.add("a", "12345");
+		cache.add("b", "12345");
+		Assert.assertEquals(10, cache.getWeight());
+		cache.add("c", "123");
+		Assert.assertNull(cache.get("a"));
+		Assert.assertEquals(8, cache.getWeight());
+	}
+
+	@Test
+	public void testExpire() throws InterruptedException {
+		ConcurrentCache<String> cache = new ConcurrentCache<String>(-1, -1, 50, 1, null);
+		cache.add("a", "1");
+		Assert.assertEquals("1", cache.get("a"));
+		Thread.sleep(100);
+		Assert.assertNull(cache.get("a"));
+		Assert.assertEquals(1, cache.getExpiredCount());
+	}
+
+	@Test
+	public void testConcurrentAccess() throws InterruptedException {
+		final ConcurrentCache<Integer> cache = new ConcurrentCache<Integer>(100);
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 8; t++) {
+			final int offset = t * 1000;
+			Thread thread = new Thread() {
+				public void run() {
+					for (int i = 0; i < 1000; i++) {
+						cache.add(String.valueOf(offset + i), offset + i);
+						cache.get(String.valueOf(offset + i / 2));
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		Assert.assertTrue(cache.size() <= 100);
+		Assert.assertEquals(8000, cache.getHitCount() + cache.getMissCount());
+		Assert.assertEquals(8000 - cache.size(), cache.getEvictionCount());
+	}
+}
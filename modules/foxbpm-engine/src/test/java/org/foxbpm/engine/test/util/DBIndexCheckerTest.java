@@ -0,0 +1,162 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.test.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.foxbpm.engine.impl.util.DBIndexChecker;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * DBIndexChecker测试，用代理模拟数据库元数据，只有FOXBPM_RUN_TOKEN表存在
+ *
+ * @author ych
+ */
+public class DBIndexCheckerTest {
+
+	private static final String TOKEN_TABLE = "FOXBPM_RUN_TOKEN";
+
+	@Test
+	public void testIndexPresent() {
+		List<Map<String, Object>> indexes = new ArrayList<Map<String, Object>>();
+		indexes.add(indexColumn("IDX_TOKEN_PI", "PROCESSINSTANCE_ID", 1));
+		// 以期望列开头的复合索引同样满足条件
+		indexes.add(indexColumn("IDX_TOKEN_PARENT", "PARENT_ID", 1));
+		indexes.add(indexColumn("IDX_TOKEN_PARENT", "NODE_ID", 2));
+		indexes.add(indexColumn("IDX_TOKEN_START", "ID", 2));
+		indexes.add(indexColumn("IDX_TOKEN_START", "START_TIME", 1));
+		List<String> missing = DBIndexChecker.check(dataSource(indexes), "foxbpm");
+		Assert.assertTrue(missing.toString(), missing.isEmpty());
+	}
+
+	@Test
+	public void testIndexMissing() {
+		List<Map<String, Object>> indexes = new ArrayList<Map<String, Object>>();
+		indexes.add(indexColumn("IDX_TOKEN_PI", "PROCESSINSTANCE_ID", 1));
+		// 列顺序不对的索引不能满足(START_TIME,ID)
+		indexes.add(indexColumn("IDX_TOKEN_START", "ID", 1));
+		indexes.add(indexColumn("IDX_TOKEN_START", "START_TIME", 2));
+		List<String> missing = DBIndexChecker.check(dataSource(indexes), "foxbpm");
+		Assert.assertEquals(2, missing.size());
+		Assert.assertTrue(missing.contains(TOKEN_TABLE + "(PARENT_ID)"));
+		Assert.assertTrue(missing.contains(TOKEN_TABLE + "(START_TIME,ID)"));
+	}
+
+	@Test
+	public void testNoDataSource() {
+		Assert.assertTrue(DBIndexChecker.check(null, "foxbpm").isEmpty());
+	}
+
+	private static Map<String, Object> indexColumn(String indexName, String columnName, int position) {
+		Map<String, Object> row = new HashMap<String, Object>();
+		row.put("INDEX_NAME", indexName);
+		row.put("COLUMN_NAME", columnName);
+		row.put("ORDINAL_POSITION", Integer.valueOf(position));
+		return row;
+	}
+
+	private static DataSource dataSource(final List<Map<String, Object>> indexes) {
+		final Map<String, Object> table = new HashMap<String, Object>();
+		table.put("TABLE_NAME", TOKEN_TABLE);
+		final Map<String, Object> primaryKey = new HashMap<String, Object>();
+		primaryKey.put("COLUMN_NAME", "ID");
+		primaryKey.put("KEY_SEQ", Integer.valueOf(1));
+		final DatabaseMetaData metaData = proxy(DatabaseMetaData.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				String name = method.getName();
+				if ("getDatabaseProductName".equals(name)) {
+					return "H2";
+				}
+				if ("getTables".equals(name)) {
+					List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+					if (TOKEN_TABLE.equals(args[2])) {
+						rows.add(table);
+					}
+					return resultSet(rows);
+				}
+				if ("getIndexInfo".equals(name)) {
+					return resultSet(TOKEN_TABLE.equals(args[2]) ? indexes : new ArrayList<Map<String, Object>>());
+				}
+				if ("getPrimaryKeys".equals(name)) {
+					List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+					rows.add(primaryKey);
+					return resultSet(rows);
+				}
+				return null;
+			}
+		});
+		final Connection connection = proxy(Connection.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if ("getMetaData".equals(method.getName())) {
+					return metaData;
+				}
+				return null;
+			}
+		});
+		return proxy(DataSource.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if ("getConnection".equals(method.getName())) {
+					return connection;
+				}
+				return null;
+			}
+		});
+	}
+
+	private static ResultSet resultSet(List<Map<String, Object>> rows) {
+		final Iterator<Map<String, Object>> iterator = rows.iterator();
+		return proxy(ResultSet.class, new InvocationHandler() {
+			private Map<String, Object> current;
+
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				String name = method.getName();
+				if ("next".equals(name)) {
+					current = iterator.hasNext() ? iterator.next() : null;
+					return Boolean.valueOf(current != null);
+				}
+				if ("getString".equals(name)) {
+					Object value = current.get(args[0]);
+					return value == null ? null : value.toString();
+				}
+				if ("getShort".equals(name)) {
+					Object value = current.get(args[0]);
+					return Short.valueOf(value == null ? 0 : ((Number) value).shortValue());
+				}
+				return null;
+			}
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+		return (T) Proxy.newProxyInstance(DBIndexCheckerTest.class.getClassLoader(), new Class[]{type}, handler);
+	}
+}
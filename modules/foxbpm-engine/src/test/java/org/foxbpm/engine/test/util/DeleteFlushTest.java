@@ -0,0 +1,171 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.test.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.foxbpm.engine.db.PersistentObject;
+import org.foxbpm.engine.impl.entity.IdentityLinkEntity;
+import org.foxbpm.engine.impl.persistence.AbstractManager;
+import org.foxbpm.engine.sqlsession.ISqlSession;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 刷新前合并insert/update/delete操作的测试，不需要数据库
+ * 
+ * @author ych
+ */
+public class DeleteFlushTest {
+
+	/**
+	 * 同一命令中先insert后delete的对象，两条语句都不执行
+	 */
+	@Test
+	public void testInsertThenDelete() {
+		TestManager manager = new TestManager();
+		IdentityLinkEntity identityLink = identityLink("a");
+		manager.insert(identityLink);
+		manager.delete(identityLink);
+		manager.flush();
+		Assert.assertEquals(Collections.emptyList(), manager.sqlCalls);
+		Assert.assertEquals(Collections.emptyList(), manager.executedDeletes);
+		Assert.assertTrue(manager.getDeletedObjectKeys().isEmpty());
+		Assert.assertNull(manager.findCached("a"));
+	}
+
+	/**
+	 * 修改后又删除的对象只执行delete，不再执行update
+	 */
+	@Test
+	public void testUpdateThenDelete() {
+		TestManager manager = new TestManager();
+		IdentityLinkEntity identityLink = identityLink("b");
+		manager.update(identityLink);
+		manager.delete(identityLink);
+		manager.flush();
+		Assert.assertEquals(Collections.emptyList(), manager.sqlCalls);
+		Assert.assertEquals(Collections.singletonList("b"), manager.executedDeletes);
+		Assert.assertNull(manager.findCached("b"));
+	}
+
+	/**
+	 * 同一对象(同类、同编号)重复删除只记录一次
+	 */
+	@Test
+	public void testDuplicateCheckedDeletes() {
+		TestManager manager = new TestManager();
+		manager.delete(identityLink("c"));
+		manager.delete(identityLink("c"));
+		manager.delete(identityLink("d"));
+		Assert.assertEquals(2, manager.getDeleteOperations().size());
+		manager.flush();
+		Assert.assertEquals(Arrays.asList("c", "d"), manager.executedDeletes);
+	}
+
+	/**
+	 * 每次flush后清空已删除对象的索引，下一次flush中同编号的对象可以正常insert和delete
+	 */
+	@Test
+	public void testDeletedKeysClearedBetweenFlushes() {
+		TestManager manager = new TestManager();
+		manager.delete(identityLink("e"));
+		manager.flush();
+		Assert.assertEquals(Collections.singletonList("e"), manager.executedDeletes);
+		Assert.assertTrue(manager.getDeletedObjectKeys().isEmpty());
+		Assert.assertTrue(manager.getDeleteOperations().isEmpty());
+
+		// 上一次flush的删除不能取消本次的insert
+		manager.insert(identityLink("e"));
+		manager.flush();
+		Assert.assertEquals(Collections.singletonList("insert:insertIdentityLink:e"), manager.sqlCalls);
+
+		// 再次删除不能被当作重复删除跳过
+		manager.delete(identityLink("e"));
+		manager.flush();
+		Assert.assertEquals(Arrays.asList("e", "e"), manager.executedDeletes);
+	}
+
+	private static IdentityLinkEntity identityLink(String id) {
+		IdentityLinkEntity identityLink = new IdentityLinkEntity();
+		identityLink.setId(id);
+		return identityLink;
+	}
+
+	/**
+	 * 记录执行的sql，CheckedDeleteOperation替换为只记录编号的删除操作
+	 */
+	static class TestManager extends AbstractManager {
+
+		final List<String> sqlCalls = new ArrayList<String>();
+
+		final List<String> executedDeletes = new ArrayList<String>();
+
+		private final ISqlSession sqlSession = (ISqlSession) Proxy.newProxyInstance(DeleteFlushTest.class.getClassLoader(), new Class<?>[]{ISqlSession.class}, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				sqlCalls.add(method.getName() + ":" + args[0] + ":" + ((PersistentObject) args[1]).getId());
+				if (method.getReturnType() == int.class) {
+					return Integer.valueOf(1);
+				}
+				return null;
+			}
+		});
+
+		protected ISqlSession getSqlSession() {
+			return sqlSession;
+		}
+
+		public void delete(PersistentObject persistentObject) {
+			int size = deleteOperations.size();
+			super.delete(persistentObject);
+			if (deleteOperations.size() > size) {
+				deleteOperations.set(size, new RecordingDeleteOperation(persistentObject));
+			}
+		}
+
+		List<DeleteOperation> getDeleteOperations() {
+			return deleteOperations;
+		}
+
+		Set<?> getDeletedObjectKeys() {
+			return deletedObjectKeys;
+		}
+
+		PersistentObject findCached(String id) {
+			return cacheGet(id);
+		}
+
+		class RecordingDeleteOperation extends CheckedDeleteOperation {
+
+			RecordingDeleteOperation(PersistentObject persistentObject) {
+				super(persistentObject);
+			}
+
+			public void execute() {
+				executedDeletes.add(persistentObject.getId());
+			}
+		}
+	}
+}
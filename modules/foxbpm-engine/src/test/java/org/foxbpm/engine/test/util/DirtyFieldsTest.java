@@ -0,0 +1,101 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.test.util;
+
+import java.util.Date;
+import java.util.Map;
+
+import org.foxbpm.engine.impl.db.DirtyFields;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DirtyFieldsTest {
+
+	private static final Map<String, Integer> FIELDS = DirtyFields.indexFields("name", "assignee", "endTime");
+
+	@Test
+	public void testMarkBeforeStart() {
+		DirtyFields dirtyFields = new DirtyFields(FIELDS);
+		// 加载对象时setter的调用不记录
+		dirtyFields.mark("name");
+		Assert.assertFalse(dirtyFields.isTracking());
+		Assert.assertFalse(dirtyFields.isDirty());
+	}
+
+	@Test
+	public void testMark() {
+		DirtyFields dirtyFields = new DirtyFields(FIELDS);
+		dirtyFields.start();
+		Assert.assertFalse(dirtyFields.isDirty());
+		dirtyFields.mark("assignee", "endTime");
+		Assert.assertTrue(dirtyFields.isDirty());
+		Assert.assertFalse(dirtyFields.isDirty("name"));
+		Assert.assertTrue(dirtyFields.isDirty("assignee"));
+		Assert.assertTrue(dirtyFields.isDirty("endTime"));
+		// 三个字段名按可变参数处理，全部标记
+		dirtyFields.mark("name", "assignee", "endTime");
+		Assert.assertTrue(dirtyFields.isDirty("name"));
+		Assert.assertTrue(dirtyFields.isDirty("assignee"));
+		Assert.assertTrue(dirtyFields.isDirty("endTime"));
+		// update成功后重新开始记录
+		dirtyFields.start();
+		Assert.assertFalse(dirtyFields.isDirty());
+		dirtyFields.stop();
+		dirtyFields.mark("name");
+		Assert.assertFalse(dirtyFields.isDirty());
+	}
+
+	@Test
+	public void testMarkUnchanged() {
+		DirtyFields dirtyFields = new DirtyFields(FIELDS);
+		dirtyFields.start();
+		// 值没有变化时不标记
+		dirtyFields.markChanged("name", "a", "a");
+		dirtyFields.markChanged("assignee", null, null);
+		Assert.assertFalse(dirtyFields.isDirty());
+		dirtyFields.markChanged("name", "a", "b");
+		dirtyFields.markChanged("assignee", null, "admin");
+		dirtyFields.markChanged("endTime", new Date(0), null);
+		Assert.assertTrue(dirtyFields.isDirty("name"));
+		Assert.assertTrue(dirtyFields.isDirty("assignee"));
+		Assert.assertTrue(dirtyFields.isDirty("endTime"));
+	}
+
+	@Test
+	public void testUnknownField() {
+		DirtyFields dirtyFields = new DirtyFields(FIELDS);
+		dirtyFields.start();
+		try {
+			dirtyFields.mark("unknown");
+			Assert.fail();
+		} catch (RuntimeException e) {
+			// 期望抛出异常
+		}
+	}
+
+	@Test
+	public void testCopy() {
+		DirtyFields dirtyFields = new DirtyFields(FIELDS);
+		dirtyFields.start();
+		dirtyFields.mark("name");
+		DirtyFields copy = dirtyFields.copy();
+		Assert.assertFalse(copy.isTracking());
+		Assert.assertFalse(copy.isDirty());
+		Assert.assertTrue(dirtyFields.isDirty("name"));
+	}
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.test.util;
+
+import groovy.lang.Binding;
+
+import org.foxbpm.engine.impl.cache.ConcurrentCache;
+import org.foxbpm.engine.impl.scriptlanguage.GroovyScriptCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GroovyScriptCacheTest {
+
+	@Test
+	public void testCompileOnce() {
+		GroovyScriptCache scriptCache = new GroovyScriptCache();
+		for (int i = 0; i < 10; i++) {
+			Binding binding = new Binding();
+			binding.setVariable("a", Integer.valueOf(i));
+			Assert.assertEquals(Integer.valueOf(i + 1), scriptCache.evaluate("a + 1", binding));
+		}
+		Assert.assertEquals(1, scriptCache.getCompileCount());
+		Assert.assertEquals(9, scriptCache.getHitCount());
+		Assert.assertEquals(1, scriptCache.getMissCount());
+	}
+
+	@Test
+	public void testPrecompile() {
+		GroovyScriptCache scriptCache = new GroovyScriptCache();
+		scriptCache.compile("1 == 1");
+		Assert.assertEquals(Boolean.TRUE, scriptCache.evaluate("1 == 1", new Binding()));
+		Assert.assertEquals(1, scriptCache.getCompileCount());
+	}
+
+	@Test
+	public void testLimit() {
+		GroovyScriptCache scriptCache = new GroovyScriptCache(new ConcurrentCache<Class<?>>(2, -1, -1, 1, null));
+		scriptCache.compile("1");
+		scriptCache.compile("2");
+		scriptCache.compile("3");
+		Assert.assertEquals(2, ((ConcurrentCache<Class<?>>) scriptCache.getScriptClassCache()).size());
+		scriptCache.compile("1");
+		Assert.assertEquals(4, scriptCache.getCompileCount());
+	}
+}
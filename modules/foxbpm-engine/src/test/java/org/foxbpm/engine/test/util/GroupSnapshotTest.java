@@ -0,0 +1,119 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.test.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.foxbpm.engine.impl.entity.GroupEntity;
+import org.foxbpm.engine.impl.identity.GroupRelationEntity;
+import org.foxbpm.engine.impl.identity.GroupSnapshot;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GroupSnapshotTest {
+
+	/**
+	 * root
+	 *  ├ a
+	 *  │ └ a1
+	 *  └ b
+	 * c(上级为自身)
+	 */
+	private GroupSnapshot createSnapshot() {
+		List<GroupEntity> groups = new ArrayList<GroupEntity>();
+		groups.add(group("a1", "a"));
+		groups.add(group("root", null));
+		groups.add(group("a", "root"));
+		groups.add(group("b", "root"));
+		groups.add(group("c", "c"));
+		List<GroupRelationEntity> relations = new ArrayList<GroupRelationEntity>();
+		relations.add(relation("u1", "a1"));
+		relations.add(relation("u1", "b"));
+		relations.add(relation("u2", "a1"));
+		relations.add(relation("u3", "missing"));
+		return new GroupSnapshot("dept", groups, relations);
+	}
+
+	@Test
+	public void testTree() {
+		GroupSnapshot snapshot = createSnapshot();
+		Assert.assertEquals(Arrays.asList("root", "a", "a1", "b"), ids(snapshot.getDescendants("root", true)));
+		Assert.assertEquals(Arrays.asList("a1"), ids(snapshot.getDescendants("a", false)));
+		Assert.assertEquals(Arrays.asList("c"), ids(snapshot.getDescendants("c", true)));
+		Assert.assertTrue(snapshot.getDescendants("missing", true).isEmpty());
+		Assert.assertEquals(Arrays.asList("a", "root"), ids(snapshot.getAncestors("a1")));
+		Assert.assertTrue(snapshot.isAncestor("root", "a1"));
+		Assert.assertFalse(snapshot.isAncestor("a", "b"));
+		Assert.assertFalse(snapshot.isAncestor("a1", "a1"));
+		Assert.assertEquals("dept", snapshot.getGroup("a").getGroupType());
+	}
+
+	@Test
+	public void testCycle() {
+		List<GroupEntity> groups = new ArrayList<GroupEntity>();
+		groups.add(group("x", "y"));
+		groups.add(group("y", "x"));
+		GroupSnapshot snapshot = new GroupSnapshot("dept", groups, null);
+		Assert.assertEquals(2, snapshot.getDescendants("x", true).size());
+		Assert.assertEquals(1, snapshot.getAncestors("y").size());
+	}
+
+	@Test
+	public void testMemberships() {
+		GroupSnapshot snapshot = createSnapshot();
+		Assert.assertEquals(Arrays.asList("a1", "b"), ids(snapshot.getGroupsByUserId("u1")));
+		Assert.assertEquals(Arrays.asList("u1", "u2"), snapshot.getUserIdsByGroupId("a1"));
+		Assert.assertTrue(snapshot.getGroupsByUserId("u3").isEmpty());
+
+		GroupSnapshot refreshed = snapshot.withUserGroups("u1", Arrays.asList("b", "c"));
+		Assert.assertEquals(Arrays.asList("b", "c"), ids(refreshed.getGroupsByUserId("u1")));
+		Assert.assertEquals(Arrays.asList("u2"), refreshed.getUserIdsByGroupId("a1"));
+		Assert.assertEquals(Arrays.asList("u1"), refreshed.getUserIdsByGroupId("c"));
+		// 原快照不变
+		Assert.assertEquals(Arrays.asList("u1", "u2"), snapshot.getUserIdsByGroupId("a1"));
+
+		refreshed = refreshed.withUserGroups("u1", null);
+		Assert.assertTrue(refreshed.getGroupsByUserId("u1").isEmpty());
+		Assert.assertTrue(refreshed.getUserIdsByGroupId("b").isEmpty());
+	}
+
+	private static GroupEntity group(String groupId, String supGroupId) {
+		GroupEntity group = new GroupEntity(groupId, "dept");
+		group.setGroupName(groupId);
+		group.setSupGroupId(supGroupId);
+		return group;
+	}
+
+	private static GroupRelationEntity relation(String userId, String groupId) {
+		GroupRelationEntity relation = new GroupRelationEntity();
+		relation.setUserId(userId);
+		relation.setGroupId(groupId);
+		relation.setGroupType("dept");
+		return relation;
+	}
+
+	private static List<String> ids(List<GroupEntity> groups) {
+		List<String> ids = new ArrayList<String>();
+		for (GroupEntity group : groups) {
+			ids.add(group.getGroupId());
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.test.util;
+
+import org.foxbpm.engine.impl.expression.ParsedExpression;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ParsedExpressionTest {
+
+	@Test
+	public void testParse() {
+		ParsedExpression parsedExpression = new ParsedExpression("${amount} > 100 && ${type} == \"a\"");
+		Assert.assertEquals("amount > 100 && type == \"a\"", parsedExpression.getScriptText());
+		Assert.assertEquals(2, parsedExpression.getDataVariableIds().size());
+		Assert.assertEquals("amount", parsedExpression.getDataVariableIds().get(0));
+		Assert.assertEquals("type", parsedExpression.getDataVariableIds().get(1));
+		Assert.assertTrue(parsedExpression.hasDataVariable());
+	}
+
+	@Test
+	public void testNoVariable() {
+		ParsedExpression parsedExpression = new ParsedExpression("\"admin\"");
+		Assert.assertEquals("\"admin\"", parsedExpression.getScriptText());
+		Assert.assertFalse(parsedExpression.hasDataVariable());
+	}
+}
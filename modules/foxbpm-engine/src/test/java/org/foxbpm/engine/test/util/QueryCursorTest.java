@@ -0,0 +1,68 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.test.util;
+
+import java.util.Date;
+
+import org.foxbpm.engine.query.QueryCursor;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class QueryCursorTest {
+
+	@Test
+	public void testToken() {
+		QueryCursor cursor = new QueryCursor(new Date(1400000000123L), "0b1c6f0e-2f4a-4c1e-9a43-6b3f0f2f1a7d");
+		QueryCursor parsed = QueryCursor.valueOf(cursor.toString());
+		Assert.assertEquals(cursor, parsed);
+		Assert.assertEquals(1400000000123L, parsed.getTime().getTime());
+		Assert.assertEquals("0b1c6f0e-2f4a-4c1e-9a43-6b3f0f2f1a7d", parsed.getId());
+		// 编号中包含分隔符
+		Assert.assertEquals("a.b", QueryCursor.valueOf(new QueryCursor(new Date(0), "a.b").toString()).getId());
+	}
+
+	@Test
+	public void testNullTime() {
+		// 时间为空的记录排在最后，可以作为游标
+		QueryCursor cursor = new QueryCursor(null, "id1");
+		QueryCursor parsed = QueryCursor.valueOf(cursor.toString());
+		Assert.assertEquals(cursor, parsed);
+		Assert.assertNull(parsed.getTime());
+		Assert.assertEquals("id1", parsed.getId());
+		Assert.assertFalse(cursor.equals(new QueryCursor(new Date(0), "id1")));
+	}
+
+	@Test
+	public void testFirstPage() {
+		Assert.assertNull(QueryCursor.valueOf(null));
+		Assert.assertNull(QueryCursor.valueOf(""));
+	}
+
+	@Test
+	public void testInvalidToken() {
+		String[] tokens = {"abc", ".id", "abc.", "!!.id"};
+		for (String token : tokens) {
+			try {
+				QueryCursor.valueOf(token);
+				Assert.fail(token);
+			} catch (RuntimeException e) {
+				// 期望抛出异常
+			}
+		}
+	}
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.test.util;
+
+import groovy.lang.Binding;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.foxbpm.engine.impl.scriptlanguage.GroovyScriptCache;
+import org.foxbpm.engine.impl.scriptlanguage.ScriptBinding;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ScriptBindingTest {
+
+	@Test
+	public void testLayeredVariables() {
+		GroovyScriptCache scriptCache = new GroovyScriptCache();
+		Binding processVariables = new Binding();
+		processVariables.setVariable("amount", Integer.valueOf(10));
+
+		ScriptBinding scriptBinding = new ScriptBinding(processVariables);
+		scriptBinding.setLocalVariable("processInfo", "context");
+		Assert.assertEquals("context10", scriptCache.evaluate("processInfo + amount", scriptBinding));
+
+		// 给流程变量赋值写回流程变量，临时变量只在本次执行中可见
+		scriptCache.evaluate("amount = 20; temp = 1", new ScriptBinding(processVariables));
+		Assert.assertEquals(Integer.valueOf(20), processVariables.getVariable("amount"));
+		Assert.assertFalse(processVariables.hasVariable("temp"));
+		Assert.assertFalse(processVariables.hasVariable("processInfo"));
+	}
+
+	@Test
+	public void testConcurrentEvaluation() throws Exception {
+		final GroovyScriptCache scriptCache = new GroovyScriptCache();
+		final AtomicInteger failures = new AtomicInteger();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 8; i++) {
+			final int base = i * 1000;
+			Thread thread = new Thread() {
+				public void run() {
+					for (int j = 0; j < 200; j++) {
+						ScriptBinding scriptBinding = new ScriptBinding(new Binding());
+						scriptBinding.setLocalVariable("a", Integer.valueOf(base + j));
+						if (!Integer.valueOf(base + j + 1).equals(scriptCache.evaluate("a + 1", scriptBinding))) {
+							failures.incrementAndGet();
+						}
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		Assert.assertEquals(0, failures.get());
+	}
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.test.util;
+
+import org.foxbpm.engine.impl.Context;
+import org.foxbpm.engine.impl.ProcessEngineConfigurationImpl;
+import org.foxbpm.engine.impl.cache.ConcurrentCache;
+import org.foxbpm.engine.impl.entity.ProcessDefinitionEntity;
+import org.foxbpm.engine.impl.entity.TaskEntity;
+import org.foxbpm.engine.impl.persistence.deploy.DeploymentManager;
+import org.foxbpm.engine.repository.ProcessDefinition;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TaskDirtyTrackingTest {
+
+	@After
+	public void tearDown() {
+		Context.removeProcessEngineConfiguration();
+	}
+
+	@Test
+	public void testUnchangedValueNotDirty() {
+		TaskEntity task = loadedTask();
+		task.setAssignee("admin");
+		task.setName("任务1");
+		task.setPriority(50);
+		Assert.assertFalse(task.getDirtyFields().toString(), task.isDirty());
+		task.setAssignee("admin2");
+		Assert.assertTrue(task.getDirtyFields().isDirty("assignee"));
+		Assert.assertFalse(task.getDirtyFields().isDirty("name"));
+	}
+
+	@Test
+	public void testLazyProcessDefinitionNotDirty() {
+		final ProcessDefinitionEntity processDefinition = new ProcessDefinitionEntity("process_1:1:1");
+		processDefinition.setKey("process_1");
+		processDefinition.setName("流程1");
+		final ConcurrentCache<ProcessDefinition> processDefinitionCache = new ConcurrentCache<ProcessDefinition>();
+		processDefinitionCache.add(processDefinition.getId(), processDefinition);
+		Context.setProcessEngineConfiguration(new ProcessEngineConfigurationImpl() {
+			public DeploymentManager getDeploymentManager() {
+				DeploymentManager deploymentManager = new DeploymentManager();
+				deploymentManager.setProcessDefinitionCache(processDefinitionCache);
+				return deploymentManager;
+			}
+		});
+
+		// 只读取流程定义的任务不能产生update
+		TaskEntity task = loadedTask();
+		Assert.assertSame(processDefinition, task.getProcessDefinition());
+		Assert.assertFalse(task.getDirtyFields().toString(), task.isDirty());
+
+		// 设置同一个流程定义也不标记修改
+		task.setProcessDefinition(processDefinition);
+		Assert.assertFalse(task.getDirtyFields().toString(), task.isDirty());
+	}
+
+	/**
+	 * 模拟mybatis加载的任务：先调用setter，再开始记录修改
+	 */
+	private TaskEntity loadedTask() {
+		TaskEntity task = new TaskEntity("task_1");
+		task.setProcessDefinitionId("process_1:1:1");
+		task.setProcessDefinitionKey("process_1");
+		task.setProcessDefinitionName("流程1");
+		task.setAssignee("admin");
+		task.setName("任务1");
+		task.setPriority(50);
+		task.startDirtyTracking();
+		return task;
+	}
+}
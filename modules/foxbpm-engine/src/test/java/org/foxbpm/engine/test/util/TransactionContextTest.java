@@ -0,0 +1,69 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.test.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.foxbpm.engine.config.TransactionState;
+import org.foxbpm.engine.impl.interceptor.CommandContext;
+import org.foxbpm.engine.impl.transaction.StandaloneTransactionContext;
+import org.foxbpm.engine.transaction.TransactionListener;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TransactionContextTest {
+
+	@Test
+	public void testCommit() {
+		List<String> events = new ArrayList<String>();
+		StandaloneTransactionContext transactionContext = transactionContext(events);
+		transactionContext.commit();
+		Assert.assertEquals(Arrays.asList("COMMITTING", "COMMITTED"), events);
+		// 监听只触发一次
+		transactionContext.commit();
+		Assert.assertEquals(2, events.size());
+	}
+
+	@Test
+	public void testRollback() {
+		List<String> events = new ArrayList<String>();
+		StandaloneTransactionContext transactionContext = transactionContext(events);
+		transactionContext.rollback();
+		// 回滚时不触发提交监听，异步任务不会被调度
+		Assert.assertEquals(Arrays.asList("ROLLINGBACK", "ROLLED_BACK"), events);
+	}
+
+	private StandaloneTransactionContext transactionContext(List<String> events) {
+		StandaloneTransactionContext transactionContext = new StandaloneTransactionContext(null);
+		for (TransactionState transactionState : new TransactionState[]{TransactionState.COMMITTED, TransactionState.ROLLED_BACK,
+				TransactionState.COMMITTING, TransactionState.ROLLINGBACK}) {
+			transactionContext.addTransactionListener(transactionState, listener(events, transactionState.name()));
+		}
+		return transactionContext;
+	}
+
+	private TransactionListener listener(final List<String> events, final String event) {
+		return new TransactionListener() {
+			public void execute(CommandContext commandContext) {
+				events.add(event);
+			}
+		};
+	}
+}
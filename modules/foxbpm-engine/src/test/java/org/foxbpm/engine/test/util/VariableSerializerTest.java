@@ -0,0 +1,81 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.test.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.foxbpm.engine.impl.datavariable.CompactVariableSerializer;
+import org.foxbpm.engine.impl.datavariable.VariableSerializerFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class VariableSerializerTest {
+
+	@Test
+	public void testCompactRoundTrip() {
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put("name", "流程变量");
+		map.put("count", Integer.valueOf(3));
+		map.put("amount", new BigDecimal("12.50"));
+		map.put("created", new Date(1400000000000L));
+		map.put("empty", null);
+		List<Object> list = new ArrayList<Object>();
+		list.add(Long.valueOf(7L));
+		list.add(Boolean.TRUE);
+		list.add(Double.valueOf(1.5d));
+		map.put("list", list);
+
+		byte[] bytes = VariableSerializerFactory.serialize(map);
+		Assert.assertEquals(CompactVariableSerializer.FORMAT, bytes[0]);
+		Assert.assertEquals(map, VariableSerializerFactory.deserialize(bytes));
+		Assert.assertEquals("abc", VariableSerializerFactory.deserialize(VariableSerializerFactory.serialize("abc")));
+		Assert.assertNull(VariableSerializerFactory.serialize(null));
+		Assert.assertNull(VariableSerializerFactory.deserialize(null));
+	}
+
+	@Test
+	public void testLegacyJavaSerialization() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(out);
+		oos.writeObject("legacy");
+		oos.close();
+		Assert.assertEquals("legacy", VariableSerializerFactory.deserialize(out.toByteArray()));
+	}
+
+	@Test
+	public void testJavaFallback() {
+		TestBean bean = new TestBean();
+		bean.value = "bean";
+		byte[] bytes = VariableSerializerFactory.serialize(bean);
+		Assert.assertEquals((byte) 0xAC, bytes[0]);
+		Assert.assertEquals("bean", ((TestBean) VariableSerializerFactory.deserialize(bytes)).value);
+	}
+
+	public static class TestBean implements Serializable {
+		private static final long serialVersionUID = 1L;
+		String value;
+	}
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.engine.test.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.foxbpm.engine.impl.datavariable.VariableSerializerFactory;
+import org.foxbpm.engine.impl.entity.VariableInstanceEntity;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 变量值反序列化缓存测试
+ * 
+ * @author ych
+ */
+public class VariableValueCacheTest {
+
+	@Test
+	public void testValueObjectCached() {
+		VariableInstanceEntity variable = new VariableInstanceEntity();
+		variable.setValue(VariableSerializerFactory.serialize(createMap("a")));
+
+		Object first = variable.getValueObject();
+		Assert.assertEquals(createMap("a"), first);
+		Assert.assertSame(first, variable.getValueObject());
+	}
+
+	@Test
+	public void testSetBytesResetsCache() {
+		VariableInstanceEntity variable = new VariableInstanceEntity();
+		variable.setValue(VariableSerializerFactory.serialize(createMap("a")));
+		Object first = variable.getValueObject();
+
+		variable.setValue(VariableSerializerFactory.serialize(createMap("b")));
+		Object second = variable.getValueObject();
+		Assert.assertNotSame(first, second);
+		Assert.assertEquals(createMap("b"), second);
+
+		variable.setValue((byte[]) null);
+		Assert.assertNull(variable.getValueObject());
+	}
+
+	@Test
+	public void testSetObjectKeepsInstance() {
+		VariableInstanceEntity variable = new VariableInstanceEntity();
+		Map<String, Object> map = createMap("a");
+		variable.setValue((Object) map);
+		Assert.assertSame(map, variable.getValueObject());
+		Assert.assertEquals(map, VariableSerializerFactory.deserialize(variable.getValue()));
+	}
+
+	/**
+	 * 原地修改缓存实例后，刷新时重新序列化会把修改写回value
+	 */
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testInPlaceMutationReserialized() {
+		VariableInstanceEntity variable = new VariableInstanceEntity();
+		variable.setValue(VariableSerializerFactory.serialize(createMap("a")));
+
+		Map<String, Object> map = (Map<String, Object>) variable.getValueObject();
+		map.put("name", "changed");
+		// 修改前value仍是旧数据
+		Assert.assertEquals(createMap("a"), VariableSerializerFactory.deserialize(variable.getValue()));
+
+		// 与getExpressionValueByte()相同，按当前实例重新序列化
+		variable.setValue((Object) variable.getValueObject());
+		Assert.assertEquals(map, VariableSerializerFactory.deserialize(variable.getValue()));
+		Assert.assertSame(map, variable.getValueObject());
+	}
+
+	private Map<String, Object> createMap(String name) {
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put("name", name);
+		map.put("count", Integer.valueOf(1));
+		return map;
+	}
+}
@@ -153,9 +153,18 @@ public class ProcessDefinitionBuilder {
 			}
 			sequenceFlow.setTargetRef(destination);
 		}
+		buildRoutingTables(processDefinition.getFlowNodes());
 		return processDefinition;
 	}
 
+	/** 线条全部创建后生成各节点的离开路由表 */
+	protected void buildRoutingTables(List<KernelFlowNodeImpl> flowNodes) {
+		for (KernelFlowNodeImpl flowNode : flowNodes) {
+			flowNode.buildRoutingTable();
+			buildRoutingTables(flowNode.getFlowNodes());
+		}
+	}
+
 	public KernelFlowNodeImpl getFlowNode() {
 		return (KernelFlowNodeImpl) containerStack.peek();
 	}
@@ -29,4 +29,10 @@ public interface KernelSequenceFlowBehavior  extends Serializable  {
 	
 	 boolean isContinue(FlowNodeExecutionContext executionContext);
 
+	 /**
+	  * 流程定义构建路由表时调用，返回false的线条离开时不再调用isContinue
+	  * @return 线条是否有条件
+	  */
+	 boolean hasCondition();
+
 }
@@ -17,8 +17,6 @@
  */
 package org.foxbpm.kernel.event;
 
-import java.util.List;
-
 import org.foxbpm.kernel.KernelListenerException;
 import org.foxbpm.kernel.process.impl.KernelFlowElementsContainerImpl;
 import org.foxbpm.kernel.runtime.InterpretableExecutionContext;
@@ -30,34 +28,45 @@ public abstract class AbstractKernelEvent implements KernelEvent {
 		return false;
 	}
 
+	/** 事件序号，-2表示还未获取 */
+	private int eventIndex = -2;
+
+	/**
+	 * 依次执行监听器，kernelListenerIndex记录下一个要执行的监听器，监听器出错时从出错的监听器继续执行
+	 */
 	public void execute(InterpretableExecutionContext executionContext) {
 	
 		KernelFlowElementsContainerImpl container = getContainer(executionContext);		
 		String eventName = getEventName();
-		List<KernelListener> kernelListeners = container.getKernelListeners(eventName);
+		KernelListener[] kernelListeners = container.getKernelListenerArray(getEventIndex(), eventName);
 		
-		int kernelListenerIndex = executionContext.getKernelListenerIndex();
-
-		if (kernelListeners.size() > kernelListenerIndex) {
+		for (int i = executionContext.getKernelListenerIndex(); i < kernelListeners.length; i++) {
 			executionContext.setEventName(eventName);
 			executionContext.setEventSource(container);
-			KernelListener listener = kernelListeners.get(kernelListenerIndex);
+			KernelListener listener = kernelListeners[i];
 			try {
 				listener.notify(executionContext);
 			} catch (Exception e) {
 				throw new KernelListenerException("不能执行事件监听 : " + e.getMessage(), e,executionContext.getId(),executionContext.getFlowNode().getId(),listener.getClass().getName(),eventName);
 			}
-			executionContext.setKernelListenerIndex(kernelListenerIndex + 1);
-			executionContext.fireEvent(this);
+			executionContext.setKernelListenerIndex(i + 1);
+		}
 
-		} else {
-			executionContext.setKernelListenerIndex(0);
-			executionContext.setEventName(null);
-			executionContext.setEventSource(null);
+		executionContext.setKernelListenerIndex(0);
+		executionContext.setEventName(null);
+		executionContext.setEventSource(null);
 
-			eventNotificationsCompleted(executionContext);
-		}
+		eventNotificationsCompleted(executionContext);
+
+	}
 
+	private int getEventIndex() {
+		int index = eventIndex;
+		if (index == -2) {
+			index = KernelEventType.indexOf(getEventName());
+			eventIndex = index;
+		}
+		return index;
 	}
 
 	protected abstract KernelFlowElementsContainerImpl getContainer(InterpretableExecutionContext executionContext);
@@ -17,8 +17,6 @@
  */
 package org.foxbpm.kernel.event;
 
-import java.util.List;
-
 import org.foxbpm.kernel.KernelListenerException;
 import org.foxbpm.kernel.process.impl.KernelSequenceFlowImpl;
 import org.foxbpm.kernel.runtime.InterpretableExecutionContext;
@@ -33,28 +31,23 @@ public class KernelEventSequenceFlowTake implements KernelEvent {
 	public void execute(InterpretableExecutionContext executionContext) {
 		KernelSequenceFlowImpl transition = executionContext.getSequenceFlow();
 
-		List<KernelListener> kernelListeners = transition.getKernelListeners();
-		int kernelListenerIndex = executionContext.getKernelListenerIndex();
+		KernelListener[] kernelListeners = transition.getKernelListenerArray();
 
-		if (kernelListeners.size() > kernelListenerIndex) {
+		for (int i = executionContext.getKernelListenerIndex(); i < kernelListeners.length; i++) {
 			executionContext.setEventName(KernelEventType.EVENTTYPE_SEQUENCEFLOW_TAKE);
 			executionContext.setEventSource(transition);
-			KernelListener listener = kernelListeners.get(kernelListenerIndex);
+			KernelListener listener = kernelListeners[i];
 			try {
 				listener.notify(executionContext);
 			} catch (Exception e) {
 				throw new KernelListenerException("不能执行事件监听 : " + e.getMessage(), e,executionContext.getId(),executionContext.getSequenceFlow().getId(),listener.getClass().getName(),KernelEventType.EVENTTYPE_SEQUENCEFLOW_TAKE);
 			}
-			executionContext.setKernelListenerIndex(kernelListenerIndex + 1);
-			executionContext.fireEvent(this);
-
-		} else {
-
-			executionContext.setKernelListenerIndex(0);
-			executionContext.setEventName(null);
-			executionContext.setEventSource(null);
-
+			executionContext.setKernelListenerIndex(i + 1);
 		}
+
+		executionContext.setKernelListenerIndex(0);
+		executionContext.setEventName(null);
+		executionContext.setEventSource(null);
 	}
 
 }
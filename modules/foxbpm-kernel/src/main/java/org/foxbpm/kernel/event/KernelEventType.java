@@ -17,6 +17,10 @@
  */
 package org.foxbpm.kernel.event;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 public class KernelEventType {
 
 	public static final String EVENTTYPE_SEQUENCEFLOW_TAKE = "sequenceflow-take";
@@ -43,4 +47,45 @@ public class KernelEventType {
 	public static final String EVENTTYPE_TASK_END = "task-end";
 	public static final String EVENTTYPE_TIMER = "timer";
 
+	/** 已知事件类型，数组下标即事件序号，容器按序号保存监听器数组 */
+	private static final String[] EVENT_TYPES = {EVENTTYPE_SEQUENCEFLOW_TAKE, EVENTTYPE_BEFORE_SIGNAL,
+			EVENTTYPE_AFTER_SIGNAL, EVENTTYPE_PROCESS_START, EVENTTYPE_PROCESS_START_INITIAL,
+			EVENTTYPE_PROCESS_END, EVENTTYPE_PROCESS_ABORT, EVENTTYPE_NODE_ENTER, EVENTTYPE_NODE_EXECUTE,
+			EVENTTYPE_NODE_LEAVE, EVENTTYPE_TASK_ROLLBACK, EVENTTYPE_TASK_JUMP, EVENTTYPE_SUPERSTATE_ENTER,
+			EVENTTYPE_SUPERSTATE_LEAVE, EVENTTYPE_SUBPROCESS_CREATED, EVENTTYPE_SUBPROCESS_END,
+			EVENTTYPE_TASK_CREATE, EVENTTYPE_TASK_ASSIGN, EVENTTYPE_TASK_ASSIGN_CHANGE,
+			EVENTTYPE_BEFORE_PROCESS_SAVE, EVENTTYPE_TASK_START, EVENTTYPE_TASK_END, EVENTTYPE_TIMER};
+
+	private static final Map<String, Integer> EVENT_TYPE_INDEXES;
+
+	static {
+		Map<String, Integer> indexes = new HashMap<String, Integer>();
+		for (int i = 0; i < EVENT_TYPES.length; i++) {
+			indexes.put(EVENT_TYPES[i], Integer.valueOf(i));
+		}
+		EVENT_TYPE_INDEXES = Collections.unmodifiableMap(indexes);
+	}
+
+	/**
+	 * 获取事件类型的序号
+	 * 
+	 * @param eventName
+	 *            事件类型
+	 * @return 序号，不是已知事件类型时返回-1
+	 */
+	public static int indexOf(String eventName) {
+		if (eventName == null) {
+			return -1;
+		}
+		Integer index = EVENT_TYPE_INDEXES.get(eventName);
+		return index == null ? -1 : index.intValue();
+	}
+
+	/**
+	 * @return 已知事件类型的数量
+	 */
+	public static int getEventTypeCount() {
+		return EVENT_TYPES.length;
+	}
+
 }
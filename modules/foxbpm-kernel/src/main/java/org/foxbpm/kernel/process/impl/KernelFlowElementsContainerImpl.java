@@ -26,6 +26,7 @@ import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
 import org.foxbpm.kernel.KernelException;
+import org.foxbpm.kernel.event.KernelEventType;
 import org.foxbpm.kernel.event.KernelListener;
 import org.foxbpm.kernel.process.KernelArtifact;
 import org.foxbpm.kernel.process.KernelFlowElementsContainer;
@@ -47,6 +48,13 @@ public class KernelFlowElementsContainerImpl extends KernelFlowElementImpl
 	protected List<KernelLaneSet> laneSets = new ArrayList<KernelLaneSet>();
 	protected List<KernelArtifact> artifacts = new ArrayList<KernelArtifact>();
 	protected Map<String, List<KernelListener>> kernelListeners = new HashMap<String, List<KernelListener>>();
+	/**
+	 * 按事件序号(KernelEventType.indexOf)保存的监听器数组，第一次分发时生成，添加监听器时清空。
+	 * 流程定义在缓存中被多个线程共享，volatile保证其他线程读到的是填充完整的数组
+	 */
+	protected transient volatile KernelListener[][] kernelListenerArrays;
+
+	private static final KernelListener[] EMPTY_LISTENERS = new KernelListener[0];
 
 	public KernelFlowElementsContainerImpl(String id, KernelProcessDefinitionImpl processDefinition) {
 		super(id, processDefinition);
@@ -160,6 +168,55 @@ public class KernelFlowElementsContainerImpl extends KernelFlowElementImpl
 		} else {
 			listeners.add(index, kernelListener);
 		}
+		kernelListenerArrays = null;
+	}
+
+	/**
+	 * 获取事件的监听器数组，供事件分发使用，调用方不能修改返回的数组
+	 * 
+	 * @param eventIndex
+	 *            事件序号，KernelEventType.indexOf(eventName)
+	 * @param eventName
+	 *            事件类型
+	 * @return
+	 */
+	public KernelListener[] getKernelListenerArray(int eventIndex, String eventName) {
+		if (eventIndex < 0) {
+			// 非内置事件类型，不缓存
+			return toListenerArray(kernelListeners.get(eventName));
+		}
+		KernelListener[][] arrays = kernelListenerArrays;
+		if (arrays == null) {
+			arrays = freezeKernelListeners();
+		}
+		return arrays[eventIndex];
+	}
+
+	/**
+	 * 按当前监听器生成各事件的监听器数组
+	 * 
+	 * @return
+	 */
+	public KernelListener[][] freezeKernelListeners() {
+		KernelListener[][] arrays = new KernelListener[KernelEventType.getEventTypeCount()][];
+		for (int i = 0; i < arrays.length; i++) {
+			arrays[i] = EMPTY_LISTENERS;
+		}
+		for (Map.Entry<String, List<KernelListener>> entry : kernelListeners.entrySet()) {
+			int eventIndex = KernelEventType.indexOf(entry.getKey());
+			if (eventIndex >= 0) {
+				arrays[eventIndex] = toListenerArray(entry.getValue());
+			}
+		}
+		kernelListenerArrays = arrays;
+		return arrays;
+	}
+
+	private static KernelListener[] toListenerArray(List<KernelListener> listeners) {
+		if (listeners == null || listeners.isEmpty()) {
+			return EMPTY_LISTENERS;
+		}
+		return listeners.toArray(new KernelListener[listeners.size()]);
 	}
 
 	public Map<String, List<KernelListener>> getKernelListeners() {
@@ -40,6 +40,8 @@ public class KernelFlowNodeImpl extends KernelFlowElementsContainerImpl implemen
 	protected boolean isScope;
 	protected boolean isAsync;
 	protected boolean isExclusive;
+	/** 离开路由表，线条变化后重新生成 */
+	protected KernelRoutingTable routingTable;
 
 	public KernelFlowNodeImpl(String id, KernelProcessDefinitionImpl processDefinition) {
 		super(id, processDefinition);
@@ -54,6 +56,7 @@ public class KernelFlowNodeImpl extends KernelFlowElementsContainerImpl implemen
 				processDefinition);
 		sequenceFlow.setSourceRef(this);
 		outgoingSequenceFlows.add(sequenceFlow);
+		routingTable = null;
 
 		if (sequenceFlowId != null) {
 			if (namedOutgoingSequenceFlows.containsKey(sequenceFlowId)) {
@@ -78,6 +81,7 @@ public class KernelFlowNodeImpl extends KernelFlowElementsContainerImpl implemen
 
 	protected void setOutgoingSequenceFlows(List<KernelSequenceFlowImpl> outgoingSequenceFlows) {
 		this.outgoingSequenceFlows = outgoingSequenceFlows;
+		this.routingTable = null;
 	}
 
 	protected void setParent(KernelFlowElementsContainerImpl parent) {
@@ -113,6 +117,30 @@ public class KernelFlowNodeImpl extends KernelFlowElementsContainerImpl implemen
 		return (List) outgoingSequenceFlows;
 	}
 
+	/**
+	 * 获取离开路由表，流程定义构建时已生成，未生成时按当前线条生成
+	 * 
+	 * @return
+	 */
+	public KernelRoutingTable getRoutingTable() {
+		KernelRoutingTable table = routingTable;
+		if (table == null) {
+			table = buildRoutingTable();
+		}
+		return table;
+	}
+
+	/**
+	 * 按当前离开线条重新生成路由表
+	 * 
+	 * @return
+	 */
+	public KernelRoutingTable buildRoutingTable() {
+		KernelRoutingTable table = new KernelRoutingTable(getOutgoingSequenceFlows());
+		routingTable = table;
+		return table;
+	}
+
 	public KernelFlowNodeBehavior getKernelFlowNodeBehavior() {
 		return flowNodeBehavior;
 	}
@@ -0,0 +1,122 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.kernel.process.impl;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.foxbpm.kernel.behavior.KernelSequenceFlowBehavior;
+import org.foxbpm.kernel.process.KernelSequenceFlow;
+import org.foxbpm.kernel.runtime.FlowNodeExecutionContext;
+
+/**
+ * 节点的离开路由表，流程定义构建时按线条顺序生成，之后不再修改。
+ * <p>
+ * 没有条件的线条不计算表达式；节点后面全部是无条件线条时直接返回缓存的线条集合，令牌离开不再创建集合。
+ * 排他网关使用findFirstSequenceFlow，按顺序找到第一条满足条件的线条后不再计算后面的条件。
+ *
+ * @author ych
+ */
+public class KernelRoutingTable implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** 按orderId排好序的离开线条 */
+	private final KernelSequenceFlow[] sequenceFlows;
+
+	/** 与sequenceFlows对应，线条是否有条件 */
+	private final boolean[] conditional;
+
+	/** 所有离开线条，不可修改 */
+	private final List<KernelSequenceFlow> allSequenceFlows;
+
+	/** 节点后面全部是无条件线条 */
+	private final boolean unconditional;
+
+	public KernelRoutingTable(List<KernelSequenceFlow> outgoingSequenceFlows) {
+		int size = outgoingSequenceFlows.size();
+		this.sequenceFlows = outgoingSequenceFlows.toArray(new KernelSequenceFlow[size]);
+		this.conditional = new boolean[size];
+		boolean hasCondition = false;
+		for (int i = 0; i < size; i++) {
+			conditional[i] = hasCondition(sequenceFlows[i]);
+			hasCondition = hasCondition || conditional[i];
+		}
+		this.unconditional = !hasCondition;
+		List<KernelSequenceFlow> list = new ArrayList<KernelSequenceFlow>(size);
+		Collections.addAll(list, sequenceFlows);
+		this.allSequenceFlows = Collections.unmodifiableList(list);
+	}
+
+	private static boolean hasCondition(KernelSequenceFlow sequenceFlow) {
+		if (!(sequenceFlow instanceof KernelSequenceFlowImpl)) {
+			return true;
+		}
+		KernelSequenceFlowBehavior sequenceFlowBehavior = ((KernelSequenceFlowImpl) sequenceFlow).getSequenceFlowBehavior();
+		return sequenceFlowBehavior != null && sequenceFlowBehavior.hasCondition();
+	}
+
+	/**
+	 * 查找所有可以通过的线条，保持线条顺序
+	 *
+	 * @param executionContext
+	 *            令牌
+	 * @return 没有条件线条时返回缓存的不可修改集合
+	 */
+	public List<KernelSequenceFlow> findSequenceFlows(FlowNodeExecutionContext executionContext) {
+		if (unconditional) {
+			return allSequenceFlows;
+		}
+		List<KernelSequenceFlow> sequenceFlowList = new ArrayList<KernelSequenceFlow>(sequenceFlows.length);
+		for (int i = 0; i < sequenceFlows.length; i++) {
+			if (!conditional[i] || sequenceFlows[i].isContinue(executionContext)) {
+				sequenceFlowList.add(sequenceFlows[i]);
+			}
+		}
+		return sequenceFlowList;
+	}
+
+	/**
+	 * 按顺序查找第一条可以通过的线条，找到后不再计算后面线条的条件
+	 *
+	 * @param executionContext
+	 *            令牌
+	 * @return 没有可以通过的线条时返回null
+	 */
+	public KernelSequenceFlow findFirstSequenceFlow(FlowNodeExecutionContext executionContext) {
+		for (int i = 0; i < sequenceFlows.length; i++) {
+			if (!conditional[i] || sequenceFlows[i].isContinue(executionContext)) {
+				return sequenceFlows[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return 所有离开线条，不可修改
+	 */
+	public List<KernelSequenceFlow> getSequenceFlows() {
+		return allSequenceFlows;
+	}
+
+	public boolean isUnconditional() {
+		return unconditional;
+	}
+}
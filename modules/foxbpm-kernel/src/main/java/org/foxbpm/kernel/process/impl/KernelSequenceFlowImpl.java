@@ -38,6 +38,8 @@ public class KernelSequenceFlowImpl extends KernelFlowElementImpl implements Ker
 	protected KernelFlowNodeImpl sourceRef;
 	protected KernelFlowNodeImpl targetRef;
 	protected List<KernelListener> kernelListeners;
+	/** 监听器数组，第一次分发时生成，修改监听器时清空 */
+	protected transient KernelListener[] kernelListenerArray;
 	protected int orderId = 0;
 
 	protected KernelSequenceFlowBehavior sequenceFlowBehavior;
@@ -82,6 +84,7 @@ public class KernelSequenceFlowImpl extends KernelFlowElementImpl implements Ker
 			kernelListeners = new ArrayList<KernelListener>();
 		}
 		kernelListeners.add(kernelListener);
+		kernelListenerArray = null;
 	}
 
 	// getters and setters
@@ -98,12 +101,28 @@ public class KernelSequenceFlowImpl extends KernelFlowElementImpl implements Ker
 		return kernelListeners;
 	}
 
+	/**
+	 * 获取线条的监听器数组，供事件分发使用，调用方不能修改返回的数组
+	 * 
+	 * @return
+	 */
+	public KernelListener[] getKernelListenerArray() {
+		KernelListener[] listeners = kernelListenerArray;
+		if (listeners == null) {
+			List<KernelListener> list = getKernelListeners();
+			listeners = list.toArray(new KernelListener[list.size()]);
+			kernelListenerArray = listeners;
+		}
+		return listeners;
+	}
+
 	public KernelFlowNodeImpl getTargetRef() {
 		return targetRef;
 	}
 
 	public void setKernelListeners(List<KernelListener> kernelListeners) {
 		this.kernelListeners = kernelListeners;
+		this.kernelListenerArray = null;
 	}
 
 	public List<Integer> getWaypoints() {
@@ -197,28 +197,13 @@ public class KernelTokenImpl extends KernelVariableScopeImpl implements FlowNode
 
 	/*** 默认离开，验证每个线条。 */
 	public void leave() {
-		// 定义可通过线条集合
-		List<KernelSequenceFlow> sequenceFlowList = new ArrayList<KernelSequenceFlow>();
-		// 并行网关会忽略掉后面的线条的条件
-
-		// 获取正常离开的所有线条
-		for (KernelSequenceFlow sequenceFlow : getFlowNode().getOutgoingSequenceFlows()) {
-			// 验证线条上的条件
-			if (sequenceFlow.isContinue(this)) {
-				sequenceFlowList.add(sequenceFlow);
-			}
-
-		}
-
-		leave(sequenceFlowList);
+		// 按路由表查找可通过线条，无条件线条不计算表达式
+		leave(getFlowNode().getRoutingTable().findSequenceFlows(this));
 	}
 
 	/*** 根据指定的线条离开 */
 	public void leave(KernelSequenceFlow sequenceFlow) {
-
-		List<KernelSequenceFlow> sequenceFlows = new ArrayList<KernelSequenceFlow>();
-		sequenceFlows.add(sequenceFlow);
-		leave(sequenceFlows);
+		leave(Collections.singletonList(sequenceFlow));
 	}
 
 	/*** 根据指定的线条离开 */
@@ -327,11 +312,16 @@ public class KernelTokenImpl extends KernelVariableScopeImpl implements FlowNode
 			String leavingSequenceFlowId = forkedToken.leavingSequenceFlowId;
 
 			// 执行节点离开方法
-			childToken.take(this.getFlowNode().findOutgoingSequenceFlow(leavingSequenceFlowId));
+			takeForkedToken(childToken, this.getFlowNode().findOutgoingSequenceFlow(leavingSequenceFlowId));
 
 		}
 	}
 
+	/** 分支令牌沿线条离开,子类可以改为在新的命令中执行 */
+	protected void takeForkedToken(KernelTokenImpl childToken, KernelSequenceFlow sequenceFlow) {
+		childToken.take(sequenceFlow);
+	}
+
 	public void take(KernelFlowNodeImpl flowNode) {
 		enter(flowNode);
 	}
@@ -22,8 +22,12 @@ import java.util.List;
 
 import org.foxbpm.kernel.ProcessDefinitionBuilder;
 import org.foxbpm.kernel.event.KernelEventType;
+import org.foxbpm.kernel.event.KernelListener;
 import org.foxbpm.kernel.process.KernelProcessDefinition;
+import org.foxbpm.kernel.process.impl.KernelFlowNodeImpl;
+import org.foxbpm.kernel.process.impl.KernelProcessDefinitionImpl;
 import org.foxbpm.kernel.runtime.KernelProcessInstance;
+import org.foxbpm.kernel.runtime.ListenerExecutionContext;
 import org.foxbpm.kernel.test.behavior.AutomaticBehavior;
 import org.foxbpm.kernel.test.behavior.TestEndBehavior;
 import org.foxbpm.kernel.test.listener.EventCollector;
@@ -83,4 +87,80 @@ public class KernelEventTest extends KernelTestCase  {
 	
 		
 	}
+
+	public void testListenerOrder() {
+
+		EventCollector first = new EventCollector();
+		EventCollector second = new EventCollector();
+		List<String> calls = new ArrayList<String>();
+
+		KernelProcessDefinitionImpl processDefinition = (KernelProcessDefinitionImpl) new ProcessDefinitionBuilder("listenerOrder")
+				.createFlowNode("start").initial().behavior(new AutomaticBehavior())
+				.executionListener(KernelEventType.EVENTTYPE_NODE_ENTER, new OrderListener("first", calls))
+				.executionListener(KernelEventType.EVENTTYPE_NODE_ENTER, new OrderListener("second", calls))
+				.executionListener(KernelEventType.EVENTTYPE_NODE_LEAVE, first)
+				.startSequenceFlow("end").endSequenceFlow().endFlowNode()
+				.createFlowNode("end").behavior(new TestEndBehavior()).endFlowNode()
+				.buildProcessDefinition();
+
+		// 流程定义构建后添加的监听器也要执行
+		KernelFlowNodeImpl start = processDefinition.findFlowNode("start");
+		start.addKernelListener(KernelEventType.EVENTTYPE_NODE_ENTER, new OrderListener("third", calls));
+		start.addKernelListener(KernelEventType.EVENTTYPE_NODE_ENTER, new OrderListener("zero", calls), 0);
+		start.addKernelListener(KernelEventType.EVENTTYPE_NODE_LEAVE, second);
+
+		KernelProcessInstance processInstance = processDefinition.createProcessInstance();
+		processInstance.start();
+
+		assertTrue(processInstance.isEnded());
+		List<String> expectedCalls = new ArrayList<String>();
+		expectedCalls.add("zero");
+		expectedCalls.add("first");
+		expectedCalls.add("second");
+		expectedCalls.add("third");
+		assertEquals(expectedCalls, calls);
+		assertEquals(1, first.events.size());
+		assertEquals(1, second.events.size());
+		assertEquals("node-leave on FlowNode(start)", second.events.get(0));
+
+		// 已执行过的流程定义再添加监听器
+		calls.clear();
+		start.addKernelListener(KernelEventType.EVENTTYPE_NODE_ENTER, new OrderListener("fourth", calls));
+		processDefinition.createProcessInstance().start();
+		expectedCalls.add("fourth");
+		assertEquals(expectedCalls, calls);
+	}
+
+	public void testEventTypeIndex() {
+		assertEquals(-1, KernelEventType.indexOf(null));
+		assertEquals(-1, KernelEventType.indexOf("unknown-event"));
+		List<Integer> indexes = new ArrayList<Integer>();
+		String[] eventTypes = {KernelEventType.EVENTTYPE_SEQUENCEFLOW_TAKE, KernelEventType.EVENTTYPE_NODE_ENTER,
+				KernelEventType.EVENTTYPE_NODE_EXECUTE, KernelEventType.EVENTTYPE_NODE_LEAVE,
+				KernelEventType.EVENTTYPE_PROCESS_START, KernelEventType.EVENTTYPE_PROCESS_END,
+				KernelEventType.EVENTTYPE_TASK_CREATE, KernelEventType.EVENTTYPE_TIMER};
+		for (String eventType : eventTypes) {
+			int index = KernelEventType.indexOf(eventType);
+			assertTrue(index >= 0 && index < KernelEventType.getEventTypeCount());
+			assertFalse(indexes.contains(Integer.valueOf(index)));
+			indexes.add(Integer.valueOf(index));
+		}
+	}
+
+	static class OrderListener implements KernelListener {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String name;
+		private final List<String> calls;
+
+		OrderListener(String name, List<String> calls) {
+			this.name = name;
+			this.calls = calls;
+		}
+
+		public void notify(ListenerExecutionContext executionContext) throws Exception {
+			calls.add(name);
+		}
+	}
 }
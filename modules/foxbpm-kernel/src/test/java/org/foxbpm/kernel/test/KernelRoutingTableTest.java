@@ -0,0 +1,97 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.kernel.test;
+
+import java.util.List;
+
+import org.foxbpm.kernel.ProcessDefinitionBuilder;
+import org.foxbpm.kernel.process.KernelSequenceFlow;
+import org.foxbpm.kernel.process.impl.KernelFlowNodeImpl;
+import org.foxbpm.kernel.process.impl.KernelProcessDefinitionImpl;
+import org.foxbpm.kernel.process.impl.KernelRoutingTable;
+import org.foxbpm.kernel.test.behavior.AutomaticBehavior;
+import org.foxbpm.kernel.test.behavior.TestEndBehavior;
+import org.foxbpm.kernel.test.behavior.TestSequenceFlowBehavior;
+
+/**
+ * 节点离开路由表测试
+ *
+ * @author ych
+ */
+public class KernelRoutingTableTest extends KernelTestCase {
+
+	public void testUnconditionalSequenceFlows() {
+		KernelProcessDefinitionImpl processDefinition = (KernelProcessDefinitionImpl) new ProcessDefinitionBuilder("routingTest")
+				.createFlowNode("start").initial().behavior(new AutomaticBehavior())
+				.sequenceFlow("end1", "flow1").sequenceFlow("end2", "flow2").endFlowNode()
+				.createFlowNode("end1").behavior(new TestEndBehavior()).endFlowNode()
+				.createFlowNode("end2").behavior(new TestEndBehavior()).endFlowNode()
+				.buildProcessDefinition();
+
+		KernelRoutingTable routingTable = processDefinition.findFlowNode("start").getRoutingTable();
+		assertTrue(routingTable.isUnconditional());
+		// 无条件线条每次返回同一个缓存集合
+		List<KernelSequenceFlow> sequenceFlows = routingTable.findSequenceFlows(null);
+		assertSame(sequenceFlows, routingTable.findSequenceFlows(null));
+		assertEquals(2, sequenceFlows.size());
+		assertEquals("flow1", sequenceFlows.get(0).getId());
+		assertEquals("flow2", sequenceFlows.get(1).getId());
+	}
+
+	public void testConditionalSequenceFlows() {
+		TestSequenceFlowBehavior flow1 = new TestSequenceFlowBehavior(false);
+		TestSequenceFlowBehavior flow2 = new TestSequenceFlowBehavior(true);
+		TestSequenceFlowBehavior flow3 = new TestSequenceFlowBehavior(true);
+		KernelProcessDefinitionImpl processDefinition = (KernelProcessDefinitionImpl) new ProcessDefinitionBuilder("routingTest")
+				.createFlowNode("gateway").initial().behavior(new AutomaticBehavior())
+				.sequenceFlow("end", "flow1", null, flow1).sequenceFlow("end", "flow2", null, flow2)
+				.sequenceFlow("end", "flow3", null, flow3).sequenceFlow("end", "flow4").endFlowNode()
+				.createFlowNode("end").behavior(new TestEndBehavior()).endFlowNode()
+				.buildProcessDefinition();
+
+		KernelFlowNodeImpl gateway = processDefinition.findFlowNode("gateway");
+		KernelRoutingTable routingTable = gateway.getRoutingTable();
+		assertFalse(routingTable.isUnconditional());
+
+		List<KernelSequenceFlow> sequenceFlows = routingTable.findSequenceFlows(null);
+		assertEquals(3, sequenceFlows.size());
+		assertEquals("flow2", sequenceFlows.get(0).getId());
+		assertEquals("flow3", sequenceFlows.get(1).getId());
+		assertEquals("flow4", sequenceFlows.get(2).getId());
+		assertEquals(1, flow3.getCount());
+
+		// 找到第一条满足条件的线条后不再计算后面的条件
+		assertEquals("flow2", routingTable.findFirstSequenceFlow(null).getId());
+		assertEquals(2, flow1.getCount());
+		assertEquals(2, flow2.getCount());
+		assertEquals(1, flow3.getCount());
+	}
+
+	public void testRebuildAfterNewSequenceFlow() {
+		KernelProcessDefinitionImpl processDefinition = (KernelProcessDefinitionImpl) new ProcessDefinitionBuilder("routingTest")
+				.createFlowNode("start").initial().behavior(new AutomaticBehavior())
+				.sequenceFlow("end", "flow1").endFlowNode()
+				.createFlowNode("end").behavior(new TestEndBehavior()).endFlowNode()
+				.buildProcessDefinition();
+
+		KernelFlowNodeImpl start = processDefinition.findFlowNode("start");
+		assertEquals(1, start.getRoutingTable().getSequenceFlows().size());
+		start.createOutgoingSequenceFlow("flow2");
+		assertEquals(2, start.getRoutingTable().getSequenceFlows().size());
+	}
+}
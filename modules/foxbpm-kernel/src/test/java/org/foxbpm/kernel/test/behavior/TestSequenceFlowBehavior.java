@@ -0,0 +1,52 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.kernel.test.behavior;
+
+import org.foxbpm.kernel.behavior.KernelSequenceFlowBehavior;
+import org.foxbpm.kernel.runtime.FlowNodeExecutionContext;
+
+/**
+ * 返回固定结果的线条条件，记录条件计算次数
+ *
+ * @author ych
+ */
+public class TestSequenceFlowBehavior implements KernelSequenceFlowBehavior {
+
+	private static final long serialVersionUID = 1L;
+
+	private final boolean result;
+
+	private int count;
+
+	public TestSequenceFlowBehavior(boolean result) {
+		this.result = result;
+	}
+
+	public boolean isContinue(FlowNodeExecutionContext executionContext) {
+		count++;
+		return result;
+	}
+
+	public boolean hasCondition() {
+		return true;
+	}
+
+	public int getCount() {
+		return count;
+	}
+}
@@ -50,6 +50,9 @@ public interface RestConstants {
 	final static String PAGE_START ="start";
 	final static String PAGE_LENGTH = "length";
 	
+	//游标分页续页令牌
+	final static String CONTINUATION = "continuation";
+	
 	//是否我参与的
 	final static String PARTICIPATE = "participate";
 	final static String INITIATOR = "initiator";
@@ -30,12 +30,14 @@ import java.util.Map;
 import java.util.Set;
 
 import org.foxbpm.engine.db.PersistentObject;
+import org.foxbpm.engine.exception.FoxBPMException;
 import org.foxbpm.engine.exception.FoxbpmPluginException;
 import org.foxbpm.engine.impl.entity.UserEntity;
 import org.foxbpm.engine.impl.identity.Authentication;
 import org.foxbpm.engine.impl.query.AbstractQuery;
 import org.foxbpm.engine.impl.util.StringUtil;
 import org.foxbpm.engine.query.Query;
+import org.foxbpm.engine.query.QueryCursor;
 import org.foxbpm.engine.query.QueryProperty;
 import org.foxbpm.rest.common.RestConstants;
 import org.restlet.data.Form;
@@ -212,6 +214,70 @@ public abstract class AbstractRestResource extends ServerResource {
 		result.setRecordsFiltered(resultCount);
 		return result;
 	}
+	/**
+	 * 是否使用游标分页，请求中带continuation参数(第一页传空值)时使用
+	 * 
+	 * @return
+	 */
+	protected boolean isContinuation() {
+		return getQuery().getNames().contains(RestConstants.CONTINUATION);
+	}
+	
+	/**
+	 * 获取请求中的续页令牌对应的游标，第一页返回null
+	 * 
+	 * @return
+	 */
+	protected QueryCursor getContinuationCursor() {
+		String continuation = getQueryParameter(RestConstants.CONTINUATION, getQuery());
+		try {
+			return QueryCursor.valueOf(continuation);
+		} catch (FoxBPMException e) {
+			throw new FoxbpmPluginException("无效的续页令牌:" + continuation, "Rest服务");
+		}
+	}
+	
+	/**
+	 * 游标分页的每页条数，取pageSize参数，默认15
+	 * 
+	 * @return
+	 */
+	protected int getContinuationPageSize() {
+		Form queryForm = getQuery();
+		if (queryForm.getNames().contains(RestConstants.PAGE_SIZE)) {
+			pageSize = StringUtil.getInt(getQueryParameter(RestConstants.PAGE_SIZE, queryForm));
+		}
+		if (pageSize <= 0) {
+			pageSize = RestConstants.DEFAULT_SIZE;
+		}
+		return pageSize;
+	}
+	
+	/**
+	 * 构造游标分页的返回结果，不统计总数，翻页代价与页码无关
+	 * 
+	 * @param resultObjects
+	 *            本页数据
+	 * @param nextCursor
+	 *            下一页的游标，没有下一页时为null
+	 * @return
+	 */
+	protected DataResult continuationResult(List<? extends PersistentObject> resultObjects, QueryCursor nextCursor) {
+		List<Map<String, Object>> dataMap = new ArrayList<Map<String, Object>>();
+		if (resultObjects != null) {
+			for (PersistentObject persistentObject : resultObjects) {
+				dataMap.add(persistentObject.getPersistentState());
+			}
+		}
+		DataResult result = new DataResult();
+		result.setData(dataMap);
+		result.setPageSize(pageSize);
+		if (nextCursor != null) {
+			result.setContinuation(nextCursor.toString());
+		}
+		return result;
+	}
+	
 	/**
 	 * 获取rest服务请求参数 主要针对post put参数
 	 * 
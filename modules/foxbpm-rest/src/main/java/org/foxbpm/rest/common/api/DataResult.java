@@ -31,6 +31,7 @@ public class DataResult {
 	String order;
 	long recordsTotal;
 	long recordsFiltered;
+	String continuation;
 
 	public long getRecordsTotal() {
 		return recordsTotal;
@@ -96,6 +97,17 @@ public class DataResult {
 	public void setTotal(long total) {
 		this.total = total;
 	}
+
+	/**
+	 * 游标分页时下一页的续页令牌，没有下一页时为null
+	 */
+	public String getContinuation() {
+		return continuation;
+	}
+
+	public void setContinuation(String continuation) {
+		this.continuation = continuation;
+	}
 	
 	
 }
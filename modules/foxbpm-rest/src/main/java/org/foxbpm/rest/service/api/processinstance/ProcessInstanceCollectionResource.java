@@ -26,6 +26,8 @@ import javax.servlet.http.HttpServletRequest;
 import org.foxbpm.engine.RuntimeService;
 import org.foxbpm.engine.impl.util.LocationUtil;
 import org.foxbpm.engine.impl.util.StringUtil;
+import org.foxbpm.engine.query.QueryCursor;
+import org.foxbpm.engine.runtime.ProcessInstance;
 import org.foxbpm.engine.runtime.ProcessInstanceQuery;
 import org.foxbpm.rest.common.RestConstants;
 import org.foxbpm.rest.common.api.AbstractRestResource;
@@ -44,7 +46,7 @@ import org.restlet.resource.Get;
 public class ProcessInstanceCollectionResource extends AbstractRestResource {
 
 	
-	@SuppressWarnings("unchecked")
+	@SuppressWarnings({"unchecked", "rawtypes"})
 	@Get
 	public DataResult getProcessInstance(){
 		if(!validationUser())
@@ -100,9 +102,21 @@ public class ProcessInstanceCollectionResource extends AbstractRestResource {
 		if(queryNames.contains("status")){
 			processIntanceQuery.processInstanceStatus(getQueryParameter("status", queryForm));
 		}
-		processIntanceQuery.orderByUpdateTime().desc();
-		
-		DataResult result = paginateList(processIntanceQuery);
+		DataResult result = null;
+		if (isContinuation()) {
+			// 游标分页，按启动时间倒序
+			int size = getContinuationPageSize();
+			List<ProcessInstance> processInstances = processIntanceQuery.listAfter(getContinuationCursor(), size);
+			QueryCursor nextCursor = null;
+			if (processInstances.size() == size) {
+				ProcessInstance lastProcessInstance = processInstances.get(processInstances.size() - 1);
+				nextCursor = new QueryCursor(lastProcessInstance.getStartTime(), lastProcessInstance.getId());
+			}
+			result = continuationResult((List) processInstances, nextCursor);
+		} else {
+			processIntanceQuery.orderByUpdateTime().desc();
+			result = paginateList(processIntanceQuery);
+		}
 		
 		List<Map<String,Object>> mapList = (List<Map<String,Object>>)result.getData();
 		if(mapList != null && mapList.size()>0){
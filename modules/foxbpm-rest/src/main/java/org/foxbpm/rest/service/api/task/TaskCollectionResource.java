@@ -31,7 +31,9 @@ import org.foxbpm.engine.TaskService;
 import org.foxbpm.engine.exception.FoxbpmPluginException;
 import org.foxbpm.engine.impl.task.TaskQueryProperty;
 import org.foxbpm.engine.impl.util.StringUtil;
+import org.foxbpm.engine.query.QueryCursor;
 import org.foxbpm.engine.query.QueryProperty;
+import org.foxbpm.engine.task.Task;
 import org.foxbpm.engine.task.TaskQuery;
 import org.foxbpm.rest.common.RestConstants;
 import org.foxbpm.rest.common.api.AbstractRestResource;
@@ -63,7 +65,7 @@ public class TaskCollectionResource extends AbstractRestResource {
 		properties.put("endTime", TaskQueryProperty.END_TIME);
 	}
 	
-	@SuppressWarnings("unchecked")
+	@SuppressWarnings({"unchecked", "rawtypes"})
 	@Get
 	public DataResult getTasks() {
 		
@@ -227,7 +229,20 @@ public class TaskCollectionResource extends AbstractRestResource {
 			taskQuery.taskNotEnd();
 		}
 		
-		DataResult result = paginateList(taskQuery, properties, "createTime");
+		DataResult result = null;
+		if (isContinuation()) {
+			// 游标分页，按创建时间倒序
+			int size = getContinuationPageSize();
+			List<Task> tasks = taskQuery.listAfter(getContinuationCursor(), size);
+			QueryCursor nextCursor = null;
+			if (tasks.size() == size) {
+				Task lastTask = tasks.get(tasks.size() - 1);
+				nextCursor = new QueryCursor(lastTask.getCreateTime(), lastTask.getId());
+			}
+			result = continuationResult((List) tasks, nextCursor);
+		} else {
+			result = paginateList(taskQuery, properties, "createTime");
+		}
 		List<Map<String, Object>> mapList = (List<Map<String, Object>>) result.getData();
 		if (mapList != null && mapList.size() > 0) {
 			for (Map<String, Object> tmp : mapList) {
@@ -28,6 +28,7 @@ public class FoxbpmCalendarMapper implements FoxbpmMapperConfig {
 		xmlList.add("mybatis/mapping/CalendarType.xml");
 		xmlList.add("mybatis/mapping/CalendarRule.xml");
 		xmlList.add("mybatis/mapping/CalendarPart.xml");
+		xmlList.add("mybatis/mapping/CalendarTask.xml");
 		return xmlList;
 	}
 }
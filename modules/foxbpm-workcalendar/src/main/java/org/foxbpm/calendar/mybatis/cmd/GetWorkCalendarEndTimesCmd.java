@@ -0,0 +1,55 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.calendar.mybatis.cmd;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.foxbpm.calendar.service.DueTimeRequest;
+import org.foxbpm.calendar.timeline.WorkCalendarTimeline;
+import org.foxbpm.engine.cache.Cache;
+import org.foxbpm.engine.impl.interceptor.Command;
+import org.foxbpm.engine.impl.interceptor.CommandContext;
+
+/**
+ * 批量计算过期时间，日历只加载和编译一次
+ * 
+ * @author ych
+ */
+public class GetWorkCalendarEndTimesCmd implements Command<List<Date>> {
+	
+	private String ruleId;
+	private List<DueTimeRequest> requests;
+	private Cache<WorkCalendarTimeline> timelineCache;
+	
+	public GetWorkCalendarEndTimesCmd(String ruleId, List<DueTimeRequest> requests, Cache<WorkCalendarTimeline> timelineCache) {
+		this.ruleId = ruleId;
+		this.requests = requests;
+		this.timelineCache = timelineCache;
+	}
+	
+	public List<Date> execute(CommandContext commandContext) {
+		WorkCalendarTimeline timeline = new GetWorkCalendarTimelineCmd(ruleId, timelineCache).execute(commandContext);
+		List<Date> dueTimes = new ArrayList<Date>(requests.size());
+		for (DueTimeRequest request : requests) {
+			dueTimes.add(timeline == null ? null : timeline.getDueTime(request.getBegin(), request.getHours()));
+		}
+		return dueTimes;
+	}
+}
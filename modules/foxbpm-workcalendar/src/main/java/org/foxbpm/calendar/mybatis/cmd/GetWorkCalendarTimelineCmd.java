@@ -0,0 +1,73 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.calendar.mybatis.cmd;
+
+import java.util.List;
+
+import org.foxbpm.calendar.mybatis.entity.CalendarRuleEntity;
+import org.foxbpm.calendar.mybatis.entity.CalendarTypeEntity;
+import org.foxbpm.calendar.timeline.WorkCalendarTimeline;
+import org.foxbpm.engine.cache.Cache;
+import org.foxbpm.engine.impl.interceptor.Command;
+import org.foxbpm.engine.impl.interceptor.CommandContext;
+
+/**
+ * 获取日历类型编译后的工作时间轴，缓存中没有时加载规则和时间段并编译
+ * 
+ * @author ych
+ */
+public class GetWorkCalendarTimelineCmd implements Command<WorkCalendarTimeline> {
+	
+	private String typeId;
+	
+	private Cache<WorkCalendarTimeline> timelineCache;
+	
+	/**
+	 * @param typeId
+	 *            日历类型编号
+	 * @param timelineCache
+	 *            时间轴缓存，为null时每次重新编译
+	 */
+	public GetWorkCalendarTimelineCmd(String typeId, Cache<WorkCalendarTimeline> timelineCache) {
+		this.typeId = typeId;
+		this.timelineCache = timelineCache;
+	}
+	
+	public WorkCalendarTimeline execute(CommandContext commandContext) {
+		if (timelineCache != null) {
+			WorkCalendarTimeline timeline = timelineCache.get(typeId);
+			if (timeline != null) {
+				return timeline;
+			}
+		}
+		CalendarTypeEntity calendarTypeEntity = new GetCalendarTypeByIdCmd(typeId).execute(commandContext);
+		if (calendarTypeEntity == null) {
+			return null;
+		}
+		List<CalendarRuleEntity> calendarRuleEntities = new GetCalendarRulesByTypeIdCmd(typeId).execute(commandContext);
+		for (CalendarRuleEntity calendarRuleEntity : calendarRuleEntities) {
+			calendarRuleEntity.setCalendarPartEntities(new GetCalendarPartsByRuleIdCmd(calendarRuleEntity.getId()).execute(commandContext));
+		}
+		calendarTypeEntity.setCalendarRuleEntities(calendarRuleEntities);
+		WorkCalendarTimeline timeline = WorkCalendarTimeline.compile(calendarTypeEntity);
+		if (timelineCache != null) {
+			timelineCache.add(typeId, timeline);
+		}
+		return timeline;
+	}
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.calendar.mybatis.cmd;
+
+import java.util.Date;
+
+import org.foxbpm.calendar.timeline.WorkCalendarTimeline;
+import org.foxbpm.engine.cache.Cache;
+import org.foxbpm.engine.impl.interceptor.Command;
+import org.foxbpm.engine.impl.interceptor.CommandContext;
+
+/**
+ * 根据工作日历计算两个时间之间的工作小时数
+ * 
+ * @author ych
+ */
+public class GetWorkCalendarWorkingHoursCmd implements Command<Double> {
+	
+	private String ruleId;
+	private Date begin;
+	private Date end;
+	private Cache<WorkCalendarTimeline> timelineCache;
+	
+	public GetWorkCalendarWorkingHoursCmd(String ruleId, Date begin, Date end, Cache<WorkCalendarTimeline> timelineCache) {
+		this.ruleId = ruleId;
+		this.begin = begin;
+		this.end = end;
+		this.timelineCache = timelineCache;
+	}
+	
+	public Double execute(CommandContext commandContext) {
+		WorkCalendarTimeline timeline = new GetWorkCalendarTimelineCmd(ruleId, timelineCache).execute(commandContext);
+		if (timeline == null) {
+			return null;
+		}
+		return Double.valueOf(timeline.getWorkingHours(begin, end));
+	}
+}
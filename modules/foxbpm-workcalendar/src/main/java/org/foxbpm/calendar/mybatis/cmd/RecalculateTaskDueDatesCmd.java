@@ -0,0 +1,99 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.calendar.mybatis.cmd;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.foxbpm.calendar.mybatis.entity.TaskDueDateEntity;
+import org.foxbpm.calendar.timeline.WorkCalendarTimeline;
+import org.foxbpm.engine.cache.Cache;
+import org.foxbpm.engine.impl.db.ListQueryParameterObject;
+import org.foxbpm.engine.impl.interceptor.Command;
+import org.foxbpm.engine.impl.interceptor.CommandContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 重新计算一批未完成任务的过期时间。
+ * <p>
+ * 任务按ID顺序分批，从lastId之后取batchSize条，按创建时间和预计执行时间重新计算，
+ * 只批量更新过期时间有变化的任务。返回本批查询到的任务，调用方用最后一个任务的ID取下一批，
+ * 返回的条数小于batchSize时说明已经处理完。
+ * 
+ * @author ych
+ */
+public class RecalculateTaskDueDatesCmd implements Command<List<TaskDueDateEntity>> {
+	
+	private static Logger log = LoggerFactory.getLogger(RecalculateTaskDueDatesCmd.class);
+	
+	private String ruleId;
+	private String lastId;
+	private int batchSize;
+	private Cache<WorkCalendarTimeline> timelineCache;
+	
+	/**
+	 * @param ruleId
+	 *            日历类型编号
+	 * @param lastId
+	 *            上一批最后一个任务的ID，第一批为null
+	 * @param batchSize
+	 *            每批任务数
+	 * @param timelineCache
+	 *            工作时间轴缓存
+	 */
+	public RecalculateTaskDueDatesCmd(String ruleId, String lastId, int batchSize, Cache<WorkCalendarTimeline> timelineCache) {
+		this.ruleId = ruleId;
+		this.lastId = lastId;
+		this.batchSize = batchSize;
+		this.timelineCache = timelineCache;
+	}
+	
+	@SuppressWarnings("unchecked")
+	public List<TaskDueDateEntity> execute(CommandContext commandContext) {
+		WorkCalendarTimeline timeline = new GetWorkCalendarTimelineCmd(ruleId, timelineCache).execute(commandContext);
+		if (timeline == null) {
+			log.debug("日历类型" + ruleId + "不存在，不重新计算过期时间");
+			return new ArrayList<TaskDueDateEntity>();
+		}
+		Map<String, Object> queryMap = new HashMap<String, Object>();
+		queryMap.put("lastId", lastId);
+		ListQueryParameterObject queryParams = new ListQueryParameterObject(queryMap, 0, batchSize);
+		List<TaskDueDateEntity> tasks = (List<TaskDueDateEntity>) commandContext.getSqlSession().selectList("selectOpenTaskDueDates", queryParams);
+		
+		List<TaskDueDateEntity> changedTasks = new ArrayList<TaskDueDateEntity>();
+		for (TaskDueDateEntity task : tasks) {
+			if (task.getCreateTime() == null) {
+				continue;
+			}
+			Date dueDate = timeline.getDueTime(task.getCreateTime(), task.getExpectedExecutionTime());
+			if (dueDate != null && !dueDate.equals(task.getDueDate())) {
+				task.setDueDate(dueDate);
+				changedTasks.add(task);
+			}
+		}
+		if (!changedTasks.isEmpty()) {
+			commandContext.getSqlSession().updateBatch("updateTaskDueDate", changedTasks);
+		}
+		log.debug("重新计算过期时间，本批任务数:{}，更新任务数:{}", tasks.size(), changedTasks.size());
+		return tasks;
+	}
+}
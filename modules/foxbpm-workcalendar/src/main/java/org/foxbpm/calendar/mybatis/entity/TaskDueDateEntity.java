@@ -0,0 +1,67 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.calendar.mybatis.entity;
+
+import java.util.Date;
+
+/**
+ * 重新计算过期时间用到的任务列，只加载和更新FOXBPM_RUN_TASK中的几列
+ * 
+ * @author ych
+ */
+public class TaskDueDateEntity {
+	private String id;
+	private Date createTime;
+	private double expectedExecutionTime;
+	private Date dueDate;
+	private int revision;
+	
+	public String getId() {
+		return id;
+	}
+	public void setId(String id) {
+		this.id = id;
+	}
+	public Date getCreateTime() {
+		return createTime;
+	}
+	public void setCreateTime(Date createTime) {
+		this.createTime = createTime;
+	}
+	public double getExpectedExecutionTime() {
+		return expectedExecutionTime;
+	}
+	public void setExpectedExecutionTime(double expectedExecutionTime) {
+		this.expectedExecutionTime = expectedExecutionTime;
+	}
+	public Date getDueDate() {
+		return dueDate;
+	}
+	public void setDueDate(Date dueDate) {
+		this.dueDate = dueDate;
+	}
+	public int getRevision() {
+		return revision;
+	}
+	public void setRevision(int revision) {
+		this.revision = revision;
+	}
+	public int getRevisionNext() {
+		return revision + 1;
+	}
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.calendar.schedule;
+
+import org.foxbpm.calendar.service.WorkCalendarService;
+import org.foxbpm.engine.ProcessEngineManagement;
+import org.foxbpm.engine.impl.schedule.FoxbpmJobDetail;
+import org.foxbpm.engine.impl.schedule.FoxbpmJobExecutionContext;
+import org.foxbpm.engine.impl.schedule.FoxbpmScheduleJob;
+import org.foxbpm.engine.impl.schedule.quartz.AbstractQuartzScheduleJob;
+import org.foxbpm.engine.impl.util.ClockUtil;
+import org.foxbpm.engine.impl.util.QuartzUtil;
+import org.quartz.JobExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 日历修改后在后台重新计算未完成任务过期时间的JOB，每个日历类型一个任务，重复调度时替换未执行的任务
+ * 
+ * @author ych
+ */
+public class DueDateRecalculateJob extends AbstractQuartzScheduleJob {
+	
+	private static Logger LOG = LoggerFactory.getLogger(DueDateRecalculateJob.class);
+	
+	public final static String GROUP_NAME = "FOXBPM_WORKCAL_DUEDATE";
+	
+	public final static String CALENDAR_TYPE_ID = "calendarTypeId";
+	
+	/**
+	 * quartz系统创建
+	 */
+	public DueDateRecalculateJob() {
+	}
+	
+	public DueDateRecalculateJob(String name, String groupName) {
+		super(name, groupName);
+	}
+	
+	/**
+	 * 创建立即执行的重新计算任务
+	 * 
+	 * @param calendarTypeId
+	 *            修改过的日历类型
+	 * @return
+	 */
+	public static FoxbpmJobDetail<FoxbpmScheduleJob> createJobDetail(String calendarTypeId) {
+		FoxbpmJobDetail<FoxbpmScheduleJob> jobDetail = new FoxbpmJobDetail<FoxbpmScheduleJob>(new DueDateRecalculateJob(calendarTypeId, GROUP_NAME));
+		jobDetail.putContextAttribute(CALENDAR_TYPE_ID, calendarTypeId);
+		jobDetail.getTriggerList().add(QuartzUtil.createSimpleTrigger(GROUP_NAME, ClockUtil.getCurrentTime()));
+		return jobDetail;
+	}
+	
+	public void executeJob(FoxbpmJobExecutionContext foxpmJobExecutionContext) throws JobExecutionException {
+		String calendarTypeId = (String) foxpmJobExecutionContext.getJobData(CALENDAR_TYPE_ID);
+		LOG.debug("DueDateRecalculateJob执行,执行参数为 =日历类型:{}", calendarTypeId);
+		WorkCalendarService workCalendarService = ProcessEngineManagement.getDefaultProcessEngine().getService(WorkCalendarService.class);
+		workCalendarService.recalculateDueDates(calendarTypeId);
+	}
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.calendar.service;
+
+import java.util.Date;
+
+/**
+ * 批量计算过期时间的参数，一个开始时间和预计执行时间
+ * 
+ * @author ych
+ */
+public class DueTimeRequest {
+	
+	private Date begin;
+	
+	private double hours;
+	
+	public DueTimeRequest() {
+	}
+	
+	/**
+	 * @param begin
+	 *            开始计算时间
+	 * @param hours
+	 *            预计执行时间(小时)
+	 */
+	public DueTimeRequest(Date begin, double hours) {
+		this.begin = begin;
+		this.hours = hours;
+	}
+	
+	public Date getBegin() {
+		return begin;
+	}
+	
+	public void setBegin(Date begin) {
+		this.begin = begin;
+	}
+	
+	public double getHours() {
+		return hours;
+	}
+	
+	public void setHours(double hours) {
+		this.hours = hours;
+	}
+}
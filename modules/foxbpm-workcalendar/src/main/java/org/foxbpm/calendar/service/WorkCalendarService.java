@@ -173,4 +173,34 @@ public interface WorkCalendarService{
 	 */
 	Date getDueTime(String ruleId,Date begin,double hours);
 	
+	/**
+	 * 获取两个时间之间的工作小时数
+	 * @param ruleId 规则编号
+	 * @param begin 开始时间
+	 * @param end 结束时间
+	 * @return 日历类型不存在时返回null
+	 */
+	Double getWorkingHours(String ruleId, Date begin, Date end);
+	
+	/**
+	 * 批量获取过期时间，日历只加载一次
+	 * @param ruleId 规则编号
+	 * @param requests 开始计算时间和预计执行时间
+	 * @return 与参数顺序一致的过期时间
+	 */
+	List<Date> getDueTimes(String ruleId, List<DueTimeRequest> requests);
+	
+	/**
+	 * 按日历重新计算未完成任务的过期时间，任务按ID顺序分批处理，每批一个事务
+	 * @param ruleId 修改过的日历类型编号，不是任务使用的日历类型时不处理
+	 * @return 检查过的任务数
+	 */
+	int recalculateDueDates(String ruleId);
+	
+	/**
+	 * 在后台重新计算未完成任务的过期时间，修改日历规则或添加假期后调用。调度器未启动时直接计算
+	 * @param ruleId 修改过的日历类型编号
+	 */
+	void scheduleDueDateRecalculation(String ruleId);
+	
 }
@@ -27,7 +27,14 @@ import org.foxbpm.engine.impl.Context;
 import org.foxbpm.engine.impl.ProcessEngineConfigurationImpl;
 
 public class WorkCalendarImpl implements WorkCalendar {
-
+	
+	public static final String DEFAULT_CALENDAR_TYPE_ID = "AAA";
+	
+	/**
+	 * 任务计算过期时间使用的日历类型
+	 */
+	private String calendarTypeId = DEFAULT_CALENDAR_TYPE_ID;
+	
 	 
 	public Date getDueTime(Date begin, double expectedHours, Map<String, Object> params) {
 		WorkCalendarService workCalendarService = null;
@@ -37,8 +44,16 @@ public class WorkCalendarImpl implements WorkCalendar {
 		}else{
 			workCalendarService = ProcessEngineManagement.getDefaultProcessEngine().getService(WorkCalendarService.class);
 		}
-		Date result = workCalendarService.getDueTime("AAA", begin, expectedHours);
+		Date result = workCalendarService.getDueTime(calendarTypeId, begin, expectedHours);
 		return result;
 	}
+	
+	public String getCalendarTypeId() {
+		return calendarTypeId;
+	}
+	
+	public void setCalendarTypeId(String calendarTypeId) {
+		this.calendarTypeId = calendarTypeId;
+	}
 
 }
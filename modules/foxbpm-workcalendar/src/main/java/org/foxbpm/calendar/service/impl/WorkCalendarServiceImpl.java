@@ -38,16 +38,46 @@ import org.foxbpm.calendar.mybatis.cmd.GetCalendarTypeByIdCmd;
 import org.foxbpm.calendar.mybatis.cmd.GetCalendarTypeCmd;
 import org.foxbpm.calendar.mybatis.cmd.GetCalendarTypeCountCmd;
 import org.foxbpm.calendar.mybatis.cmd.GetWorkCalendarEndTimeCmd;
+import org.foxbpm.calendar.mybatis.cmd.GetWorkCalendarEndTimesCmd;
+import org.foxbpm.calendar.mybatis.cmd.GetWorkCalendarWorkingHoursCmd;
+import org.foxbpm.calendar.mybatis.cmd.RecalculateTaskDueDatesCmd;
 import org.foxbpm.calendar.mybatis.cmd.UpdateCalendarPartCmd;
 import org.foxbpm.calendar.mybatis.cmd.UpdateCalendarRuleCmd;
 import org.foxbpm.calendar.mybatis.cmd.UpdateCalendarTypeCmd;
 import org.foxbpm.calendar.mybatis.entity.CalendarPartEntity;
 import org.foxbpm.calendar.mybatis.entity.CalendarRuleEntity;
 import org.foxbpm.calendar.mybatis.entity.CalendarTypeEntity;
+import org.foxbpm.calendar.mybatis.entity.TaskDueDateEntity;
+import org.foxbpm.calendar.schedule.DueDateRecalculateJob;
+import org.foxbpm.calendar.service.DueTimeRequest;
 import org.foxbpm.calendar.service.WorkCalendarService;
+import org.foxbpm.calendar.timeline.WorkCalendarTimeline;
+import org.foxbpm.engine.ProcessEngineManagement;
+import org.foxbpm.engine.cache.Cache;
+import org.foxbpm.engine.calendar.WorkCalendar;
+import org.foxbpm.engine.config.TransactionPropagation;
+import org.foxbpm.engine.impl.ProcessEngineConfigurationImpl;
 import org.foxbpm.engine.impl.ServiceImpl;
+import org.foxbpm.engine.impl.cache.ConcurrentCache;
+import org.foxbpm.engine.impl.interceptor.CommandConfig;
+import org.foxbpm.engine.impl.schedule.FoxbpmScheduler;
+import org.foxbpm.engine.impl.util.QuartzUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 public class WorkCalendarServiceImpl  extends ServiceImpl implements WorkCalendarService {
 	
+	private static Logger LOG = LoggerFactory.getLogger(WorkCalendarServiceImpl.class);
+	
+	/**
+	 * 按日历类型缓存编译后的工作时间轴，日历类型、规则、时间段修改后清空
+	 */
+	protected Cache<WorkCalendarTimeline> timelineCache = new ConcurrentCache<WorkCalendarTimeline>();
+	
+	/**
+	 * 重新计算过期时间时每批(每个事务)处理的任务数
+	 */
+	protected int dueDateRecalculateBatchSize = 500;
+	
 	 
 	public Class<?> getInterfaceClass() {
 		return WorkCalendarService.class;
@@ -56,31 +86,37 @@ public class WorkCalendarServiceImpl  extends ServiceImpl implements WorkCalenda
 	 
 	public void addCalendarType(CalendarTypeEntity calendarTypeEntity) {
 		commandExecutor.execute(new AddCalendarTypeCmd(calendarTypeEntity));
+		timelineCache.clear();
 	}
 
 	 
 	public void updateCalendarType(CalendarTypeEntity calendarTypeEntity) {
 		commandExecutor.execute(new UpdateCalendarTypeCmd(calendarTypeEntity));
+		timelineCache.clear();
 	}
 
 	 
 	public void deleteCalendarType(String id) {
 		commandExecutor.execute(new DeleteCalendarTypeCmd(id));
+		timelineCache.clear();
 	}
 
 	 
 	public void addCalendarRule(CalendarRuleEntity calendarRuleEntity) {
 		commandExecutor.execute(new AddCalendarRuleCmd(calendarRuleEntity));
+		timelineCache.clear();
 	}
 
 	 
 	public void updateCalendarRule(CalendarRuleEntity calendarRuleEntity) {
 		commandExecutor.execute(new UpdateCalendarRuleCmd(calendarRuleEntity));
+		timelineCache.clear();
 	}
 
 	 
 	public void deleteCalendarRule(String id) {
 		commandExecutor.execute(new DeleteCalendarRuleCmd(id));
+		timelineCache.clear();
 	}
 
 	@SuppressWarnings("unchecked")
@@ -92,16 +128,19 @@ public class WorkCalendarServiceImpl  extends ServiceImpl implements WorkCalenda
 	 
 	public void addCalendarPart(CalendarPartEntity calendarPartEntity) {
 		commandExecutor.execute(new AddCalendarPartCmd(calendarPartEntity));
+		timelineCache.clear();
 	}
 
 	 
 	public void updateCalendarPart(CalendarPartEntity calendarPartEntity) {
 		commandExecutor.execute(new UpdateCalendarPartCmd(calendarPartEntity));
+		timelineCache.clear();
 	}
 
 	 
 	public void deleteCalendarPart(String id) {
 		commandExecutor.execute(new DeleteCalendarPartCmd(id));
+		timelineCache.clear();
 	}
 
 	@SuppressWarnings("unchecked")
@@ -147,7 +186,67 @@ public class WorkCalendarServiceImpl  extends ServiceImpl implements WorkCalenda
 	}
 	
 	public Date getDueTime(String ruleId,Date begin, double hours) {
-		return commandExecutor.execute(new GetWorkCalendarEndTimeCmd( begin, hours,ruleId));
+		return commandExecutor.execute(new GetWorkCalendarEndTimeCmd(begin, hours, ruleId, timelineCache));
+	}
+	
+	public Double getWorkingHours(String ruleId, Date begin, Date end) {
+		return commandExecutor.execute(new GetWorkCalendarWorkingHoursCmd(ruleId, begin, end, timelineCache));
+	}
+	
+	public List<Date> getDueTimes(String ruleId, List<DueTimeRequest> requests) {
+		return commandExecutor.execute(new GetWorkCalendarEndTimesCmd(ruleId, requests, timelineCache));
+	}
+	
+	public int recalculateDueDates(String ruleId) {
+		ProcessEngineConfigurationImpl processEngineConfiguration = ProcessEngineManagement.getDefaultProcessEngine().getProcessEngineConfiguration();
+		WorkCalendar workCalendar = processEngineConfiguration.getWorkCalendar();
+		// 任务只按WorkCalendarImpl配置的日历类型计算过期时间
+		if (!(workCalendar instanceof WorkCalendarImpl) || !ruleId.equals(((WorkCalendarImpl) workCalendar).getCalendarTypeId())) {
+			LOG.debug("日历类型{}没有被任务使用，不重新计算过期时间", ruleId);
+			return 0;
+		}
+		// 每批使用新的命令上下文和事务，已处理的批次不受后面批次影响
+		CommandConfig config = new CommandConfig();
+		config.setContextReuse(false);
+		config.setPropagation(TransactionPropagation.REQUIRES_NEW);
+		int batchSize = Math.max(1, dueDateRecalculateBatchSize);
+		int count = 0;
+		String lastId = null;
+		while (true) {
+			List<TaskDueDateEntity> tasks = commandExecutor.execute(config, new RecalculateTaskDueDatesCmd(ruleId, lastId, batchSize, timelineCache));
+			count += tasks.size();
+			if (tasks.size() < batchSize) {
+				break;
+			}
+			lastId = tasks.get(tasks.size() - 1).getId();
+		}
+		LOG.info("日历类型{}重新计算过期时间完成，检查任务数:{}", ruleId, count);
+		return count;
+	}
+	
+	public void scheduleDueDateRecalculation(String ruleId) {
+		FoxbpmScheduler foxbpmScheduler = ProcessEngineManagement.getDefaultProcessEngine().getProcessEngineConfiguration().getFoxbpmScheduler();
+		if (foxbpmScheduler == null || foxbpmScheduler.getScheduler() == null) {
+			LOG.debug("调度器未启动，直接重新计算过期时间");
+			recalculateDueDates(ruleId);
+			return;
+		}
+		QuartzUtil.scheduleFoxbpmJob(DueDateRecalculateJob.createJobDetail(ruleId));
+	}
+	
+	public int getDueDateRecalculateBatchSize() {
+		return dueDateRecalculateBatchSize;
+	}
+	
+	public void setDueDateRecalculateBatchSize(int dueDateRecalculateBatchSize) {
+		this.dueDateRecalculateBatchSize = dueDateRecalculateBatchSize;
+	}
+	
+	/**
+	 * 清空工作时间轴缓存，直接修改数据库中的日历数据后调用
+	 */
+	public void clearTimelineCache() {
+		timelineCache.clear();
 	}
 	
 	 
@@ -0,0 +1,508 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.calendar.timeline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.foxbpm.calendar.mybatis.entity.CalendarPartEntity;
+import org.foxbpm.calendar.mybatis.entity.CalendarRuleEntity;
+import org.foxbpm.calendar.mybatis.entity.CalendarTypeEntity;
+import org.foxbpm.engine.exception.FoxBPMException;
+
+/**
+ * 编译后的工作时间轴，每个日历类型一份。
+ * <p>
+ * 编译时把规则整理成每个星期几的工作时间段模板和按日期的例外(假期、调休)，按年展开成有序的工作区间，
+ * 同时记录区间结束时的累计工作毫秒数。计算到期时间和两个时间之间的工作时长都是对累计值的二分查找，
+ * 不再按天递归。年度区间第一次用到时展开，之后多线程共享；规则或时间段修改后需要重新编译。
+ * 
+ * @author ych
+ */
+public class WorkCalendarTimeline {
+	
+	/** 工作状态 */
+	public static final int WORKSTATUS = 0;
+	/** 假期状态 */
+	public static final int FREESTATUS = 1;
+	public static final long HOURTIME = 1000L * 60 * 60;
+	private static final int DAY_MINUTES = 24 * 60;
+	/** 连续这么多年都没有工作时间时认为日历配置错误，停止查找 */
+	private static final int MAX_SEARCH_YEARS = 10;
+	
+	private final String typeId;
+	
+	/** 按星期(1-7，周一为1)保存的工作规则，同一天有多条时按年份选择 */
+	private final Map<Integer, List<WeekRule>> weekRules;
+	
+	/** 按日期(yyyyMMdd)保存的例外规则 */
+	private final Map<Integer, DateRule> dateRules;
+	
+	/** 已展开的年度区间 */
+	private final Map<Integer, YearSegment> yearSegments = new ConcurrentHashMap<Integer, YearSegment>();
+	
+	private WorkCalendarTimeline(String typeId, Map<Integer, List<WeekRule>> weekRules, Map<Integer, DateRule> dateRules) {
+		this.typeId = typeId;
+		this.weekRules = weekRules;
+		this.dateRules = dateRules;
+	}
+	
+	/**
+	 * 编译日历类型，日历类型中需要已经加载了规则和规则下的时间段
+	 * 
+	 * @param calendarTypeEntity
+	 *            日历类型
+	 * @return
+	 */
+	public static WorkCalendarTimeline compile(CalendarTypeEntity calendarTypeEntity) {
+		Map<Integer, List<WeekRule>> weekRules = new HashMap<Integer, List<WeekRule>>();
+		Map<Integer, DateRule> dateRules = new HashMap<Integer, DateRule>();
+		List<CalendarRuleEntity> calendarRuleEntities = calendarTypeEntity.getCalendarRuleEntities();
+		if (calendarRuleEntities != null) {
+			for (CalendarRuleEntity calendarRuleEntity : calendarRuleEntities) {
+				int[] parts = toMinutes(calendarRuleEntity.getCalendarPartEntities());
+				if (calendarRuleEntity.getWorkdate() != null) {
+					Integer dateKey = Integer.valueOf(dateKey(calendarRuleEntity.getWorkdate()));
+					DateRule dateRule = dateRules.get(dateKey);
+					if (dateRule == null) {
+						dateRule = new DateRule();
+						dateRules.put(dateKey, dateRule);
+					}
+					if (calendarRuleEntity.getStatus() == FREESTATUS) {
+						// 没有设置时间段的假期跳过一整天，否则从当天工作时间中去掉假期时间段
+						if (parts.length == 0) {
+							dateRule.holiday = true;
+						} else {
+							dateRule.freeParts = union(dateRule.freeParts, parts);
+						}
+					} else if (parts.length > 0) {
+						// 调休上班，用规则的时间段代替当天星期规则的时间段
+						dateRule.workParts = union(dateRule.workParts, parts);
+					}
+				} else if (calendarRuleEntity.getStatus() == WORKSTATUS && calendarRuleEntity.getWeek() >= 1 && calendarRuleEntity.getWeek() <= 7) {
+					Integer week = Integer.valueOf(calendarRuleEntity.getWeek());
+					List<WeekRule> rules = weekRules.get(week);
+					if (rules == null) {
+						rules = new ArrayList<WeekRule>();
+						weekRules.put(week, rules);
+					}
+					rules.add(new WeekRule(calendarRuleEntity.getYear(), parts));
+				}
+			}
+		}
+		return new WorkCalendarTimeline(calendarTypeEntity.getId(), weekRules, dateRules);
+	}
+	
+	public String getTypeId() {
+		return typeId;
+	}
+	
+	/**
+	 * 计算从开始时间起经过指定工作小时数后的时间
+	 * 
+	 * @param begin
+	 *            开始时间
+	 * @param hours
+	 *            工作小时数
+	 * @return 到期时间，日历中找不到足够的工作时间时返回null
+	 */
+	public Date getDueTime(Date begin, double hours) {
+		long workMillis = Math.round(hours * HOURTIME);
+		if (workMillis <= 0) {
+			return begin;
+		}
+		int year = yearOf(begin.getTime());
+		YearSegment segment = getYearSegment(year);
+		long target = segment.workingMillisBefore(begin.getTime()) + workMillis;
+		int emptyYears = 0;
+		while (target > segment.getTotal()) {
+			if (segment.getTotal() == 0) {
+				emptyYears++;
+				if (emptyYears >= MAX_SEARCH_YEARS) {
+					return null;
+				}
+			} else {
+				emptyYears = 0;
+			}
+			target -= segment.getTotal();
+			segment = getYearSegment(++year);
+		}
+		return new Date(segment.timeAt(target));
+	}
+	
+	/**
+	 * 计算两个时间之间的工作毫秒数
+	 * 
+	 * @param begin
+	 *            开始时间
+	 * @param end
+	 *            结束时间
+	 * @return 结束时间不晚于开始时间时返回0
+	 */
+	public long getWorkingMillis(Date begin, Date end) {
+		if (!end.after(begin)) {
+			return 0;
+		}
+		int beginYear = yearOf(begin.getTime());
+		int endYear = yearOf(end.getTime());
+		YearSegment beginSegment = getYearSegment(beginYear);
+		if (beginYear == endYear) {
+			return beginSegment.workingMillisBefore(end.getTime()) - beginSegment.workingMillisBefore(begin.getTime());
+		}
+		long workMillis = beginSegment.getTotal() - beginSegment.workingMillisBefore(begin.getTime());
+		for (int year = beginYear + 1; year < endYear; year++) {
+			workMillis += getYearSegment(year).getTotal();
+		}
+		return workMillis + getYearSegment(endYear).workingMillisBefore(end.getTime());
+	}
+	
+	/**
+	 * 计算两个时间之间的工作小时数
+	 * 
+	 * @param begin
+	 *            开始时间
+	 * @param end
+	 *            结束时间
+	 * @return
+	 */
+	public double getWorkingHours(Date begin, Date end) {
+		return (double) getWorkingMillis(begin, end) / HOURTIME;
+	}
+	
+	private YearSegment getYearSegment(int year) {
+		Integer key = Integer.valueOf(year);
+		YearSegment segment = yearSegments.get(key);
+		if (segment == null) {
+			// 并发展开同一年时结果相同，重复计算一次没有关系
+			segment = buildYearSegment(year);
+			yearSegments.put(key, segment);
+		}
+		return segment;
+	}
+	
+	/**
+	 * 展开一年的工作区间
+	 */
+	private YearSegment buildYearSegment(int year) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.clear();
+		calendar.set(year, Calendar.JANUARY, 1);
+		long[] starts = new long[512];
+		long[] ends = new long[512];
+		int size = 0;
+		while (calendar.get(Calendar.YEAR) == year) {
+			int[] parts = getDayParts(year, calendar);
+			for (int i = 0; i < parts.length; i += 2) {
+				if (size == starts.length) {
+					starts = copy(starts, size * 2);
+					ends = copy(ends, size * 2);
+				}
+				starts[size] = timeOfDay(calendar, parts[i]);
+				ends[size] = timeOfDay(calendar, parts[i + 1]);
+				size++;
+			}
+			calendar.add(Calendar.DATE, 1);
+		}
+		return new YearSegment(copy(starts, size), copy(ends, size));
+	}
+	
+	/**
+	 * 某一天的工作时间段(当天分钟数，开始结束成对排列)
+	 */
+	private int[] getDayParts(int year, Calendar day) {
+		DateRule dateRule = dateRules.get(Integer.valueOf(dateKey(day)));
+		if (dateRule != null) {
+			if (dateRule.holiday) {
+				return new int[0];
+			}
+			if (dateRule.workParts != null) {
+				return dateRule.workParts;
+			}
+		}
+		int[] parts = getWeekParts(year, dayForWeek(day));
+		if (dateRule != null && dateRule.freeParts != null) {
+			parts = subtract(parts, dateRule.freeParts);
+		}
+		return parts;
+	}
+	
+	/**
+	 * 同一个星期几有多条规则时，优先使用本年的规则，其次是最近年份的规则
+	 */
+	private int[] getWeekParts(int year, int week) {
+		List<WeekRule> rules = weekRules.get(Integer.valueOf(week));
+		if (rules == null) {
+			return new int[0];
+		}
+		WeekRule matched = null;
+		for (WeekRule rule : rules) {
+			if (matched == null || distance(rule.year, year) < distance(matched.year, year)) {
+				matched = rule;
+			}
+		}
+		return matched.parts;
+	}
+	
+	private static int distance(int ruleYear, int year) {
+		if (ruleYear == year) {
+			return 0;
+		}
+		// 早于本年的规则比晚于本年的规则优先
+		return ruleYear < year ? (year - ruleYear) * 2 : (ruleYear - year) * 2 + 1;
+	}
+	
+	private static long timeOfDay(Calendar day, int minutes) {
+		Calendar calendar = (Calendar) day.clone();
+		if (minutes >= DAY_MINUTES) {
+			calendar.add(Calendar.DATE, 1);
+			return calendar.getTimeInMillis();
+		}
+		calendar.set(Calendar.HOUR_OF_DAY, minutes / 60);
+		calendar.set(Calendar.MINUTE, minutes % 60);
+		return calendar.getTimeInMillis();
+	}
+	
+	private static int yearOf(long time) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTimeInMillis(time);
+		return calendar.get(Calendar.YEAR);
+	}
+	
+	private static int dateKey(Date date) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(date);
+		return dateKey(calendar);
+	}
+	
+	private static int dateKey(Calendar calendar) {
+		return calendar.get(Calendar.YEAR) * 10000 + (calendar.get(Calendar.MONTH) + 1) * 100 + calendar.get(Calendar.DATE);
+	}
+	
+	/**
+	 * 星期几，周一为1，周日为7，与DateCalUtils.dayForWeek一致
+	 */
+	private static int dayForWeek(Calendar calendar) {
+		int dayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
+		return dayOfWeek == Calendar.SUNDAY ? 7 : dayOfWeek - 1;
+	}
+	
+	/**
+	 * 把时间段转换为排序合并后的当天分钟数
+	 */
+	static int[] toMinutes(List<CalendarPartEntity> calendarPartEntities) {
+		int[] parts = new int[calendarPartEntities.size() * 2];
+		for (int i = 0; i < calendarPartEntities.size(); i++) {
+			CalendarPartEntity calendarPartEntity = calendarPartEntities.get(i);
+			parts[i * 2] = toMinute(calendarPartEntity.getStarttime(), calendarPartEntity.getAmorpm());
+			parts[i * 2 + 1] = toMinute(calendarPartEntity.getEndtime(), calendarPartEntity.getAmorpm());
+			// 结束时间00:00表示当天结束
+			if (parts[i * 2 + 1] == 0) {
+				parts[i * 2 + 1] = DAY_MINUTES;
+			}
+		}
+		return union(null, parts);
+	}
+	
+	/**
+	 * 时间段的时间格式为hh:mm，配合上午下午(0上午 1下午)使用，12:00和00:00特殊对待，分别为中午和零点
+	 */
+	static int toMinute(String time, int amorpm) {
+		int index = time == null ? -1 : time.indexOf(':');
+		int hour;
+		int minute;
+		try {
+			hour = Integer.parseInt(time.substring(0, index).trim());
+			minute = Integer.parseInt(time.substring(index + 1).trim());
+		} catch (RuntimeException e) {
+			throw new FoxBPMException("时间格式错误！期望格式：HH:mm,实际格式：" + time);
+		}
+		if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+			throw new FoxBPMException("时间格式错误！期望格式：HH:mm,实际格式：" + time);
+		}
+		if ("12:00".equals(time)) {
+			return 12 * 60;
+		}
+		if ("00:00".equals(time)) {
+			return 0;
+		}
+		// 已经是24小时制的时间不再区分上午下午
+		if (hour < 12 && amorpm == 1) {
+			hour += 12;
+		} else if (hour == 12 && amorpm == 0) {
+			hour = 0;
+		}
+		return hour * 60 + minute;
+	}
+	
+	/**
+	 * 合并两组时间段，结果按开始时间排序且互不重叠
+	 */
+	static int[] union(int[] parts, int[] others) {
+		int size = (parts == null ? 0 : parts.length) + others.length;
+		long[] pairs = new long[size / 2];
+		int count = 0;
+		if (parts != null) {
+			for (int i = 0; i < parts.length; i += 2) {
+				pairs[count++] = ((long) parts[i] << 32) | parts[i + 1];
+			}
+		}
+		for (int i = 0; i < others.length; i += 2) {
+			pairs[count++] = ((long) others[i] << 32) | others[i + 1];
+		}
+		Arrays.sort(pairs);
+		int[] result = new int[size];
+		int length = 0;
+		for (long pair : pairs) {
+			int start = (int) (pair >>> 32);
+			int end = (int) pair;
+			if (end <= start) {
+				continue;
+			}
+			if (length > 0 && start <= result[length - 1]) {
+				result[length - 1] = Math.max(result[length - 1], end);
+			} else {
+				result[length++] = start;
+				result[length++] = end;
+			}
+		}
+		return length == result.length ? result : copy(result, length);
+	}
+	
+	/**
+	 * 从工作时间段中去掉假期时间段
+	 */
+	static int[] subtract(int[] parts, int[] freeParts) {
+		int[] result = new int[parts.length + freeParts.length];
+		int length = 0;
+		for (int i = 0; i < parts.length; i += 2) {
+			int start = parts[i];
+			int end = parts[i + 1];
+			for (int j = 0; j < freeParts.length && start < end; j += 2) {
+				if (freeParts[j + 1] <= start || freeParts[j] >= end) {
+					continue;
+				}
+				if (freeParts[j] > start) {
+					result[length++] = start;
+					result[length++] = freeParts[j];
+				}
+				start = freeParts[j + 1];
+			}
+			if (start < end) {
+				result[length++] = start;
+				result[length++] = end;
+			}
+		}
+		return copy(result, length);
+	}
+	
+	private static int[] copy(int[] array, int length) {
+		int[] result = new int[length];
+		System.arraycopy(array, 0, result, 0, Math.min(array.length, length));
+		return result;
+	}
+	
+	private static long[] copy(long[] array, int length) {
+		long[] result = new long[length];
+		System.arraycopy(array, 0, result, 0, Math.min(array.length, length));
+		return result;
+	}
+	
+	/**
+	 * 星期规则
+	 */
+	private static class WeekRule {
+		private final int year;
+		private final int[] parts;
+		
+		WeekRule(int year, int[] parts) {
+			this.year = year;
+			this.parts = parts;
+		}
+	}
+	
+	/**
+	 * 按日期的例外规则
+	 */
+	private static class DateRule {
+		/** 整天放假 */
+		private boolean holiday;
+		/** 调休上班的时间段 */
+		private int[] workParts;
+		/** 需要从当天工作时间中去掉的假期时间段 */
+		private int[] freeParts;
+	}
+	
+	/**
+	 * 一年的工作区间，ends[i]是第i个区间结束时本年累计的工作毫秒数
+	 */
+	static class YearSegment {
+		private final long[] starts;
+		private final long[] ends;
+		private final long[] cumulative;
+		
+		YearSegment(long[] starts, long[] ends) {
+			this.starts = starts;
+			this.ends = ends;
+			this.cumulative = new long[starts.length];
+			long total = 0;
+			for (int i = 0; i < starts.length; i++) {
+				total += ends[i] - starts[i];
+				cumulative[i] = total;
+			}
+		}
+		
+		long getTotal() {
+			return cumulative.length == 0 ? 0 : cumulative[cumulative.length - 1];
+		}
+		
+		/**
+		 * 本年开始到指定时间的工作毫秒数
+		 */
+		long workingMillisBefore(long time) {
+			int index = Arrays.binarySearch(starts, time);
+			if (index < 0) {
+				// 开始时间不晚于time的最后一个区间
+				index = -index - 2;
+			}
+			if (index < 0) {
+				return 0;
+			}
+			long before = index == 0 ? 0 : cumulative[index - 1];
+			return before + Math.min(time, ends[index]) - starts[index];
+		}
+		
+		/**
+		 * 本年累计工作毫秒数达到workMillis的时间，workMillis需大于0且不超过getTotal()
+		 */
+		long timeAt(long workMillis) {
+			int index = Arrays.binarySearch(cumulative, workMillis);
+			if (index >= 0) {
+				return ends[index];
+			}
+			index = -index - 1;
+			long before = index == 0 ? 0 : cumulative[index - 1];
+			return starts[index] + workMillis - before;
+		}
+	}
+}
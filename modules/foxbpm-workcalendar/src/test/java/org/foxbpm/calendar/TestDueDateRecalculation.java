@@ -0,0 +1,252 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.calendar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.foxbpm.calendar.mybatis.cmd.RecalculateTaskDueDatesCmd;
+import org.foxbpm.calendar.mybatis.entity.CalendarPartEntity;
+import org.foxbpm.calendar.mybatis.entity.CalendarRuleEntity;
+import org.foxbpm.calendar.mybatis.entity.CalendarTypeEntity;
+import org.foxbpm.calendar.mybatis.entity.TaskDueDateEntity;
+import org.foxbpm.calendar.service.DueTimeRequest;
+import org.foxbpm.calendar.service.WorkCalendarService;
+import org.foxbpm.calendar.service.impl.WorkCalendarImpl;
+import org.foxbpm.calendar.service.impl.WorkCalendarServiceImpl;
+import org.foxbpm.calendar.timeline.WorkCalendarTimeline;
+import org.foxbpm.engine.calendar.WorkCalendar;
+import org.foxbpm.engine.impl.ProcessEngineConfigurationImpl;
+import org.foxbpm.engine.impl.db.ListQueryParameterObject;
+import org.foxbpm.engine.impl.interceptor.Command;
+import org.foxbpm.engine.impl.interceptor.CommandContext;
+import org.foxbpm.engine.impl.interceptor.CommandExecutor;
+import org.foxbpm.engine.test.AbstractFoxBpmTestCase;
+import org.junit.Test;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 批量计算过期时间和重新计算未完成任务过期时间的测试，日历为周一到周五08:30-12:00、13:30-17:30
+ * 
+ * @author ych
+ */
+public class TestDueDateRecalculation extends AbstractFoxBpmTestCase {
+	
+	private static final String TYPE_ID = "TEST_DUE";
+	
+	/**
+	 * 测试任务的ID都大于这个值，作为第一批的lastId时只处理测试任务
+	 */
+	private static final String TASK_ID_PREFIX = "zzzz_due_";
+	
+	private SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+	
+	@Test
+	public void testGetDueTimes() throws Exception {
+		WorkCalendarServiceImpl workCalendarService = getWorkCalendarService();
+		createCalendar(workCalendarService);
+		List<DueTimeRequest> requests = new ArrayList<DueTimeRequest>();
+		requests.add(new DueTimeRequest(date("2014-09-01 09:00"), 1.5));
+		requests.add(new DueTimeRequest(date("2014-09-05 16:30"), 2));
+		requests.add(new DueTimeRequest(date("2014-09-01 07:00"), 4.5));
+		
+		// 结果和请求顺序一致
+		List<Date> dueTimes = workCalendarService.getDueTimes(TYPE_ID, requests);
+		assertEquals(3, dueTimes.size());
+		assertEquals(date("2014-09-01 10:30"), dueTimes.get(0));
+		assertEquals(date("2014-09-08 09:30"), dueTimes.get(1));
+		assertEquals(date("2014-09-01 14:30"), dueTimes.get(2));
+		
+		// 日历类型不存在时每个请求都返回null
+		dueTimes = workCalendarService.getDueTimes(TYPE_ID + "_NONE", requests);
+		assertEquals(3, dueTimes.size());
+		for (Date dueTime : dueTimes) {
+			assertNull(dueTime);
+		}
+	}
+	
+	@Test
+	public void testRecalculateTaskDueDatesCmd() throws Exception {
+		WorkCalendarServiceImpl workCalendarService = getWorkCalendarService();
+		createCalendar(workCalendarService);
+		createTasks();
+		CommandExecutor commandExecutor = workCalendarService.getCommandExecutor();
+		
+		// 按ID顺序分批，和插入顺序无关
+		List<TaskDueDateEntity> tasks = commandExecutor.execute(new RecalculateTaskDueDatesCmd(TYPE_ID, TASK_ID_PREFIX, 2, null));
+		assertEquals(2, tasks.size());
+		assertEquals(TASK_ID_PREFIX + "1", tasks.get(0).getId());
+		assertEquals(TASK_ID_PREFIX + "2", tasks.get(1).getId());
+		tasks = commandExecutor.execute(new RecalculateTaskDueDatesCmd(TYPE_ID, tasks.get(1).getId(), 2, null));
+		assertEquals(1, tasks.size());
+		assertEquals(TASK_ID_PREFIX + "3", tasks.get(0).getId());
+		
+		assertRecalculated();
+		// 已完成的任务不处理
+		assertTask(TASK_ID_PREFIX + "0", date("2014-09-01 12:00"), 1);
+	}
+	
+	@Test
+	public void testUpdateTaskDueDateRevisionGuard() throws Exception {
+		createTasks();
+		final Date newDueDate = date("2014-10-08 09:30");
+		getWorkCalendarService().getCommandExecutor().execute(new Command<Void>() {
+			
+			@SuppressWarnings("unchecked")
+			public Void execute(CommandContext commandContext) {
+				Map<String, Object> queryMap = new HashMap<String, Object>();
+				queryMap.put("lastId", TASK_ID_PREFIX);
+				List<TaskDueDateEntity> tasks = (List<TaskDueDateEntity>) commandContext.getSqlSession().selectList("selectOpenTaskDueDates", new ListQueryParameterObject(queryMap, 0, 10));
+				assertEquals(3, tasks.size());
+				// 查询之后任务1被其他命令修改，任务2被完成
+				jdbcTemplate.update("update foxbpm_run_task set rev_ = rev_ + 1 where id = ?", TASK_ID_PREFIX + "1");
+				jdbcTemplate.update("update foxbpm_run_task set end_time = ? where id = ?", new Timestamp(System.currentTimeMillis()), TASK_ID_PREFIX + "2");
+				for (TaskDueDateEntity task : tasks) {
+					task.setDueDate(newDueDate);
+				}
+				commandContext.getSqlSession().updateBatch("updateTaskDueDate", tasks);
+				return null;
+			}
+		});
+		
+		assertTask(TASK_ID_PREFIX + "1", date("2014-09-01 10:30"), 2);
+		assertTask(TASK_ID_PREFIX + "2", date("2014-09-05 18:30"), 1);
+		assertTask(TASK_ID_PREFIX + "3", newDueDate, 2);
+	}
+	
+	@Test
+	public void testRecalculateDueDatesNotInUse() throws Exception {
+		WorkCalendarServiceImpl workCalendarService = getWorkCalendarService();
+		createCalendar(workCalendarService);
+		createTasks();
+		// 任务没有使用这个日历类型，不重新计算
+		assertEquals(0, workCalendarService.recalculateDueDates(TYPE_ID));
+		assertTask(TASK_ID_PREFIX + "2", date("2014-09-05 18:30"), 1);
+		assertTask(TASK_ID_PREFIX + "3", null, 1);
+	}
+	
+	/**
+	 * 每批在新事务中执行，看不到测试事务中的数据，所以测试数据直接提交并在最后删除
+	 */
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	public void testRecalculateDueDates() throws Exception {
+		WorkCalendarServiceImpl workCalendarService = getWorkCalendarService();
+		ProcessEngineConfigurationImpl processEngineConfiguration = processEngine.getProcessEngineConfiguration();
+		WorkCalendar workCalendar = processEngineConfiguration.getWorkCalendar();
+		int batchSize = workCalendarService.getDueDateRecalculateBatchSize();
+		try {
+			WorkCalendarImpl testWorkCalendar = new WorkCalendarImpl();
+			testWorkCalendar.setCalendarTypeId(TYPE_ID);
+			processEngineConfiguration.setWorkCalendar(testWorkCalendar);
+			workCalendarService.setDueDateRecalculateBatchSize(2);
+			createCalendar(workCalendarService);
+			createTasks();
+			
+			assertTrue(workCalendarService.recalculateDueDates(TYPE_ID) >= 3);
+			assertRecalculated();
+		} finally {
+			processEngineConfiguration.setWorkCalendar(workCalendar);
+			workCalendarService.setDueDateRecalculateBatchSize(batchSize);
+			jdbcTemplate.update("delete from foxbpm_run_task where id like ?", TASK_ID_PREFIX + "%");
+			jdbcTemplate.update("delete from foxbpm_workcal_part where rule_id in (select id from foxbpm_workcal_rule where type_id = ?)", TYPE_ID);
+			jdbcTemplate.update("delete from foxbpm_workcal_rule where type_id = ?", TYPE_ID);
+			jdbcTemplate.update("delete from foxbpm_workcal_type where id = ?", TYPE_ID);
+			workCalendarService.clearTimelineCache();
+		}
+	}
+	
+	private WorkCalendarServiceImpl getWorkCalendarService() {
+		return (WorkCalendarServiceImpl) processEngine.getProcessEngineConfiguration().getService(WorkCalendarService.class);
+	}
+	
+	/**
+	 * 任务1过期时间正确，任务2、3需要重新计算，任务0已完成
+	 */
+	private void createTasks() throws ParseException {
+		createTask(TASK_ID_PREFIX + "3", date("2014-09-01 07:00"), 4.5, null, null);
+		createTask(TASK_ID_PREFIX + "1", date("2014-09-01 09:00"), 1.5, date("2014-09-01 10:30"), null);
+		createTask(TASK_ID_PREFIX + "2", date("2014-09-05 16:30"), 2, date("2014-09-05 18:30"), null);
+		createTask(TASK_ID_PREFIX + "0", date("2014-09-01 09:00"), 1.5, date("2014-09-01 12:00"), date("2014-09-01 11:00"));
+	}
+	
+	private void createTask(String id, Date createTime, double hours, Date dueDate, Date endTime) {
+		jdbcTemplate.update("insert into foxbpm_run_task(id,create_time,expected_executiontime,duedate,end_time,rev_) values(?,?,?,?,?,?)", new Object[]{id, createTime, hours, dueDate, endTime, 1}, new int[]{Types.VARCHAR, Types.TIMESTAMP, Types.DOUBLE,
+		        Types.TIMESTAMP, Types.TIMESTAMP, Types.INTEGER});
+	}
+	
+	private void assertRecalculated() throws ParseException {
+		// 过期时间没变的任务不更新
+		assertTask(TASK_ID_PREFIX + "1", date("2014-09-01 10:30"), 1);
+		assertTask(TASK_ID_PREFIX + "2", date("2014-09-08 09:30"), 2);
+		assertTask(TASK_ID_PREFIX + "3", date("2014-09-01 14:30"), 2);
+	}
+	
+	private void assertTask(String id, Date dueDate, int revision) {
+		Map<String, Object> task = jdbcTemplate.queryForMap("select duedate,rev_ from foxbpm_run_task where id = ?", id);
+		Date actualDueDate = (Date) task.get("DUEDATE");
+		if (dueDate == null) {
+			assertNull(actualDueDate);
+		} else {
+			assertEquals(dueDate.getTime(), actualDueDate.getTime());
+		}
+		assertEquals(revision, ((Number) task.get("REV_")).intValue());
+	}
+	
+	private void createCalendar(WorkCalendarService workCalendarService) {
+		CalendarTypeEntity calendarType = new CalendarTypeEntity(TYPE_ID);
+		calendarType.setName(TYPE_ID);
+		workCalendarService.addCalendarType(calendarType);
+		for (int week = 1; week <= 5; week++) {
+			CalendarRuleEntity rule = new CalendarRuleEntity(TYPE_ID + "_R" + week);
+			rule.setName(rule.getId());
+			rule.setYear(2014);
+			rule.setWeek(week);
+			rule.setStatus(WorkCalendarTimeline.WORKSTATUS);
+			rule.setTypeid(TYPE_ID);
+			workCalendarService.addCalendarRule(rule);
+			workCalendarService.addCalendarPart(createPart(rule.getId() + "_AM", rule.getId(), "08:30", "12:00", 0));
+			workCalendarService.addCalendarPart(createPart(rule.getId() + "_PM", rule.getId(), "01:30", "05:30", 1));
+		}
+	}
+	
+	private CalendarPartEntity createPart(String id, String ruleId, String starttime, String endtime, int amorpm) {
+		CalendarPartEntity part = new CalendarPartEntity(id);
+		part.setRuleid(ruleId);
+		part.setStarttime(starttime);
+		part.setEndtime(endtime);
+		part.setAmorpm(amorpm);
+		return part;
+	}
+	
+	private Date date(String date) throws ParseException {
+		return format.parse(date);
+	}
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright 1996-2014 FoxBPM ORG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author ych
+ */
+package org.foxbpm.calendar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.foxbpm.calendar.mybatis.entity.CalendarPartEntity;
+import org.foxbpm.calendar.mybatis.entity.CalendarRuleEntity;
+import org.foxbpm.calendar.mybatis.entity.CalendarTypeEntity;
+import org.foxbpm.calendar.timeline.WorkCalendarTimeline;
+import org.junit.Test;
+
+/**
+ * 工作时间轴计算测试，日历为周一到周五08:30-12:00、13:30-17:30
+ * 
+ * @author ych
+ */
+public class TestWorkCalendarTimeline {
+	
+	private SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+	
+	@Test
+	public void testDueTimeInSamePart() throws Exception {
+		WorkCalendarTimeline timeline = WorkCalendarTimeline.compile(createCalendarType());
+		// 2014-09-01是周一
+		assertEquals(date("2014-09-01 10:30"), timeline.getDueTime(date("2014-09-01 09:00"), 1.5));
+		assertEquals(date("2014-09-01 12:00"), timeline.getDueTime(date("2014-09-01 08:30"), 3.5));
+	}
+	
+	@Test
+	public void testDueTimeAcrossPartsAndDays() throws Exception {
+		WorkCalendarTimeline timeline = WorkCalendarTimeline.compile(createCalendarType());
+		// 上班前开始，从08:30开始算
+		assertEquals(date("2014-09-01 14:30"), timeline.getDueTime(date("2014-09-01 07:00"), 4.5));
+		// 午休时间开始，从13:30开始算
+		assertEquals(date("2014-09-01 14:30"), timeline.getDueTime(date("2014-09-01 12:30"), 1));
+		// 周五下午开始，跳过周末
+		assertEquals(date("2014-09-08 09:30"), timeline.getDueTime(date("2014-09-05 16:30"), 2));
+		// 一周工作37.5小时
+		assertEquals(date("2014-09-05 17:30"), timeline.getDueTime(date("2014-09-01 08:00"), 37.5));
+		assertEquals(date("2014-09-08 09:00"), timeline.getDueTime(date("2014-09-01 08:00"), 38));
+	}
+	
+	@Test
+	public void testHoliday() throws Exception {
+		CalendarTypeEntity calendarType = createCalendarType();
+		// 2014-10-01到2014-10-07国庆放假
+		for (int day = 1; day <= 7; day++) {
+			calendarType.getCalendarRuleEntities().add(createDateRule("2014-10-0" + day, WorkCalendarTimeline.FREESTATUS));
+		}
+		WorkCalendarTimeline timeline = WorkCalendarTimeline.compile(calendarType);
+		assertEquals(date("2014-10-08 09:30"), timeline.getDueTime(date("2014-09-30 16:30"), 2));
+		assertEquals(4.5, timeline.getWorkingHours(date("2014-09-30 16:30"), date("2014-10-08 12:00")), 0.0001);
+	}
+	
+	@Test
+	public void testHolidayParts() throws Exception {
+		CalendarTypeEntity calendarType = createCalendarType();
+		// 周一下午放假
+		CalendarRuleEntity afternoonOff = createDateRule("2014-09-01", WorkCalendarTimeline.FREESTATUS);
+		afternoonOff.getCalendarPartEntities().add(createPart("01:30", "05:30", 1));
+		calendarType.getCalendarRuleEntities().add(afternoonOff);
+		// 周六调休上午上班
+		CalendarRuleEntity saturdayWork = createDateRule("2014-09-06", WorkCalendarTimeline.WORKSTATUS);
+		saturdayWork.getCalendarPartEntities().add(createPart("08:30", "12:00", 0));
+		calendarType.getCalendarRuleEntities().add(saturdayWork);
+		WorkCalendarTimeline timeline = WorkCalendarTimeline.compile(calendarType);
+		assertEquals(date("2014-09-02 09:30"), timeline.getDueTime(date("2014-09-01 11:00"), 2));
+		assertEquals(date("2014-09-06 09:30"), timeline.getDueTime(date("2014-09-05 16:30"), 2));
+		assertEquals(3.5 + 3.5, timeline.getWorkingHours(date("2014-09-05 14:00"), date("2014-09-08 08:00")), 0.0001);
+	}
+	
+	@Test
+	public void testAcrossYears() throws Exception {
+		WorkCalendarTimeline timeline = WorkCalendarTimeline.compile(createCalendarType());
+		// 2014-12-31是周三，2015-01-01是周四
+		assertEquals(date("2015-01-01 09:30"), timeline.getDueTime(date("2014-12-31 16:30"), 2));
+		assertEquals(2, timeline.getWorkingHours(date("2014-12-31 16:30"), date("2015-01-01 09:30")), 0.0001);
+		// 2014年的规则继续用于之后的年份
+		assertEquals(date("2026-10-19 09:30"), timeline.getDueTime(date("2026-10-16 16:30"), 2));
+	}
+	
+	@Test
+	public void testEmptyCalendar() throws Exception {
+		CalendarTypeEntity calendarType = new CalendarTypeEntity();
+		calendarType.setId("EMPTY");
+		calendarType.setCalendarRuleEntities(new ArrayList<CalendarRuleEntity>());
+		WorkCalendarTimeline timeline = WorkCalendarTimeline.compile(calendarType);
+		assertNull(timeline.getDueTime(date("2014-09-01 09:00"), 1));
+		assertEquals(0, timeline.getWorkingMillis(date("2014-09-01 09:00"), date("2015-09-01 09:00")));
+	}
+	
+	private CalendarTypeEntity createCalendarType() {
+		CalendarTypeEntity calendarType = new CalendarTypeEntity();
+		calendarType.setId("AAA");
+		List<CalendarRuleEntity> rules = new ArrayList<CalendarRuleEntity>();
+		for (int week = 1; week <= 5; week++) {
+			CalendarRuleEntity rule = new CalendarRuleEntity("R" + week);
+			rule.setYear(2014);
+			rule.setWeek(week);
+			rule.setStatus(WorkCalendarTimeline.WORKSTATUS);
+			// 时间段顺序打乱，编译时排序
+			rule.getCalendarPartEntities().add(createPart("01:30", "05:30", 1));
+			rule.getCalendarPartEntities().add(createPart("08:30", "12:00", 0));
+			rules.add(rule);
+		}
+		calendarType.setCalendarRuleEntities(rules);
+		return calendarType;
+	}
+	
+	private CalendarRuleEntity createDateRule(String workdate, int status) throws ParseException {
+		CalendarRuleEntity rule = new CalendarRuleEntity(workdate);
+		rule.setWorkdate(new SimpleDateFormat("yyyy-MM-dd").parse(workdate));
+		rule.setYear(Integer.parseInt(workdate.substring(0, 4)));
+		rule.setStatus(status);
+		return rule;
+	}
+	
+	private CalendarPartEntity createPart(String starttime, String endtime, int amorpm) {
+		CalendarPartEntity part = new CalendarPartEntity();
+		part.setStarttime(starttime);
+		part.setEndtime(endtime);
+		part.setAmorpm(amorpm);
+		return part;
+	}
+	
+	private Date date(String date) throws ParseException {
+		return format.parse(date);
+	}
+}